@@ -0,0 +1,56 @@
+package uk.gov.dwp.uc.pairtest.benchmark;
+
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest.Type;
+
+/**
+ * Builds the ticket baskets used by the benchmarks.
+ * Every basket holds {@code size} ticket type requests so the cost of walking the request array can be compared.
+ */
+final class Baskets {
+
+    private Baskets() {
+    }
+
+    /**
+     * Create a valid basket, the first request is always an adult ticket
+     * and the remaining requests cycle through Adult, Child and Infant with one ticket each.
+     *
+     * @param  size Number of ticket type requests, at most 20
+     * @return A basket that passes every purchase rule
+     */
+    static TicketTypeRequest[] valid(final int size) {
+        final Type[] types = Type.values();
+        final TicketTypeRequest[] basket = new TicketTypeRequest[size];
+        for (int i = 0; i < size; i++) {
+            basket[i] = new TicketTypeRequest(types[i % types.length], 1);
+        }
+        return basket;
+    }
+
+    /**
+     * Create a basket that exceeds the maximum number of tickets allowed in a single purchase.
+     *
+     * @param  size Number of ticket type requests
+     * @return A basket rejected with a max ticket purchase error
+     */
+    static TicketTypeRequest[] overMaxTickets(final int size) {
+        final TicketTypeRequest[] basket = valid(size);
+        basket[0] = new TicketTypeRequest(Type.ADULT, 21);
+        return basket;
+    }
+
+    /**
+     * Create a basket holding only Child and Infant tickets.
+     *
+     * @param  size Number of ticket type requests
+     * @return A basket rejected because no adult ticket is purchased
+     */
+    static TicketTypeRequest[] withoutAdult(final int size) {
+        final TicketTypeRequest[] basket = new TicketTypeRequest[size];
+        for (int i = 0; i < size; i++) {
+            basket[i] = new TicketTypeRequest(i % 2 == 0 ? Type.CHILD : Type.INFANT, 1);
+        }
+        return basket;
+    }
+}
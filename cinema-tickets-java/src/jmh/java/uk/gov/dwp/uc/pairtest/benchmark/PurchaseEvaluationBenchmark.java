@@ -0,0 +1,88 @@
+package uk.gov.dwp.uc.pairtest.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import uk.gov.dwp.uc.pairtest.domain.PurchaseResult;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest.Type;
+import uk.gov.dwp.uc.pairtest.engine.PurchaseEvaluation;
+import uk.gov.dwp.uc.pairtest.engine.PurchaseRules;
+import uk.gov.dwp.uc.pairtest.engine.Tariff;
+import uk.gov.dwp.uc.pairtest.engine.TariffCatalogue;
+
+/**
+ * Benchmarks of the single pass {@link PurchaseEvaluation} used by the purchase hot path
+ * to derive the seat count, ticket limit, adult check and total amount,
+ * of deciding the evaluated counts with the compiled {@link PurchaseRules},
+ * and of pricing them with the tariff of a screening in a catalogue of thousands of tariffs.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class PurchaseEvaluationBenchmark {
+
+    /**
+     * Number of ticket type requests in the basket.
+     */
+    @Param({"1", "4", "12", "20"})
+    public int basketSize;
+
+    private PurchaseEvaluation evaluation;
+    private TicketTypeRequest[] basket;
+    private PurchaseRules rules;
+    private TariffCatalogue tariffs;
+
+    @Setup
+    public void setUp() {
+        evaluation = new PurchaseEvaluation();
+        basket = Baskets.valid(basketSize);
+        rules = PurchaseRules.DEFAULT.withMaxInfantsPerAdult(1).withMaxTickets(Type.CHILD, 10);
+        tariffs = TariffCatalogue.standard();
+        for (int i = 0; i < 5000; i++) {
+            final Tariff tariff = new Tariff("promotion-" + i, 2000 + i, 1000, 0)
+                    .withFamilyBundle(2, 2, 5000)
+                    .withDiscount(i % 2000);
+            tariffs.assign("screening-" + i, tariffs.register(tariff));
+        }
+    }
+
+    @Benchmark
+    public int totalSeats() {
+        return evaluation.evaluate(basket).totalSeats();
+    }
+
+    @Benchmark
+    public long totalAmountInPence() {
+        return evaluation.evaluate(basket).totalAmountInPence();
+    }
+
+    @Benchmark
+    public boolean hasAdult() {
+        return evaluation.evaluate(basket).hasAdult();
+    }
+
+    @Benchmark
+    public long tariffPrice() {
+        return tariffs.price("screening-4242", evaluation.evaluate(basket));
+    }
+
+    @Benchmark
+    public PurchaseResult.Status rules() {
+        return rules.evaluate(evaluation.evaluate(basket));
+    }
+}
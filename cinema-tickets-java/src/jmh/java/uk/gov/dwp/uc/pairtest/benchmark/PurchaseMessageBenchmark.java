@@ -0,0 +1,62 @@
+package uk.gov.dwp.uc.pairtest.benchmark;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import uk.gov.dwp.uc.pairtest.codec.PurchaseMessage;
+import uk.gov.dwp.uc.pairtest.codec.PurchaseMessageEncoder;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest;
+import uk.gov.dwp.uc.pairtest.engine.PurchaseEvaluation;
+
+/**
+ * Benchmarks evaluating a received purchase message, read in place through the {@link PurchaseMessage} flyweight
+ * against decoding it into a {@link TicketTypeRequest} per line item first.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class PurchaseMessageBenchmark {
+
+    /**
+     * Number of line items in the message.
+     */
+    @Param({"1", "4", "12", "20"})
+    public int basketSize;
+
+    private final PurchaseMessage message = new PurchaseMessage();
+    private PurchaseEvaluation evaluation;
+    private ByteBuffer encoded;
+
+    @Setup
+    public void setUp() {
+        evaluation = new PurchaseEvaluation();
+        encoded = PurchaseMessageEncoder.encode(1000L, Baskets.valid(basketSize));
+    }
+
+    @Benchmark
+    public int flyweight() {
+        message.wrap(encoded, 0);
+        return evaluation.evaluate(message).totalSeats();
+    }
+
+    @Benchmark
+    public int decodeToRequests() {
+        message.wrap(encoded, 0);
+        return evaluation.evaluate(message.toTicketTypeRequests()).totalSeats();
+    }
+}
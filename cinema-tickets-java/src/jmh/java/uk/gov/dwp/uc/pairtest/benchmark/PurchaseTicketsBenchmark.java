@@ -0,0 +1,98 @@
+package uk.gov.dwp.uc.pairtest.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import thirdparty.paymentgateway.TicketPaymentServiceImpl;
+import thirdparty.seatbooking.SeatReservationServiceImpl;
+import uk.gov.dwp.uc.pairtest.TicketService;
+import uk.gov.dwp.uc.pairtest.TicketServiceImpl;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest;
+import uk.gov.dwp.uc.pairtest.exception.InvalidPurchaseException;
+import uk.gov.dwp.uc.pairtest.metrics.PurchaseMetrics;
+
+/**
+ * End to end benchmarks of {@link TicketServiceImpl#purchaseTickets(Long, TicketTypeRequest...)}
+ * for a confirmed booking and for every rejection path.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class PurchaseTicketsBenchmark {
+
+    private static final Long VALID_ACCOUNT_ID = 1000L;
+    private static final Long INVALID_ACCOUNT_ID = -1000L;
+
+    /**
+     * Number of ticket type requests in the basket.
+     */
+    @Param({"1", "4", "12", "20"})
+    public int basketSize;
+
+    /**
+     * Whether purchase metrics are recorded, to measure their overhead.
+     */
+    @Param({"false", "true"})
+    public boolean metrics;
+
+    private TicketService ticketService;
+    private TicketTypeRequest[] validBasket;
+    private TicketTypeRequest[] overMaxTicketsBasket;
+    private TicketTypeRequest[] withoutAdultBasket;
+
+    @Setup
+    public void setUp() {
+        ticketService = TicketServiceImpl.builder(new TicketPaymentServiceImpl(), new SeatReservationServiceImpl())
+                .metrics(metrics ? new PurchaseMetrics() : PurchaseMetrics.disabled())
+                .build();
+        validBasket = Baskets.valid(basketSize);
+        overMaxTicketsBasket = Baskets.overMaxTickets(basketSize);
+        withoutAdultBasket = Baskets.withoutAdult(basketSize);
+    }
+
+    @Benchmark
+    public void validPurchase() {
+        ticketService.purchaseTickets(VALID_ACCOUNT_ID, validBasket);
+    }
+
+    @Benchmark
+    public Object invalidAccount() {
+        return purchase(INVALID_ACCOUNT_ID, validBasket);
+    }
+
+    @Benchmark
+    public Object maxTicketPurchase() {
+        return purchase(VALID_ACCOUNT_ID, overMaxTicketsBasket);
+    }
+
+    @Benchmark
+    public Object mandatoryAdultTicketPurchaseRequired() {
+        return purchase(VALID_ACCOUNT_ID, withoutAdultBasket);
+    }
+
+    /**
+     * Purchase tickets and hand back the rejection so the exception is not optimised away.
+     */
+    private Object purchase(final Long accountId, final TicketTypeRequest[] basket) {
+        try {
+            ticketService.purchaseTickets(accountId, basket);
+            return null;
+        } catch (final InvalidPurchaseException e) {
+            return e;
+        }
+    }
+}
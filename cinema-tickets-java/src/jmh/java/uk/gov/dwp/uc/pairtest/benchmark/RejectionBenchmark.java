@@ -0,0 +1,92 @@
+package uk.gov.dwp.uc.pairtest.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import thirdparty.paymentgateway.TicketPaymentServiceImpl;
+import thirdparty.seatbooking.SeatReservationServiceImpl;
+import uk.gov.dwp.uc.pairtest.TicketService;
+import uk.gov.dwp.uc.pairtest.TicketServiceImpl;
+import uk.gov.dwp.uc.pairtest.domain.PurchaseResult;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest;
+import uk.gov.dwp.uc.pairtest.exception.InvalidPurchaseException;
+
+/**
+ * Benchmarks a rejected purchase through each way of reporting it:
+ * a new exception with a stack trace, a preallocated stackless exception and the result API.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class RejectionBenchmark {
+
+    private static final Long VALID_ACCOUNT_ID = 1000L;
+    private static final Long INVALID_ACCOUNT_ID = -1000L;
+
+    private TicketService throwingTicketService;
+    private TicketService stacklessTicketService;
+    private TicketTypeRequest[] validBasket;
+    private TicketTypeRequest[] withoutAdultBasket;
+
+    @Setup
+    public void setUp() {
+        throwingTicketService = new TicketServiceImpl(new TicketPaymentServiceImpl(), new SeatReservationServiceImpl());
+        stacklessTicketService = TicketServiceImpl.builder(new TicketPaymentServiceImpl(), new SeatReservationServiceImpl())
+                .stacklessRejections(true)
+                .build();
+        validBasket = Baskets.valid(4);
+        withoutAdultBasket = Baskets.withoutAdult(4);
+    }
+
+    @Benchmark
+    public Object invalidAccountThrown() {
+        return purchase(throwingTicketService, INVALID_ACCOUNT_ID, validBasket);
+    }
+
+    @Benchmark
+    public Object invalidAccountStackless() {
+        return purchase(stacklessTicketService, INVALID_ACCOUNT_ID, validBasket);
+    }
+
+    @Benchmark
+    public PurchaseResult invalidAccountResult() {
+        return throwingTicketService.tryPurchaseTickets(INVALID_ACCOUNT_ID, validBasket);
+    }
+
+    @Benchmark
+    public Object mandatoryAdultThrown() {
+        return purchase(throwingTicketService, VALID_ACCOUNT_ID, withoutAdultBasket);
+    }
+
+    @Benchmark
+    public Object mandatoryAdultStackless() {
+        return purchase(stacklessTicketService, VALID_ACCOUNT_ID, withoutAdultBasket);
+    }
+
+    @Benchmark
+    public PurchaseResult mandatoryAdultResult() {
+        return throwingTicketService.tryPurchaseTickets(VALID_ACCOUNT_ID, withoutAdultBasket);
+    }
+
+    private Object purchase(final TicketService ticketService, final Long accountId, final TicketTypeRequest[] basket) {
+        try {
+            ticketService.purchaseTickets(accountId, basket);
+            return null;
+        } catch (final InvalidPurchaseException e) {
+            return e;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package uk.gov.dwp.uc.pairtest.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import uk.gov.dwp.uc.pairtest.seating.ScreeningSeatMap;
+import uk.gov.dwp.uc.pairtest.seating.SeatAllocation;
+
+/**
+ * Benchmarks claiming and releasing seats of one screening shared by every benchmark thread.
+ * Run with {@code -t <threads>} to measure how allocation scales with contention.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class SeatAllocationBenchmark {
+
+    /**
+     * Number of seats claimed per booking.
+     */
+    @Param({"1", "4", "12"})
+    public int partySize;
+
+    private ScreeningSeatMap screening;
+
+    @Setup
+    public void setUp() {
+        screening = new ScreeningSeatMap(40, 30);
+    }
+
+    @Benchmark
+    public SeatAllocation allocateAndRelease() {
+        final SeatAllocation allocation = screening.allocate(partySize);
+        if (allocation != null) {
+            screening.release(allocation);
+        }
+        return allocation;
+    }
+}
@@ -0,0 +1,112 @@
+package uk.gov.dwp.uc.pairtest.loadtest;
+
+import java.util.SplittableRandom;
+
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest.Type;
+
+/**
+ * Generates the purchases of a load test.
+ * <p>
+ * A purchase is valid at the given ratio. A valid purchase has one to {@code maxTickets} tickets, at least one adult,
+ * and the other tickets drawn with the weight of each ticket type. An invalid purchase is, in equal parts,
+ * over the ticket limit, without an adult ticket, or for an invalid account.
+ * Baskets are built ahead of the test and reused so generating a purchase costs nothing measurable.
+ * </p>
+ */
+final class BasketMix {
+
+    private static final int BASKETS = 4096;
+    private static final long INVALID_ACCOUNT_ID = 0L;
+
+    private final TicketTypeRequest[][] baskets = new TicketTypeRequest[BASKETS][];
+    private final long[] accountIds = new long[BASKETS];
+
+    /**
+     * @param  validRatio The share of valid purchases, from 0 to 1
+     * @param  weights    The weight of each ticket type, in {@link Type} order
+     * @param  maxTickets The largest number of tickets in a valid purchase
+     * @param  accounts   The number of distinct valid accounts
+     * @param  seed       The random seed, the same seed generates the same purchases
+     */
+    BasketMix(final double validRatio, final double[] weights, final int maxTickets, final int accounts,
+              final long seed) {
+        final Type[] types = Type.values();
+        if (weights.length != types.length) {
+            throw new IllegalArgumentException("Expected a weight for each of " + types.length + " ticket types");
+        }
+        final SplittableRandom random = new SplittableRandom(seed);
+        double totalWeight = 0;
+        for (final double weight : weights) {
+            totalWeight += weight;
+        }
+
+        for (int index = 0; index < BASKETS; index++) {
+            accountIds[index] = 1 + random.nextInt(accounts);
+            if (random.nextDouble() < validRatio) {
+                baskets[index] = valid(random, types, weights, totalWeight, maxTickets);
+                continue;
+            }
+            switch (random.nextInt(3)) {
+                case 0:
+                    baskets[index] = new TicketTypeRequest[] {new TicketTypeRequest(Type.ADULT, 21)};
+                    break;
+                case 1:
+                    baskets[index] = new TicketTypeRequest[] {new TicketTypeRequest(Type.CHILD, 2)};
+                    break;
+                default:
+                    baskets[index] = valid(random, types, weights, totalWeight, maxTickets);
+                    accountIds[index] = INVALID_ACCOUNT_ID;
+            }
+        }
+    }
+
+    /**
+     * Get the basket of a purchase.
+     *
+     * @param  purchase The sequence number of the purchase
+     * @return The ticket requests
+     */
+    TicketTypeRequest[] basket(final long purchase) {
+        return baskets[(int) (purchase & (BASKETS - 1))];
+    }
+
+    /**
+     * Get the account of a purchase.
+     *
+     * @param  purchase The sequence number of the purchase
+     * @return The Account ID
+     */
+    long accountId(final long purchase) {
+        return accountIds[(int) (purchase & (BASKETS - 1))];
+    }
+
+    private static TicketTypeRequest[] valid(final SplittableRandom random, final Type[] types,
+                                             final double[] weights, final double totalWeight, final int maxTickets) {
+        final int[] counts = new int[types.length];
+        counts[Type.ADULT.ordinal()] = 1;
+        final int tickets = 1 + random.nextInt(maxTickets);
+        for (int ticket = 1; ticket < tickets; ticket++) {
+            double pick = random.nextDouble() * totalWeight;
+            int type = 0;
+            while (type < types.length - 1 && pick >= weights[type]) {
+                pick -= weights[type];
+                type++;
+            }
+            counts[type]++;
+        }
+
+        int requests = 0;
+        for (final int count : counts) {
+            requests += count > 0 ? 1 : 0;
+        }
+        final TicketTypeRequest[] basket = new TicketTypeRequest[requests];
+        int request = 0;
+        for (int type = 0; type < types.length; type++) {
+            if (counts[type] > 0) {
+                basket[request++] = new TicketTypeRequest(types[type], counts[type]);
+            }
+        }
+        return basket;
+    }
+}
@@ -0,0 +1,205 @@
+package uk.gov.dwp.uc.pairtest.loadtest;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import uk.gov.dwp.uc.pairtest.TicketService;
+import uk.gov.dwp.uc.pairtest.TicketServiceImpl;
+import uk.gov.dwp.uc.pairtest.domain.PurchaseResult;
+import uk.gov.dwp.uc.pairtest.metrics.HistogramSnapshot;
+import uk.gov.dwp.uc.pairtest.metrics.LatencyHistogram;
+
+/**
+ * Drives {@link TicketService} from many threads against simulated third-party services
+ * and reports the throughput and latency percentiles.
+ * <p>
+ * Each thread sends purchases on a fixed schedule, together at the target rate. The latency of a purchase
+ * is measured from the time it was scheduled to be sent, not from the time it was sent, so a stall which holds
+ * back the purchases queued behind it is counted against each of them (coordinated omission correction).
+ * The latency from the time each purchase was sent is reported alongside to show how much the correction adds.
+ * </p>
+ * <p>
+ * Run after {@code mvn -Pjmh package -DskipTests}, with any option overriding its default, e.g.
+ * {@code java -cp target/benchmarks.jar uk.gov.dwp.uc.pairtest.loadtest.LoadTest --threads=64 --rate=5000}.
+ * </p>
+ */
+public final class LoadTest {
+
+    private static final String[][] OPTIONS = {
+            {"threads", "32", "Number of purchasing threads"},
+            {"rate", "2000", "Target purchases per second across all threads"},
+            {"duration", "30", "Seconds to measure"},
+            {"warmup", "10", "Seconds to run before measuring"},
+            {"validRatio", "0.9", "Share of valid purchases"},
+            {"adultWeight", "2", "Weight of Adult tickets in a basket"},
+            {"childWeight", "1.5", "Weight of Child tickets in a basket"},
+            {"infantWeight", "0.5", "Weight of Infant tickets in a basket"},
+            {"maxTickets", "8", "Largest number of tickets in a valid basket"},
+            {"accounts", "10000", "Number of purchasing accounts"},
+            {"paymentBaseMicros", "2000", "Least payment gateway latency"},
+            {"paymentJitterMicros", "1000", "Mean payment gateway latency above the least"},
+            {"paymentErrorRate", "0.001", "Share of failed payments"},
+            {"reservationBaseMicros", "500", "Least seat booking latency"},
+            {"reservationJitterMicros", "500", "Mean seat booking latency above the least"},
+            {"reservationErrorRate", "0.001", "Share of failed seat reservations"},
+            {"slowRate", "0.005", "Share of third-party calls which are slow"},
+            {"slowFactor", "20", "How many times longer a slow third-party call takes"},
+            {"seed", "42", "Random seed of the basket mix"},
+    };
+
+    private LoadTest() {
+    }
+
+    public static void main(final String[] args) throws InterruptedException {
+        final Map<String, String> options = parse(args);
+        final int threads = Integer.parseInt(options.get("threads"));
+        final double rate = Double.parseDouble(options.get("rate"));
+        final long durationNanos = TimeUnit.SECONDS.toNanos(Long.parseLong(options.get("duration")));
+        final long warmupNanos = TimeUnit.SECONDS.toNanos(Long.parseLong(options.get("warmup")));
+        final double slowRate = Double.parseDouble(options.get("slowRate"));
+        final int slowFactor = Integer.parseInt(options.get("slowFactor"));
+
+        final BasketMix mix = new BasketMix(Double.parseDouble(options.get("validRatio")),
+                new double[] {
+                        Double.parseDouble(options.get("adultWeight")),
+                        Double.parseDouble(options.get("childWeight")),
+                        Double.parseDouble(options.get("infantWeight"))},
+                Integer.parseInt(options.get("maxTickets")), Integer.parseInt(options.get("accounts")),
+                Long.parseLong(options.get("seed")));
+        final SimulatedBackend paymentService = new SimulatedBackend("Payment gateway",
+                Long.parseLong(options.get("paymentBaseMicros")), Long.parseLong(options.get("paymentJitterMicros")),
+                slowRate, slowFactor, Double.parseDouble(options.get("paymentErrorRate")));
+        final SimulatedBackend reservationService = new SimulatedBackend("Seat booking",
+                Long.parseLong(options.get("reservationBaseMicros")),
+                Long.parseLong(options.get("reservationJitterMicros")),
+                slowRate, slowFactor, Double.parseDouble(options.get("reservationErrorRate")));
+        final TicketService ticketService = new TicketServiceImpl(paymentService, reservationService);
+
+        final Recorder recorder = new Recorder();
+        final long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(threads) / rate);
+        final long start = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(100);
+        final long measureFrom = start + warmupNanos;
+        final long end = measureFrom + durationNanos;
+        final CountDownLatch done = new CountDownLatch(threads);
+        for (int thread = 0; thread < threads; thread++) {
+            // Stagger the threads so their schedules interleave rather than send in bursts.
+            final long firstSend = start + intervalNanos * thread / threads;
+            final long firstPurchase = thread;
+            final Thread worker = new Thread(() -> {
+                try {
+                    run(ticketService, mix, recorder, firstSend, intervalNanos, firstPurchase, threads,
+                            measureFrom, end);
+                } finally {
+                    done.countDown();
+                }
+            }, "load-" + thread);
+            worker.setDaemon(true);
+            worker.start();
+        }
+        done.await();
+
+        report(options, recorder, durationNanos, rate, paymentService, reservationService);
+    }
+
+    private static void run(final TicketService ticketService, final BasketMix mix, final Recorder recorder,
+                            final long firstSend, final long intervalNanos, final long firstPurchase,
+                            final int purchaseStride, final long measureFrom, final long end) {
+        long purchase = firstPurchase;
+        for (long scheduled = firstSend; scheduled < end; scheduled += intervalNanos, purchase += purchaseStride) {
+            long now = System.nanoTime();
+            while (now < scheduled) {
+                LockSupport.parkNanos(scheduled - now);
+                now = System.nanoTime();
+            }
+            final PurchaseResult result = ticketService.tryPurchaseTickets(mix.accountId(purchase),
+                    mix.basket(purchase));
+            final long completed = System.nanoTime();
+            if (scheduled >= measureFrom) {
+                recorder.record(result.getStatus(), completed - scheduled, completed - now);
+            }
+        }
+    }
+
+    private static void report(final Map<String, String> options, final Recorder recorder, final long durationNanos,
+                               final double rate, final SimulatedBackend paymentService,
+                               final SimulatedBackend reservationService) {
+        final HistogramSnapshot corrected = recorder.corrected.snapshot();
+        final HistogramSnapshot uncorrected = recorder.uncorrected.snapshot();
+        final double seconds = durationNanos / 1e9;
+
+        System.out.println("Options: " + options);
+        System.out.printf(Locale.ROOT, "Throughput: %.1f purchases/s (target %.1f)%n",
+                corrected.getCount() / seconds, rate);
+        for (final PurchaseResult.Status status : PurchaseResult.Status.values()) {
+            final long count = recorder.outcomes[status.ordinal()].sum();
+            if (count > 0) {
+                System.out.printf(Locale.ROOT, "  %-42s %10d%n", status, count);
+            }
+        }
+        System.out.printf(Locale.ROOT, "Third-party calls: payment %d (%d failed), reservation %d (%d failed)%n",
+                paymentService.getCalls(), paymentService.getErrors(),
+                reservationService.getCalls(), reservationService.getErrors());
+        System.out.println("Latency (ms)        p50      p90      p99    p99.9      max");
+        printLatency("corrected", corrected);
+        printLatency("uncorrected", uncorrected);
+    }
+
+    private static void printLatency(final String name, final HistogramSnapshot snapshot) {
+        System.out.printf(Locale.ROOT, "  %-12s %8.2f %8.2f %8.2f %8.2f %8.2f%n", name,
+                millis(snapshot.getValueAtPercentile(50)), millis(snapshot.getValueAtPercentile(90)),
+                millis(snapshot.getValueAtPercentile(99)), millis(snapshot.getValueAtPercentile(99.9)),
+                millis(snapshot.getMax()));
+    }
+
+    private static double millis(final long nanos) {
+        return nanos / 1e6;
+    }
+
+    private static Map<String, String> parse(final String[] args) {
+        final Map<String, String> options = new TreeMap<>();
+        for (final String[] option : OPTIONS) {
+            options.put(option[0], option[1]);
+        }
+        for (final String arg : args) {
+            final int separator = arg.indexOf('=');
+            final String name = arg.startsWith("--") && separator > 2 ? arg.substring(2, separator) : null;
+            if (name == null || !options.containsKey(name)) {
+                usage(arg);
+            }
+            options.put(name, arg.substring(separator + 1));
+        }
+        return options;
+    }
+
+    private static void usage(final String arg) {
+        System.err.println("Unknown option " + arg + ", expected --name=value with any of:");
+        for (final String[] option : OPTIONS) {
+            System.err.printf(Locale.ROOT, "  --%-24s %s (default %s)%n", option[0], option[2], option[1]);
+        }
+        System.exit(1);
+    }
+
+    private static final class Recorder {
+        private final LatencyHistogram corrected = new LatencyHistogram();
+        private final LatencyHistogram uncorrected = new LatencyHistogram();
+        private final LongAdder[] outcomes = new LongAdder[PurchaseResult.Status.values().length];
+
+        private Recorder() {
+            for (int i = 0; i < outcomes.length; i++) {
+                outcomes[i] = new LongAdder();
+            }
+        }
+
+        private void record(final PurchaseResult.Status status, final long correctedNanos,
+                            final long uncorrectedNanos) {
+            corrected.record(correctedNanos);
+            uncorrected.record(uncorrectedNanos);
+            outcomes[status.ordinal()].increment();
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package uk.gov.dwp.uc.pairtest.loadtest;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import thirdparty.paymentgateway.TicketPaymentService;
+import thirdparty.seatbooking.SeatReservationService;
+
+/**
+ * A stand-in for the payment gateway or the seat booking backend which takes every call after a simulated latency.
+ * <p>
+ * The latency of a call is the base latency plus an exponentially distributed delay with the given mean,
+ * and with a small chance a slow call of {@code slowFactor} times that, so the stand-in has the long tail
+ * of a real remote service. A call fails with an {@link IllegalStateException} at the given error rate.
+ * </p>
+ */
+final class SimulatedBackend implements TicketPaymentService, SeatReservationService {
+
+    private static final ThreadLocal<SplittableRandom> RANDOM =
+            ThreadLocal.withInitial(() -> new SplittableRandom(System.nanoTime() ^ Thread.currentThread().getId()));
+
+    private final String name;
+    private final long baseNanos;
+    private final double meanJitterNanos;
+    private final double slowRate;
+    private final int slowFactor;
+    private final double errorRate;
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+
+    /**
+     * @param  name          The name of the backend, used in error messages
+     * @param  baseMicros    The least latency of a call
+     * @param  jitterMicros  The mean of the exponential latency added to the base latency
+     * @param  slowRate      The chance of a slow call, from 0 to 1
+     * @param  slowFactor    How many times longer a slow call takes
+     * @param  errorRate     The chance of a failed call, from 0 to 1
+     */
+    SimulatedBackend(final String name, final long baseMicros, final long jitterMicros, final double slowRate,
+                     final int slowFactor, final double errorRate) {
+        this.name = name;
+        this.baseNanos = TimeUnit.MICROSECONDS.toNanos(baseMicros);
+        this.meanJitterNanos = TimeUnit.MICROSECONDS.toNanos(jitterMicros);
+        this.slowRate = slowRate;
+        this.slowFactor = slowFactor;
+        this.errorRate = errorRate;
+    }
+
+    @Override
+    public void makePayment(final long accountId, final int totalAmountToPay) {
+        call();
+    }
+
+    @Override
+    public void reserveSeat(final long accountId, final int totalSeatsToAllocate) {
+        call();
+    }
+
+    long getCalls() {
+        return calls.sum();
+    }
+
+    long getErrors() {
+        return errors.sum();
+    }
+
+    private void call() {
+        calls.increment();
+        final SplittableRandom random = RANDOM.get();
+        long latency = baseNanos + (long) (-meanJitterNanos * Math.log(1 - random.nextDouble()));
+        if (random.nextDouble() < slowRate) {
+            latency *= slowFactor;
+        }
+        sleep(latency);
+        if (random.nextDouble() < errorRate) {
+            errors.increment();
+            throw new IllegalStateException(name + " call failed");
+        }
+    }
+
+    private static void sleep(final long nanos) {
+        final long deadline = System.nanoTime() + nanos;
+        long remaining = nanos;
+        while (remaining > 0) {
+            LockSupport.parkNanos(remaining);
+            remaining = deadline - System.nanoTime();
+        }
+    }
+}
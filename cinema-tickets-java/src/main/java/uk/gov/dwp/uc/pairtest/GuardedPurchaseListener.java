@@ -0,0 +1,63 @@
+package uk.gov.dwp.uc.pairtest;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import uk.gov.dwp.uc.pairtest.domain.PurchaseResult;
+
+/**
+ * {@link PurchaseListener} which logs the failures of the notifications after {@link #bookingStarted}
+ * instead of throwing them, so a failing listener cannot stop a paid booking from reserving its seats.
+ */
+final class GuardedPurchaseListener implements PurchaseListener {
+
+    final static Logger log =
+            LoggerFactory.getLogger(GuardedPurchaseListener.class);
+
+    private final PurchaseListener listener;
+
+    GuardedPurchaseListener(final PurchaseListener listener) {
+        this.listener = listener;
+    }
+
+    @Override
+    public long bookingStarted(final long accountId, final int totalAmount, final int totalSeats) {
+        return listener.bookingStarted(accountId, totalAmount, totalSeats);
+    }
+
+    @Override
+    public void paymentTaken(final long bookingId) {
+        try {
+            listener.paymentTaken(bookingId);
+        } catch (final RuntimeException e) {
+            log.error("Error while recording payment of booking {}.", bookingId, e);
+        }
+    }
+
+    @Override
+    public void seatsReserved(final long bookingId) {
+        try {
+            listener.seatsReserved(bookingId);
+        } catch (final RuntimeException e) {
+            log.error("Error while recording seats of booking {}.", bookingId, e);
+        }
+    }
+
+    @Override
+    public void bookingFailed(final long bookingId, final Throwable cause) {
+        try {
+            listener.bookingFailed(bookingId, cause);
+        } catch (final RuntimeException e) {
+            log.error("Error while recording failure of booking {}.", bookingId, e);
+        }
+    }
+
+    @Override
+    public void purchaseRejected(final long accountId, final PurchaseResult.Status status) {
+        try {
+            listener.purchaseRejected(accountId, status);
+        } catch (final RuntimeException e) {
+            log.error("Error while recording rejected purchase.", e);
+        }
+    }
+}
@@ -0,0 +1,309 @@
+package uk.gov.dwp.uc.pairtest;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import uk.gov.dwp.uc.pairtest.cache.ExpiringCache;
+import uk.gov.dwp.uc.pairtest.codec.PurchaseMessage;
+import uk.gov.dwp.uc.pairtest.domain.PurchaseOrder;
+import uk.gov.dwp.uc.pairtest.domain.PurchaseResult;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest;
+import uk.gov.dwp.uc.pairtest.exception.ErrorMessages;
+import uk.gov.dwp.uc.pairtest.exception.InvalidAccountException;
+import uk.gov.dwp.uc.pairtest.exception.InvalidPurchaseException;
+import uk.gov.dwp.uc.pairtest.exception.MandatoryAdultTicketPurchaseRequiredException;
+import uk.gov.dwp.uc.pairtest.exception.MaxTicketPurchaseException;
+import uk.gov.dwp.uc.pairtest.exception.PurchaseLimitExceededException;
+import uk.gov.dwp.uc.pairtest.exception.SeatsUnavailableException;
+import uk.gov.dwp.uc.pairtest.exception.ServiceOverloadedException;
+
+/**
+ * Ticket Service decorator which makes purchases carrying an idempotency key safe to retry.
+ * <p>
+ * The result of each keyed purchase is kept in a bounded cache for a time to live, with the tickets it was for.
+ * A retry with the same account, key and tickets replays the result, completing normally or throwing the same
+ * rejection, without calling the payment or seat reservation services again. A failed booking is replayed
+ * as a failure, as it may have been paid. A purchase refused as overloaded is not kept, so a retry purchases again.
+ * A retry with the same key but different tickets is rejected, as the key was reused by mistake.
+ * A retry arriving while the first purchase is still running waits for its outcome.
+ * A running purchase is never evicted from the cache, a new key arriving while the cache is full of running
+ * purchases is refused as overloaded.
+ * </p>
+ */
+public class IdempotentTicketService implements TicketService {
+
+    final static Logger log =
+            LoggerFactory.getLogger(IdempotentTicketService.class);
+
+    private static final Map<PurchaseResult.Status, InvalidPurchaseException> REJECTIONS = rejections();
+
+    private final TicketService delegate;
+    private final ExpiringCache<IdempotencyKey, Entry> outcomes;
+
+    /**
+     * The constructor which initializes the decorated service and the outcome cache.
+     *
+     * @param  delegate   The Ticket service making the purchases
+     * @param  maxEntries The maximum number of outcomes kept
+     * @param  ttl        How long an outcome is kept
+     * @param  unit       The unit of the time to live
+     */
+    public IdempotentTicketService(final TicketService delegate, final int maxEntries, final long ttl, final TimeUnit unit) {
+        this.delegate = delegate;
+        this.outcomes = new ExpiringCache<>(maxEntries, ttl, unit, System::nanoTime, Entry::isRunning);
+    }
+
+    @Override
+    public void purchaseTickets(final Long accountId, final TicketTypeRequest... ticketTypeRequests)
+            throws InvalidPurchaseException {
+        delegate.purchaseTickets(accountId, ticketTypeRequests);
+    }
+
+    @Override
+    public PurchaseResult tryPurchaseTickets(final Long accountId, final TicketTypeRequest... ticketTypeRequests) {
+        return delegate.tryPurchaseTickets(accountId, ticketTypeRequests);
+    }
+
+    @Override
+    public PurchaseResult tryPurchaseTickets(final PurchaseMessage message) {
+        return delegate.tryPurchaseTickets(message);
+    }
+
+    @Override
+    public List<PurchaseResult> purchaseBatch(final List<PurchaseOrder> orders) throws InvalidPurchaseException {
+        return delegate.purchaseBatch(orders);
+    }
+
+    /**
+     * Purchase tickets at most once per account and idempotency key.
+     * A booking which failed after validation, which may have been paid, is not purchased again on a retry
+     * and is thrown as a rejection with the booking failed error message, the first time and on every retry.
+     *
+     * @param  idempotencyKey     The client key of the purchase, null to purchase without deduplication
+     * @param  accountId          The Account ID
+     * @param  ticketTypeRequests The ticket purchase requests
+     * @throws InvalidPurchaseException If the purchase, or the purchase it repeats, is rejected or failed,
+     *                                  or the key was sent with different tickets
+     */
+    public void purchaseTickets(final String idempotencyKey, final Long accountId,
+                                final TicketTypeRequest... ticketTypeRequests) throws InvalidPurchaseException {
+        if (Objects.isNull(idempotencyKey)) {
+            delegate.purchaseTickets(accountId, ticketTypeRequests);
+            return;
+        }
+
+        final PurchaseResult result = purchase(idempotencyKey, accountId, ticketTypeRequests).result;
+        if (!result.isConfirmed()) {
+            throw REJECTIONS.get(result.getStatus());
+        }
+    }
+
+    /**
+     * Purchase tickets at most once per account and idempotency key, reporting a rejected purchase through
+     * the result instead of throwing. A retry returns the result of the purchase it repeats,
+     * a failed booking included.
+     *
+     * @param  idempotencyKey     The client key of the purchase, null to purchase without deduplication
+     * @param  accountId          The Account ID
+     * @param  ticketTypeRequests The ticket purchase requests
+     * @return The purchase result, rejected as {@link PurchaseResult.Status#IDEMPOTENCY_KEY_REUSED}
+     *         if the key was sent with different tickets
+     */
+    public PurchaseResult tryPurchaseTickets(final String idempotencyKey, final Long accountId,
+                                             final TicketTypeRequest... ticketTypeRequests) {
+        if (Objects.isNull(idempotencyKey)) {
+            return delegate.tryPurchaseTickets(accountId, ticketTypeRequests);
+        }
+        return purchase(idempotencyKey, accountId, ticketTypeRequests).result;
+    }
+
+    private Outcome purchase(final String idempotencyKey, final Long accountId,
+                             final TicketTypeRequest... ticketTypeRequests) {
+        final IdempotencyKey key = new IdempotencyKey(accountId, idempotencyKey);
+        final Basket basket = new Basket(ticketTypeRequests);
+        final Entry entry = new Entry(basket);
+        final Entry previous;
+        try {
+            previous = outcomes.putIfAbsent(key, entry);
+        } catch (final IllegalStateException e) {
+            log.warn("Idempotency cache is full of running purchases, refusing purchase.");
+            return Outcome.OVERLOADED;
+        }
+        if (previous != null) {
+            if (!previous.basket.equals(basket)) {
+                log.debug("{}: {}", ErrorMessages.IDEMPOTENCY_KEY_REUSED, accountId);
+                return Outcome.KEY_REUSED;
+            }
+            log.debug("Replaying purchase outcome for repeated idempotency key.");
+            return replay(previous);
+        }
+
+        final Outcome outcome;
+        try {
+            outcome = new Outcome(delegate.tryPurchaseTickets(accountId, ticketTypeRequests));
+        } catch (final RuntimeException | Error e) {
+            // Unexpected failure, forget the key so a retry purchases again.
+            outcomes.invalidate(key);
+            entry.outcome.completeExceptionally(e);
+            throw e;
+        }
+        if (outcome.result.getStatus() == PurchaseResult.Status.OVERLOADED) {
+            // Refused before any payment, so a retry may purchase again.
+            outcomes.invalidate(key);
+        }
+        entry.outcome.complete(outcome);
+        return outcome;
+    }
+
+    private Outcome replay(final Entry previous) {
+        try {
+            return previous.outcome.join();
+        } catch (final CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Create the rejection thrown for each status of a purchase which was not confirmed.
+     * The rejections carry no stack trace, so they are shared by every thread throwing them
+     * and replaying a rejection costs no more than returning its result.
+     *
+     * @return The rejection of each status
+     */
+    private static Map<PurchaseResult.Status, InvalidPurchaseException> rejections() {
+        final Map<PurchaseResult.Status, InvalidPurchaseException> rejections =
+                new EnumMap<>(PurchaseResult.Status.class);
+        for (final PurchaseResult.Status status : PurchaseResult.Status.values()) {
+            if (status != PurchaseResult.Status.CONFIRMED) {
+                rejections.put(status, rejection(status));
+            }
+        }
+        return rejections;
+    }
+
+    private static InvalidPurchaseException rejection(final PurchaseResult.Status status) {
+        switch (status) {
+            case INVALID_ACCOUNT:
+                return InvalidAccountException.stackless();
+            case MAX_TICKET_PURCHASE_EXCEEDED:
+                return MaxTicketPurchaseException.stackless();
+            case MANDATORY_ADULT_TICKET_PURCHASE_REQUIRED:
+                return MandatoryAdultTicketPurchaseRequiredException.stackless();
+            case OVERLOADED:
+                return ServiceOverloadedException.stackless();
+            case SEATS_UNAVAILABLE:
+                return SeatsUnavailableException.stackless();
+            case PURCHASE_LIMIT_EXCEEDED:
+                return PurchaseLimitExceededException.stackless();
+            default:
+                return InvalidPurchaseException.stackless(status.getErrorMessage());
+        }
+    }
+
+    /**
+     * An idempotency key scoped to the account it was sent for.
+     */
+    static final class IdempotencyKey {
+        private final Long accountId;
+        private final String key;
+
+        IdempotencyKey(final Long accountId, final String key) {
+            this.accountId = accountId;
+            this.key = key;
+        }
+
+        @Override
+        public boolean equals(final Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof IdempotencyKey)) {
+                return false;
+            }
+            final IdempotencyKey that = (IdempotencyKey) other;
+            return Objects.equals(accountId, that.accountId) && key.equals(that.key);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Objects.hashCode(accountId) + key.hashCode();
+        }
+    }
+
+    /**
+     * The tickets of a purchase, counted per ticket type so the same tickets listed in another order match.
+     * Null requests and requests without a type are counted in a slot of their own.
+     */
+    static final class Basket {
+        private static final TicketTypeRequest.Type[] TYPES = TicketTypeRequest.Type.values();
+
+        private final long[] tickets = new long[TYPES.length + 1];
+
+        Basket(final TicketTypeRequest... ticketTypeRequests) {
+            if (ticketTypeRequests == null) {
+                return;
+            }
+            for (final TicketTypeRequest request : ticketTypeRequests) {
+                if (request == null || request.getTicketType() == null) {
+                    tickets[TYPES.length]++;
+                } else {
+                    tickets[request.getTicketType().ordinal()] += request.getNoOfTickets();
+                }
+            }
+        }
+
+        @Override
+        public boolean equals(final Object other) {
+            return other instanceof Basket && Arrays.equals(tickets, ((Basket) other).tickets);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(tickets);
+        }
+    }
+
+    /**
+     * The cached outcome of a keyed purchase, completed once the first purchase with the key finishes.
+     */
+    private static final class Entry {
+        private final Basket basket;
+        private final CompletableFuture<Outcome> outcome = new CompletableFuture<>();
+
+        private Entry(final Basket basket) {
+            this.basket = basket;
+        }
+
+        private boolean isRunning() {
+            return !outcome.isDone();
+        }
+    }
+
+    /**
+     * The result of a keyed purchase.
+     */
+    private static final class Outcome {
+        private static final Outcome KEY_REUSED =
+                new Outcome(PurchaseResult.rejected(PurchaseResult.Status.IDEMPOTENCY_KEY_REUSED));
+        private static final Outcome OVERLOADED =
+                new Outcome(PurchaseResult.rejected(PurchaseResult.Status.OVERLOADED));
+
+        private final PurchaseResult result;
+
+        private Outcome(final PurchaseResult result) {
+            this.result = result;
+        }
+    }
+}
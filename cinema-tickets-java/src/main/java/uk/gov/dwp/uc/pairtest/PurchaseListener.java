@@ -0,0 +1,76 @@
+package uk.gov.dwp.uc.pairtest;
+
+import uk.gov.dwp.uc.pairtest.domain.PurchaseResult;
+
+/**
+ * Notified as a booking moves from intent to payment to seat reservation.
+ * <p>
+ * The Ticket service calls the listener on the purchasing thread, a slow listener slows every purchase.
+ * If {@link #bookingStarted} throws, the purchase fails before any payment is taken.
+ * The Ticket service calls the later notifications through {@link #guarded}, their failures are logged
+ * and never change the outcome of a booking.
+ * </p>
+ */
+public interface PurchaseListener {
+
+    /**
+     * The listener which ignores every notification.
+     */
+    PurchaseListener NONE = (accountId, totalAmount, totalSeats) -> 0;
+
+    /**
+     * Wrap a listener so the notifications after {@link #bookingStarted} log their failures instead of throwing.
+     *
+     * @param  listener The listener
+     * @return The guarded listener
+     */
+    static PurchaseListener guarded(final PurchaseListener listener) {
+        return listener == NONE || listener instanceof GuardedPurchaseListener
+                ? listener
+                : new GuardedPurchaseListener(listener);
+    }
+
+    /**
+     * A valid purchase is about to take the payment.
+     *
+     * @param  accountId   The Account ID
+     * @param  totalAmount The amount to pay
+     * @param  totalSeats  The number of seats to reserve
+     * @return The booking id passed to the later notifications
+     */
+    long bookingStarted(long accountId, int totalAmount, int totalSeats);
+
+    /**
+     * The payment of a booking is taken.
+     *
+     * @param  bookingId The booking id
+     */
+    default void paymentTaken(final long bookingId) {
+    }
+
+    /**
+     * The seats of a booking are reserved, the booking is complete.
+     *
+     * @param  bookingId The booking id
+     */
+    default void seatsReserved(final long bookingId) {
+    }
+
+    /**
+     * The payment or seat reservation of a booking failed.
+     *
+     * @param  bookingId The booking id
+     * @param  cause     The failure
+     */
+    default void bookingFailed(final long bookingId, final Throwable cause) {
+    }
+
+    /**
+     * A purchase is rejected before a booking is started.
+     *
+     * @param  accountId The Account ID, zero if it is missing
+     * @param  status    The reason the purchase is rejected
+     */
+    default void purchaseRejected(final long accountId, final PurchaseResult.Status status) {
+    }
+}
@@ -5,19 +5,19 @@ import thirdparty.seatbooking.SeatReservationServiceImpl;
 
 /**
  * Helper class to instantiate SeatReservationService
+ * <p>
+ * The instance is created with the helper, so every thread sees the same fully built instance.
+ * </p>
  */
 public class SeatReservationServiceHelper {
-   private SeatReservationService seatReservationService;
+    private final SeatReservationService seatReservationService = new SeatReservationServiceImpl();
 
     /**
-     * Create an instance of {@link SeatReservationService}.
+     * Get the instance of {@link SeatReservationService}.
      *
      * @return A {@link SeatReservationService}.
      */
     public SeatReservationService getReservationServiceInstance() {
-        if (seatReservationService == null) {
-            seatReservationService = new SeatReservationServiceImpl();
-        }
         return seatReservationService;
     }
 }
@@ -5,22 +5,22 @@ import thirdparty.paymentgateway.TicketPaymentServiceImpl;
 
 
 /**
- * Helper class to instantiate SeatReservationService
+ * Helper class to instantiate TicketPaymentService
+ * <p>
+ * The instance is created with the helper, so every thread sees the same fully built instance.
+ * </p>
  */
 public class TicketPaymentServiceHelper {
 
-    private TicketPaymentService ticketPaymentService;
+    private final TicketPaymentService ticketPaymentService = new TicketPaymentServiceImpl();
 
 
     /**
-     * Create an instance of {@link TicketPaymentService}.
+     * Get the instance of {@link TicketPaymentService}.
      *
      * @return A {@link TicketPaymentService}.
      */
     public TicketPaymentService getPaymentServiceInstance() {
-        if (ticketPaymentService == null) {
-            ticketPaymentService = new TicketPaymentServiceImpl();
-        }
         return ticketPaymentService;
     }
 
@@ -1,5 +1,10 @@
 package uk.gov.dwp.uc.pairtest;
 
+import java.util.List;
+
+import uk.gov.dwp.uc.pairtest.codec.PurchaseMessage;
+import uk.gov.dwp.uc.pairtest.domain.PurchaseOrder;
+import uk.gov.dwp.uc.pairtest.domain.PurchaseResult;
 import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest;
 import uk.gov.dwp.uc.pairtest.exception.InvalidPurchaseException;
 
@@ -10,4 +15,32 @@ public interface TicketService {
 
     void purchaseTickets(Long accountId, TicketTypeRequest... ticketTypeRequests) throws InvalidPurchaseException;
 
+    /**
+     * Purchase tickets, reporting a rejected purchase through the result instead of throwing.
+     * A rejection carries the matching ErrorMessages constant.
+     *
+     * @param  accountId          The Account ID
+     * @param  ticketTypeRequests The ticket purchase requests
+     * @return The purchase result
+     */
+    PurchaseResult tryPurchaseTickets(Long accountId, TicketTypeRequest... ticketTypeRequests);
+
+    /**
+     * Purchase the tickets of an encoded purchase message, read in place without creating a request per line item.
+     * A message which is not wrapped, e.g. malformed, is rejected as an invalid purchase.
+     *
+     * @param  message The purchase message
+     * @return The purchase result
+     */
+    PurchaseResult tryPurchaseTickets(PurchaseMessage message);
+
+    /**
+     * Purchase a batch of orders.
+     * Orders from the same account are paid and reserved together with a single call to each third-party service.
+     *
+     * @param  orders The orders to purchase
+     * @return The result of each order, in the same order as the orders
+     */
+    List<PurchaseResult> purchaseBatch(List<PurchaseOrder> orders) throws InvalidPurchaseException;
+
 }
@@ -2,17 +2,36 @@ package uk.gov.dwp.uc.pairtest;
 
 import thirdparty.paymentgateway.TicketPaymentService;
 import thirdparty.seatbooking.SeatReservationService;
+import uk.gov.dwp.uc.pairtest.account.AccountValidator;
+import uk.gov.dwp.uc.pairtest.account.PurchaseLimiter;
+import uk.gov.dwp.uc.pairtest.codec.PurchaseMessage;
+import uk.gov.dwp.uc.pairtest.domain.PurchaseOrder;
+import uk.gov.dwp.uc.pairtest.domain.PurchaseResult;
 import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest;
+import uk.gov.dwp.uc.pairtest.engine.PurchaseEvaluation;
+import uk.gov.dwp.uc.pairtest.engine.PurchaseRules;
+import uk.gov.dwp.uc.pairtest.engine.PurchaseValidator;
 import uk.gov.dwp.uc.pairtest.exception.*;
+import uk.gov.dwp.uc.pairtest.metrics.PurchaseMetrics;
+import uk.gov.dwp.uc.pairtest.seating.SeatAvailability;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.function.Supplier;
 
 /**
  * Implementation of the Ticket Service
+ * <p>
+ * When the seat reservation service tells its {@link SeatAvailability}, a purchase that cannot be seated
+ * is rejected before the payment is taken.
+ * </p>
  */
 
 public class TicketServiceImpl implements TicketService {
@@ -21,148 +40,434 @@ public class TicketServiceImpl implements TicketService {
      */
     final static Logger log =
             LoggerFactory.getLogger(TicketServiceImpl.class);
-    /**
-     * Only a maximum of 20 tickets that can be purchased at a time.
-     */
-    private final static int MAX_TICKET_ALLOWED   = 20;
-
     private final TicketPaymentService   paymentService;
     private final SeatReservationService reservationService;
+    private final SeatAvailability       seatAvailability;
+    private final PurchaseValidator      validator;
+    private final PurchaseMetrics        metrics;
+    private final PurchaseListener       listener;
+    private final boolean                stacklessRejections;
 
     /**
      * The default constructor which initializes third-party service instances.
      */
     public TicketServiceImpl(TicketPaymentService paymentService, SeatReservationService reservationService) {
-        this.paymentService = paymentService;
-        this.reservationService = reservationService;
+        this(builder(paymentService, reservationService));
+    }
+
+    private TicketServiceImpl(final Builder builder) {
+        this.validator = new PurchaseValidator(builder.accountValidator, builder.purchaseLimiter, builder.rules);
+        this.paymentService = builder.paymentService;
+        this.reservationService = builder.reservationService;
+        this.seatAvailability = SeatAvailability.of(builder.reservationService);
+        this.metrics = builder.metrics;
+        this.listener = PurchaseListener.guarded(builder.listener);
+        this.stacklessRejections = builder.stacklessRejections;
+    }
+
+    /**
+     * Get a builder of a ticket service with more than the default collaborators.
+     *
+     * @param  paymentService     The payment service
+     * @param  reservationService The seat reservation service
+     * @return The builder
+     */
+    public static Builder builder(final TicketPaymentService paymentService,
+                                  final SeatReservationService reservationService) {
+        return new Builder(paymentService, reservationService);
     }
 
     @Override
     public void purchaseTickets(final Long accountId, final TicketTypeRequest... ticketTypeRequests)
             throws InvalidPurchaseException {
 
-        if (Objects.isNull(ticketTypeRequests)){
-            log.error("Ticket payment request is null:" + accountId);
-            throw new InvalidPurchaseException("Valid ticket information is not provided.");
+        final PurchaseResult.Status status = purchase(accountId, ticketTypeRequests, PurchaseEvaluation.current());
+        if (status != PurchaseResult.Status.CONFIRMED && status != PurchaseResult.Status.BOOKING_FAILED) {
+            throw rejection(status, accountId);
         }
 
-        // Validated Account
-        if (!isValidAccount(accountId)) {
-            log.error(ErrorMessages.INVALID_ACCOUNT + accountId);
-            throw new InvalidAccountException();
+        log.debug("Booking reservation complete.");
+    }
+
+    @Override
+    public PurchaseResult tryPurchaseTickets(final Long accountId, final TicketTypeRequest... ticketTypeRequests) {
+        final PurchaseEvaluation evaluation = PurchaseEvaluation.current();
+        final PurchaseResult.Status status = purchase(accountId, ticketTypeRequests, evaluation);
+        if (status != PurchaseResult.Status.CONFIRMED) {
+            log.debug("Purchase rejected: {}", status);
+            return PurchaseResult.rejected(status);
         }
+        return PurchaseResult.confirmed(evaluation.totalAmountInPounds(), evaluation.totalSeats());
+    }
 
-        // Only a maximum of 20 tickets that can be purchased at a time.
-        if (!maxTicketBookingValidation(ticketTypeRequests)) {
-            log.error(ErrorMessages.MAX_TICKET_PURCHASE_ALLOWED);
-            throw new MaxTicketPurchaseException();
+    @Override
+    public PurchaseResult tryPurchaseTickets(final PurchaseMessage message) {
+        if (Objects.isNull(message) || !message.isWrapped()) {
+            log.debug("Purchase rejected: malformed purchase message");
+            metrics.recordOutcome(PurchaseResult.Status.INVALID_PURCHASE);
+            listener.purchaseRejected(0, PurchaseResult.Status.INVALID_PURCHASE);
+            return PurchaseResult.rejected(PurchaseResult.Status.INVALID_PURCHASE);
         }
 
-        // Child and Infant tickets cannot be purchased without purchasing an Adult ticket.
-        if (!onlyChildInfantBookingRequest(ticketTypeRequests)) {
-            log.error(ErrorMessages.MANDATORY_ADULT_TICKET_PURCHASE_REQUIRED);
-            throw new MandatoryAdultTicketPurchaseRequiredException();
+        final PurchaseEvaluation evaluation = PurchaseEvaluation.current();
+        final long accountId = message.accountId();
+        final long validationStart = metrics.startTimer();
+        PurchaseResult.Status status = validator.validate(accountId, message, evaluation);
+        final long paymentStart = metrics.recordValidation(validationStart);
+        if (status == PurchaseResult.Status.CONFIRMED) {
+            status = complete(accountId, evaluation, paymentStart);
+        } else {
+            metrics.recordOutcome(status);
+            listener.purchaseRejected(accountId, status);
+        }
+        if (status != PurchaseResult.Status.CONFIRMED) {
+            log.debug("Purchase rejected: {}", status);
+            return PurchaseResult.rejected(status);
         }
+        return PurchaseResult.confirmed(evaluation.totalAmountInPounds(), evaluation.totalSeats());
+    }
 
-        try {
-            final double finalBookingAmount = getTotalBookingAmount(ticketTypeRequests);
-            paymentService.makePayment(accountId, (int) finalBookingAmount);
-            log.debug("Total booking amount paid successful.");
+    @Override
+    public List<PurchaseResult> purchaseBatch(final List<PurchaseOrder> orders) throws InvalidPurchaseException {
+        if (Objects.isNull(orders)) {
+            log.error("Batch purchase orders are null");
+            throw new InvalidPurchaseException(ErrorMessages.INVALID_TICKET_INFORMATION);
+        }
 
+        final PurchaseResult[] results = new PurchaseResult[orders.size()];
+        final Map<Long, AccountCharge> openCharges = new HashMap<>();
+        final List<AccountCharge> charges = new ArrayList<>();
+        final PurchaseEvaluation evaluation = PurchaseEvaluation.current();
 
-            final int totalSeats = calTotalSeats(ticketTypeRequests);
-            reservationService.reserveSeat(accountId, totalSeats);
-            log.debug("Seat reservation completed.");
+        // Validate every order in one pass, folding the valid ones into one charge per account.
+        for (int index = 0; index < results.length; index++) {
+            final PurchaseOrder order = orders.get(index);
+            if (Objects.isNull(order)) {
+                results[index] = PurchaseResult.rejected(PurchaseResult.Status.INVALID_PURCHASE);
+                listener.purchaseRejected(0, PurchaseResult.Status.INVALID_PURCHASE);
+                continue;
+            }
+            final long validationStart = metrics.startTimer();
+            final PurchaseResult.Status status =
+                    validator.validate(order.getAccountId(), order.getTicketTypeRequests(), evaluation);
+            metrics.recordValidation(validationStart);
+            if (status != PurchaseResult.Status.CONFIRMED) {
+                results[index] = PurchaseResult.rejected(status);
+                listener.purchaseRejected(Objects.isNull(order.getAccountId()) ? 0 : order.getAccountId(), status);
+                continue;
+            }
 
-        } catch (final Throwable e) {
-            log.error("Error while finalizing booking.", e);
+            final int totalBookingAmount = evaluation.totalAmountInPounds();
+            final int totalSeats = evaluation.totalSeats();
+            final int totalTickets = evaluation.totalTickets();
+            results[index] = PurchaseResult.confirmed(totalBookingAmount, totalSeats);
+
+            final AccountCharge charge = openCharges.get(order.getAccountId());
+            if (charge == null || !charge.add(index, totalBookingAmount, totalSeats, totalTickets)) {
+                final AccountCharge newCharge = new AccountCharge(order.getAccountId());
+                newCharge.add(index, totalBookingAmount, totalSeats, totalTickets);
+                openCharges.put(order.getAccountId(), newCharge);
+                charges.add(newCharge);
+            }
+        }
+
+        for (final AccountCharge charge : charges) {
+            if (!seatAvailability.canSeat(charge.totalSeats)) {
+                charge.release(validator);
+                for (int i = 0; i < charge.orderCount; i++) {
+                    results[charge.orderIndexes[i]] = PurchaseResult.rejected(PurchaseResult.Status.SEATS_UNAVAILABLE);
+                    listener.purchaseRejected(charge.accountId, PurchaseResult.Status.SEATS_UNAVAILABLE);
+                }
+                continue;
+            }
+            long bookingId = 0;
+            boolean started = false;
+            boolean paid = false;
+            final long paymentStart = metrics.startTimer();
+            try {
+                bookingId = listener.bookingStarted(charge.accountId, charge.totalAmount, charge.totalSeats);
+                started = true;
+                final long reservationStart;
+                try {
+                    paymentService.makePayment(charge.accountId, charge.totalAmount);
+                } finally {
+                    reservationStart = metrics.recordPayment(paymentStart);
+                }
+                paid = true;
+                listener.paymentTaken(bookingId);
+                try {
+                    reservationService.reserveSeat(charge.accountId, charge.totalSeats);
+                } finally {
+                    metrics.recordReservation(reservationStart);
+                }
+                listener.seatsReserved(bookingId);
+            } catch (final Throwable e) {
+                if (started) {
+                    listener.bookingFailed(bookingId, e);
+                }
+                log.error("Error while finalizing batch booking.", e);
+                final PurchaseResult.Status status = !paid && e instanceof ServiceOverloadedException
+                        ? PurchaseResult.Status.OVERLOADED
+                        : PurchaseResult.Status.BOOKING_FAILED;
+                if (!started || status == PurchaseResult.Status.OVERLOADED) {
+                    // Failed before the payment, nothing is charged.
+                    charge.release(validator);
+                }
+                for (int i = 0; i < charge.orderCount; i++) {
+                    results[charge.orderIndexes[i]] = PurchaseResult.rejected(status);
+                }
+            }
         }
 
-        log.info("Booking reservation complete.");
+        for (final PurchaseResult result : results) {
+            metrics.recordOutcome(result.getStatus());
+        }
+        log.debug("Batch of {} purchases complete with {} payments.", results.length, charges.size());
+        return Arrays.asList(results);
     }
 
     /**
-     * Validates if account is a valid account.
-     * All accounts with an id greater than zero are valid.
+     * Validates the purchase, then takes the payment and reserves the seats.
+     * The evaluation keeps the totals of a confirmed purchase.
      *
-     * @param  accountId    The Account ID
-     * @return  True if the account is valid, false otherwise
+     * @param  accountId          The Account ID
+     * @param  ticketTypeRequests The ticket purchase requests
+     * @param  evaluation         The evaluation to reuse
+     * @return CONFIRMED if the booking is complete, otherwise the reason it is rejected or failed
      */
-    private boolean isValidAccount(final Long accountId) {
-        return accountId > 0;
+    private PurchaseResult.Status purchase(final Long accountId, final TicketTypeRequest[] ticketTypeRequests,
+                                           final PurchaseEvaluation evaluation) {
+        final long validationStart = metrics.startTimer();
+        final PurchaseResult.Status status = validator.validate(accountId, ticketTypeRequests, evaluation);
+        final long paymentStart = metrics.recordValidation(validationStart);
+        if (status != PurchaseResult.Status.CONFIRMED) {
+            metrics.recordOutcome(status);
+            listener.purchaseRejected(Objects.isNull(accountId) ? 0 : accountId, status);
+            return status;
+        }
+        return complete(accountId, evaluation, paymentStart);
     }
 
     /**
-     * Validates if valid max ticket count is provided.
-     * Only a maximum of 20 tickets that can be purchased at a time.
+     * Takes the payment and reserves the seats of a valid purchase, unless the seats are known to be unavailable.
      *
-     * @return  True if the max ticket count is valid, false otherwise
+     * @param  accountId    The Account ID
+     * @param  evaluation   The evaluation of the purchase
+     * @param  paymentStart The time validation ended, from the metrics timer
+     * @return CONFIRMED if the booking is complete, otherwise the reason it is rejected or failed
      */
-    private boolean maxTicketBookingValidation(final TicketTypeRequest... ticketTypeRequests) {
-        int totalTicketCount = calTotalSeats(ticketTypeRequests);
-        // Check if max ticket count has exceeded
-        return totalTicketCount <= MAX_TICKET_ALLOWED;
+    private PurchaseResult.Status complete(final long accountId, final PurchaseEvaluation evaluation,
+                                           final long paymentStart) {
+        final int totalBookingAmount = evaluation.totalAmountInPounds();
+        final int totalSeats = evaluation.totalSeats();
+        final int totalTickets = evaluation.totalTickets();
+        if (!seatAvailability.canSeat(totalSeats)) {
+            // Sold out, no point taking a payment for seats that cannot be reserved.
+            validator.release(accountId, totalTickets);
+            metrics.recordOutcome(PurchaseResult.Status.SEATS_UNAVAILABLE);
+            listener.purchaseRejected(accountId, PurchaseResult.Status.SEATS_UNAVAILABLE);
+            return PurchaseResult.Status.SEATS_UNAVAILABLE;
+        }
+        final long bookingId;
+        try {
+            bookingId = listener.bookingStarted(accountId, totalBookingAmount, totalSeats);
+        } catch (final RuntimeException e) {
+            // Failed before the payment, nothing is charged.
+            validator.release(accountId, totalTickets);
+            metrics.recordOutcome(PurchaseResult.Status.BOOKING_FAILED);
+            log.error("Error while recording booking intent.", e);
+            return PurchaseResult.Status.BOOKING_FAILED;
+        }
+        try {
+            long reservationStart = paymentStart;
+            try {
+                paymentService.makePayment(accountId, totalBookingAmount);
+            } catch (final ServiceOverloadedException e) {
+                // The payment was shed before reaching the gateway, nothing is charged.
+                validator.release(accountId, totalTickets);
+                listener.bookingFailed(bookingId, e);
+                metrics.recordOutcome(PurchaseResult.Status.OVERLOADED);
+                return PurchaseResult.Status.OVERLOADED;
+            } finally {
+                reservationStart = metrics.recordPayment(paymentStart);
+            }
+            listener.paymentTaken(bookingId);
+            log.debug("Total booking amount paid successful.");
+
+            try {
+                reservationService.reserveSeat(accountId, totalSeats);
+            } finally {
+                metrics.recordReservation(reservationStart);
+            }
+            listener.seatsReserved(bookingId);
+            log.debug("Seat reservation completed.");
+        } catch (final Throwable e) {
+            listener.bookingFailed(bookingId, e);
+            metrics.recordOutcome(PurchaseResult.Status.BOOKING_FAILED);
+            log.error("Error while finalizing booking.", e);
+            return PurchaseResult.Status.BOOKING_FAILED;
+        }
 
+        metrics.recordOutcome(PurchaseResult.Status.CONFIRMED);
+        return PurchaseResult.Status.CONFIRMED;
     }
 
     /**
-     * Validates booking request .
-     * Child and Infant tickets cannot be purchased without purchasing an Adult ticket
+     * Logs a rejected purchase at debug level, rejections are audited through the listener, and creates the
+     * matching exception.
      *
-     * @param   ticketTypeRequests Ticket purchase requests
-     *
-     * @return  True if the booking request is valid, false otherwise
+     * @param  status    The reason the purchase is rejected
+     * @param  accountId The Account ID
+     * @return The exception to throw
      */
-    private boolean onlyChildInfantBookingRequest(final TicketTypeRequest... ticketTypeRequests) {
-        boolean adultTicketRequest = false;
-        if(ticketTypeRequests != null) {
-            adultTicketRequest =
-                    Arrays.stream(ticketTypeRequests).anyMatch(p -> !Objects.isNull(p) && p.getTicketType().isAdult());
+    private InvalidPurchaseException rejection(final PurchaseResult.Status status, final Long accountId) {
+        switch (status) {
+            case INVALID_ACCOUNT:
+                log.debug("{}: {}", ErrorMessages.INVALID_ACCOUNT, accountId);
+                return stacklessRejections ? InvalidAccountException.stackless() : new InvalidAccountException();
+            case MAX_TICKET_PURCHASE_EXCEEDED:
+                log.debug(ErrorMessages.MAX_TICKET_PURCHASE_ALLOWED);
+                return stacklessRejections ? MaxTicketPurchaseException.stackless() : new MaxTicketPurchaseException();
+            case MANDATORY_ADULT_TICKET_PURCHASE_REQUIRED:
+                log.debug(ErrorMessages.MANDATORY_ADULT_TICKET_PURCHASE_REQUIRED);
+                return stacklessRejections
+                        ? MandatoryAdultTicketPurchaseRequiredException.stackless()
+                        : new MandatoryAdultTicketPurchaseRequiredException();
+            case OVERLOADED:
+                log.debug(ErrorMessages.SERVICE_OVERLOADED);
+                return stacklessRejections ? ServiceOverloadedException.stackless() : new ServiceOverloadedException();
+            case SEATS_UNAVAILABLE:
+                log.debug(ErrorMessages.SEATS_UNAVAILABLE);
+                return stacklessRejections ? SeatsUnavailableException.stackless() : new SeatsUnavailableException();
+            case PURCHASE_LIMIT_EXCEEDED:
+                log.debug("{}: {}", ErrorMessages.PURCHASE_LIMIT_EXCEEDED, accountId);
+                return stacklessRejections
+                        ? PurchaseLimitExceededException.stackless()
+                        : new PurchaseLimitExceededException();
+            default:
+                log.debug("Ticket payment request is null: {}", accountId);
+                return stacklessRejections
+                        ? InvalidPurchaseException.stackless()
+                        : new InvalidPurchaseException(ErrorMessages.INVALID_TICKET_INFORMATION);
         }
-        return adultTicketRequest;
     }
 
     /**
-     * Calculates the total booking amount.
-     *
-     * @param  ticketTypeRequests The ticket purchase requests
-     *
-     * @return  The total booking amount
+     * The valid orders of one account in a batch, paid and reserved with a single call.
+     * A new charge is started once the account totals would overflow the third-party services.
      */
-    private double getTotalBookingAmount(final TicketTypeRequest... ticketTypeRequests) {
-        double totalBookingAmount = 0;
-        try {
-            for (final TicketTypeRequest bookingRequest : ticketTypeRequests) {
-                totalBookingAmount = Arrays.stream(ticketTypeRequests)
-                        .mapToDouble(TicketTypeRequest::calculateCost)
-                        .sum();
+    private static final class AccountCharge {
+        private final long accountId;
+        private int totalAmount;
+        private int totalSeats;
+        private int[] orderIndexes = new int[4];
+        private int[] orderTickets = new int[4];
+        private int orderCount;
+
+        private AccountCharge(final long accountId) {
+            this.accountId = accountId;
+        }
+
+        /**
+         * Adds an order to the charge.
+         *
+         * @return True if the order was added, false if the totals would overflow
+         */
+        private boolean add(final int orderIndex, final int amount, final int seats, final int tickets) {
+            if ((long) totalAmount + amount > Integer.MAX_VALUE || (long) totalSeats + seats > Integer.MAX_VALUE) {
+                return false;
+            }
+            if (orderCount == orderIndexes.length) {
+                orderIndexes = Arrays.copyOf(orderIndexes, orderCount * 2);
+                orderTickets = Arrays.copyOf(orderTickets, orderCount * 2);
+            }
+            orderIndexes[orderCount] = orderIndex;
+            orderTickets[orderCount++] = tickets;
+            totalAmount += amount;
+            totalSeats += seats;
+            return true;
+        }
+
+        /**
+         * Gives back the allowance each order of the charge took, once the charge is refused before its payment.
+         */
+        private void release(final PurchaseValidator validator) {
+            for (int i = 0; i < orderCount; i++) {
+                validator.release(accountId, orderTickets[i]);
             }
-        } catch(InvalidPurchaseException e) {
-            log.error("Problem in calculating total cost towards booking");
-            throw e;
         }
-        return totalBookingAmount;
     }
 
     /**
-     * Calculates the total seats to be reserved on behalf of the account ID.
-     *
-     * @param  ticketTypeRequests The ticket purchase requests
-     *
-     * @return Total number of seat allocated
+     * Builds a ticket service. Every collaborator not set is the default of the two argument constructor:
+     * accounts with an id greater than zero, no purchase limit, the default purchase rules,
+     * no metrics, no listener and rejections thrown with a stack trace.
      */
-    private int calTotalSeats(final TicketTypeRequest... ticketTypeRequests) {
-        int totalSeatAllocation = 0;
-        try {
-            totalSeatAllocation = Arrays.stream(ticketTypeRequests)
-                    .filter(Objects::nonNull)
-                    .filter(request -> request.getTicketType().isSeatRequired())
-                    .mapToInt(TicketTypeRequest::getNoOfTickets)
-                    .sum();
-        } catch(InvalidPurchaseException e) {
-            log.error("Problem in allocating seat");
-            throw e;
-        }
-        return totalSeatAllocation;
+    public static final class Builder {
+        private final TicketPaymentService   paymentService;
+        private final SeatReservationService reservationService;
+        private AccountValidator             accountValidator = AccountValidator.positiveAccountId();
+        private PurchaseLimiter              purchaseLimiter = PurchaseLimiter.NONE;
+        private Supplier<PurchaseRules>      rules = () -> PurchaseRules.DEFAULT;
+        private PurchaseMetrics              metrics = PurchaseMetrics.disabled();
+        private PurchaseListener             listener = PurchaseListener.NONE;
+        private boolean                      stacklessRejections;
+
+        private Builder(final TicketPaymentService paymentService, final SeatReservationService reservationService) {
+            this.paymentService = paymentService;
+            this.reservationService = reservationService;
+        }
+
+        /**
+         * Set the account validator consulted for every purchase.
+         */
+        public Builder accountValidator(final AccountValidator accountValidator) {
+            this.accountValidator = Objects.requireNonNull(accountValidator);
+            return this;
+        }
+
+        /**
+         * Set the limiter of the purchases of each account, checked after validation and before any third-party call.
+         */
+        public Builder purchaseLimiter(final PurchaseLimiter purchaseLimiter) {
+            this.purchaseLimiter = Objects.requireNonNull(purchaseLimiter);
+            return this;
+        }
+
+        /**
+         * Set the supplier of the purchase rules of the venue, such as a hot-reloaded rule file.
+         */
+        public Builder rules(final Supplier<PurchaseRules> rules) {
+            this.rules = Objects.requireNonNull(rules);
+            return this;
+        }
+
+        /**
+         * Set the metrics recorded for every purchase.
+         */
+        public Builder metrics(final PurchaseMetrics metrics) {
+            this.metrics = Objects.requireNonNull(metrics);
+            return this;
+        }
+
+        /**
+         * Set the listener told about each step of every booking, such as the booking journal.
+         */
+        public Builder listener(final PurchaseListener listener) {
+            this.listener = Objects.requireNonNull(listener);
+            return this;
+        }
+
+        /**
+         * Choose whether purchaseTickets throws preallocated rejections without a stack trace.
+         */
+        public Builder stacklessRejections(final boolean stacklessRejections) {
+            this.stacklessRejections = stacklessRejections;
+            return this;
+        }
+
+        public TicketServiceImpl build() {
+            return new TicketServiceImpl(this);
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,238 @@
+package uk.gov.dwp.uc.pairtest.account;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Limits the purchase rate and the tickets bought by each account.
+ * <p>
+ * Each account has a token bucket refilled at the configured purchases per second, holding up to the burst,
+ * and a ticket quota for each fixed window, e.g. a screening window of a few hours.
+ * A purchase takes a token and its tickets from the quota, or nothing if either is exhausted.
+ * A purchase refused after its allowance was taken gives back the token and, within the same window, the tickets.
+ * </p>
+ * <p>
+ * The state of each account is held in primitive arrays keyed by the account id with open addressing,
+ * so checking an account does not box its id or allocate.
+ * The accounts are split over segments, each with its own lock, so purchases of different accounts rarely contend.
+ * An account is idle once its bucket is full and its quota window has passed, its state is then the same
+ * as an unseen account so idle accounts are evicted when a segment fills, before the segment grows.
+ * </p>
+ */
+public class AccountRateLimiter implements PurchaseLimiter {
+
+    private static final int INITIAL_SEGMENT_CAPACITY = 16;
+
+    private final Segment[] segments;
+    private final int segmentMask;
+    private final long emissionIntervalNanos;
+    private final long burstToleranceNanos;
+    private final int ticketsPerWindow;
+    private final long windowNanos;
+    private final LongSupplier clock;
+
+    /**
+     * Create a limiter.
+     *
+     * @param  purchasesPerSecond The rate at which an account may purchase, on average
+     * @param  burst              The number of purchases an account may make at once
+     * @param  ticketsPerWindow   The number of tickets an account may purchase in a window
+     * @param  window             The length of a quota window
+     * @param  unit               The unit of the window
+     */
+    public AccountRateLimiter(final double purchasesPerSecond, final int burst, final int ticketsPerWindow,
+                              final long window, final TimeUnit unit) {
+        this(purchasesPerSecond, burst, ticketsPerWindow, window, unit,
+                Runtime.getRuntime().availableProcessors() * 4, System::nanoTime);
+    }
+
+    AccountRateLimiter(final double purchasesPerSecond, final int burst, final int ticketsPerWindow,
+                       final long window, final TimeUnit unit, final int concurrency, final LongSupplier clock) {
+        if (purchasesPerSecond <= 0 || burst < 1 || ticketsPerWindow < 1 || window <= 0 || concurrency < 1) {
+            throw new IllegalArgumentException("Invalid purchase rate, burst, quota or window");
+        }
+        final int segmentCount = Integer.highestOneBit(Math.min(concurrency, 1 << 16) * 2 - 1);
+        this.segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment();
+        }
+        this.segmentMask = segmentCount - 1;
+        this.emissionIntervalNanos = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / purchasesPerSecond));
+        this.burstToleranceNanos = emissionIntervalNanos * (burst - 1);
+        this.ticketsPerWindow = ticketsPerWindow;
+        this.windowNanos = unit.toNanos(window);
+        this.clock = clock;
+    }
+
+    @Override
+    public boolean tryAcquire(final long accountId, final int tickets) {
+        final long hash = mix(accountId);
+        final Segment segment = segments[(int) (hash >>> 32) & segmentMask];
+        synchronized (segment) {
+            return segment.tryAcquire(accountId, (int) hash, tickets, clock.getAsLong());
+        }
+    }
+
+    @Override
+    public void release(final long accountId, final int tickets) {
+        final long hash = mix(accountId);
+        final Segment segment = segments[(int) (hash >>> 32) & segmentMask];
+        synchronized (segment) {
+            segment.release(accountId, (int) hash, tickets, clock.getAsLong());
+        }
+    }
+
+    /**
+     * Get the number of accounts with state held, including idle accounts not yet evicted.
+     *
+     * @return The number of accounts
+     */
+    public int getTrackedAccounts() {
+        int accounts = 0;
+        for (final Segment segment : segments) {
+            synchronized (segment) {
+                accounts += segment.size;
+            }
+        }
+        return accounts;
+    }
+
+    /**
+     * Spread the bits of a value, the finalizer of the SplitMix64 generator.
+     */
+    private static long mix(final long value) {
+        long z = value + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * An open addressing table of account states with linear probing, guarded by its own monitor.
+     * The token bucket is kept as the time its next token is due, the generic cell rate algorithm,
+     * so a single long holds the bucket.
+     */
+    private final class Segment {
+        private boolean[] used = new boolean[INITIAL_SEGMENT_CAPACITY];
+        private long[] accountIds = new long[INITIAL_SEGMENT_CAPACITY];
+        private long[] nextTokenDue = new long[INITIAL_SEGMENT_CAPACITY];
+        private long[] windows = new long[INITIAL_SEGMENT_CAPACITY];
+        private int[] ticketsInWindow = new int[INITIAL_SEGMENT_CAPACITY];
+        private int size;
+
+        private boolean tryAcquire(final long accountId, final int hash, final int tickets, final long now) {
+            int slot = find(accountId, hash);
+            final long window = Math.floorDiv(now, windowNanos);
+            final long tokenDue;
+            final int ticketsUsed;
+            if (slot < 0) {
+                tokenDue = now;
+                ticketsUsed = 0;
+            } else {
+                tokenDue = Math.max(nextTokenDue[slot], now);
+                ticketsUsed = windows[slot] == window ? ticketsInWindow[slot] : 0;
+            }
+            if (tokenDue - now > burstToleranceNanos || tickets > ticketsPerWindow - ticketsUsed) {
+                return false;
+            }
+
+            if (slot < 0) {
+                slot = insert(accountId, hash, now);
+            }
+            nextTokenDue[slot] = tokenDue + emissionIntervalNanos;
+            windows[slot] = window;
+            ticketsInWindow[slot] = ticketsUsed + tickets;
+            return true;
+        }
+
+        private void release(final long accountId, final int hash, final int tickets, final long now) {
+            final int slot = find(accountId, hash);
+            if (slot < 0) {
+                // Evicted as idle, nothing is held to give back.
+                return;
+            }
+            nextTokenDue[slot] -= emissionIntervalNanos;
+            if (windows[slot] == Math.floorDiv(now, windowNanos)) {
+                ticketsInWindow[slot] = Math.max(0, ticketsInWindow[slot] - tickets);
+            }
+        }
+
+        private int find(final long accountId, final int hash) {
+            final int mask = accountIds.length - 1;
+            for (int slot = hash & mask; used[slot]; slot = (slot + 1) & mask) {
+                if (accountIds[slot] == accountId) {
+                    return slot;
+                }
+            }
+            return -1;
+        }
+
+        private int insert(final long accountId, final int hash, final long now) {
+            if ((size + 1) * 4 > accountIds.length * 3) {
+                // Evict the idle accounts, growing only if the live accounts still fill half the segment.
+                rehash(now);
+            }
+            final int mask = accountIds.length - 1;
+            int slot = hash & mask;
+            while (used[slot]) {
+                slot = (slot + 1) & mask;
+            }
+            used[slot] = true;
+            accountIds[slot] = accountId;
+            size++;
+            return slot;
+        }
+
+        private void rehash(final long now) {
+            final long window = Math.floorDiv(now, windowNanos);
+            int live = 0;
+            for (int slot = 0; slot < accountIds.length; slot++) {
+                if (used[slot] && !isIdle(slot, now, window)) {
+                    live++;
+                }
+            }
+            int capacity = INITIAL_SEGMENT_CAPACITY;
+            while ((live + 1) * 2 > capacity) {
+                capacity <<= 1;
+            }
+
+            final boolean[] oldUsed = used;
+            final long[] oldAccountIds = accountIds;
+            final long[] oldNextTokenDue = nextTokenDue;
+            final long[] oldWindows = windows;
+            final int[] oldTicketsInWindow = ticketsInWindow;
+            used = new boolean[capacity];
+            accountIds = new long[capacity];
+            nextTokenDue = new long[capacity];
+            windows = new long[capacity];
+            ticketsInWindow = new int[capacity];
+            size = 0;
+
+            final int mask = capacity - 1;
+            for (int oldSlot = 0; oldSlot < oldAccountIds.length; oldSlot++) {
+                if (!oldUsed[oldSlot] || oldNextTokenDue[oldSlot] <= now && oldWindows[oldSlot] != window) {
+                    // Unused or idle.
+                    continue;
+                }
+                int slot = (int) mix(oldAccountIds[oldSlot]) & mask;
+                while (used[slot]) {
+                    slot = (slot + 1) & mask;
+                }
+                used[slot] = true;
+                accountIds[slot] = oldAccountIds[oldSlot];
+                nextTokenDue[slot] = oldNextTokenDue[oldSlot];
+                windows[slot] = oldWindows[oldSlot];
+                ticketsInWindow[slot] = oldTicketsInWindow[oldSlot];
+                size++;
+            }
+        }
+
+        /**
+         * Check if an account is in the same state as an unseen account, with a full bucket and no tickets
+         * in the current window.
+         */
+        private boolean isIdle(final int slot, final long now, final long window) {
+            return nextTokenDue[slot] <= now && windows[slot] != window;
+        }
+    }
+}
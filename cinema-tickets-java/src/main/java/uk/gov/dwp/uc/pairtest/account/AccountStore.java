@@ -0,0 +1,16 @@
+package uk.gov.dwp.uc.pairtest.account;
+
+/**
+ * The system of record for accounts, usually a remote service.
+ */
+public interface AccountStore {
+
+    /**
+     * Check if an account exists and may purchase tickets.
+     *
+     * @param  accountId The Account ID
+     * @return True if the account is active, false if it is unknown or blocked
+     */
+    boolean isActive(long accountId);
+
+}
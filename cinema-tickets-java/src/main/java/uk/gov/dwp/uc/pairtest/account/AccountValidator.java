@@ -0,0 +1,24 @@
+package uk.gov.dwp.uc.pairtest.account;
+
+/**
+ * Decides whether an account may purchase tickets.
+ */
+public interface AccountValidator {
+
+    /**
+     * Validates if account is a valid account.
+     *
+     * @param  accountId The Account ID, may be null
+     * @return True if the account is valid, false otherwise
+     */
+    boolean isValidAccount(Long accountId);
+
+    /**
+     * Get the validator accepting every account with an id greater than zero.
+     *
+     * @return The account id validator
+     */
+    static AccountValidator positiveAccountId() {
+        return accountId -> accountId != null && accountId > 0;
+    }
+}
@@ -0,0 +1,86 @@
+package uk.gov.dwp.uc.pairtest.account;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A Bloom filter of blocked account ids.
+ * <p>
+ * It never misses a blocked account and wrongly matches another account at about the configured
+ * false positive rate, using a few bits per blocked account rather than an entry per account.
+ * Accounts are added with a lock-free bit set and the filter can be read while accounts are added.
+ * </p>
+ */
+public class BlockedAccountFilter {
+
+    private final AtomicLongArray bits;
+    private final long bitCount;
+    private final int hashCount;
+
+    /**
+     * Create a filter sized for the number of blocked accounts and the false positive rate.
+     *
+     * @param  expectedAccounts  The number of blocked accounts expected
+     * @param  falsePositiveRate The rate at which other accounts may match, between 0 and 1
+     */
+    public BlockedAccountFilter(final long expectedAccounts, final double falsePositiveRate) {
+        if (expectedAccounts < 1 || falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("Invalid filter size or false positive rate");
+        }
+        final double ln2 = Math.log(2);
+        final long optimalBits = (long) Math.ceil(-expectedAccounts * Math.log(falsePositiveRate) / (ln2 * ln2));
+        final long words = Math.max(1, (optimalBits + Long.SIZE - 1) / Long.SIZE);
+        if (words > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Filter too large");
+        }
+        this.bits = new AtomicLongArray((int) words);
+        this.bitCount = words * Long.SIZE;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / expectedAccounts * ln2));
+    }
+
+    /**
+     * Add a blocked account.
+     *
+     * @param  accountId The Account ID
+     */
+    public void add(final long accountId) {
+        final long hash1 = mix(accountId);
+        final long hash2 = mix(hash1) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            final long bit = Math.floorMod(hash1 + i * hash2, bitCount);
+            final int word = (int) (bit >>> 6);
+            final long mask = 1L << bit;
+            long current = bits.get(word);
+            while ((current & mask) == 0 && !bits.compareAndSet(word, current, current | mask)) {
+                current = bits.get(word);
+            }
+        }
+    }
+
+    /**
+     * Check if an account may be blocked.
+     *
+     * @param  accountId The Account ID
+     * @return False if the account is certainly not blocked, true if it may be blocked
+     */
+    public boolean mightContain(final long accountId) {
+        final long hash1 = mix(accountId);
+        final long hash2 = mix(hash1) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            final long bit = Math.floorMod(hash1 + i * hash2, bitCount);
+            if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Spread the bits of a value, the finalizer of the SplitMix64 generator.
+     */
+    private static long mix(final long value) {
+        long z = value + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
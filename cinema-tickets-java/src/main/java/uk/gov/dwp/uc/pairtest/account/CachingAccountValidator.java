@@ -0,0 +1,171 @@
+package uk.gov.dwp.uc.pairtest.account;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongSupplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import uk.gov.dwp.uc.pairtest.cache.ExpiringCache;
+
+/**
+ * {@link AccountValidator} which checks accounts against an {@link AccountStore} and caches the answers.
+ * <p>
+ * An account is checked in order:
+ * <ol>
+ *     <li>ids of zero or less are invalid, as before,</li>
+ *     <li>an account in the {@link BlockedAccountFilter} is invalid without reaching the store,</li>
+ *     <li>a cached answer is used, active accounts and unknown accounts each with their own time to live,</li>
+ *     <li>otherwise the store is asked and the answer cached.</li>
+ * </ol>
+ * A false positive of the filter rejects an active account, size the filter for a rate the business accepts.
+ * A cached answer older than the refresh-ahead time is still used, and refreshed from the store in the background
+ * so a frequently used account is never found missing from the cache.
+ * Concurrent lookups of an account missing from the cache share a single call to the store.
+ * A store error on a miss is thrown to every lookup sharing the call, and nothing is cached.
+ * </p>
+ */
+public class CachingAccountValidator implements AccountValidator {
+
+    final static Logger log =
+            LoggerFactory.getLogger(CachingAccountValidator.class);
+
+    private final AccountStore store;
+    private final BlockedAccountFilter blockedAccounts;
+    private final ExpiringCache<Long, CachedAccount> cache;
+    private final ConcurrentMap<Long, CompletableFuture<Boolean>> loads = new ConcurrentHashMap<>();
+    private final Executor refreshExecutor;
+    private final LongSupplier clock;
+    private final long activeTtlNanos;
+    private final long unknownTtlNanos;
+    private final long refreshAheadNanos;
+
+    /**
+     * Create a validator using the system clock.
+     *
+     * @param  store           The account store
+     * @param  blockedAccounts The filter of blocked accounts
+     * @param  maxEntries      The maximum number of cached answers
+     * @param  activeTtl       How long an active account is cached
+     * @param  unknownTtl      How long an unknown account is cached
+     * @param  refreshAhead    The age at which a cached answer is refreshed in the background, below the time to live
+     * @param  unit            The unit of the times
+     * @param  refreshExecutor Runs background refreshes
+     */
+    public CachingAccountValidator(final AccountStore store, final BlockedAccountFilter blockedAccounts,
+                                   final int maxEntries, final long activeTtl, final long unknownTtl,
+                                   final long refreshAhead, final TimeUnit unit, final Executor refreshExecutor) {
+        this(store, blockedAccounts, maxEntries, activeTtl, unknownTtl, refreshAhead, unit, refreshExecutor,
+                System::nanoTime);
+    }
+
+    CachingAccountValidator(final AccountStore store, final BlockedAccountFilter blockedAccounts,
+                            final int maxEntries, final long activeTtl, final long unknownTtl,
+                            final long refreshAhead, final TimeUnit unit, final Executor refreshExecutor,
+                            final LongSupplier clock) {
+        this.store = store;
+        this.blockedAccounts = blockedAccounts;
+        this.refreshExecutor = refreshExecutor;
+        this.clock = clock;
+        this.activeTtlNanos = unit.toNanos(activeTtl);
+        this.unknownTtlNanos = unit.toNanos(unknownTtl);
+        this.refreshAheadNanos = unit.toNanos(refreshAhead);
+        this.cache = new ExpiringCache<>(maxEntries, Math.max(activeTtl, unknownTtl), unit, clock);
+    }
+
+    @Override
+    public boolean isValidAccount(final Long accountId) {
+        if (accountId == null || accountId <= 0) {
+            return false;
+        }
+        if (blockedAccounts.mightContain(accountId)) {
+            return false;
+        }
+
+        final CachedAccount cached = cache.get(accountId);
+        if (cached == null) {
+            return load(accountId);
+        }
+        if (clock.getAsLong() - cached.loadedAtNanos >= refreshAheadNanos && cached.refreshing.compareAndSet(false, true)) {
+            try {
+                refreshExecutor.execute(() -> refresh(accountId));
+            } catch (final RejectedExecutionException e) {
+                // Serve the cached answer, a later lookup tries the refresh again.
+                cached.refreshing.set(false);
+                log.error("Error while scheduling account refresh.", e);
+            }
+        }
+        return cached.active;
+    }
+
+    /**
+     * Block an account, it is invalid from now on.
+     *
+     * @param  accountId The Account ID
+     */
+    public void block(final long accountId) {
+        blockedAccounts.add(accountId);
+        cache.invalidate(accountId);
+    }
+
+    /**
+     * Ask the store about an account and cache the answer, or wait for the call already asking it.
+     */
+    private boolean load(final Long accountId) {
+        final CompletableFuture<Boolean> loading = new CompletableFuture<>();
+        final CompletableFuture<Boolean> inFlight = loads.putIfAbsent(accountId, loading);
+        if (inFlight != null) {
+            return join(inFlight);
+        }
+        try {
+            final boolean active = store.isActive(accountId);
+            cache.put(accountId, new CachedAccount(active, clock.getAsLong()),
+                    active ? activeTtlNanos : unknownTtlNanos, TimeUnit.NANOSECONDS);
+            loading.complete(active);
+            return active;
+        } catch (final RuntimeException | Error e) {
+            loading.completeExceptionally(e);
+            throw e;
+        } finally {
+            loads.remove(accountId, loading);
+        }
+    }
+
+    private static boolean join(final CompletableFuture<Boolean> inFlight) {
+        try {
+            return inFlight.join();
+        } catch (final CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private void refresh(final Long accountId) {
+        try {
+            load(accountId);
+        } catch (final RuntimeException e) {
+            // Keep serving the cached answer until it expires.
+            log.error("Error while refreshing account.", e);
+        }
+    }
+
+    private static final class CachedAccount {
+        private final boolean active;
+        private final long loadedAtNanos;
+        private final AtomicBoolean refreshing = new AtomicBoolean();
+
+        private CachedAccount(final boolean active, final long loadedAtNanos) {
+            this.active = active;
+            this.loadedAtNanos = loadedAtNanos;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package uk.gov.dwp.uc.pairtest.account;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Local {@link AccountStore} holding the active accounts in memory, a stand-in for the real store in tests.
+ */
+public class InMemoryAccountStore implements AccountStore {
+
+    private final Set<Long> activeAccounts = ConcurrentHashMap.newKeySet();
+    private final LongAdder lookups = new LongAdder();
+
+    @Override
+    public boolean isActive(final long accountId) {
+        lookups.increment();
+        return activeAccounts.contains(accountId);
+    }
+
+    public void activate(final long accountId) {
+        activeAccounts.add(accountId);
+    }
+
+    public void deactivate(final long accountId) {
+        activeAccounts.remove(accountId);
+    }
+
+    /**
+     * Get the number of lookups made, to check how often the store is reached.
+     *
+     * @return The number of lookups
+     */
+    public long getLookupCount() {
+        return lookups.sum();
+    }
+}
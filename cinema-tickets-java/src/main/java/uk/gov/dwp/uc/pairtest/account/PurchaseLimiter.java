@@ -0,0 +1,33 @@
+package uk.gov.dwp.uc.pairtest.account;
+
+/**
+ * Decides whether an account may make another purchase now, across all its purchases.
+ */
+public interface PurchaseLimiter {
+
+    /**
+     * The limiter allowing every purchase.
+     */
+    PurchaseLimiter NONE = (accountId, tickets) -> true;
+
+    /**
+     * Take the allowance for a purchase of the account.
+     * Nothing is taken when the purchase is refused.
+     *
+     * @param  accountId The Account ID
+     * @param  tickets   The number of tickets in the purchase
+     * @return True if the purchase may go ahead, false if the account is over its limit
+     */
+    boolean tryAcquire(long accountId, int tickets);
+
+    /**
+     * Give back the allowance taken for a purchase refused before any payment was taken,
+     * e.g. as its seats are sold out, so the refusal does not count against the account.
+     * Nothing is given back by default.
+     *
+     * @param  accountId The Account ID
+     * @param  tickets   The number of tickets the allowance was taken for
+     */
+    default void release(final long accountId, final int tickets) {
+    }
+}
@@ -0,0 +1,19 @@
+package uk.gov.dwp.uc.pairtest.async;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Non-blocking view of {@link thirdparty.seatbooking.SeatReservationService}.
+ */
+public interface AsyncSeatReservationService {
+
+    /**
+     * Reserve seats without blocking the caller.
+     *
+     * @param  accountId            The Account ID
+     * @param  totalSeatsToAllocate The number of seats to reserve
+     * @return A future completed once the seats are reserved, or completed exceptionally if it fails
+     */
+    CompletableFuture<Void> reserveSeat(long accountId, int totalSeatsToAllocate);
+
+}
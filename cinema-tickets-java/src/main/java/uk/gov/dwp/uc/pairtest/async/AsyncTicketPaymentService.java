@@ -0,0 +1,19 @@
+package uk.gov.dwp.uc.pairtest.async;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Non-blocking view of {@link thirdparty.paymentgateway.TicketPaymentService}.
+ */
+public interface AsyncTicketPaymentService {
+
+    /**
+     * Take a payment without blocking the caller.
+     *
+     * @param  accountId        The Account ID
+     * @param  totalAmountToPay The amount to pay
+     * @return A future completed once the payment is taken, or completed exceptionally if it fails
+     */
+    CompletableFuture<Void> makePayment(long accountId, int totalAmountToPay);
+
+}
@@ -0,0 +1,23 @@
+package uk.gov.dwp.uc.pairtest.async;
+
+import java.util.concurrent.CompletableFuture;
+
+import uk.gov.dwp.uc.pairtest.domain.PurchaseResult;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest;
+
+/**
+ * The Ticket service which provides a non-blocking ticket purchase.
+ */
+public interface AsyncTicketService {
+
+    /**
+     * Purchase tickets without blocking the caller on the third-party services.
+     * Rejections are reported through the result rather than by completing the future exceptionally.
+     *
+     * @param  accountId          The Account ID
+     * @param  ticketTypeRequests The ticket purchase requests
+     * @return A future of the purchase result
+     */
+    CompletableFuture<PurchaseResult> purchaseTickets(Long accountId, TicketTypeRequest... ticketTypeRequests);
+
+}
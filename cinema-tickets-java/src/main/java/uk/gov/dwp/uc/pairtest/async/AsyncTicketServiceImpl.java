@@ -0,0 +1,243 @@
+package uk.gov.dwp.uc.pairtest.async;
+
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import uk.gov.dwp.uc.pairtest.PurchaseListener;
+import uk.gov.dwp.uc.pairtest.account.AccountValidator;
+import uk.gov.dwp.uc.pairtest.account.PurchaseLimiter;
+import uk.gov.dwp.uc.pairtest.domain.PurchaseResult;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest;
+import uk.gov.dwp.uc.pairtest.engine.PurchaseEvaluation;
+import uk.gov.dwp.uc.pairtest.engine.PurchaseRules;
+import uk.gov.dwp.uc.pairtest.engine.PurchaseValidator;
+import uk.gov.dwp.uc.pairtest.exception.ServiceOverloadedException;
+import uk.gov.dwp.uc.pairtest.metrics.PurchaseMetrics;
+
+/**
+ * Implementation of the Async Ticket Service.
+ * <p>
+ * The purchase is validated on the caller thread, the payment and then the seat reservation
+ * are chained on the async third-party services so the caller is never blocked.
+ * At most {@code maxInFlight} purchases wait on the third-party services at a time,
+ * further purchases are rejected straight away as {@link PurchaseResult.Status#OVERLOADED}.
+ * A purchase refused before its payment is taken gives back the allowance of its account.
+ * </p>
+ */
+public class AsyncTicketServiceImpl implements AsyncTicketService {
+
+    final static Logger log =
+            LoggerFactory.getLogger(AsyncTicketServiceImpl.class);
+
+    private final AsyncTicketPaymentService   paymentService;
+    private final AsyncSeatReservationService reservationService;
+    private final PurchaseValidator           validator;
+    private final PurchaseMetrics             metrics;
+    private final PurchaseListener            listener;
+    private final Semaphore                   inFlight;
+
+    /**
+     * The constructor which initializes the async third-party services and the in-flight limit.
+     *
+     * @param  paymentService     The async payment service
+     * @param  reservationService The async seat reservation service
+     * @param  maxInFlight        The maximum number of purchases waiting on the third-party services
+     */
+    public AsyncTicketServiceImpl(final AsyncTicketPaymentService paymentService,
+                                  final AsyncSeatReservationService reservationService,
+                                  final int maxInFlight) {
+        this(builder(paymentService, reservationService, maxInFlight));
+    }
+
+    private AsyncTicketServiceImpl(final Builder builder) {
+        this.paymentService = builder.paymentService;
+        this.reservationService = builder.reservationService;
+        this.validator = new PurchaseValidator(builder.accountValidator, builder.purchaseLimiter, builder.rules);
+        this.metrics = builder.metrics;
+        this.listener = PurchaseListener.guarded(builder.listener);
+        this.inFlight = new Semaphore(builder.maxInFlight);
+    }
+
+    /**
+     * Get a builder of an async ticket service with more than the default collaborators.
+     *
+     * @param  paymentService     The async payment service
+     * @param  reservationService The async seat reservation service
+     * @param  maxInFlight        The maximum number of purchases waiting on the third-party services
+     * @return The builder
+     */
+    public static Builder builder(final AsyncTicketPaymentService paymentService,
+                                  final AsyncSeatReservationService reservationService,
+                                  final int maxInFlight) {
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("maxInFlight must be at least 1");
+        }
+        return new Builder(paymentService, reservationService, maxInFlight);
+    }
+
+    @Override
+    public CompletableFuture<PurchaseResult> purchaseTickets(final Long accountId,
+                                                             final TicketTypeRequest... ticketTypeRequests) {
+        final PurchaseEvaluation evaluation = PurchaseEvaluation.current();
+        final long validationStart = metrics.startTimer();
+        final PurchaseResult.Status status = validator.validate(accountId, ticketTypeRequests, evaluation);
+        final long paymentStart = metrics.recordValidation(validationStart);
+        if (status != PurchaseResult.Status.CONFIRMED) {
+            return rejected(Objects.isNull(accountId) ? 0 : accountId, status);
+        }
+
+        final long account = accountId;
+        final int totalBookingAmount = evaluation.totalAmountInPounds();
+        final int totalSeats = evaluation.totalSeats();
+        final int totalTickets = evaluation.totalTickets();
+        if (!inFlight.tryAcquire()) {
+            validator.release(account, totalTickets);
+            return rejected(account, PurchaseResult.Status.OVERLOADED);
+        }
+
+        final long bookingId;
+        try {
+            bookingId = listener.bookingStarted(account, totalBookingAmount, totalSeats);
+        } catch (final RuntimeException e) {
+            inFlight.release();
+            validator.release(account, totalTickets);
+            log.error("Error while recording booking intent.", e);
+            return completed(PurchaseResult.Status.BOOKING_FAILED);
+        }
+
+        final CompletableFuture<Void> payment;
+        try {
+            payment = paymentService.makePayment(account, totalBookingAmount);
+        } catch (final RejectedExecutionException | ServiceOverloadedException e) {
+            // The payment was refused before it was taken, e.g. the executor queue is full.
+            inFlight.release();
+            validator.release(account, totalTickets);
+            listener.bookingFailed(bookingId, e);
+            return completed(PurchaseResult.Status.OVERLOADED);
+        } catch (final RuntimeException e) {
+            inFlight.release();
+            listener.bookingFailed(bookingId, e);
+            log.error("Error while finalizing booking.", e);
+            return completed(PurchaseResult.Status.BOOKING_FAILED);
+        }
+
+        final CompletableFuture<PurchaseResult> result = payment
+                .thenCompose(paid -> {
+                    final long reservationStart = metrics.recordPayment(paymentStart);
+                    listener.paymentTaken(bookingId);
+                    return reservationService.reserveSeat(account, totalSeats)
+                            .whenComplete((reserved, failure) -> metrics.recordReservation(reservationStart));
+                })
+                .handle((reserved, failure) -> {
+                    if (failure == null) {
+                        listener.seatsReserved(bookingId);
+                        metrics.recordOutcome(PurchaseResult.Status.CONFIRMED);
+                        return PurchaseResult.confirmed(totalBookingAmount, totalSeats);
+                    }
+                    final Throwable cause = unwrap(failure);
+                    listener.bookingFailed(bookingId, cause);
+                    if (payment.isCompletedExceptionally()) {
+                        metrics.recordPayment(paymentStart);
+                        if (cause instanceof ServiceOverloadedException) {
+                            // The payment was refused before it was taken, e.g. a full payment batch queue.
+                            validator.release(account, totalTickets);
+                            metrics.recordOutcome(PurchaseResult.Status.OVERLOADED);
+                            return PurchaseResult.rejected(PurchaseResult.Status.OVERLOADED);
+                        }
+                    }
+                    log.error("Error while finalizing booking.", cause);
+                    metrics.recordOutcome(PurchaseResult.Status.BOOKING_FAILED);
+                    return PurchaseResult.rejected(PurchaseResult.Status.BOOKING_FAILED);
+                });
+        result.whenComplete((purchaseResult, failure) -> inFlight.release());
+        return result;
+    }
+
+    private CompletableFuture<PurchaseResult> rejected(final long accountId, final PurchaseResult.Status status) {
+        listener.purchaseRejected(accountId, status);
+        return completed(status);
+    }
+
+    private CompletableFuture<PurchaseResult> completed(final PurchaseResult.Status status) {
+        metrics.recordOutcome(status);
+        return CompletableFuture.completedFuture(PurchaseResult.rejected(status));
+    }
+
+    private static Throwable unwrap(final Throwable failure) {
+        return failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+    }
+
+    /**
+     * Builds an async ticket service. Every collaborator not set is the default of the constructor:
+     * accounts with an id greater than zero, no purchase limit, the default purchase rules,
+     * no metrics and no listener.
+     */
+    public static final class Builder {
+        private final AsyncTicketPaymentService   paymentService;
+        private final AsyncSeatReservationService reservationService;
+        private final int                         maxInFlight;
+        private AccountValidator                  accountValidator = AccountValidator.positiveAccountId();
+        private PurchaseLimiter                   purchaseLimiter = PurchaseLimiter.NONE;
+        private Supplier<PurchaseRules>           rules = () -> PurchaseRules.DEFAULT;
+        private PurchaseMetrics                   metrics = PurchaseMetrics.disabled();
+        private PurchaseListener                  listener = PurchaseListener.NONE;
+
+        private Builder(final AsyncTicketPaymentService paymentService,
+                        final AsyncSeatReservationService reservationService, final int maxInFlight) {
+            this.paymentService = paymentService;
+            this.reservationService = reservationService;
+            this.maxInFlight = maxInFlight;
+        }
+
+        /**
+         * Set the account validator consulted for every purchase.
+         */
+        public Builder accountValidator(final AccountValidator accountValidator) {
+            this.accountValidator = Objects.requireNonNull(accountValidator);
+            return this;
+        }
+
+        /**
+         * Set the limiter of the purchases of each account, checked after validation and before any third-party call.
+         */
+        public Builder purchaseLimiter(final PurchaseLimiter purchaseLimiter) {
+            this.purchaseLimiter = Objects.requireNonNull(purchaseLimiter);
+            return this;
+        }
+
+        /**
+         * Set the supplier of the purchase rules of the venue, such as a hot-reloaded rule file.
+         */
+        public Builder rules(final Supplier<PurchaseRules> rules) {
+            this.rules = Objects.requireNonNull(rules);
+            return this;
+        }
+
+        /**
+         * Set the metrics recorded for every purchase.
+         */
+        public Builder metrics(final PurchaseMetrics metrics) {
+            this.metrics = Objects.requireNonNull(metrics);
+            return this;
+        }
+
+        /**
+         * Set the listener told about each step of every booking, such as the booking journal.
+         */
+        public Builder listener(final PurchaseListener listener) {
+            this.listener = Objects.requireNonNull(listener);
+            return this;
+        }
+
+        public AsyncTicketServiceImpl build() {
+            return new AsyncTicketServiceImpl(this);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package uk.gov.dwp.uc.pairtest.async;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+import thirdparty.seatbooking.SeatReservationService;
+
+/**
+ * Adapts a blocking {@link SeatReservationService} by running each reservation on an executor.
+ */
+public class ExecutorSeatReservationService implements AsyncSeatReservationService {
+
+    private final SeatReservationService reservationService;
+    private final Executor executor;
+
+    public ExecutorSeatReservationService(final SeatReservationService reservationService, final Executor executor) {
+        this.reservationService = reservationService;
+        this.executor = executor;
+    }
+
+    @Override
+    public CompletableFuture<Void> reserveSeat(final long accountId, final int totalSeatsToAllocate) {
+        return CompletableFuture.runAsync(() -> reservationService.reserveSeat(accountId, totalSeatsToAllocate), executor);
+    }
+}
@@ -0,0 +1,25 @@
+package uk.gov.dwp.uc.pairtest.async;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+import thirdparty.paymentgateway.TicketPaymentService;
+
+/**
+ * Adapts a blocking {@link TicketPaymentService} by running each payment on an executor.
+ */
+public class ExecutorTicketPaymentService implements AsyncTicketPaymentService {
+
+    private final TicketPaymentService paymentService;
+    private final Executor executor;
+
+    public ExecutorTicketPaymentService(final TicketPaymentService paymentService, final Executor executor) {
+        this.paymentService = paymentService;
+        this.executor = executor;
+    }
+
+    @Override
+    public CompletableFuture<Void> makePayment(final long accountId, final int totalAmountToPay) {
+        return CompletableFuture.runAsync(() -> paymentService.makePayment(accountId, totalAmountToPay), executor);
+    }
+}
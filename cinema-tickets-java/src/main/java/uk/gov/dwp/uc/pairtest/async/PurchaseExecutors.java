@@ -0,0 +1,53 @@
+package uk.gov.dwp.uc.pairtest.async;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Factory of the executors used to run the blocking third-party calls.
+ */
+public final class PurchaseExecutors {
+
+    private PurchaseExecutors() {
+    }
+
+    /**
+     * Create a fixed size pool of platform threads with a bounded queue.
+     * A task submitted when the queue is full is rejected.
+     *
+     * @param  threads       Number of threads
+     * @param  queueCapacity Number of tasks that can wait for a thread
+     * @return A bounded executor
+     */
+    public static ExecutorService boundedPlatform(final int threads, final int queueCapacity) {
+        final AtomicInteger threadCount = new AtomicInteger();
+        final ThreadFactory threadFactory = runnable -> {
+            final Thread thread = new Thread(runnable, "ticket-purchase-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), threadFactory, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Create an executor starting a virtual thread per task when the JDK supports them.
+     *
+     * @param  fallback Supplies the executor to use on a JDK without virtual threads
+     * @return A virtual thread executor, or the fallback executor
+     */
+    public static ExecutorService virtualThreadsOrElse(final Supplier<ExecutorService> fallback) {
+        try {
+            final Method factory = java.util.concurrent.Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (final ReflectiveOperationException | UnsupportedOperationException e) {
+            return fallback.get();
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package uk.gov.dwp.uc.pairtest.audit;
+
+import java.time.Instant;
+
+import uk.gov.dwp.uc.pairtest.domain.PurchaseResult;
+
+/**
+ * Immutable Object
+ * <p>
+ * A purchase event decoded from the audit log.
+ * Fields that the event type does not record are zero, or null for the status.
+ * </p>
+ */
+public final class AuditEvent {
+
+    private final long timestamp;
+    private final AuditEventType type;
+    private final long bookingId;
+    private final long accountId;
+    private final int totalAmount;
+    private final int totalSeats;
+    private final PurchaseResult.Status status;
+
+    public AuditEvent(final long timestamp, final AuditEventType type, final long bookingId, final long accountId,
+                      final int totalAmount, final int totalSeats, final PurchaseResult.Status status) {
+        this.timestamp = timestamp;
+        this.type = type;
+        this.bookingId = bookingId;
+        this.accountId = accountId;
+        this.totalAmount = totalAmount;
+        this.totalSeats = totalSeats;
+        this.status = status;
+    }
+
+    /**
+     * Get the time the event was recorded.
+     *
+     * @return The time in milliseconds since the epoch
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public AuditEventType getType() {
+        return type;
+    }
+
+    public long getBookingId() {
+        return bookingId;
+    }
+
+    public long getAccountId() {
+        return accountId;
+    }
+
+    public int getTotalAmount() {
+        return totalAmount;
+    }
+
+    public int getTotalSeats() {
+        return totalSeats;
+    }
+
+    public PurchaseResult.Status getStatus() {
+        return status;
+    }
+
+    @Override
+    public String toString() {
+        return Instant.ofEpochMilli(timestamp) + " " + type + " bookingId=" + bookingId + " accountId=" + accountId
+                + " totalAmount=" + totalAmount + " totalSeats=" + totalSeats
+                + (status == null ? "" : " status=" + status);
+    }
+}
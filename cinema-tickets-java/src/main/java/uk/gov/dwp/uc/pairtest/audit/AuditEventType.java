@@ -0,0 +1,22 @@
+package uk.gov.dwp.uc.pairtest.audit;
+
+/**
+ * The purchase events recorded in the audit log.
+ */
+public enum AuditEventType {
+    BOOKING_STARTED,
+    PAYMENT_TAKEN,
+    SEATS_RESERVED,
+    BOOKING_FAILED,
+    PURCHASE_REJECTED;
+
+    private static final AuditEventType[] TYPES = values();
+
+    static AuditEventType of(final int code) {
+        return code >= 1 && code <= TYPES.length ? TYPES[code - 1] : null;
+    }
+
+    int code() {
+        return ordinal() + 1;
+    }
+}
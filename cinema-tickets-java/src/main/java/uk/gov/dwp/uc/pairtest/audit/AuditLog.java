@@ -0,0 +1,381 @@
+package uk.gov.dwp.uc.pairtest.audit;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import uk.gov.dwp.uc.pairtest.PurchaseListener;
+import uk.gov.dwp.uc.pairtest.domain.PurchaseResult;
+
+/**
+ * An asynchronous audit log of purchase events in rotating binary files.
+ * <p>
+ * Each event is written by the purchasing thread as a fixed-size binary record into a lock-free ring buffer,
+ * with no string building, locking or I/O. A drainer thread writes the published records to the current file
+ * in bulk, starting a new file once it holds the configured number of bytes and deleting the oldest files
+ * beyond the configured count. Each file starts with an 8 byte header, the magic number and the layout version,
+ * followed by the records:
+ * </p>
+ * <pre>
+ *  0  long timestamp, milliseconds since the epoch
+ *  8  long bookingId
+ * 16  long accountId
+ * 24  int  totalAmount
+ * 28  int  totalSeats
+ * 32  byte event type code
+ * 33  byte rejection status code, zero if none
+ * 34  reserved, zero
+ * </pre>
+ * <p>
+ * When the ring buffer is full the event is dropped rather than slowing the purchase, dropped events are counted.
+ * The files are decoded by {@link AuditLogReader}.
+ * </p>
+ * <p>
+ * The log is a {@link PurchaseListener} numbering bookings itself, the numbers are only unique while it is open.
+ * Use {@link #auditing(PurchaseListener)} to audit the bookings of another listener, such as the booking journal,
+ * under its booking ids.
+ * </p>
+ */
+public class AuditLog implements PurchaseListener, Closeable {
+
+    final static Logger log =
+            LoggerFactory.getLogger(AuditLog.class);
+
+    public static final int EVENT_SIZE = 40;
+    public static final int HEADER_SIZE = 8;
+    static final int MAGIC = 0x41554454;
+    static final int VERSION = 1;
+
+    static final String FILE_PREFIX = "audit-";
+    static final String FILE_SUFFIX = ".log";
+
+    private final Path directory;
+    private final int capacity;
+    private final int mask;
+    private final ByteBuffer ring;
+    private final ByteBuffer drainView;
+    private final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+    private final AtomicLongArray published;
+    private final AtomicLong claimed = new AtomicLong();
+    private final AtomicLong consumed = new AtomicLong();
+    private final AtomicLong nextBookingId = new AtomicLong(1);
+    private final LongAdder dropped = new LongAdder();
+    private final long eventsPerFile;
+    private final int maxFiles;
+    private final long drainIntervalNanos;
+    private final Deque<Path> files = new ArrayDeque<>();
+    private final Thread drainer;
+
+    private FileChannel channel;
+    private long fileEvents;
+    private long nextSequence;
+    private volatile long writtenEvents;
+    private volatile boolean closed;
+
+    private AuditLog(final Path directory, final int capacity, final long maxFileBytes, final int maxFiles,
+                     final long drainIntervalNanos) throws IOException {
+        this.directory = directory;
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+        this.ring = ByteBuffer.allocateDirect(capacity * EVENT_SIZE);
+        this.drainView = ring.duplicate();
+        this.published = new AtomicLongArray(capacity);
+        this.eventsPerFile = Math.max(1, (maxFileBytes - HEADER_SIZE) / EVENT_SIZE);
+        this.maxFiles = maxFiles;
+        this.drainIntervalNanos = drainIntervalNanos;
+
+        final List<Path> existing = AuditLogReader.listFiles(directory);
+        files.addAll(existing);
+        if (!existing.isEmpty()) {
+            final Path last = existing.get(existing.size() - 1);
+            nextSequence = firstSequence(last) + Math.max(0, Files.size(last) - HEADER_SIZE) / EVENT_SIZE;
+            if (nextSequence == firstSequence(last)) {
+                // No events were written to the last file, the new file takes its name.
+                Files.delete(files.removeLast());
+            }
+        }
+        openFile();
+
+        this.drainer = new Thread(this::drainLoop, "audit-log-drainer");
+        this.drainer.setDaemon(true);
+        this.drainer.start();
+    }
+
+    /**
+     * Open an audit log, writing to a new file after any files already in the directory.
+     *
+     * @param  directory     The audit log directory, created if missing
+     * @param  capacity      The number of events the ring buffer holds, a power of two
+     * @param  maxFileBytes  The size of a file before a new file is started
+     * @param  maxFiles      The number of files kept, the oldest are deleted
+     * @param  drainInterval The longest time a recorded event waits to be written
+     * @param  unit          The unit of the drain interval
+     * @return The open audit log
+     * @throws IOException If the audit log cannot be created
+     */
+    public static AuditLog open(final Path directory, final int capacity, final long maxFileBytes,
+                                final int maxFiles, final long drainInterval, final TimeUnit unit)
+            throws IOException {
+        if (capacity < 1 || Integer.bitCount(capacity) != 1 || capacity > Integer.MAX_VALUE / EVENT_SIZE) {
+            throw new IllegalArgumentException("Capacity must be a power of two");
+        }
+        if (maxFileBytes < HEADER_SIZE + EVENT_SIZE || maxFiles < 1) {
+            throw new IllegalArgumentException("A file must hold an event and at least one file must be kept");
+        }
+        Files.createDirectories(directory);
+        return new AuditLog(directory, capacity, maxFileBytes, maxFiles, unit.toNanos(drainInterval));
+    }
+
+    /**
+     * Get a listener which audits each notification and passes it on, using the booking ids of the delegate.
+     *
+     * @param  bookings The listener numbering the bookings
+     * @return The auditing listener
+     */
+    public PurchaseListener auditing(final PurchaseListener bookings) {
+        return new PurchaseListener() {
+            @Override
+            public long bookingStarted(final long accountId, final int totalAmount, final int totalSeats) {
+                final long bookingId = bookings.bookingStarted(accountId, totalAmount, totalSeats);
+                record(AuditEventType.BOOKING_STARTED, bookingId, accountId, totalAmount, totalSeats, null);
+                return bookingId;
+            }
+
+            @Override
+            public void paymentTaken(final long bookingId) {
+                bookings.paymentTaken(bookingId);
+                record(AuditEventType.PAYMENT_TAKEN, bookingId, 0, 0, 0, null);
+            }
+
+            @Override
+            public void seatsReserved(final long bookingId) {
+                bookings.seatsReserved(bookingId);
+                record(AuditEventType.SEATS_RESERVED, bookingId, 0, 0, 0, null);
+            }
+
+            @Override
+            public void bookingFailed(final long bookingId, final Throwable cause) {
+                bookings.bookingFailed(bookingId, cause);
+                record(AuditEventType.BOOKING_FAILED, bookingId, 0, 0, 0, null);
+            }
+
+            @Override
+            public void purchaseRejected(final long accountId, final PurchaseResult.Status status) {
+                bookings.purchaseRejected(accountId, status);
+                record(AuditEventType.PURCHASE_REJECTED, 0, accountId, 0, 0, status);
+            }
+        };
+    }
+
+    @Override
+    public long bookingStarted(final long accountId, final int totalAmount, final int totalSeats) {
+        final long bookingId = nextBookingId.getAndIncrement();
+        record(AuditEventType.BOOKING_STARTED, bookingId, accountId, totalAmount, totalSeats, null);
+        return bookingId;
+    }
+
+    @Override
+    public void paymentTaken(final long bookingId) {
+        record(AuditEventType.PAYMENT_TAKEN, bookingId, 0, 0, 0, null);
+    }
+
+    @Override
+    public void seatsReserved(final long bookingId) {
+        record(AuditEventType.SEATS_RESERVED, bookingId, 0, 0, 0, null);
+    }
+
+    @Override
+    public void bookingFailed(final long bookingId, final Throwable cause) {
+        record(AuditEventType.BOOKING_FAILED, bookingId, 0, 0, 0, null);
+    }
+
+    @Override
+    public void purchaseRejected(final long accountId, final PurchaseResult.Status status) {
+        record(AuditEventType.PURCHASE_REJECTED, 0, accountId, 0, 0, status);
+    }
+
+    /**
+     * Get the number of events dropped because the ring buffer was full, the log was closed or a write failed.
+     *
+     * @return The number of dropped events
+     */
+    public long getDroppedEvents() {
+        return dropped.sum();
+    }
+
+    /**
+     * Get the number of events written to the files since the log was opened.
+     *
+     * @return The number of written events
+     */
+    public long getWrittenEvents() {
+        return writtenEvents;
+    }
+
+    /**
+     * Record an event without blocking, dropping it if the ring buffer is full.
+     */
+    void record(final AuditEventType type, final long bookingId, final long accountId, final int totalAmount,
+                final int totalSeats, final PurchaseResult.Status status) {
+        final long sequence = claim();
+        if (sequence < 0) {
+            dropped.increment();
+            return;
+        }
+        final int offset = (int) (sequence & mask) * EVENT_SIZE;
+        ring.putLong(offset, System.currentTimeMillis());
+        ring.putLong(offset + 8, bookingId);
+        ring.putLong(offset + 16, accountId);
+        ring.putInt(offset + 24, totalAmount);
+        ring.putInt(offset + 28, totalSeats);
+        ring.put(offset + 32, (byte) type.code());
+        ring.put(offset + 33, (byte) (status == null ? 0 : status.ordinal() + 1));
+        ring.putShort(offset + 34, (short) 0);
+        ring.putInt(offset + 36, 0);
+        published.lazySet((int) (sequence & mask), sequence + 1);
+    }
+
+    /**
+     * Claim the next slot of the ring buffer.
+     *
+     * @return The sequence of the slot, or -1 if the ring buffer is full or the log is closed
+     */
+    private long claim() {
+        while (!closed) {
+            final long sequence = claimed.get();
+            if (sequence - consumed.get() >= capacity) {
+                return -1;
+            }
+            if (claimed.compareAndSet(sequence, sequence + 1)) {
+                return sequence;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        LockSupport.unpark(drainer);
+        try {
+            drainer.join();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (channel.isOpen()) {
+            channel.force(false);
+            channel.close();
+        }
+    }
+
+    private void drainLoop() {
+        while (true) {
+            final long from = consumed.get();
+            long to = from;
+            while (to - from < capacity && published.get((int) (to & mask)) == to + 1) {
+                to++;
+            }
+            if (to > from) {
+                write(from, to);
+                consumed.lazySet(to);
+            } else if (closed && claimed.get() == from) {
+                return;
+            } else {
+                LockSupport.parkNanos(this, drainIntervalNanos);
+            }
+        }
+    }
+
+    /**
+     * Write the published events of the ring buffer to the files, starting new files as they fill.
+     */
+    private void write(final long from, final long to) {
+        long sequence = from;
+        while (sequence < to) {
+            if (fileEvents == eventsPerFile || !channel.isOpen()) {
+                try {
+                    channel.close();
+                    openFile();
+                } catch (final IOException e) {
+                    log.error("Error while starting audit log file, dropping events.", e);
+                    dropped.add(to - sequence);
+                    // The dropped events leave a gap, so the next file gets a new name.
+                    nextSequence += to - sequence;
+                    return;
+                }
+            }
+            final int slot = (int) (sequence & mask);
+            final int events = (int) Math.min(Math.min(to - sequence, capacity - slot), eventsPerFile - fileEvents);
+            drainView.limit((slot + events) * EVENT_SIZE).position(slot * EVENT_SIZE);
+            try {
+                while (drainView.hasRemaining()) {
+                    channel.write(drainView);
+                }
+                fileEvents += events;
+                nextSequence += events;
+                writtenEvents += events;
+            } catch (final IOException e) {
+                log.error("Error while writing audit log, dropping events.", e);
+                dropped.add(events);
+                // A partly written event would misalign the file, the next write starts a new one.
+                // Skipping the dropped events names it after the file just written, even an empty one.
+                nextSequence += events;
+                closeQuietly();
+            }
+            sequence += events;
+        }
+    }
+
+    private void closeQuietly() {
+        try {
+            channel.close();
+        } catch (final IOException e) {
+            log.warn("Error while closing audit log file.", e);
+        }
+    }
+
+    private void openFile() throws IOException {
+        final Path path = directory.resolve(String.format("%s%020d%s", FILE_PREFIX, nextSequence, FILE_SUFFIX));
+        channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        // Retained from creation, so a file whose header cannot be written is still deleted in turn.
+        files.addLast(path);
+        fileEvents = 0;
+        header.clear();
+        header.putInt(MAGIC).putInt(VERSION).flip();
+        try {
+            while (header.hasRemaining()) {
+                channel.write(header);
+            }
+        } catch (final IOException e) {
+            // Closed so the next write starts another file instead of writing after a partial header.
+            closeQuietly();
+            throw e;
+        }
+        while (files.size() > maxFiles) {
+            Files.deleteIfExists(files.removeFirst());
+        }
+    }
+
+    static long firstSequence(final Path path) {
+        final String name = path.getFileName().toString();
+        return Long.parseLong(name.substring(FILE_PREFIX.length(), name.length() - FILE_SUFFIX.length()));
+    }
+}
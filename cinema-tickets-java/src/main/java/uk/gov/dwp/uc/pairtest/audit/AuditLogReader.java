@@ -0,0 +1,102 @@
+package uk.gov.dwp.uc.pairtest.audit;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import uk.gov.dwp.uc.pairtest.domain.PurchaseResult;
+
+/**
+ * Decodes the files of an {@link AuditLog}.
+ * <p>
+ * Run it with the audit log directory to print every event, oldest first, one per line.
+ * </p>
+ */
+public final class AuditLogReader {
+
+    final static Logger log =
+            LoggerFactory.getLogger(AuditLogReader.class);
+
+    private static final PurchaseResult.Status[] STATUSES = PurchaseResult.Status.values();
+
+    private AuditLogReader() {
+    }
+
+    public static void main(final String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("Usage: AuditLogReader <audit log directory>");
+            System.exit(2);
+        }
+        final long events = read(Paths.get(args[0]), System.out::println);
+        System.err.println(events + " events");
+    }
+
+    /**
+     * Read the events of every file in the directory, oldest first.
+     * A file with an unknown header is skipped, a trailing partial event is ignored.
+     *
+     * @param  directory The audit log directory
+     * @param  consumer  Receives each event
+     * @return The number of events read
+     * @throws IOException If a file cannot be read
+     */
+    public static long read(final Path directory, final Consumer<AuditEvent> consumer) throws IOException {
+        long events = 0;
+        for (final Path path : listFiles(directory)) {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                final ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                if (buffer.limit() < AuditLog.HEADER_SIZE
+                        || buffer.getInt(0) != AuditLog.MAGIC || buffer.getInt(4) != AuditLog.VERSION) {
+                    log.warn("Skipping audit log file {} with an unknown header.", path);
+                    continue;
+                }
+                for (int offset = AuditLog.HEADER_SIZE; offset + AuditLog.EVENT_SIZE <= buffer.limit();
+                     offset += AuditLog.EVENT_SIZE) {
+                    consumer.accept(decode(buffer, offset));
+                    events++;
+                }
+            }
+        }
+        return events;
+    }
+
+    /**
+     * List the audit log files of a directory, oldest first.
+     *
+     * @param  directory The audit log directory
+     * @return The files
+     * @throws IOException If the directory cannot be read
+     */
+    static List<Path> listFiles(final Path directory) throws IOException {
+        final List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> paths =
+                     Files.newDirectoryStream(directory, AuditLog.FILE_PREFIX + "*" + AuditLog.FILE_SUFFIX)) {
+            paths.forEach(files::add);
+        }
+        Collections.sort(files);
+        return files;
+    }
+
+    private static AuditEvent decode(final ByteBuffer buffer, final int offset) {
+        final int statusCode = buffer.get(offset + 33);
+        return new AuditEvent(buffer.getLong(offset),
+                AuditEventType.of(buffer.get(offset + 32)),
+                buffer.getLong(offset + 8),
+                buffer.getLong(offset + 16),
+                buffer.getInt(offset + 24),
+                buffer.getInt(offset + 28),
+                statusCode >= 1 && statusCode <= STATUSES.length ? STATUSES[statusCode - 1] : null);
+    }
+}
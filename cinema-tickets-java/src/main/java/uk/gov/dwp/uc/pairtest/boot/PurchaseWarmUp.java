@@ -0,0 +1,114 @@
+package uk.gov.dwp.uc.pairtest.boot;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+import thirdparty.paymentgateway.TicketPaymentService;
+import thirdparty.seatbooking.SeatReservationService;
+import uk.gov.dwp.uc.pairtest.TicketService;
+import uk.gov.dwp.uc.pairtest.TicketServiceImpl;
+import uk.gov.dwp.uc.pairtest.codec.PurchaseMessage;
+import uk.gov.dwp.uc.pairtest.codec.PurchaseMessageEncoder;
+import uk.gov.dwp.uc.pairtest.domain.PurchaseOrder;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest.Type;
+import uk.gov.dwp.uc.pairtest.exception.InvalidPurchaseException;
+
+/**
+ * Exercises every purchase and rejection path so they are loaded and compiled before live traffic arrives.
+ * <p>
+ * Each iteration makes a confirmed purchase, each kind of rejection both as a result and as an exception,
+ * a failed booking, a batch and a binary purchase message. The purchases are made on a Ticket service of
+ * its own, wired to stand-in third-party services, so warming up never takes a payment or reserves a seat.
+ * </p>
+ */
+public class PurchaseWarmUp {
+
+    /**
+     * The account of the warm-up purchases.
+     */
+    public static final long WARM_UP_ACCOUNT_ID = 1L;
+
+    private static final TicketPaymentService NO_PAYMENT = (accountId, totalAmountToPay) -> { };
+    private static final SeatReservationService NO_RESERVATION = (accountId, totalSeatsToAllocate) -> { };
+    private static final SeatReservationService FAILING_RESERVATION = (accountId, totalSeatsToAllocate) -> {
+        throw new IllegalStateException("Warm-up booking failure");
+    };
+
+    private final int iterations;
+    private final boolean stacklessRejections;
+
+    /**
+     * Create a warm-up routine.
+     *
+     * @param  iterations          The number of times every path is exercised, zero to skip the warm-up
+     * @param  stacklessRejections Whether rejections are thrown without a stack trace, as by the live service
+     */
+    public PurchaseWarmUp(final int iterations, final boolean stacklessRejections) {
+        if (iterations < 0) {
+            throw new IllegalArgumentException("Invalid warm-up iterations: " + iterations);
+        }
+        this.iterations = iterations;
+        this.stacklessRejections = stacklessRejections;
+    }
+
+    /**
+     * Run the warm-up.
+     *
+     * @return The number of purchases made
+     */
+    public long run() {
+        final TicketService ticketService = TicketServiceImpl.builder(NO_PAYMENT, NO_RESERVATION)
+                .stacklessRejections(stacklessRejections)
+                .build();
+        final TicketService failingService = TicketServiceImpl.builder(NO_PAYMENT, FAILING_RESERVATION)
+                .stacklessRejections(stacklessRejections)
+                .build();
+
+        final TicketTypeRequest[] family = {
+                new TicketTypeRequest(Type.ADULT, 2),
+                new TicketTypeRequest(Type.CHILD, 2),
+                new TicketTypeRequest(Type.INFANT, 1)};
+        final TicketTypeRequest[][] rejected = {
+                {new TicketTypeRequest(Type.ADULT, 21)},
+                {new TicketTypeRequest(Type.CHILD, 1)},
+                null};
+        final List<PurchaseOrder> batch = Arrays.asList(
+                new PurchaseOrder(WARM_UP_ACCOUNT_ID, family),
+                new PurchaseOrder(WARM_UP_ACCOUNT_ID, new TicketTypeRequest(Type.ADULT, 1)),
+                new PurchaseOrder(0L, family),
+                null);
+        final ByteBuffer encoded = PurchaseMessageEncoder.encode(WARM_UP_ACCOUNT_ID, family);
+        final PurchaseMessage message = new PurchaseMessage();
+
+        long purchases = 0;
+        for (int i = 0; i < iterations; i++) {
+            ticketService.purchaseTickets(WARM_UP_ACCOUNT_ID, family);
+            ticketService.tryPurchaseTickets(WARM_UP_ACCOUNT_ID, family);
+            ticketService.tryPurchaseTickets(0L, family);
+            reject(ticketService, 0L, family);
+            purchases += 4;
+            for (final TicketTypeRequest[] requests : rejected) {
+                ticketService.tryPurchaseTickets(WARM_UP_ACCOUNT_ID, requests);
+                reject(ticketService, WARM_UP_ACCOUNT_ID, requests);
+                purchases += 2;
+            }
+            failingService.tryPurchaseTickets(WARM_UP_ACCOUNT_ID, family);
+            ticketService.purchaseBatch(batch);
+            message.wrap(encoded, 0);
+            ticketService.tryPurchaseTickets(message);
+            purchases += 2 + batch.size();
+        }
+        return purchases;
+    }
+
+    private static void reject(final TicketService ticketService, final long accountId,
+                              final TicketTypeRequest[] requests) {
+        try {
+            ticketService.purchaseTickets(accountId, requests);
+        } catch (final InvalidPurchaseException e) {
+            // Expected, the rejection path is what is warmed up.
+        }
+    }
+}
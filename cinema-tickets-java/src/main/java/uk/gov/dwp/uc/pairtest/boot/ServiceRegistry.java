@@ -0,0 +1,161 @@
+package uk.gov.dwp.uc.pairtest.boot;
+
+import java.util.Collections;
+import java.util.List;
+
+import thirdparty.paymentgateway.TicketPaymentService;
+import thirdparty.seatbooking.SeatReservationService;
+import uk.gov.dwp.uc.pairtest.SeatReservationServiceHelper;
+import uk.gov.dwp.uc.pairtest.TicketPaymentServiceHelper;
+import uk.gov.dwp.uc.pairtest.TicketService;
+import uk.gov.dwp.uc.pairtest.TicketServiceImpl;
+import uk.gov.dwp.uc.pairtest.journal.BookingJournal;
+import uk.gov.dwp.uc.pairtest.journal.BookingRecovery;
+import uk.gov.dwp.uc.pairtest.journal.JournalRecord;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The Ticket service and its third-party services, wired once at boot.
+ * <p>
+ * Every service is created in the constructor and held in a final field, so the registry can be shared
+ * with any thread once built and no service is created lazily on first use.
+ * The registry reports ready once {@link #start(PurchaseWarmUp)} has warmed up the purchase paths,
+ * so live traffic is only routed to it after the hot paths are compiled.
+ * </p>
+ * <p>
+ * With a {@link BookingJournal}, the bookings a crash left incomplete are replayed while the registry is built,
+ * so every booking paid before the restart has its seats reserved before a new purchase is taken.
+ * </p>
+ */
+public final class ServiceRegistry {
+
+    final static Logger log =
+            LoggerFactory.getLogger(ServiceRegistry.class);
+
+    private final TicketPaymentService   paymentService;
+    private final SeatReservationService reservationService;
+    private final TicketService          ticketService;
+    private final List<JournalRecord>    unresolvedBookings;
+    private volatile boolean             ready;
+
+    /**
+     * The constructor wiring the Ticket service to the given third-party services,
+     * rejecting purchases with preallocated exceptions.
+     */
+    public ServiceRegistry(final TicketPaymentService paymentService,
+                           final SeatReservationService reservationService) {
+        this(paymentService, reservationService, TicketServiceImpl.builder(paymentService, reservationService)
+                .stacklessRejections(true)
+                .build());
+    }
+
+    /**
+     * The constructor registering an already wired Ticket service.
+     */
+    public ServiceRegistry(final TicketPaymentService paymentService,
+                           final SeatReservationService reservationService, final TicketService ticketService) {
+        this(Collections.emptyList(), paymentService, reservationService, ticketService);
+    }
+
+    /**
+     * The constructor replaying the incomplete bookings of a journal, then wiring the Ticket service
+     * to record every booking in it, rejecting purchases with preallocated exceptions.
+     */
+    public ServiceRegistry(final TicketPaymentService paymentService,
+                           final SeatReservationService reservationService, final BookingJournal journal) {
+        // Arguments are evaluated in order, the replay is done before the Ticket service exists.
+        this(BookingRecovery.replay(journal, reservationService), paymentService, reservationService,
+                TicketServiceImpl.builder(paymentService, reservationService)
+                        .stacklessRejections(true)
+                        .listener(journal)
+                        .build());
+    }
+
+    private ServiceRegistry(final List<JournalRecord> unresolvedBookings, final TicketPaymentService paymentService,
+                            final SeatReservationService reservationService, final TicketService ticketService) {
+        this.unresolvedBookings = unresolvedBookings;
+        this.paymentService = paymentService;
+        this.reservationService = reservationService;
+        this.ticketService = ticketService;
+    }
+
+    /**
+     * Create the registry of the default third-party services.
+     *
+     * @return The registry, not yet ready
+     */
+    public static ServiceRegistry create() {
+        return new ServiceRegistry(new TicketPaymentServiceHelper().getPaymentServiceInstance(),
+                new SeatReservationServiceHelper().getReservationServiceInstance());
+    }
+
+    /**
+     * Create the registry of the default third-party services, warm it up and report it ready.
+     *
+     * @param  warmUp The warm-up routine
+     * @return The ready registry
+     */
+    public static ServiceRegistry start(final PurchaseWarmUp warmUp) {
+        return start(create(), warmUp);
+    }
+
+    /**
+     * Create the registry of the default third-party services recording bookings in a journal,
+     * replay the bookings the journal found incomplete, warm the registry up and report it ready.
+     *
+     * @param  warmUp  The warm-up routine
+     * @param  journal The booking journal, just opened
+     * @return The ready registry
+     */
+    public static ServiceRegistry start(final PurchaseWarmUp warmUp, final BookingJournal journal) {
+        return start(new ServiceRegistry(new TicketPaymentServiceHelper().getPaymentServiceInstance(),
+                new SeatReservationServiceHelper().getReservationServiceInstance(), journal), warmUp);
+    }
+
+    private static ServiceRegistry start(final ServiceRegistry registry, final PurchaseWarmUp warmUp) {
+        final long start = System.nanoTime();
+        final long purchases = warmUp.run();
+        log.info("Warmed up with {} purchases in {} ms.", purchases, (System.nanoTime() - start) / 1_000_000);
+        registry.markReady();
+        return registry;
+    }
+
+    public TicketPaymentService getPaymentService() {
+        return paymentService;
+    }
+
+    public SeatReservationService getReservationService() {
+        return reservationService;
+    }
+
+    public TicketService getTicketService() {
+        return ticketService;
+    }
+
+    /**
+     * Get the bookings the journal recovery could not complete, to reconcile against the payment records.
+     *
+     * @return The unresolved bookings, empty without a journal
+     */
+    public List<JournalRecord> getUnresolvedBookings() {
+        return unresolvedBookings;
+    }
+
+    /**
+     * Check if the registry may take live traffic.
+     *
+     * @return True once the registry is warmed up
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Report the registry ready to take live traffic.
+     */
+    public void markReady() {
+        ready = true;
+    }
+}
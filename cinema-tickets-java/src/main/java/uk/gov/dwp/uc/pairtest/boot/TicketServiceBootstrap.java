@@ -0,0 +1,73 @@
+package uk.gov.dwp.uc.pairtest.boot;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+import uk.gov.dwp.uc.pairtest.domain.PurchaseResult;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest.Type;
+import uk.gov.dwp.uc.pairtest.journal.BookingJournal;
+
+/**
+ * Boots the Ticket service, warms it up and makes a first purchase, reporting how long each step took.
+ * <p>
+ * Given a journal directory, bookings are journaled and the bookings a previous run left incomplete
+ * are replayed before the warm-up.
+ * </p>
+ * <p>
+ * Run it from the jar of the appcds profile to measure the startup with and without a class data sharing archive.
+ * </p>
+ */
+public final class TicketServiceBootstrap {
+
+    private static final String WARM_UP_ITERATIONS = "--warm-up-iterations=";
+    private static final String JOURNAL_DIR = "--journal-dir=";
+    private static final int DEFAULT_WARM_UP_ITERATIONS = 2_000;
+    private static final int JOURNAL_RECORDS_PER_SEGMENT = 4_096;
+
+    private TicketServiceBootstrap() {
+    }
+
+    public static void main(final String[] args) throws IOException {
+        int iterations = DEFAULT_WARM_UP_ITERATIONS;
+        Path journalDirectory = null;
+        for (final String arg : args) {
+            if (arg.startsWith(WARM_UP_ITERATIONS)) {
+                iterations = Integer.parseInt(arg.substring(WARM_UP_ITERATIONS.length()));
+            } else if (arg.startsWith(JOURNAL_DIR)) {
+                journalDirectory = Paths.get(arg.substring(JOURNAL_DIR.length()));
+            } else {
+                System.err.println("Usage: TicketServiceBootstrap [" + WARM_UP_ITERATIONS + "<iterations>] ["
+                        + JOURNAL_DIR + "<directory>]");
+                System.exit(2);
+            }
+        }
+
+        final PurchaseWarmUp warmUp = new PurchaseWarmUp(iterations, true);
+        if (journalDirectory == null) {
+            run(ServiceRegistry.start(warmUp), iterations);
+            return;
+        }
+        try (BookingJournal journal = BookingJournal.open(journalDirectory, JOURNAL_RECORDS_PER_SEGMENT,
+                1, TimeUnit.MILLISECONDS, true)) {
+            final ServiceRegistry registry = ServiceRegistry.start(warmUp, journal);
+            System.out.println(registry.getUnresolvedBookings().size() + " journaled bookings left to reconcile");
+            run(registry, iterations);
+        }
+    }
+
+    private static void run(final ServiceRegistry registry, final int iterations) {
+        final long readyMillis = ManagementFactory.getRuntimeMXBean().getUptime();
+
+        final long start = System.nanoTime();
+        final PurchaseResult result = registry.getTicketService().tryPurchaseTickets(PurchaseWarmUp.WARM_UP_ACCOUNT_ID,
+                new TicketTypeRequest(Type.ADULT, 2), new TicketTypeRequest(Type.CHILD, 1));
+        final long firstPurchaseMicros = (System.nanoTime() - start) / 1_000;
+
+        System.out.println("Ready after " + readyMillis + " ms of uptime, " + iterations + " warm-up iterations");
+        System.out.println("First purchase " + result.getStatus() + " in " + firstPurchaseMicros + " us");
+    }
+}
@@ -0,0 +1,239 @@
+package uk.gov.dwp.uc.pairtest.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+
+/**
+ * A bounded, concurrent cache whose entries expire a fixed time after they are written.
+ * <p>
+ * Keys are spread over independently locked segments, each holding its entries in write order
+ * so the oldest entries, which expire first, are evicted first.
+ * A segment evicts expired entries on write and its oldest entry once it is full,
+ * so the cache never holds more than {@code maxEntries} entries however many keys are written.
+ * Pinned entries, e.g. values whose work is still running, are neither expired nor evicted,
+ * a write to a segment full of pinned entries is refused rather than exceed the bound.
+ * </p>
+ *
+ * @param <K> The key type
+ * @param <V> The value type
+ */
+public class ExpiringCache<K, V> {
+
+    private static final int MAX_SEGMENTS = 16;
+
+    private final Segment<K, V>[] segments;
+    private final long ttlNanos;
+    private final LongSupplier clock;
+    private final Predicate<? super V> pinned;
+
+    /**
+     * Create a cache using the system clock.
+     *
+     * @param  maxEntries The maximum number of entries
+     * @param  ttl        How long an entry lives after it is written
+     * @param  unit       The unit of the time to live
+     */
+    public ExpiringCache(final int maxEntries, final long ttl, final TimeUnit unit) {
+        this(maxEntries, ttl, unit, System::nanoTime);
+    }
+
+    /**
+     * Create a cache using the given clock.
+     *
+     * @param  maxEntries The maximum number of entries
+     * @param  ttl        How long an entry lives after it is written
+     * @param  unit       The unit of the time to live
+     * @param  clock      Supplies the current time in nanoseconds
+     */
+    public ExpiringCache(final int maxEntries, final long ttl, final TimeUnit unit, final LongSupplier clock) {
+        this(maxEntries, ttl, unit, clock, value -> false);
+    }
+
+    /**
+     * Create a cache using the given clock and never expiring or evicting pinned values.
+     *
+     * @param  maxEntries The maximum number of entries
+     * @param  ttl        How long an entry lives after it is written
+     * @param  unit       The unit of the time to live
+     * @param  clock      Supplies the current time in nanoseconds
+     * @param  pinned     Tests whether a value must be kept, it is tested again on each eviction
+     */
+    @SuppressWarnings("unchecked")
+    public ExpiringCache(final int maxEntries, final long ttl, final TimeUnit unit, final LongSupplier clock,
+                         final Predicate<? super V> pinned) {
+        if (maxEntries < 1 || ttl <= 0) {
+            throw new IllegalArgumentException("Cache size and time to live must be positive");
+        }
+        this.ttlNanos = unit.toNanos(ttl);
+        this.clock = clock;
+        this.pinned = pinned;
+        // A power of two segments, no more than the entries, so the segment capacities add up to at most maxEntries.
+        final int segmentCount = Math.min(MAX_SEGMENTS, Integer.highestOneBit(maxEntries));
+        final int segmentCapacity = maxEntries / segmentCount;
+        this.segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment<>(segmentCapacity);
+        }
+    }
+
+    /**
+     * Get the live value of a key.
+     *
+     * @param  key The key
+     * @return The value, null if the key is absent or expired
+     */
+    public V get(final K key) {
+        return segmentFor(key).get(key, clock.getAsLong(), pinned);
+    }
+
+    /**
+     * Write a value with the cache time to live.
+     *
+     * @param  key   The key
+     * @param  value The value
+     * @throws IllegalStateException if the segment of the key is full of pinned entries
+     */
+    public void put(final K key, final V value) {
+        put(key, value, ttlNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Write a value with its own time to live.
+     *
+     * @param  key   The key
+     * @param  value The value
+     * @param  ttl   How long the entry lives
+     * @param  unit  The unit of the time to live
+     * @throws IllegalStateException if the segment of the key is full of pinned entries
+     */
+    public void put(final K key, final V value, final long ttl, final TimeUnit unit) {
+        final long now = clock.getAsLong();
+        segmentFor(key).put(key, value, now, now + unit.toNanos(ttl), false, pinned);
+    }
+
+    /**
+     * Write a value unless the key already has a live value.
+     *
+     * @param  key   The key
+     * @param  value The value
+     * @return The live value already held, null if the value was written
+     * @throws IllegalStateException if the segment of the key is full of pinned entries
+     */
+    public V putIfAbsent(final K key, final V value) {
+        final long now = clock.getAsLong();
+        return segmentFor(key).put(key, value, now, now + ttlNanos, true, pinned);
+    }
+
+    /**
+     * Remove a key.
+     *
+     * @param  key The key
+     */
+    public void invalidate(final K key) {
+        segmentFor(key).remove(key);
+    }
+
+    /**
+     * Count the entries held, including expired entries not yet evicted.
+     *
+     * @return The number of entries
+     */
+    public int size() {
+        int size = 0;
+        for (final Segment<K, V> segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    private Segment<K, V> segmentFor(final K key) {
+        final int hash = key.hashCode();
+        return segments[(hash ^ (hash >>> 16)) & (segments.length - 1)];
+    }
+
+    private static final class Entry<V> {
+        private final V value;
+        private final long expiresAtNanos;
+
+        private Entry(final V value, final long expiresAtNanos) {
+            this.value = value;
+            this.expiresAtNanos = expiresAtNanos;
+        }
+
+        private boolean isLive(final long now) {
+            return now - expiresAtNanos < 0;
+        }
+
+        private boolean isKept(final long now, final Predicate<? super V> pinned) {
+            return isLive(now) || pinned.test(value);
+        }
+    }
+
+    private static final class Segment<K, V> {
+        private final int capacity;
+        private final LinkedHashMap<K, Entry<V>> entries;
+
+        private Segment(final int capacity) {
+            this.capacity = capacity;
+            this.entries = new LinkedHashMap<>();
+        }
+
+        private synchronized V get(final K key, final long now, final Predicate<? super V> pinned) {
+            final Entry<V> entry = entries.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (!entry.isKept(now, pinned)) {
+                entries.remove(key);
+                return null;
+            }
+            return entry.value;
+        }
+
+        private synchronized V put(final K key, final V value, final long now, final long expiresAtNanos,
+                                   final boolean onlyIfAbsent, final Predicate<? super V> pinned) {
+            final Entry<V> existing = entries.get(key);
+            if (onlyIfAbsent && existing != null && existing.isKept(now, pinned)) {
+                return existing.value;
+            }
+            // Remove first so the rewritten entry moves to the end of the write order.
+            entries.remove(key);
+            evict(now, pinned);
+            if (entries.size() >= capacity) {
+                throw new IllegalStateException("Cache segment is full of pinned entries");
+            }
+            entries.put(key, new Entry<>(value, expiresAtNanos));
+            return null;
+        }
+
+        private synchronized void remove(final K key) {
+            entries.remove(key);
+        }
+
+        private synchronized int size() {
+            return entries.size();
+        }
+
+        /**
+         * Evict expired entries from the head, then the oldest entries until there is room for one more,
+         * skipping pinned entries.
+         */
+        private void evict(final long now, final Predicate<? super V> pinned) {
+            final Iterator<Map.Entry<K, Entry<V>>> oldest = entries.entrySet().iterator();
+            while (oldest.hasNext()) {
+                final Entry<V> entry = oldest.next().getValue();
+                final boolean isPinned = pinned.test(entry.value);
+                if ((isPinned || entry.isLive(now)) && entries.size() < capacity) {
+                    break;
+                }
+                if (!isPinned) {
+                    oldest.remove();
+                }
+            }
+        }
+    }
+}
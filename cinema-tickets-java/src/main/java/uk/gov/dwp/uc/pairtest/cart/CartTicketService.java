@@ -0,0 +1,357 @@
+package uk.gov.dwp.uc.pairtest.cart;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import thirdparty.paymentgateway.TicketPaymentService;
+import uk.gov.dwp.uc.pairtest.PurchaseListener;
+import uk.gov.dwp.uc.pairtest.account.AccountValidator;
+import uk.gov.dwp.uc.pairtest.account.PurchaseLimiter;
+import uk.gov.dwp.uc.pairtest.domain.PurchaseResult;
+import uk.gov.dwp.uc.pairtest.domain.ScreeningOrder;
+import uk.gov.dwp.uc.pairtest.engine.PurchaseEvaluation;
+import uk.gov.dwp.uc.pairtest.engine.PurchaseRules;
+import uk.gov.dwp.uc.pairtest.engine.PurchaseValidator;
+import uk.gov.dwp.uc.pairtest.engine.Tariff;
+import uk.gov.dwp.uc.pairtest.engine.TariffCatalogue;
+import uk.gov.dwp.uc.pairtest.exception.SeatsUnavailableException;
+import uk.gov.dwp.uc.pairtest.exception.ServiceOverloadedException;
+import uk.gov.dwp.uc.pairtest.metrics.PurchaseMetrics;
+import uk.gov.dwp.uc.pairtest.seating.SeatHolding;
+
+/**
+ * Purchases a cart of baskets for several screenings in one checkout, all or nothing.
+ * <p>
+ * Every basket is validated against the purchase rules and the availability of its screening first,
+ * and priced with the tariff of its screening, then the account allowance is taken once for the whole cart. The seats of every screening are held in parallel
+ * on a fork-join pool, so the holds take as long as the slowest screening rather than the sum of them all.
+ * Once every hold succeeds one combined payment is taken and the holds are confirmed, again in parallel.
+ * If a hold or the payment fails, the holds already made are released and nothing is charged.
+ * </p>
+ * <p>
+ * Seats are held before the payment because the payment gateway cannot refund. Every hold is extended
+ * by a full time to live just before the payment, so a slow hold of one screening cannot leave another hold
+ * to lapse during the payment, and a hold already lapsed fails the cart before anything is charged.
+ * A hold which still cannot be confirmed after the payment is reported as
+ * {@link PurchaseResult.Status#PAID_NOT_RESERVED}, the booking is left paid for reconciliation.
+ * </p>
+ */
+public class CartTicketService {
+
+    final static Logger log =
+            LoggerFactory.getLogger(CartTicketService.class);
+
+    private final TicketPaymentService     paymentService;
+    private final Map<String, SeatHolding> screenings;
+    private final ForkJoinPool             pool;
+    private final TariffCatalogue          tariffs;
+    private final PurchaseValidator        validator;
+    private final PurchaseLimiter          purchaseLimiter;
+    private final PurchaseMetrics          metrics;
+    private final PurchaseListener         listener;
+
+    /**
+     * The constructor holding seats on the common fork-join pool.
+     *
+     * @param  paymentService The payment service taking the combined payment
+     * @param  screenings     The seat holds of each screening, by screening id
+     */
+    public CartTicketService(final TicketPaymentService paymentService, final Map<String, SeatHolding> screenings) {
+        this(paymentService, screenings, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * The constructor holding seats on the given pool, e.g. a pool of its own when holds call a remote service,
+     * and charging the standard ticket prices.
+     *
+     * @param  paymentService The payment service taking the combined payment
+     * @param  screenings     The seat holds of each screening, by screening id
+     * @param  pool           The pool running the holds of the screenings
+     */
+    public CartTicketService(final TicketPaymentService paymentService, final Map<String, SeatHolding> screenings,
+                             final ForkJoinPool pool) {
+        this(paymentService, screenings, pool, TariffCatalogue.standard());
+    }
+
+    /**
+     * The constructor holding seats on the given pool and pricing each basket with the tariff of its screening.
+     *
+     * @param  paymentService The payment service taking the combined payment
+     * @param  screenings     The seat holds of each screening, by screening id
+     * @param  pool           The pool running the holds of the screenings
+     * @param  tariffs        The tariff of each screening, fully filled before it is passed in
+     */
+    public CartTicketService(final TicketPaymentService paymentService, final Map<String, SeatHolding> screenings,
+                             final ForkJoinPool pool, final TariffCatalogue tariffs) {
+        this(paymentService, screenings, pool, tariffs, AccountValidator.positiveAccountId(), PurchaseLimiter.NONE,
+                () -> PurchaseRules.DEFAULT, PurchaseMetrics.disabled(), PurchaseListener.NONE);
+    }
+
+    /**
+     * The constructor which also initializes the account validator, the limiter of the purchases of each account,
+     * the purchase rules applied to each basket, the metrics and the listener told about each step of every booking.
+     */
+    public CartTicketService(final TicketPaymentService paymentService, final Map<String, SeatHolding> screenings,
+                             final ForkJoinPool pool, final TariffCatalogue tariffs,
+                             final AccountValidator accountValidator, final PurchaseLimiter purchaseLimiter,
+                             final Supplier<PurchaseRules> rules, final PurchaseMetrics metrics,
+                             final PurchaseListener listener) {
+        this.paymentService = paymentService;
+        this.screenings = screenings;
+        this.pool = pool;
+        this.tariffs = tariffs;
+        // The allowance is taken once for the whole cart, not per basket.
+        this.validator = new PurchaseValidator(accountValidator, PurchaseLimiter.NONE, rules);
+        this.purchaseLimiter = purchaseLimiter;
+        this.metrics = metrics;
+        this.listener = PurchaseListener.guarded(listener);
+    }
+
+    /**
+     * Purchase the tickets of every screening in a cart with one payment.
+     *
+     * @param  accountId The Account ID
+     * @param  cart      The basket of each screening
+     * @return The combined amount and seats of the cart if every screening is booked, otherwise the reason
+     *         the cart is rejected or failed, in which case no screening is booked,
+     *         or PAID_NOT_RESERVED if the payment was taken but a screening could not be booked
+     */
+    public PurchaseResult purchaseCart(final Long accountId, final List<ScreeningOrder> cart) {
+        final long validationStart = metrics.startTimer();
+        if (Objects.isNull(cart) || cart.isEmpty()) {
+            return reject(accountId, PurchaseResult.Status.INVALID_PURCHASE);
+        }
+
+        final int legCount = cart.size();
+        final SeatHolding[] legScreenings = new SeatHolding[legCount];
+        final int[] legSeats = new int[legCount];
+        final PurchaseEvaluation evaluation = PurchaseEvaluation.current();
+        long totalAmountInPence = 0;
+        long totalSeats = 0;
+        long totalTickets = 0;
+        for (int leg = 0; leg < legCount; leg++) {
+            final ScreeningOrder order = cart.get(leg);
+            final SeatHolding screening = Objects.isNull(order) || Objects.isNull(order.getScreeningId())
+                    ? null
+                    : screenings.get(order.getScreeningId());
+            if (screening == null) {
+                log.debug("Cart rejected: unknown screening in cart line {}", leg);
+                return reject(accountId, PurchaseResult.Status.INVALID_PURCHASE);
+            }
+            final Tariff tariff = tariffs.find(order.getScreeningId());
+            if (tariff == null) {
+                log.debug("Cart rejected: no tariff for the screening in cart line {}", leg);
+                return reject(accountId, PurchaseResult.Status.INVALID_PURCHASE);
+            }
+            final PurchaseResult.Status status =
+                    validator.validate(accountId, order.getTicketTypeRequests(), evaluation);
+            if (status != PurchaseResult.Status.CONFIRMED) {
+                return reject(accountId, status);
+            }
+            if (!screening.canSeat(evaluation.totalSeats())) {
+                // Sold out, no point holding the other screenings.
+                return reject(accountId, PurchaseResult.Status.SEATS_UNAVAILABLE);
+            }
+            legScreenings[leg] = screening;
+            legSeats[leg] = evaluation.totalSeats();
+            totalAmountInPence += tariff.price(evaluation);
+            totalSeats += evaluation.totalSeats();
+            totalTickets += evaluation.totalTickets();
+        }
+        // Converted once for the whole cart, so at most a single part of a pound is left uncharged.
+        final long totalAmount = Tariff.toWholePounds(totalAmountInPence);
+        if (totalAmount > Integer.MAX_VALUE || totalSeats > Integer.MAX_VALUE) {
+            return reject(accountId, PurchaseResult.Status.MAX_TICKET_PURCHASE_EXCEEDED);
+        }
+        if (totalTickets > Integer.MAX_VALUE || !purchaseLimiter.tryAcquire(accountId, (int) totalTickets)) {
+            return reject(accountId, PurchaseResult.Status.PURCHASE_LIMIT_EXCEEDED);
+        }
+
+        final long paymentStart = metrics.recordValidation(validationStart);
+        final PurchaseResult.Status status = book(accountId, legScreenings, legSeats, (int) totalAmount,
+                (int) totalSeats, (int) totalTickets, paymentStart);
+        metrics.recordOutcome(status);
+        if (status != PurchaseResult.Status.CONFIRMED) {
+            log.debug("Cart failed: {}", status);
+            return PurchaseResult.rejected(status);
+        }
+        return PurchaseResult.confirmed((int) totalAmount, (int) totalSeats);
+    }
+
+    /**
+     * Holds the seats of every screening, extends the holds, takes the payment and confirms the holds,
+     * releasing the holds if a hold, an extension or the payment fails.
+     * A cart failing before its payment is taken gives back the allowance of the account,
+     * so the failure does not count against it.
+     *
+     * @return CONFIRMED if every screening is booked, otherwise the reason the booking failed
+     */
+    private PurchaseResult.Status book(final long accountId, final SeatHolding[] legScreenings, final int[] legSeats,
+                                       final int totalAmount, final int totalSeats, final int totalTickets,
+                                       final long paymentStart) {
+        final long bookingId;
+        try {
+            bookingId = listener.bookingStarted(accountId, totalAmount, totalSeats);
+        } catch (final RuntimeException e) {
+            purchaseLimiter.release(accountId, totalTickets);
+            log.error("Error while recording cart booking intent.", e);
+            return PurchaseResult.Status.BOOKING_FAILED;
+        }
+
+        final int legCount = legScreenings.length;
+        final long[] holdIds = new long[legCount];
+        final boolean[] held = new boolean[legCount];
+        final Throwable[] failures = new Throwable[legCount];
+        forEachLeg(legCount, leg -> {
+            if (legSeats[leg] == 0) {
+                return;
+            }
+            try {
+                holdIds[leg] = legScreenings[leg].hold(accountId, legSeats[leg]);
+                held[leg] = true;
+            } catch (final Throwable e) {
+                failures[leg] = e;
+            }
+        });
+        for (final Throwable failure : failures) {
+            if (failure != null) {
+                release(legScreenings, holdIds, held);
+                purchaseLimiter.release(accountId, totalTickets);
+                listener.bookingFailed(bookingId, failure);
+                if (failure instanceof SeatsUnavailableException) {
+                    log.debug("Cart seats unavailable.", failure);
+                    return PurchaseResult.Status.SEATS_UNAVAILABLE;
+                }
+                log.error("Error while holding cart seats.", failure);
+                return PurchaseResult.Status.BOOKING_FAILED;
+            }
+        }
+
+        // Extended last, once the slowest hold is made, so no hold can lapse while the payment is in flight.
+        final boolean[] extended = new boolean[legCount];
+        forEachLeg(legCount, leg -> {
+            try {
+                extended[leg] = !held[leg] || legScreenings[leg].extend(holdIds[leg]);
+            } catch (final RuntimeException e) {
+                log.error("Error while extending cart seat hold {}.", holdIds[leg], e);
+            }
+        });
+        for (int leg = 0; leg < legCount; leg++) {
+            if (!extended[leg]) {
+                release(legScreenings, holdIds, held);
+                purchaseLimiter.release(accountId, totalTickets);
+                final IllegalStateException e =
+                        new IllegalStateException("Seat hold " + holdIds[leg] + " lapsed before the payment");
+                listener.bookingFailed(bookingId, e);
+                log.error("Error while extending cart seats.", e);
+                return PurchaseResult.Status.BOOKING_FAILED;
+            }
+        }
+
+        try {
+            paymentService.makePayment(accountId, totalAmount);
+        } catch (final Throwable e) {
+            metrics.recordPayment(paymentStart);
+            release(legScreenings, holdIds, held);
+            listener.bookingFailed(bookingId, e);
+            if (e instanceof ServiceOverloadedException) {
+                // The payment was shed before reaching the gateway, nothing is charged.
+                purchaseLimiter.release(accountId, totalTickets);
+                return PurchaseResult.Status.OVERLOADED;
+            }
+            log.error("Error while taking cart payment.", e);
+            return PurchaseResult.Status.BOOKING_FAILED;
+        }
+        final long reservationStart = metrics.recordPayment(paymentStart);
+        listener.paymentTaken(bookingId);
+
+        final boolean[] confirmed = new boolean[legCount];
+        forEachLeg(legCount, leg -> {
+            try {
+                confirmed[leg] = !held[leg] || legScreenings[leg].confirm(holdIds[leg]);
+            } catch (final RuntimeException e) {
+                log.error("Error while confirming cart seat hold {}.", holdIds[leg], e);
+            }
+        });
+        metrics.recordReservation(reservationStart);
+        for (int leg = 0; leg < legCount; leg++) {
+            if (!confirmed[leg]) {
+                // Paid but not reserved, the listener keeps the booking paid for reconciliation.
+                final IllegalStateException e =
+                        new IllegalStateException("Seat hold " + holdIds[leg] + " was not confirmed");
+                listener.bookingFailed(bookingId, e);
+                log.error("Error while confirming cart seats.", e);
+                return PurchaseResult.Status.PAID_NOT_RESERVED;
+            }
+        }
+        listener.seatsReserved(bookingId);
+        return PurchaseResult.Status.CONFIRMED;
+    }
+
+    private void release(final SeatHolding[] legScreenings, final long[] holdIds, final boolean[] held) {
+        forEachLeg(legScreenings.length, leg -> {
+            if (held[leg]) {
+                try {
+                    legScreenings[leg].release(holdIds[leg]);
+                } catch (final RuntimeException e) {
+                    // The hold expires by itself.
+                    log.error("Error while releasing cart seat hold {}.", holdIds[leg], e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Runs a step for every leg of the cart, in parallel on the pool unless the cart has a single leg.
+     * The results the steps write are visible once this returns.
+     */
+    private void forEachLeg(final int legCount, final IntConsumer step) {
+        if (legCount == 1) {
+            step.accept(0);
+        } else {
+            pool.invoke(new LegTask(step, 0, legCount));
+        }
+    }
+
+    private PurchaseResult reject(final Long accountId, final PurchaseResult.Status status) {
+        metrics.recordOutcome(status);
+        listener.purchaseRejected(Objects.isNull(accountId) ? 0 : accountId, status);
+        log.debug("Cart rejected: {}", status);
+        return PurchaseResult.rejected(status);
+    }
+
+    /**
+     * Splits the legs of a cart in halves until each task runs the step of a single leg.
+     */
+    private static final class LegTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final IntConsumer step;
+        private final int from;
+        private final int to;
+
+        private LegTask(final IntConsumer step, final int from, final int to) {
+            this.step = step;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                step.accept(from);
+                return;
+            }
+            final int middle = (from + to) >>> 1;
+            invokeAll(new LegTask(step, from, middle), new LegTask(step, middle, to));
+        }
+    }
+}
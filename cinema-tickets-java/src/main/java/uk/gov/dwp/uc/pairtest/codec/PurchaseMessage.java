@@ -0,0 +1,147 @@
+package uk.gov.dwp.uc.pairtest.codec;
+
+import java.nio.ByteBuffer;
+
+import uk.gov.dwp.uc.pairtest.domain.TicketLineItems;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest.Type;
+
+/**
+ * Flyweight view of an encoded ticket purchase message, read in place from a {@link ByteBuffer}.
+ * <p>
+ * A message is laid out as:
+ * </p>
+ * <pre>
+ *  0  byte version, currently 1
+ *  1  byte number of line items, unsigned
+ *  2  long accountId
+ * 10  line items of 5 bytes each:
+ *       byte ticket type ordinal
+ *       int  number of tickets
+ * </pre>
+ * <p>
+ * Values are read in the byte order of the buffer, big-endian unless changed, matching {@link PurchaseMessageEncoder}.
+ * The view holds no copy of the message: it is re-pointed at each message with {@link #wrap},
+ * so reading a message creates no objects. It is not thread safe and must be confined to a single thread,
+ * and the buffer must not change while the message is read.
+ * </p>
+ */
+public final class PurchaseMessage implements TicketLineItems {
+
+    public static final byte VERSION = 1;
+
+    static final int VERSION_OFFSET = 0;
+    static final int ITEM_COUNT_OFFSET = 1;
+    static final int ACCOUNT_ID_OFFSET = 2;
+    static final int HEADER_LENGTH = 10;
+    static final int ITEM_LENGTH = 5;
+    static final int MAX_ITEMS = 0xFF;
+
+    private static final Type[] TYPES = Type.values();
+
+    private ByteBuffer buffer;
+    private int offset;
+    private int itemCount;
+
+    /**
+     * Point the view at the message starting at the offset of the buffer.
+     * The message is checked to be complete, of a known version, and to hold only known ticket types.
+     *
+     * @param  buffer The buffer holding the message
+     * @param  offset The offset of the message in the buffer
+     * @return True if the view now reads a valid message, false if the message is malformed
+     */
+    public boolean wrap(final ByteBuffer buffer, final int offset) {
+        this.buffer = null;
+        if (buffer == null || offset < 0 || buffer.limit() - offset < HEADER_LENGTH
+                || buffer.get(offset + VERSION_OFFSET) != VERSION) {
+            return false;
+        }
+        final int items = buffer.get(offset + ITEM_COUNT_OFFSET) & 0xFF;
+        if (buffer.limit() - offset < HEADER_LENGTH + items * ITEM_LENGTH) {
+            return false;
+        }
+        for (int index = 0; index < items; index++) {
+            final int ordinal = buffer.get(offset + HEADER_LENGTH + index * ITEM_LENGTH);
+            if (ordinal < 0 || ordinal >= TYPES.length) {
+                return false;
+            }
+        }
+        this.buffer = buffer;
+        this.offset = offset;
+        this.itemCount = items;
+        return true;
+    }
+
+    /**
+     * Check whether the view reads a valid message.
+     *
+     * @return True if the last {@link #wrap} succeeded
+     */
+    public boolean isWrapped() {
+        return buffer != null;
+    }
+
+    /**
+     * Get the encoded length of the message.
+     *
+     * @return The number of bytes of the message
+     */
+    public int length() {
+        return HEADER_LENGTH + itemCount * ITEM_LENGTH;
+    }
+
+    /**
+     * Get the purchasing account.
+     *
+     * @return The Account ID
+     */
+    public long accountId() {
+        return buffer.getLong(offset + ACCOUNT_ID_OFFSET);
+    }
+
+    @Override
+    public int itemCount() {
+        return itemCount;
+    }
+
+    @Override
+    public int typeOrdinal(final int index) {
+        return buffer.get(itemOffset(index));
+    }
+
+    /**
+     * Get the ticket type of a line item.
+     *
+     * @param  index The line item index, from 0 to itemCount - 1
+     * @return The ticket type
+     */
+    public Type type(final int index) {
+        return TYPES[typeOrdinal(index)];
+    }
+
+    @Override
+    public int count(final int index) {
+        return buffer.getInt(itemOffset(index) + 1);
+    }
+
+    /**
+     * Copy the line items into ticket type requests, for code which still needs the objects.
+     *
+     * @return A ticket type request for each line item
+     */
+    public TicketTypeRequest[] toTicketTypeRequests() {
+        final TicketTypeRequest[] requests = new TicketTypeRequest[itemCount];
+        for (int index = 0; index < itemCount; index++) {
+            requests[index] = new TicketTypeRequest(type(index), count(index));
+        }
+        return requests;
+    }
+
+    private int itemOffset(final int index) {
+        if (index < 0 || index >= itemCount) {
+            throw new IndexOutOfBoundsException("Line item " + index + " out of " + itemCount);
+        }
+        return offset + HEADER_LENGTH + index * ITEM_LENGTH;
+    }
+}
@@ -0,0 +1,87 @@
+package uk.gov.dwp.uc.pairtest.codec;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.Objects;
+
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest;
+
+/**
+ * Encodes ticket purchases into the binary layout read by {@link PurchaseMessage}.
+ */
+public final class PurchaseMessageEncoder {
+
+    private PurchaseMessageEncoder() {
+    }
+
+    /**
+     * Get the encoded length of a purchase.
+     *
+     * @param  itemCount The number of line items
+     * @return The number of bytes of the message
+     */
+    public static int encodedLength(final int itemCount) {
+        return PurchaseMessage.HEADER_LENGTH + itemCount * PurchaseMessage.ITEM_LENGTH;
+    }
+
+    /**
+     * Encode a purchase into a new buffer. Null requests are left out, as the Ticket service ignores them.
+     *
+     * @param  accountId          The Account ID
+     * @param  ticketTypeRequests The ticket purchase requests, at most 255
+     * @return A buffer holding the message, positioned at its start
+     */
+    public static ByteBuffer encode(final long accountId, final TicketTypeRequest... ticketTypeRequests) {
+        final ByteBuffer buffer = ByteBuffer.allocate(encodedLength(nonNullCount(ticketTypeRequests)));
+        encode(buffer, 0, accountId, ticketTypeRequests);
+        return buffer;
+    }
+
+    /**
+     * Encode a purchase into a buffer at the given offset, without moving the position of the buffer.
+     * Null requests are left out, as the Ticket service ignores them.
+     *
+     * @param  buffer             The buffer to write to
+     * @param  offset             The offset of the message in the buffer
+     * @param  accountId          The Account ID
+     * @param  ticketTypeRequests The ticket purchase requests, at most 255
+     * @return The number of bytes written
+     * @throws BufferOverflowException If the message does not fit in the buffer
+     */
+    public static int encode(final ByteBuffer buffer, final int offset, final long accountId,
+                             final TicketTypeRequest... ticketTypeRequests) {
+        final int itemCount = nonNullCount(ticketTypeRequests);
+        if (itemCount > PurchaseMessage.MAX_ITEMS) {
+            throw new IllegalArgumentException("A message holds at most " + PurchaseMessage.MAX_ITEMS + " line items");
+        }
+        final int length = encodedLength(itemCount);
+        if (offset < 0 || buffer.limit() - offset < length) {
+            throw new BufferOverflowException();
+        }
+
+        buffer.put(offset + PurchaseMessage.VERSION_OFFSET, PurchaseMessage.VERSION);
+        buffer.put(offset + PurchaseMessage.ITEM_COUNT_OFFSET, (byte) itemCount);
+        buffer.putLong(offset + PurchaseMessage.ACCOUNT_ID_OFFSET, accountId);
+        int itemOffset = offset + PurchaseMessage.HEADER_LENGTH;
+        for (final TicketTypeRequest request : ticketTypeRequests) {
+            if (request == null) {
+                continue;
+            }
+            final TicketTypeRequest.Type type = Objects.requireNonNull(request.getTicketType(), "Ticket type");
+            buffer.put(itemOffset, (byte) type.ordinal());
+            buffer.putInt(itemOffset + 1, request.getNoOfTickets());
+            itemOffset += PurchaseMessage.ITEM_LENGTH;
+        }
+        return length;
+    }
+
+    private static int nonNullCount(final TicketTypeRequest[] ticketTypeRequests) {
+        int count = 0;
+        for (final TicketTypeRequest request : ticketTypeRequests) {
+            if (request != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,26 @@
+package uk.gov.dwp.uc.pairtest.domain;
+
+/**
+ * Immutable Object
+ * <p>
+ * A single order in a batch purchase, the account to charge and the tickets requested.
+ * </p>
+ */
+public final class PurchaseOrder {
+
+    private final Long accountId;
+    private final TicketTypeRequest[] ticketTypeRequests;
+
+    public PurchaseOrder(final Long accountId, final TicketTypeRequest... ticketTypeRequests) {
+        this.accountId = accountId;
+        this.ticketTypeRequests = ticketTypeRequests;
+    }
+
+    public Long getAccountId() {
+        return accountId;
+    }
+
+    public TicketTypeRequest[] getTicketTypeRequests() {
+        return ticketTypeRequests;
+    }
+}
@@ -0,0 +1,111 @@
+package uk.gov.dwp.uc.pairtest.domain;
+
+import uk.gov.dwp.uc.pairtest.exception.ErrorMessages;
+
+/**
+ * Immutable Object
+ * <p>
+ * The outcome of a ticket purchase, a rejection carries the matching {@link ErrorMessages} constant.
+ * </p>
+ */
+public final class PurchaseResult {
+
+    public enum Status {
+        CONFIRMED(null),
+        INVALID_PURCHASE(ErrorMessages.INVALID_TICKET_INFORMATION),
+        INVALID_ACCOUNT(ErrorMessages.INVALID_ACCOUNT),
+        MAX_TICKET_PURCHASE_EXCEEDED(ErrorMessages.MAX_TICKET_PURCHASE_ALLOWED),
+        MANDATORY_ADULT_TICKET_PURCHASE_REQUIRED(ErrorMessages.MANDATORY_ADULT_TICKET_PURCHASE_REQUIRED),
+        BOOKING_FAILED(ErrorMessages.BOOKING_FAILED),
+        OVERLOADED(ErrorMessages.SERVICE_OVERLOADED),
+        PURCHASE_LIMIT_EXCEEDED(ErrorMessages.PURCHASE_LIMIT_EXCEEDED),
+        SEATS_UNAVAILABLE(ErrorMessages.SEATS_UNAVAILABLE),
+        IDEMPOTENCY_KEY_REUSED(ErrorMessages.IDEMPOTENCY_KEY_REUSED),
+        PAID_NOT_RESERVED(ErrorMessages.PAID_NOT_RESERVED);
+
+        private final String errorMessage;
+
+        Status(final String errorMessage) {
+            this.errorMessage = errorMessage;
+        }
+
+        /**
+         * Get the error message of a rejected purchase.
+         *
+         * @return The error message, null if the purchase is confirmed
+         */
+        public String getErrorMessage() {
+            return errorMessage;
+        }
+    }
+
+    /**
+     * Results shared by all rejected purchases, indexed by status ordinal.
+     */
+    private static final PurchaseResult[] REJECTIONS = new PurchaseResult[Status.values().length];
+
+    static {
+        for (final Status status : Status.values()) {
+            REJECTIONS[status.ordinal()] = new PurchaseResult(status, 0, 0);
+        }
+    }
+
+    private final Status status;
+    private final int totalAmount;
+    private final int totalSeats;
+
+    private PurchaseResult(final Status status, final int totalAmount, final int totalSeats) {
+        this.status = status;
+        this.totalAmount = totalAmount;
+        this.totalSeats = totalSeats;
+    }
+
+    /**
+     * Create the result of a confirmed purchase.
+     *
+     * @param  totalAmount The amount paid
+     * @param  totalSeats  The number of seats reserved
+     * @return A confirmed purchase result
+     */
+    public static PurchaseResult confirmed(final int totalAmount, final int totalSeats) {
+        return new PurchaseResult(Status.CONFIRMED, totalAmount, totalSeats);
+    }
+
+    /**
+     * Get the shared result of a rejected purchase.
+     *
+     * @param  status The reason the purchase is rejected
+     * @return A rejected purchase result
+     */
+    public static PurchaseResult rejected(final Status status) {
+        if (status == Status.CONFIRMED) {
+            throw new IllegalArgumentException("A confirmed purchase is not a rejection");
+        }
+        return REJECTIONS[status.ordinal()];
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public boolean isConfirmed() {
+        return status == Status.CONFIRMED;
+    }
+
+    public String getErrorMessage() {
+        return status.getErrorMessage();
+    }
+
+    public int getTotalAmount() {
+        return totalAmount;
+    }
+
+    public int getTotalSeats() {
+        return totalSeats;
+    }
+
+    @Override
+    public String toString() {
+        return "PurchaseResult{status=" + status + ", totalAmount=" + totalAmount + ", totalSeats=" + totalSeats + '}';
+    }
+}
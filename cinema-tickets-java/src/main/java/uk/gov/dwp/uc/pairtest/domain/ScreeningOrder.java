@@ -0,0 +1,26 @@
+package uk.gov.dwp.uc.pairtest.domain;
+
+/**
+ * Immutable Object
+ * <p>
+ * The basket of one screening in a cart, the screening and the tickets requested for it.
+ * </p>
+ */
+public final class ScreeningOrder {
+
+    private final String screeningId;
+    private final TicketTypeRequest[] ticketTypeRequests;
+
+    public ScreeningOrder(final String screeningId, final TicketTypeRequest... ticketTypeRequests) {
+        this.screeningId = screeningId;
+        this.ticketTypeRequests = ticketTypeRequests;
+    }
+
+    public String getScreeningId() {
+        return screeningId;
+    }
+
+    public TicketTypeRequest[] getTicketTypeRequests() {
+        return ticketTypeRequests;
+    }
+}
@@ -0,0 +1,34 @@
+package uk.gov.dwp.uc.pairtest.domain;
+
+/**
+ * Read-only view of the line items of a purchase, each a ticket type and a number of tickets.
+ * <p>
+ * Lets a purchase held in another form, e.g. an encoded message, be evaluated
+ * without creating a {@link TicketTypeRequest} for each line item.
+ * </p>
+ */
+public interface TicketLineItems {
+
+    /**
+     * Get the number of line items.
+     *
+     * @return The number of line items
+     */
+    int itemCount();
+
+    /**
+     * Get the ticket type of a line item.
+     *
+     * @param  index The line item index, from 0 to itemCount - 1
+     * @return The {@link TicketTypeRequest.Type#ordinal()} of the ticket type
+     */
+    int typeOrdinal(int index);
+
+    /**
+     * Get the number of tickets of a line item.
+     *
+     * @param  index The line item index, from 0 to itemCount - 1
+     * @return The number of tickets
+     */
+    int count(int index);
+}
@@ -31,19 +31,19 @@ public class TicketTypeRequest {
     }
 
     public enum Type {
-        ADULT(20.0),
-        CHILD(10.0),
+        ADULT(2000),
+        CHILD(1000),
         INFANT(0);
 
-        private double ticketPrice;
+        private int ticketPriceInPence;
 
         /**
          * The constructor to set ticket price.
          *
-         * @param ticketPrice Ticket price
+         * @param ticketPriceInPence Ticket price in pence
          */
-        Type(final double ticketPrice) {
-            this.ticketPrice = ticketPrice;
+        Type(final int ticketPriceInPence) {
+            this.ticketPriceInPence = ticketPriceInPence;
         }
 
         /**
@@ -61,7 +61,16 @@ public class TicketTypeRequest {
          * @return the ticket price
          */
         public double getPrice() {
-            return ticketPrice;
+            return ticketPriceInPence / 100.0;
+        }
+
+        /**
+         * Get the ticket price in pence.
+         *
+         * @return the ticket price in pence
+         */
+        public int getPriceInPence() {
+            return ticketPriceInPence;
         }
 
         /**
@@ -0,0 +1,181 @@
+package uk.gov.dwp.uc.pairtest.engine;
+
+import uk.gov.dwp.uc.pairtest.domain.TicketLineItems;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest.Type;
+
+/**
+ * Single pass evaluation of a ticket purchase.
+ * <p>
+ * The ticket type requests are folded once into a count vector indexed by {@link Type#ordinal()},
+ * the seat count, ticket count and total amount are then derived from the counts.
+ * An instance is reused between purchases so evaluating a basket does not allocate,
+ * it is not thread safe and must be confined to a single thread.
+ * </p>
+ */
+public final class PurchaseEvaluation {
+
+    /**
+     * Ticket types indexed by ordinal, cached as {@link Type#values()} returns a new array on every call.
+     */
+    private static final Type[] TYPES = Type.values();
+
+    private static final int PENCE_PER_POUND = 100;
+
+    private static final int[] PRICES_IN_PENCE = new int[TYPES.length];
+    private static final boolean[] SEAT_REQUIRED = new boolean[TYPES.length];
+
+    static {
+        for (final Type type : TYPES) {
+            if (type.getPriceInPence() % PENCE_PER_POUND != 0) {
+                // The payment gateway takes whole pounds, a price in pence could not be charged exactly.
+                throw new IllegalStateException("Ticket price is not in whole pounds: " + type);
+            }
+            PRICES_IN_PENCE[type.ordinal()] = type.getPriceInPence();
+            SEAT_REQUIRED[type.ordinal()] = type.isSeatRequired();
+        }
+    }
+
+    /**
+     * Evaluation reused by each thread so the purchase hot path does not allocate.
+     */
+    private static final ThreadLocal<PurchaseEvaluation> CURRENT = ThreadLocal.withInitial(PurchaseEvaluation::new);
+
+    private final int[] counts = new int[TYPES.length];
+    private int totalTickets;
+    private int totalSeats;
+    private long totalAmountInPence;
+
+    /**
+     * Get the evaluation reused by the current thread.
+     * Its totals stay valid until the thread evaluates another purchase.
+     *
+     * @return The evaluation of the current thread
+     */
+    public static PurchaseEvaluation current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Evaluate the ticket purchase requests, replacing the result of any previous evaluation.
+     * Null requests are ignored.
+     *
+     * @param  ticketTypeRequests The ticket purchase requests
+     * @return This evaluation
+     */
+    public PurchaseEvaluation evaluate(final TicketTypeRequest... ticketTypeRequests) {
+        reset();
+        for (final TicketTypeRequest request : ticketTypeRequests) {
+            if (request != null) {
+                counts[request.getTicketType().ordinal()] += request.getNoOfTickets();
+            }
+        }
+        return summarize();
+    }
+
+    /**
+     * Evaluate the line items of a purchase, replacing the result of any previous evaluation.
+     *
+     * @param  lineItems The line items, each with a valid ticket type ordinal
+     * @return This evaluation
+     */
+    public PurchaseEvaluation evaluate(final TicketLineItems lineItems) {
+        reset();
+        final int itemCount = lineItems.itemCount();
+        for (int index = 0; index < itemCount; index++) {
+            counts[lineItems.typeOrdinal(index)] += lineItems.count(index);
+        }
+        return summarize();
+    }
+
+    private PurchaseEvaluation summarize() {
+        for (int ordinal = 0; ordinal < counts.length; ordinal++) {
+            final int count = counts[ordinal];
+            totalTickets += count;
+            if (SEAT_REQUIRED[ordinal]) {
+                totalSeats += count;
+            }
+            totalAmountInPence += (long) count * PRICES_IN_PENCE[ordinal];
+        }
+        return this;
+    }
+
+    /**
+     * Get the number of tickets requested for a ticket type.
+     *
+     * @param  type The ticket type
+     * @return The number of tickets
+     */
+    public int count(final Type type) {
+        return counts[type.ordinal()];
+    }
+
+    int count(final int ordinal) {
+        return counts[ordinal];
+    }
+
+    /**
+     * Get the total number of tickets requested, including the tickets that do not need a seat.
+     *
+     * @return The total number of tickets
+     */
+    public int totalTickets() {
+        return totalTickets;
+    }
+
+    /**
+     * Get the total number of seats to be reserved.
+     *
+     * @return The total number of seats
+     */
+    public int totalSeats() {
+        return totalSeats;
+    }
+
+    /**
+     * Get the total booking amount at the standard ticket prices.
+     *
+     * @return The total booking amount in pence
+     */
+    public long totalAmountInPence() {
+        return totalAmountInPence;
+    }
+
+    /**
+     * Get the total booking amount at the standard ticket prices, in the whole pounds taken by the payment gateway.
+     * Every ticket price is checked to be whole pounds when the class is loaded, so the division is exact.
+     *
+     * @return The total booking amount in pounds
+     */
+    public int totalAmountInPounds() {
+        return Math.toIntExact(totalAmountInPence / PENCE_PER_POUND);
+    }
+
+    /**
+     * Check if at least one Adult ticket is requested.
+     *
+     * @return True if an Adult ticket is requested, false otherwise
+     */
+    public boolean hasAdult() {
+        return counts[Type.ADULT.ordinal()] > 0;
+    }
+
+    /**
+     * Check if the seats requested exceed the maximum allowed in a single purchase.
+     *
+     * @param  maxTicketAllowed The maximum number of tickets allowed
+     * @return True if the limit is exceeded, false otherwise
+     */
+    public boolean exceedsTicketLimit(final int maxTicketAllowed) {
+        return totalSeats > maxTicketAllowed;
+    }
+
+    private void reset() {
+        for (int ordinal = 0; ordinal < counts.length; ordinal++) {
+            counts[ordinal] = 0;
+        }
+        totalTickets = 0;
+        totalSeats = 0;
+        totalAmountInPence = 0;
+    }
+}
@@ -0,0 +1,188 @@
+package uk.gov.dwp.uc.pairtest.engine;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A purchase rule set file reloaded while purchases run.
+ * <p>
+ * A watcher thread polls the content of the file and compiles a changed rule set off the purchase path,
+ * then swaps it in with a single volatile write. Each purchase reads the rules once, so a purchase in flight
+ * finishes under the rules it started with and no purchase waits for a reload.
+ * Changes are found by content rather than modification time, so a write within the same clock tick is not missed.
+ * The file is read again after compiling and the new rules are only swapped in if it has not changed meanwhile,
+ * so a file caught mid-write is not loaded, it is retried on the next poll. Replace the file by an atomic rename
+ * where possible, a writer pausing mid-write for longer than a reload could still expose a partial file.
+ * A file that cannot be read or compiled is logged once and the current rules are kept.
+ * </p>
+ */
+public class PurchaseRuleFile implements Closeable {
+
+    final static Logger log =
+            LoggerFactory.getLogger(PurchaseRuleFile.class);
+
+    private final Path file;
+    private final long pollIntervalNanos;
+    private final Thread watcher;
+    private byte[] loadedContent;
+    private byte[] rejectedContent;
+    private volatile PurchaseRuleSet ruleSet;
+    private volatile long reloadCount;
+    private volatile boolean closed;
+
+    private PurchaseRuleFile(final Path file, final long pollIntervalNanos) throws IOException {
+        this.file = file;
+        this.pollIntervalNanos = pollIntervalNanos;
+        this.loadedContent = Files.readAllBytes(file);
+        this.ruleSet = compile(loadedContent);
+        if (pollIntervalNanos > 0) {
+            this.watcher = new Thread(this::watch, "purchase-rule-watcher");
+            this.watcher.setDaemon(true);
+            this.watcher.start();
+        } else {
+            this.watcher = null;
+        }
+    }
+
+    /**
+     * Load a rule set file and watch it for changes.
+     *
+     * @param  file         The rule set properties file
+     * @param  pollInterval How often the file is checked for changes, zero to only reload on {@link #reload()}
+     * @param  unit         The unit of the poll interval
+     * @return The rule file
+     * @throws IOException              If the file cannot be read
+     * @throws IllegalArgumentException If the file holds an unknown key or invalid value
+     */
+    public static PurchaseRuleFile open(final Path file, final long pollInterval, final TimeUnit unit)
+            throws IOException {
+        return new PurchaseRuleFile(file, unit.toNanos(pollInterval));
+    }
+
+    /**
+     * Get the rule set currently in force.
+     *
+     * @return The rule set
+     */
+    public PurchaseRuleSet getRuleSet() {
+        return ruleSet;
+    }
+
+    /**
+     * Get the rules of a venue, following each reload.
+     *
+     * @param  venue The venue name, null for the default rules
+     * @return The supplier of the rules in force for the venue
+     */
+    public Supplier<PurchaseRules> rulesFor(final String venue) {
+        return () -> ruleSet.rulesFor(venue);
+    }
+
+    /**
+     * Get the number of times a changed file was loaded.
+     *
+     * @return The number of reloads
+     */
+    public long getReloadCount() {
+        return reloadCount;
+    }
+
+    /**
+     * Reload the file if its content changed since it was last loaded and it is not changing while it is loaded.
+     *
+     * @return True if a new rule set is in force
+     */
+    public synchronized boolean reload() {
+        final byte[] content;
+        try {
+            content = Files.readAllBytes(file);
+        } catch (final IOException e) {
+            log.error("Unable to read purchase rules from {}, keeping the current rules.", file, e);
+            return false;
+        }
+        if (Arrays.equals(content, loadedContent) || Arrays.equals(content, rejectedContent)) {
+            return false;
+        }
+
+        final PurchaseRuleSet changed;
+        try {
+            changed = compile(content);
+        } catch (final IOException | RuntimeException e) {
+            if (isChanging(content)) {
+                return false;
+            }
+            // Remembered so a broken file is reported once, not on every poll.
+            rejectedContent = content;
+            log.error("Unable to reload purchase rules from {}, keeping the current rules.", file, e);
+            return false;
+        }
+        if (isChanging(content)) {
+            return false;
+        }
+        loadedContent = content;
+        rejectedContent = null;
+        ruleSet = changed;
+        reloadCount++;
+        log.info("Purchase rules reloaded from {}.", file);
+        return true;
+    }
+
+    /**
+     * Check whether the file changed since its content was read, e.g. as it is still being written.
+     */
+    private boolean isChanging(final byte[] content) {
+        try {
+            if (Arrays.equals(content, Files.readAllBytes(file))) {
+                return false;
+            }
+        } catch (final IOException e) {
+            // Treated as a change, the file is read again on the next poll.
+        }
+        log.debug("Purchase rules in {} changed while loading, retrying on the next poll.", file);
+        return true;
+    }
+
+    private static PurchaseRuleSet compile(final byte[] content) throws IOException {
+        final Properties properties = new Properties();
+        try (Reader reader = new InputStreamReader(new ByteArrayInputStream(content), StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+        return PurchaseRuleSet.parse(properties);
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        if (watcher != null) {
+            LockSupport.unpark(watcher);
+            try {
+                watcher.join();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void watch() {
+        while (!closed) {
+            LockSupport.parkNanos(this, pollIntervalNanos);
+            if (!closed) {
+                reload();
+            }
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package uk.gov.dwp.uc.pairtest.engine;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeSet;
+
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest.Type;
+
+/**
+ * Immutable Object
+ * <p>
+ * The compiled purchase rules of every venue, read from a properties file:
+ * </p>
+ * <pre>
+ * maxTickets=20
+ * adultRequired=true
+ * maxInfantsPerAdult=1
+ * maxTickets.CHILD=10
+ * venue.riverside.maxTickets=8
+ * venue.riverside.maxInfantsPerAdult=2
+ * </pre>
+ * <p>
+ * The keys without a venue are the default rules, a venue starts from the defaults and overrides the keys it sets.
+ * A missing key keeps the rules of {@link PurchaseRules#DEFAULT}, a limit of -1 is unlimited.
+ * An unknown key or invalid value rejects the whole file so a typo is never silently ignored.
+ * </p>
+ */
+public final class PurchaseRuleSet {
+
+    private static final String VENUE_PREFIX = "venue.";
+    private static final String MAX_TICKETS = "maxTickets";
+    private static final String ADULT_REQUIRED = "adultRequired";
+    private static final String MAX_INFANTS_PER_ADULT = "maxInfantsPerAdult";
+
+    /**
+     * The rule set applying the default rules to every venue.
+     */
+    public static final PurchaseRuleSet DEFAULT = new PurchaseRuleSet(PurchaseRules.DEFAULT, Collections.emptyMap());
+
+    private final PurchaseRules defaultRules;
+    private final Map<String, PurchaseRules> venueRules;
+
+    private PurchaseRuleSet(final PurchaseRules defaultRules, final Map<String, PurchaseRules> venueRules) {
+        this.defaultRules = defaultRules;
+        this.venueRules = venueRules;
+    }
+
+    /**
+     * Read and compile a rule set file.
+     *
+     * @param  file The properties file
+     * @return The rule set
+     * @throws IOException              If the file cannot be read
+     * @throws IllegalArgumentException If the file holds an unknown key or invalid value
+     */
+    public static PurchaseRuleSet load(final Path file) throws IOException {
+        final Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+        return parse(properties);
+    }
+
+    /**
+     * Compile a rule set from properties.
+     *
+     * @param  properties The rule properties
+     * @return The rule set
+     * @throws IllegalArgumentException If a key is unknown or a value is invalid
+     */
+    public static PurchaseRuleSet parse(final Properties properties) {
+        final Map<String, Properties> venues = new HashMap<>();
+        final Properties defaults = new Properties();
+        for (final String key : new TreeSet<>(properties.stringPropertyNames())) {
+            final String value = properties.getProperty(key).trim();
+            if (key.startsWith(VENUE_PREFIX)) {
+                final int venueEnd = key.indexOf('.', VENUE_PREFIX.length());
+                if (venueEnd < 0) {
+                    throw new IllegalArgumentException("Unknown purchase rule: " + key);
+                }
+                venues.computeIfAbsent(key.substring(VENUE_PREFIX.length(), venueEnd), venue -> new Properties())
+                        .setProperty(key.substring(venueEnd + 1), value);
+            } else {
+                defaults.setProperty(key, value);
+            }
+        }
+
+        final PurchaseRules defaultRules = apply(PurchaseRules.DEFAULT, defaults);
+        final Map<String, PurchaseRules> venueRules = new HashMap<>();
+        venues.forEach((venue, rules) -> venueRules.put(venue, apply(defaultRules, rules)));
+        return new PurchaseRuleSet(defaultRules, venueRules);
+    }
+
+    /**
+     * Get the rules of a venue.
+     *
+     * @param  venue The venue name, null for the default rules
+     * @return The rules of the venue, or the default rules if the venue has none of its own
+     */
+    public PurchaseRules rulesFor(final String venue) {
+        final PurchaseRules rules = venue == null ? null : venueRules.get(venue);
+        return rules == null ? defaultRules : rules;
+    }
+
+    public PurchaseRules getDefaultRules() {
+        return defaultRules;
+    }
+
+    private static PurchaseRules apply(final PurchaseRules base, final Properties properties) {
+        PurchaseRules rules = base;
+        for (final String key : new TreeSet<>(properties.stringPropertyNames())) {
+            final String value = properties.getProperty(key);
+            if (key.equals(MAX_TICKETS)) {
+                rules = rules.withMaxTickets(parseLimit(key, value, false));
+            } else if (key.equals(ADULT_REQUIRED)) {
+                if (!value.equals("true") && !value.equals("false")) {
+                    throw new IllegalArgumentException("Invalid purchase rule " + key + "=" + value);
+                }
+                rules = rules.withAdultRequired(Boolean.parseBoolean(value));
+            } else if (key.equals(MAX_INFANTS_PER_ADULT)) {
+                rules = rules.withMaxInfantsPerAdult(parseLimit(key, value, true));
+            } else if (key.startsWith(MAX_TICKETS + ".")) {
+                final Type type;
+                try {
+                    type = Type.valueOf(key.substring(MAX_TICKETS.length() + 1));
+                } catch (final IllegalArgumentException e) {
+                    throw new IllegalArgumentException("Unknown ticket type in purchase rule: " + key, e);
+                }
+                rules = rules.withMaxTickets(type, parseLimit(key, value, true));
+            } else {
+                throw new IllegalArgumentException("Unknown purchase rule: " + key);
+            }
+        }
+        return rules;
+    }
+
+    private static int parseLimit(final String key, final String value, final boolean unlimitedAllowed) {
+        final int limit;
+        try {
+            limit = Integer.parseInt(value);
+        } catch (final NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid purchase rule " + key + "=" + value, e);
+        }
+        if (limit < 0 && !(unlimitedAllowed && limit == PurchaseRules.UNLIMITED)) {
+            throw new IllegalArgumentException("Invalid purchase rule " + key + "=" + value);
+        }
+        return limit;
+    }
+}
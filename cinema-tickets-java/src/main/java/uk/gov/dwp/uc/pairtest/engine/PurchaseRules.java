@@ -0,0 +1,263 @@
+package uk.gov.dwp.uc.pairtest.engine;
+
+import java.util.Arrays;
+
+import uk.gov.dwp.uc.pairtest.domain.PurchaseResult;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest.Type;
+
+/**
+ * Immutable Object
+ * <p>
+ * The purchase rules of a venue compiled into a decision table over the ticket count vector.
+ * </p>
+ * <p>
+ * The rules are, in order of precedence: the seats of a purchase are at most the maximum tickets and each
+ * ticket type is within its cap, otherwise {@link PurchaseResult.Status#MAX_TICKET_PURCHASE_EXCEEDED};
+ * an Adult ticket is purchased if required and the Infants are at most the allowed number per Adult,
+ * otherwise {@link PurchaseResult.Status#MANDATORY_ADULT_TICKET_PURCHASE_REQUIRED}.
+ * </p>
+ * <p>
+ * The outcome of every count vector is computed when the rules are created. Each count is clamped to one past
+ * the highest count that can change the outcome, so the table stays small and deciding a purchase is
+ * a table lookup whatever the rules. A purchase with a negative count is decided by the rules directly.
+ * </p>
+ */
+public final class PurchaseRules {
+
+    /**
+     * No limit on a ticket type or on the Infants per Adult.
+     */
+    public static final int UNLIMITED = -1;
+
+    /**
+     * The largest decision table compiled, in entries.
+     */
+    private static final int MAX_TABLE_SIZE = 1 << 22;
+
+    private static final Type[] TYPES = Type.values();
+    private static final PurchaseResult.Status[] STATUSES = PurchaseResult.Status.values();
+
+    /**
+     * The rules applied when no rules are configured.
+     */
+    public static final PurchaseRules DEFAULT = new PurchaseRules(PurchaseValidator.MAX_TICKET_ALLOWED);
+
+    private final int maxTickets;
+    private final boolean adultRequired;
+    private final int maxInfantsPerAdult;
+    private final int[] maxPerType;
+
+    private final int[] bounds = new int[TYPES.length];
+    private final int[] strides = new int[TYPES.length];
+    private final byte[] table;
+
+    /**
+     * Create the rules allowing the maximum tickets, with an Adult required and no other limit.
+     *
+     * @param  maxTickets The maximum seats in a purchase
+     */
+    public PurchaseRules(final int maxTickets) {
+        this(maxTickets, true, UNLIMITED, unlimitedTypes());
+    }
+
+    private PurchaseRules(final int maxTickets, final boolean adultRequired, final int maxInfantsPerAdult,
+                          final int[] maxPerType) {
+        if (maxTickets < 0) {
+            throw new IllegalArgumentException("Invalid maximum tickets: " + maxTickets);
+        }
+        this.maxTickets = maxTickets;
+        this.adultRequired = adultRequired;
+        this.maxInfantsPerAdult = maxInfantsPerAdult;
+        this.maxPerType = maxPerType;
+        this.table = compile();
+    }
+
+    /**
+     * Create a copy of the rules choosing whether an Adult ticket is required.
+     *
+     * @param  required True if an Adult ticket is required
+     * @return The new rules
+     */
+    public PurchaseRules withAdultRequired(final boolean required) {
+        return new PurchaseRules(maxTickets, required, maxInfantsPerAdult, maxPerType);
+    }
+
+    /**
+     * Create a copy of the rules limiting the Infants per Adult, as each Infant sits on an Adult's lap.
+     *
+     * @param  infants The maximum Infants per Adult, or {@link #UNLIMITED}
+     * @return The new rules
+     */
+    public PurchaseRules withMaxInfantsPerAdult(final int infants) {
+        if (infants < UNLIMITED) {
+            throw new IllegalArgumentException("Invalid maximum infants per adult: " + infants);
+        }
+        return new PurchaseRules(maxTickets, adultRequired, infants, maxPerType);
+    }
+
+    /**
+     * Create a copy of the rules capping the tickets of a type in a purchase.
+     *
+     * @param  type    The ticket type
+     * @param  tickets The maximum tickets of the type, or {@link #UNLIMITED}
+     * @return The new rules
+     */
+    public PurchaseRules withMaxTickets(final Type type, final int tickets) {
+        if (tickets < UNLIMITED) {
+            throw new IllegalArgumentException("Invalid maximum " + type + " tickets: " + tickets);
+        }
+        final int[] caps = maxPerType.clone();
+        caps[type.ordinal()] = tickets;
+        return new PurchaseRules(maxTickets, adultRequired, maxInfantsPerAdult, caps);
+    }
+
+    /**
+     * Create a copy of the rules with a different maximum of seats in a purchase.
+     *
+     * @param  tickets The maximum seats in a purchase
+     * @return The new rules
+     */
+    public PurchaseRules withMaxTickets(final int tickets) {
+        return new PurchaseRules(tickets, adultRequired, maxInfantsPerAdult, maxPerType);
+    }
+
+    public int getMaxTickets() {
+        return maxTickets;
+    }
+
+    public boolean isAdultRequired() {
+        return adultRequired;
+    }
+
+    public int getMaxInfantsPerAdult() {
+        return maxInfantsPerAdult;
+    }
+
+    public int getMaxTickets(final Type type) {
+        return maxPerType[type.ordinal()];
+    }
+
+    /**
+     * Decide an evaluated purchase.
+     *
+     * @param  evaluation The evaluated ticket counts
+     * @return CONFIRMED if the purchase keeps to the rules, otherwise the rule it breaks
+     */
+    public PurchaseResult.Status evaluate(final PurchaseEvaluation evaluation) {
+        int index = 0;
+        for (int ordinal = 0; ordinal < TYPES.length; ordinal++) {
+            final int count = evaluation.count(ordinal);
+            if (count < 0) {
+                return decide(evaluation);
+            }
+            index += Math.min(count, bounds[ordinal] + 1) * strides[ordinal];
+        }
+        return STATUSES[table[index]];
+    }
+
+    /**
+     * Get the number of entries of the decision table.
+     *
+     * @return The table size
+     */
+    public int tableSize() {
+        return table.length;
+    }
+
+    private PurchaseResult.Status decide(final PurchaseEvaluation evaluation) {
+        final int[] counts = new int[TYPES.length];
+        for (int ordinal = 0; ordinal < TYPES.length; ordinal++) {
+            counts[ordinal] = evaluation.count(ordinal);
+        }
+        return decide(counts);
+    }
+
+    private PurchaseResult.Status decide(final int[] counts) {
+        long seats = 0;
+        for (final Type type : TYPES) {
+            if (type.isSeatRequired()) {
+                seats += counts[type.ordinal()];
+            }
+        }
+        if (seats > maxTickets) {
+            return PurchaseResult.Status.MAX_TICKET_PURCHASE_EXCEEDED;
+        }
+        for (int ordinal = 0; ordinal < TYPES.length; ordinal++) {
+            if (maxPerType[ordinal] != UNLIMITED && counts[ordinal] > maxPerType[ordinal]) {
+                return PurchaseResult.Status.MAX_TICKET_PURCHASE_EXCEEDED;
+            }
+        }
+
+        final int adults = counts[Type.ADULT.ordinal()];
+        if (adultRequired && adults <= 0) {
+            return PurchaseResult.Status.MANDATORY_ADULT_TICKET_PURCHASE_REQUIRED;
+        }
+        if (maxInfantsPerAdult != UNLIMITED
+                && counts[Type.INFANT.ordinal()] > (long) maxInfantsPerAdult * Math.max(adults, 0)) {
+            return PurchaseResult.Status.MANDATORY_ADULT_TICKET_PURCHASE_REQUIRED;
+        }
+        return PurchaseResult.Status.CONFIRMED;
+    }
+
+    /**
+     * Fill the decision table, each dimension holding the counts up to its bound and one index for every
+     * higher count, which all share one outcome.
+     */
+    private byte[] compile() {
+        for (final Type type : TYPES) {
+            bounds[type.ordinal()] = bound(type);
+        }
+        long size = 1;
+        for (int ordinal = TYPES.length - 1; ordinal >= 0; ordinal--) {
+            strides[ordinal] = (int) size;
+            size *= bounds[ordinal] + 2;
+            if (size > MAX_TABLE_SIZE) {
+                throw new IllegalArgumentException("Purchase rules too large to compile, maximum tickets " + maxTickets);
+            }
+        }
+
+        final byte[] compiled = new byte[(int) size];
+        final int[] counts = new int[TYPES.length];
+        for (int index = 0; index < compiled.length; index++) {
+            int remainder = index;
+            for (int ordinal = 0; ordinal < TYPES.length; ordinal++) {
+                counts[ordinal] = remainder / strides[ordinal];
+                remainder %= strides[ordinal];
+            }
+            compiled[index] = (byte) decide(counts).ordinal();
+        }
+        return compiled;
+    }
+
+    /**
+     * Get the highest count of a ticket type that can change the outcome, every higher count has the same outcome.
+     */
+    private int bound(final Type type) {
+        final int cap = maxPerType[type.ordinal()];
+        if (type.isSeatRequired()) {
+            // More seats than the maximum is always over the limit.
+            return cap == UNLIMITED ? maxTickets : Math.min(cap, maxTickets);
+        }
+        if (cap != UNLIMITED) {
+            return cap;
+        }
+        if (type == Type.INFANT && maxInfantsPerAdult != UNLIMITED) {
+            // More Infants than allowed for the most Adults within the limits is always too many.
+            return Math.toIntExact(Math.min((long) maxInfantsPerAdult * bound(Type.ADULT), Integer.MAX_VALUE - 2));
+        }
+        // The count is not limited, only whether there are any tickets of the type is kept.
+        return 1;
+    }
+
+    private static int[] unlimitedTypes() {
+        final int[] caps = new int[TYPES.length];
+        Arrays.fill(caps, UNLIMITED);
+        return caps;
+    }
+
+    @Override
+    public String toString() {
+        return "PurchaseRules{maxTickets=" + maxTickets + ", adultRequired=" + adultRequired
+                + ", maxInfantsPerAdult=" + maxInfantsPerAdult + ", maxPerType=" + Arrays.toString(maxPerType) + '}';
+    }
+}
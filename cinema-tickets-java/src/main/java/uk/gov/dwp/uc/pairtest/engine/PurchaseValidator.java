@@ -0,0 +1,162 @@
+package uk.gov.dwp.uc.pairtest.engine;
+
+import java.util.Objects;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import uk.gov.dwp.uc.pairtest.account.AccountValidator;
+import uk.gov.dwp.uc.pairtest.account.PurchaseLimiter;
+import uk.gov.dwp.uc.pairtest.domain.PurchaseResult;
+import uk.gov.dwp.uc.pairtest.domain.TicketLineItems;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest;
+
+/**
+ * Applies the purchase rules to a ticket purchase.
+ * <p>
+ * The rules are read once per purchase from their supplier, e.g. a {@link PurchaseRuleFile} of a venue,
+ * so new rules apply from the next purchase.
+ * An account that cannot be checked, e.g. as the account store is unreachable, is rejected as
+ * {@link PurchaseResult.Status#OVERLOADED}: nothing is charged and the purchase may be retried.
+ * </p>
+ */
+public class PurchaseValidator {
+
+    final static Logger log =
+            LoggerFactory.getLogger(PurchaseValidator.class);
+
+    /**
+     * Only a maximum of 20 tickets that can be purchased at a time, unless the purchase rules say otherwise.
+     */
+    public final static int MAX_TICKET_ALLOWED = 20;
+
+    private final AccountValidator        accountValidator;
+    private final PurchaseLimiter         purchaseLimiter;
+    private final Supplier<PurchaseRules> rules;
+
+    /**
+     * The default constructor accepting every account with an id greater than zero.
+     */
+    public PurchaseValidator() {
+        this(AccountValidator.positiveAccountId());
+    }
+
+    /**
+     * The constructor which initializes the account validator.
+     *
+     * @param  accountValidator Validates the purchasing account
+     */
+    public PurchaseValidator(final AccountValidator accountValidator) {
+        this(accountValidator, PurchaseLimiter.NONE);
+    }
+
+    /**
+     * The constructor which initializes the account validator and the limiter taking the allowance
+     * of each valid purchase, so an account over its limit is rejected before any third-party call.
+     *
+     * @param  accountValidator Validates the purchasing account
+     * @param  purchaseLimiter  Limits the purchases of each account
+     */
+    public PurchaseValidator(final AccountValidator accountValidator, final PurchaseLimiter purchaseLimiter) {
+        this(accountValidator, purchaseLimiter, () -> PurchaseRules.DEFAULT);
+    }
+
+    /**
+     * The constructor which also initializes the supplier of the purchase rules in force.
+     *
+     * @param  accountValidator Validates the purchasing account
+     * @param  purchaseLimiter  Limits the purchases of each account
+     * @param  rules            Supplies the purchase rules, read once per purchase
+     */
+    public PurchaseValidator(final AccountValidator accountValidator, final PurchaseLimiter purchaseLimiter,
+                             final Supplier<PurchaseRules> rules) {
+        this.accountValidator = accountValidator;
+        this.purchaseLimiter = purchaseLimiter;
+        this.rules = rules;
+    }
+
+    /**
+     * Validates the purchase, evaluating the ticket requests into the given evaluation.
+     *
+     * @param  accountId          The Account ID
+     * @param  ticketTypeRequests The ticket purchase requests
+     * @param  evaluation         The evaluation to reuse
+     * @return CONFIRMED if the purchase is valid, otherwise the reason it is rejected
+     */
+    public PurchaseResult.Status validate(final Long accountId,
+                                          final TicketTypeRequest[] ticketTypeRequests,
+                                          final PurchaseEvaluation evaluation) {
+        if (Objects.isNull(ticketTypeRequests)) {
+            return PurchaseResult.Status.INVALID_PURCHASE;
+        }
+
+        // Validated Account
+        if (Objects.isNull(accountId)) {
+            return PurchaseResult.Status.INVALID_ACCOUNT;
+        }
+        final PurchaseResult.Status accountStatus = validateAccount(accountId);
+        if (accountStatus != PurchaseResult.Status.CONFIRMED) {
+            return accountStatus;
+        }
+
+        evaluation.evaluate(ticketTypeRequests);
+        return validateTotals(accountId, evaluation);
+    }
+
+    /**
+     * Validates a purchase held as line items, evaluating them into the given evaluation.
+     *
+     * @param  accountId  The Account ID
+     * @param  lineItems  The line items of the purchase
+     * @param  evaluation The evaluation to reuse
+     * @return CONFIRMED if the purchase is valid, otherwise the reason it is rejected
+     */
+    public PurchaseResult.Status validate(final long accountId, final TicketLineItems lineItems,
+                                          final PurchaseEvaluation evaluation) {
+        final PurchaseResult.Status accountStatus = validateAccount(accountId);
+        if (accountStatus != PurchaseResult.Status.CONFIRMED) {
+            return accountStatus;
+        }
+
+        evaluation.evaluate(lineItems);
+        return validateTotals(accountId, evaluation);
+    }
+
+    /**
+     * Give back the allowance a valid purchase took, once the purchase is refused before any payment,
+     * e.g. as its seats are sold out or the payment service is overloaded.
+     *
+     * @param  accountId The Account ID
+     * @param  tickets   The number of tickets of the purchase
+     */
+    public void release(final long accountId, final int tickets) {
+        purchaseLimiter.release(accountId, tickets);
+    }
+
+    private PurchaseResult.Status validateAccount(final long accountId) {
+        try {
+            return accountValidator.isValidAccount(accountId)
+                    ? PurchaseResult.Status.CONFIRMED
+                    : PurchaseResult.Status.INVALID_ACCOUNT;
+        } catch (final RuntimeException e) {
+            log.error("Error while validating account {}.", accountId, e);
+            return PurchaseResult.Status.OVERLOADED;
+        }
+    }
+
+    private PurchaseResult.Status validateTotals(final long accountId, final PurchaseEvaluation evaluation) {
+        // Ticket limits and the Adult ticket rule, decided by a lookup in the compiled rules.
+        final PurchaseResult.Status status = rules.get().evaluate(evaluation);
+        if (status != PurchaseResult.Status.CONFIRMED) {
+            return status;
+        }
+
+        // Checked last so only a valid purchase takes the allowance of the account,
+        // the caller releases it if the purchase is then refused before its payment.
+        if (!purchaseLimiter.tryAcquire(accountId, evaluation.totalTickets())) {
+            return PurchaseResult.Status.PURCHASE_LIMIT_EXCEEDED;
+        }
+        return PurchaseResult.Status.CONFIRMED;
+    }
+}
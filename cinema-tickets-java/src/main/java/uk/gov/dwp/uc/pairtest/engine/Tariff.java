@@ -0,0 +1,165 @@
+package uk.gov.dwp.uc.pairtest.engine;
+
+import java.util.Arrays;
+
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest.Type;
+
+/**
+ * Immutable Object
+ * <p>
+ * The ticket prices of a screening in pence, e.g. a peak or off-peak tariff,
+ * with an optional family bundle and percentage discount.
+ * Pricing a basket reads the evaluated ticket counts, so it takes the same time whatever the basket size.
+ * </p>
+ */
+public final class Tariff {
+
+    private static final int BASIS_POINTS = 10_000;
+    private static final int PENCE_PER_POUND = 100;
+
+    private final String name;
+    private final int[] pricesInPence;
+    private final int bundleAdults;
+    private final int bundleChildren;
+    private final int bundlePriceInPence;
+    private final int discountBasisPoints;
+
+    /**
+     * Create a tariff with a price per ticket type.
+     *
+     * @param  name          The tariff name
+     * @param  pricesInPence The price of each ticket type in pence, indexed by {@link Type#ordinal()}
+     */
+    public Tariff(final String name, final int... pricesInPence) {
+        this(name, validPrices(pricesInPence), 0, 0, 0, 0);
+    }
+
+    private Tariff(final String name, final int[] pricesInPence, final int bundleAdults, final int bundleChildren,
+                   final int bundlePriceInPence, final int discountBasisPoints) {
+        this.name = name;
+        this.pricesInPence = pricesInPence;
+        this.bundleAdults = bundleAdults;
+        this.bundleChildren = bundleChildren;
+        this.bundlePriceInPence = bundlePriceInPence;
+        this.discountBasisPoints = discountBasisPoints;
+    }
+
+    /**
+     * Create the tariff charging the standard price of each ticket type.
+     *
+     * @return The standard tariff
+     */
+    public static Tariff standard() {
+        final Type[] types = Type.values();
+        final int[] prices = new int[types.length];
+        for (final Type type : types) {
+            prices[type.ordinal()] = type.getPriceInPence();
+        }
+        return new Tariff("standard", prices);
+    }
+
+    /**
+     * Create a copy of this tariff with a family bundle, a fixed price for a group of Adult and Child tickets.
+     * As many bundles as the basket holds are applied, the remaining tickets are charged at the ticket price.
+     *
+     * @param  adults        Adult tickets in a bundle
+     * @param  children      Child tickets in a bundle
+     * @param  priceInPence  The price of a bundle in pence
+     * @return The tariff with the family bundle
+     */
+    public Tariff withFamilyBundle(final int adults, final int children, final int priceInPence) {
+        if (adults < 0 || children < 0 || adults + children == 0 || priceInPence < 0) {
+            throw new IllegalArgumentException("Invalid family bundle");
+        }
+        return new Tariff(name, pricesInPence, adults, children, priceInPence, discountBasisPoints);
+    }
+
+    /**
+     * Create a copy of this tariff with a percentage discount off the basket total.
+     *
+     * @param  discountBasisPoints The discount in hundredths of a percent, e.g. 1500 for 15%
+     * @return The tariff with the discount
+     */
+    public Tariff withDiscount(final int discountBasisPoints) {
+        if (discountBasisPoints < 0 || discountBasisPoints > BASIS_POINTS) {
+            throw new IllegalArgumentException("Invalid discount " + discountBasisPoints);
+        }
+        return new Tariff(name, pricesInPence, bundleAdults, bundleChildren, bundlePriceInPence, discountBasisPoints);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Get the price of a ticket type.
+     *
+     * @param  type The ticket type
+     * @return The price in pence
+     */
+    public int priceInPence(final Type type) {
+        return pricesInPence[type.ordinal()];
+    }
+
+    /**
+     * Price an evaluated basket.
+     * The discount is rounded to the nearest penny, halves in the customer's favour.
+     *
+     * @param  evaluation The evaluated ticket counts
+     * @return The basket total in pence
+     */
+    public long price(final PurchaseEvaluation evaluation) {
+        final int adultOrdinal = Type.ADULT.ordinal();
+        final int childOrdinal = Type.CHILD.ordinal();
+        long bundles = 0;
+        if (bundleAdults + bundleChildren > 0) {
+            bundles = Math.min(
+                    bundleAdults == 0 ? Long.MAX_VALUE : evaluation.count(adultOrdinal) / bundleAdults,
+                    bundleChildren == 0 ? Long.MAX_VALUE : evaluation.count(childOrdinal) / bundleChildren);
+        }
+
+        long total = bundles * bundlePriceInPence;
+        for (int ordinal = 0; ordinal < pricesInPence.length; ordinal++) {
+            long count = evaluation.count(ordinal);
+            if (ordinal == adultOrdinal) {
+                count -= bundles * bundleAdults;
+            } else if (ordinal == childOrdinal) {
+                count -= bundles * bundleChildren;
+            }
+            total += count * pricesInPence[ordinal];
+        }
+
+        if (discountBasisPoints == 0) {
+            return total;
+        }
+        return (total * (BASIS_POINTS - discountBasisPoints) + BASIS_POINTS / 2 - 1) / BASIS_POINTS;
+    }
+
+    /**
+     * Convert an amount priced by a tariff to the whole pounds taken by the payment gateway.
+     * Pence left over by a discount are not charged, so the customer never pays more than the tariff price.
+     *
+     * @param  amountInPence The amount in pence
+     * @return The amount in whole pounds
+     */
+    public static long toWholePounds(final long amountInPence) {
+        return amountInPence / PENCE_PER_POUND;
+    }
+
+    private static int[] validPrices(final int[] pricesInPence) {
+        if (pricesInPence.length != Type.values().length) {
+            throw new IllegalArgumentException("A price is required for each ticket type");
+        }
+        for (final int price : pricesInPence) {
+            if (price < 0) {
+                throw new IllegalArgumentException("Ticket prices cannot be negative");
+            }
+        }
+        return Arrays.copyOf(pricesInPence, pricesInPence.length);
+    }
+
+    @Override
+    public String toString() {
+        return "Tariff{name=" + name + ", prices=" + Arrays.toString(pricesInPence) + '}';
+    }
+}
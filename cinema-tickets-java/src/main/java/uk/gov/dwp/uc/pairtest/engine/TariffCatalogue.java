@@ -0,0 +1,144 @@
+package uk.gov.dwp.uc.pairtest.engine;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The tariffs on sale and the tariff of each screening.
+ * <p>
+ * Tariffs are registered once and given a dense id, screenings are assigned a tariff by id,
+ * so pricing the basket of a screening is a single lookup of its precomputed price table with no boxing.
+ * A screening without a tariff of its own is priced with the default tariff, if the catalogue has one.
+ * The catalogue is not thread safe while it is being filled, publish it safely before sharing it.
+ * </p>
+ */
+public class TariffCatalogue {
+
+    private final Map<String, Integer> tariffIds = new HashMap<>();
+    private final Map<String, Tariff> screeningTariffs = new HashMap<>();
+    private final Tariff defaultTariff;
+    private Tariff[] tariffTable = new Tariff[16];
+    private int tariffCount;
+
+    /**
+     * The default constructor, a screening must be assigned a tariff before it can be priced.
+     */
+    public TariffCatalogue() {
+        this(null);
+    }
+
+    /**
+     * Constructor pricing screenings without a tariff of their own with a default tariff.
+     *
+     * @param  defaultTariff The tariff of unassigned screenings, it is not registered
+     */
+    public TariffCatalogue(final Tariff defaultTariff) {
+        this.defaultTariff = defaultTariff;
+    }
+
+    /**
+     * Create a catalogue pricing every screening with the standard ticket prices.
+     *
+     * @return The standard catalogue
+     */
+    public static TariffCatalogue standard() {
+        return new TariffCatalogue(Tariff.standard());
+    }
+
+    /**
+     * Register a tariff.
+     *
+     * @param  tariff The tariff, its name must be unique in the catalogue
+     * @return The id of the tariff
+     */
+    public int register(final Tariff tariff) {
+        if (tariffIds.containsKey(tariff.getName())) {
+            throw new IllegalArgumentException("Tariff already registered: " + tariff.getName());
+        }
+        if (tariffCount == tariffTable.length) {
+            tariffTable = Arrays.copyOf(tariffTable, tariffCount * 2);
+        }
+        final int tariffId = tariffCount++;
+        tariffTable[tariffId] = tariff;
+        tariffIds.put(tariff.getName(), tariffId);
+        return tariffId;
+    }
+
+    /**
+     * Get the id of a registered tariff.
+     *
+     * @param  name The tariff name
+     * @return The tariff id
+     */
+    public int tariffId(final String name) {
+        final Integer tariffId = tariffIds.get(name);
+        if (tariffId == null) {
+            throw new IllegalArgumentException("Unknown tariff: " + name);
+        }
+        return tariffId;
+    }
+
+    /**
+     * Assign a tariff to a screening, e.g. the peak tariff to an evening screening.
+     *
+     * @param  screeningId The screening id
+     * @param  tariffId    The id of a registered tariff
+     */
+    public void assign(final String screeningId, final int tariffId) {
+        if (tariffId < 0 || tariffId >= tariffCount) {
+            throw new IllegalArgumentException("Unknown tariff id: " + tariffId);
+        }
+        screeningTariffs.put(screeningId, tariffTable[tariffId]);
+    }
+
+    /**
+     * Get a tariff by id.
+     *
+     * @param  tariffId The tariff id
+     * @return The tariff
+     */
+    public Tariff tariff(final int tariffId) {
+        return tariffTable[tariffId];
+    }
+
+    /**
+     * Get the tariff of a screening.
+     *
+     * @param  screeningId The screening id
+     * @return The tariff assigned to the screening, or the default tariff
+     */
+    public Tariff forScreening(final String screeningId) {
+        final Tariff tariff = find(screeningId);
+        if (tariff == null) {
+            throw new IllegalArgumentException("No tariff assigned to screening " + screeningId);
+        }
+        return tariff;
+    }
+
+    /**
+     * Find the tariff of a screening.
+     *
+     * @param  screeningId The screening id
+     * @return The tariff assigned to the screening, or the default tariff, or null if the screening has neither
+     */
+    public Tariff find(final String screeningId) {
+        final Tariff tariff = screeningTariffs.get(screeningId);
+        return tariff != null ? tariff : defaultTariff;
+    }
+
+    /**
+     * Price an evaluated basket for a screening.
+     *
+     * @param  screeningId The screening id
+     * @param  evaluation  The evaluated ticket counts
+     * @return The basket total in pence
+     */
+    public long price(final String screeningId, final PurchaseEvaluation evaluation) {
+        return forScreening(screeningId).price(evaluation);
+    }
+
+    public int size() {
+        return tariffCount;
+    }
+}
@@ -12,5 +12,22 @@ public class ErrorMessages {
     public final static String MAX_TICKET_PURCHASE_ALLOWED =
             "Only a maximum of 20 tickets that can be purchased at a time.";
 
+    public final static String INVALID_TICKET_INFORMATION = "Valid ticket information is not provided.";
+
+    public final static String BOOKING_FAILED = "Error while finalizing booking.";
+
+    public final static String SEATS_UNAVAILABLE = "Not enough seats are available for the screening.";
+
+    public final static String SERVICE_OVERLOADED = "Too many purchases in progress, please try again.";
+
+    public final static String PURCHASE_LIMIT_EXCEEDED =
+            "Too many tickets purchased by the account, please try again later.";
+
+    public final static String PAID_NOT_RESERVED =
+            "Payment taken but the seats could not be reserved, the booking will be reconciled.";
+
+    public final static String IDEMPOTENCY_KEY_REUSED =
+            "The idempotency key was already used for a purchase of different tickets.";
+
 
 }
@@ -1,10 +1,28 @@
 package uk.gov.dwp.uc.pairtest.exception;
 
 public class InvalidAccountException extends InvalidPurchaseException {
+
+        private static final long serialVersionUID = 1L;
+
+        private static final InvalidAccountException STACKLESS = new InvalidAccountException(false);
+
         /**
          * The default constructor for invalid account message
          */
         public InvalidAccountException() {
             super(ErrorMessages.INVALID_ACCOUNT);
         }
+
+        private InvalidAccountException(final boolean writableStackTrace) {
+            super(ErrorMessages.INVALID_ACCOUNT, writableStackTrace);
+        }
+
+        /**
+         * Get the shared instance without a stack trace.
+         *
+         * @return The preallocated exception
+         */
+        public static InvalidAccountException stackless() {
+            return STACKLESS;
+        }
 }
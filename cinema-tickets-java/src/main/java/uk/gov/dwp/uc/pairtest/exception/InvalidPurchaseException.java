@@ -2,6 +2,11 @@ package uk.gov.dwp.uc.pairtest.exception;
 
 public class InvalidPurchaseException extends RuntimeException {
 
+    private static final long serialVersionUID = 1L;
+
+    private static final InvalidPurchaseException STACKLESS =
+            new InvalidPurchaseException(ErrorMessages.INVALID_TICKET_INFORMATION, false);
+
     /**
      * The default constructor.
      */
@@ -16,4 +21,34 @@ public class InvalidPurchaseException extends RuntimeException {
     public InvalidPurchaseException(final String message) {
         super(message);
     }
+
+    /**
+     * Constructor with an error message and no stack trace when {@code writableStackTrace} is false.
+     * An exception without a stack trace is cheap to throw and can be shared, as it holds no state of the throw.
+     *
+     * @param message            The error message
+     * @param writableStackTrace Whether the stack trace is filled in
+     */
+    protected InvalidPurchaseException(final String message, final boolean writableStackTrace) {
+        super(message, null, writableStackTrace, writableStackTrace);
+    }
+
+    /**
+     * Get the shared instance without a stack trace.
+     *
+     * @return The preallocated exception
+     */
+    public static InvalidPurchaseException stackless() {
+        return STACKLESS;
+    }
+
+    /**
+     * Create an exception with an error message and no stack trace.
+     *
+     * @param message The error message
+     * @return The exception
+     */
+    public static InvalidPurchaseException stackless(final String message) {
+        return new InvalidPurchaseException(message, false);
+    }
 }
@@ -1,6 +1,12 @@
 package uk.gov.dwp.uc.pairtest.exception;
 
 public class MandatoryAdultTicketPurchaseRequiredException extends InvalidPurchaseException {
+
+        private static final long serialVersionUID = 1L;
+
+        private static final MandatoryAdultTicketPurchaseRequiredException STACKLESS =
+                new MandatoryAdultTicketPurchaseRequiredException(false);
+
         /**
          * The default constructor with message that an adult ticket purchase
          * is mandatory for a child or an infant ticket purchase.
@@ -10,4 +16,17 @@ public class MandatoryAdultTicketPurchaseRequiredException extends InvalidPurcha
         public MandatoryAdultTicketPurchaseRequiredException() {
             super(ErrorMessages.MANDATORY_ADULT_TICKET_PURCHASE_REQUIRED);
         }
+
+        private MandatoryAdultTicketPurchaseRequiredException(final boolean writableStackTrace) {
+            super(ErrorMessages.MANDATORY_ADULT_TICKET_PURCHASE_REQUIRED, writableStackTrace);
+        }
+
+        /**
+         * Get the shared instance without a stack trace.
+         *
+         * @return The preallocated exception
+         */
+        public static MandatoryAdultTicketPurchaseRequiredException stackless() {
+            return STACKLESS;
+        }
 }
@@ -2,6 +2,9 @@ package uk.gov.dwp.uc.pairtest.exception;
 
 public class MaxTicketPurchaseException extends InvalidPurchaseException {
 
+        private static final long serialVersionUID = 1L;
+
+        private static final MaxTicketPurchaseException STACKLESS = new MaxTicketPurchaseException(false);
 
         /**
          * The default constructor with message that only maximum of 20 tickets can be purchased at one time.
@@ -10,4 +13,17 @@ public class MaxTicketPurchaseException extends InvalidPurchaseException {
         public MaxTicketPurchaseException() {
             super(ErrorMessages.MAX_TICKET_PURCHASE_ALLOWED);
         }
+
+        private MaxTicketPurchaseException(final boolean writableStackTrace) {
+            super(ErrorMessages.MAX_TICKET_PURCHASE_ALLOWED, writableStackTrace);
+        }
+
+        /**
+         * Get the shared instance without a stack trace.
+         *
+         * @return The preallocated exception
+         */
+        public static MaxTicketPurchaseException stackless() {
+            return STACKLESS;
+        }
 }
@@ -0,0 +1,28 @@
+package uk.gov.dwp.uc.pairtest.exception;
+
+public class PurchaseLimitExceededException extends InvalidPurchaseException {
+
+        private static final long serialVersionUID = 1L;
+
+        private static final PurchaseLimitExceededException STACKLESS = new PurchaseLimitExceededException(false);
+
+        /**
+         * The default constructor with message that the account has made too many purchases.
+         */
+        public PurchaseLimitExceededException() {
+            super(ErrorMessages.PURCHASE_LIMIT_EXCEEDED);
+        }
+
+        private PurchaseLimitExceededException(final boolean writableStackTrace) {
+            super(ErrorMessages.PURCHASE_LIMIT_EXCEEDED, writableStackTrace);
+        }
+
+        /**
+         * Get the shared instance without a stack trace.
+         *
+         * @return The preallocated exception
+         */
+        public static PurchaseLimitExceededException stackless() {
+            return STACKLESS;
+        }
+}
@@ -0,0 +1,28 @@
+package uk.gov.dwp.uc.pairtest.exception;
+
+public class SeatsUnavailableException extends InvalidPurchaseException {
+
+        private static final long serialVersionUID = 1L;
+
+        private static final SeatsUnavailableException STACKLESS = new SeatsUnavailableException(false);
+
+        /**
+         * The default constructor with message that not enough seats are available.
+         */
+        public SeatsUnavailableException() {
+            super(ErrorMessages.SEATS_UNAVAILABLE);
+        }
+
+        private SeatsUnavailableException(final boolean writableStackTrace) {
+            super(ErrorMessages.SEATS_UNAVAILABLE, writableStackTrace);
+        }
+
+        /**
+         * Get the shared instance without a stack trace, thrown when a sold out screening is rejected up front.
+         *
+         * @return The preallocated exception
+         */
+        public static SeatsUnavailableException stackless() {
+            return STACKLESS;
+        }
+}
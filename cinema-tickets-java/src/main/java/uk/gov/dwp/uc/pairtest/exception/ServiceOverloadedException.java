@@ -0,0 +1,28 @@
+package uk.gov.dwp.uc.pairtest.exception;
+
+public class ServiceOverloadedException extends InvalidPurchaseException {
+
+        private static final long serialVersionUID = 1L;
+
+        private static final ServiceOverloadedException STACKLESS = new ServiceOverloadedException(false);
+
+        /**
+         * The default constructor with message that too many purchases are in progress.
+         */
+        public ServiceOverloadedException() {
+            super(ErrorMessages.SERVICE_OVERLOADED);
+        }
+
+        private ServiceOverloadedException(final boolean writableStackTrace) {
+            super(ErrorMessages.SERVICE_OVERLOADED, writableStackTrace);
+        }
+
+        /**
+         * Get the shared instance without a stack trace, thrown when load is shed so shedding stays cheap.
+         *
+         * @return The preallocated exception
+         */
+        public static ServiceOverloadedException stackless() {
+            return STACKLESS;
+        }
+}
@@ -0,0 +1,445 @@
+package uk.gov.dwp.uc.pairtest.journal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import uk.gov.dwp.uc.pairtest.PurchaseListener;
+
+/**
+ * A write-ahead journal of booking states on memory-mapped, fixed-size segment files.
+ * <p>
+ * Each state change is a fixed-size binary record appended to the current segment:
+ * </p>
+ * <pre>
+ *  0  long bookingId
+ *  8  long accountId
+ * 16  int  totalAmount
+ * 20  int  totalSeats
+ * 24  int  state code
+ * 28  int  checksum, never zero so an unwritten record reads as the end of the journal
+ * </pre>
+ * <p>
+ * Appending writes into the mapped segment and returns straight away.
+ * A flusher thread forces the segment to disk, covering every record appended since its last flush
+ * in a single fsync (group commit). With durable intents, a booking waits for its intent record to be flushed
+ * before the payment is taken, so a crash never leaves a payment without a journal record.
+ * </p>
+ * <p>
+ * On open the segments are scanned, the latest state of each booking is rebuilt and appending continues
+ * after the last valid record. Bookings left in {@link BookingState#INTENT} or {@link BookingState#PAID}
+ * are returned by {@link #incompleteBookings()} for {@link BookingRecovery}. A booking which failed after its payment
+ * was taken, e.g. when the seat reservation threw, stays {@link BookingState#PAID} so its seats are reserved again.
+ * Anything after the last valid record, the rest of its segment and any later segment, is discarded,
+ * so a record left behind a torn one is never read by a later recovery.
+ * </p>
+ * <p>
+ * A failed flush is retried with a growing back-off. After {@value #MAX_FLUSH_FAILURES} failures in a row
+ * the journal fails: every booking waiting for its intent and every later append throw,
+ * so no more payments are taken without a durable record.
+ * </p>
+ */
+public class BookingJournal implements PurchaseListener, Closeable {
+
+    final static Logger log =
+            LoggerFactory.getLogger(BookingJournal.class);
+
+    public static final int RECORD_SIZE = 32;
+
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    static final int MAX_FLUSH_FAILURES = 10;
+    private static final long MAX_FLUSH_BACKOFF_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final Path directory;
+    private final int recordsPerSegment;
+    private final long flushIntervalNanos;
+    private final boolean durableIntent;
+    private final AtomicLong nextBookingId;
+    private final List<JournalRecord> incompleteBookings;
+    private final Object durableLock = new Object();
+    private final Thread flusher;
+
+    private FileChannel channel;
+    private MappedByteBuffer segment;
+    private long segmentFirstSequence;
+    private long written;
+    private volatile long durable;
+    private volatile boolean closed;
+    private volatile RuntimeException flushFailure;
+
+    private BookingJournal(final Path directory, final int recordsPerSegment, final long flushIntervalNanos,
+                           final boolean durableIntent) throws IOException {
+        this.directory = directory;
+        this.recordsPerSegment = recordsPerSegment;
+        this.flushIntervalNanos = flushIntervalNanos;
+        this.durableIntent = durableIntent;
+
+        final Recovered recovered = recover();
+        this.nextBookingId = new AtomicLong(recovered.maxBookingId + 1);
+        this.incompleteBookings = recovered.incomplete;
+        this.written = recovered.sequence;
+        this.durable = recovered.sequence;
+        openSegment(recovered.sequence - recovered.sequence % recordsPerSegment);
+        discardAfter(recovered.sequence);
+
+        this.flusher = new Thread(this::flushLoop, "booking-journal-flusher");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    /**
+     * Open a journal, recovering the bookings already recorded in the directory.
+     *
+     * @param  directory         The journal directory, created if missing
+     * @param  recordsPerSegment The number of records in each segment file
+     * @param  flushInterval     The longest time an appended record waits to be flushed
+     * @param  unit              The unit of the flush interval
+     * @param  durableIntent     Whether a booking waits for its intent record to be flushed
+     * @return The open journal
+     * @throws IOException If the journal cannot be read or created
+     */
+    public static BookingJournal open(final Path directory, final int recordsPerSegment, final long flushInterval,
+                                      final TimeUnit unit, final boolean durableIntent) throws IOException {
+        if (recordsPerSegment < 1) {
+            throw new IllegalArgumentException("A segment must hold at least one record");
+        }
+        Files.createDirectories(directory);
+        return new BookingJournal(directory, recordsPerSegment, unit.toNanos(flushInterval), durableIntent);
+    }
+
+    @Override
+    public long bookingStarted(final long accountId, final int totalAmount, final int totalSeats) {
+        final long bookingId = nextBookingId.getAndIncrement();
+        final long sequence = append(bookingId, accountId, totalAmount, totalSeats, BookingState.INTENT);
+        if (durableIntent) {
+            awaitDurable(sequence);
+        }
+        return bookingId;
+    }
+
+    @Override
+    public void paymentTaken(final long bookingId) {
+        append(bookingId, 0, 0, 0, BookingState.PAID);
+    }
+
+    @Override
+    public void seatsReserved(final long bookingId) {
+        append(bookingId, 0, 0, 0, BookingState.RESERVED);
+    }
+
+    @Override
+    public void bookingFailed(final long bookingId, final Throwable cause) {
+        append(bookingId, 0, 0, 0, BookingState.FAILED);
+    }
+
+    /**
+     * Get the bookings found incomplete when the journal was opened.
+     *
+     * @return The incomplete bookings, in booking id order
+     */
+    public List<JournalRecord> incompleteBookings() {
+        return incompleteBookings;
+    }
+
+    /**
+     * Append a record.
+     *
+     * @return The sequence number of the record, counted from one
+     */
+    synchronized long append(final long bookingId, final long accountId, final int totalAmount,
+                             final int totalSeats, final BookingState state) {
+        if (closed) {
+            throw new IllegalStateException("Booking journal is closed");
+        }
+        if (flushFailure != null) {
+            throw new IllegalStateException("Booking journal cannot be flushed", flushFailure);
+        }
+        if (written - segmentFirstSequence == recordsPerSegment) {
+            rollSegment();
+        }
+        final int offset = (int) (written - segmentFirstSequence) * RECORD_SIZE;
+        final int stateCode = state.code();
+        segment.putLong(offset, bookingId);
+        segment.putLong(offset + 8, accountId);
+        segment.putInt(offset + 16, totalAmount);
+        segment.putInt(offset + 20, totalSeats);
+        segment.putInt(offset + 24, stateCode);
+        segment.putInt(offset + 28, checksum(bookingId, accountId, totalAmount, totalSeats, stateCode));
+        return ++written;
+    }
+
+    /**
+     * Wait until a record is flushed to disk.
+     *
+     * @param  sequence The sequence number returned when the record was appended
+     */
+    void awaitDurable(final long sequence) {
+        if (durable >= sequence) {
+            return;
+        }
+        LockSupport.unpark(flusher);
+        boolean interrupted = false;
+        synchronized (durableLock) {
+            while (durable < sequence) {
+                if (closed) {
+                    throw new IllegalStateException("Booking journal closed before the record was flushed");
+                }
+                if (flushFailure != null) {
+                    throw new IllegalStateException("Booking journal cannot be flushed", flushFailure);
+                }
+                try {
+                    durableLock.wait();
+                } catch (final InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        LockSupport.unpark(flusher);
+        try {
+            flusher.join();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            try {
+                segment.force();
+                durable = written;
+            } catch (final UncheckedIOException e) {
+                log.error("Error while flushing booking journal on close.", e);
+            } finally {
+                channel.close();
+            }
+        }
+        synchronized (durableLock) {
+            durableLock.notifyAll();
+        }
+    }
+
+    private void flushLoop() {
+        int failures = 0;
+        while (!closed) {
+            final long target;
+            final MappedByteBuffer current;
+            synchronized (this) {
+                target = written;
+                current = segment;
+            }
+            if (target > durable) {
+                try {
+                    current.force();
+                } catch (final UncheckedIOException e) {
+                    if (++failures == MAX_FLUSH_FAILURES) {
+                        log.error("Error while flushing booking journal, failing the journal.", e);
+                        fail(e);
+                        return;
+                    }
+                    log.error("Error while flushing booking journal, retry {} of {}.",
+                            failures, MAX_FLUSH_FAILURES - 1, e);
+                    LockSupport.parkNanos(this, flushBackoffNanos(failures));
+                    continue;
+                }
+                failures = 0;
+                durable = target;
+                synchronized (durableLock) {
+                    durableLock.notifyAll();
+                }
+            } else {
+                LockSupport.parkNanos(this, flushIntervalNanos);
+            }
+        }
+    }
+
+    /**
+     * Fail every booking waiting for its record to be flushed and every later append.
+     */
+    private void fail(final RuntimeException cause) {
+        flushFailure = cause;
+        synchronized (durableLock) {
+            durableLock.notifyAll();
+        }
+    }
+
+    private long flushBackoffNanos(final int failures) {
+        final long base = Math.max(flushIntervalNanos, TimeUnit.MILLISECONDS.toNanos(1));
+        return Math.min(base << Math.min(failures, 20), MAX_FLUSH_BACKOFF_NANOS);
+    }
+
+    private void rollSegment() {
+        try {
+            // Records of a full segment are made durable before moving on, the flusher only forces the current one.
+            segment.force();
+            channel.close();
+            openSegment(written);
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Unable to roll booking journal segment", e);
+        }
+    }
+
+    private void openSegment(final long firstSequence) throws IOException {
+        channel = FileChannel.open(segmentPath(firstSequence),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) recordsPerSegment * RECORD_SIZE);
+        segmentFirstSequence = firstSequence;
+    }
+
+    /**
+     * Zero the current segment after the last recovered record and delete the segments after it.
+     *
+     * @param  sequence The number of records recovered
+     */
+    private void discardAfter(final long sequence) throws IOException {
+        final int from = (int) (sequence - segmentFirstSequence) * RECORD_SIZE;
+        boolean discarded = false;
+        for (int offset = from; offset < segment.limit(); offset += 8) {
+            if (segment.getLong(offset) != 0) {
+                segment.putLong(offset, 0);
+                discarded = true;
+            }
+        }
+        if (discarded) {
+            segment.force();
+        }
+        for (final Path path : segmentPaths()) {
+            if (firstSequence(path) > segmentFirstSequence) {
+                Files.delete(path);
+                discarded = true;
+            }
+        }
+        if (discarded) {
+            log.warn("Booking journal discarded the records after record {}.", sequence);
+        }
+    }
+
+    private Path segmentPath(final long firstSequence) {
+        return directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, firstSequence, SEGMENT_SUFFIX));
+    }
+
+    /**
+     * Scan the segments in order, stopping at the first record that is unwritten or torn.
+     */
+    private Recovered recover() throws IOException {
+        final List<Path> segments = segmentPaths();
+        final Map<Long, JournalRecord> bookings = new HashMap<>();
+        final Recovered recovered = new Recovered();
+        for (final Path path : segments) {
+            if (firstSequence(path) != recovered.sequence) {
+                log.error("Booking journal segment {} is out of sequence, ignoring it and later segments.", path);
+                break;
+            }
+            try (FileChannel segmentChannel = FileChannel.open(path, StandardOpenOption.READ)) {
+                final ByteBuffer buffer = segmentChannel.map(FileChannel.MapMode.READ_ONLY, 0, segmentChannel.size());
+                int records = 0;
+                for (int offset = 0; offset + RECORD_SIZE <= buffer.limit(); offset += RECORD_SIZE) {
+                    if (!readRecord(buffer, offset, bookings, recovered)) {
+                        break;
+                    }
+                    records++;
+                }
+                recovered.sequence += records;
+                if (records < recordsPerSegment) {
+                    break;
+                }
+            }
+        }
+
+        for (final JournalRecord record : bookings.values()) {
+            if (record.getState().isIncomplete()) {
+                recovered.incomplete.add(record);
+            }
+        }
+        recovered.incomplete.sort((a, b) -> Long.compare(a.getBookingId(), b.getBookingId()));
+        log.info("Booking journal recovered {} records, {} incomplete bookings.",
+                recovered.sequence, recovered.incomplete.size());
+        return recovered;
+    }
+
+    /**
+     * List the segment files in sequence order.
+     */
+    private List<Path> segmentPaths() throws IOException {
+        final List<Path> segments = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            files.forEach(segments::add);
+        }
+        Collections.sort(segments);
+        return segments;
+    }
+
+    private static long firstSequence(final Path path) {
+        final String name = path.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private static boolean readRecord(final ByteBuffer buffer, final int offset, final Map<Long, JournalRecord> bookings,
+                                      final Recovered recovered) {
+        final long bookingId = buffer.getLong(offset);
+        final long accountId = buffer.getLong(offset + 8);
+        final int totalAmount = buffer.getInt(offset + 16);
+        final int totalSeats = buffer.getInt(offset + 20);
+        final int stateCode = buffer.getInt(offset + 24);
+        final int checksum = buffer.getInt(offset + 28);
+        final BookingState state = BookingState.of(stateCode);
+        if (state == null || checksum != checksum(bookingId, accountId, totalAmount, totalSeats, stateCode)) {
+            return false;
+        }
+        recovered.maxBookingId = Math.max(recovered.maxBookingId, bookingId);
+        final JournalRecord previous = bookings.get(bookingId);
+        if (previous != null && previous.getState() == BookingState.PAID && state == BookingState.FAILED) {
+            // A failure after the payment is a paid booking without seats, still to be reserved by recovery.
+            return true;
+        }
+        bookings.put(bookingId, state == BookingState.INTENT || previous == null
+                ? new JournalRecord(bookingId, accountId, totalAmount, totalSeats, state)
+                : previous.withState(state));
+        return true;
+    }
+
+    private static int checksum(final long bookingId, final long accountId, final int totalAmount,
+                                final int totalSeats, final int stateCode) {
+        long hash = bookingId * 0x9E3779B97F4A7C15L;
+        hash = (hash ^ accountId) * 0xBF58476D1CE4E5B9L;
+        hash = (hash ^ ((long) totalAmount << 32 | (totalSeats & 0xFFFFFFFFL))) * 0x94D049BB133111EBL;
+        hash = (hash ^ stateCode) * 0x9E3779B97F4A7C15L;
+        final int folded = (int) (hash ^ (hash >>> 32));
+        return folded == 0 ? 1 : folded;
+    }
+
+    private static final class Recovered {
+        private long sequence;
+        private long maxBookingId;
+        private final List<JournalRecord> incomplete = new ArrayList<>();
+    }
+}
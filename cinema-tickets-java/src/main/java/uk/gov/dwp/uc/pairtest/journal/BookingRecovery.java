@@ -0,0 +1,54 @@
+package uk.gov.dwp.uc.pairtest.journal;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import thirdparty.seatbooking.SeatReservationService;
+
+/**
+ * Replays the bookings a crash left incomplete in the {@link BookingJournal}.
+ * <p>
+ * A paid booking has its seats reserved again and is recorded as reserved.
+ * A booking with only an intent may or may not have been charged, it is left for reconciliation
+ * against the payment records rather than charged twice.
+ * </p>
+ */
+public final class BookingRecovery {
+
+    final static Logger log =
+            LoggerFactory.getLogger(BookingRecovery.class);
+
+    private BookingRecovery() {
+    }
+
+    /**
+     * Replay the incomplete bookings of a journal.
+     *
+     * @param  journal            The journal opened after the crash
+     * @param  reservationService The seat reservation service
+     * @return The bookings still unresolved, to reconcile against the payments
+     */
+    public static List<JournalRecord> replay(final BookingJournal journal,
+                                             final SeatReservationService reservationService) {
+        final List<JournalRecord> unresolved = new ArrayList<>();
+        for (final JournalRecord booking : journal.incompleteBookings()) {
+            if (booking.getState() != BookingState.PAID) {
+                unresolved.add(booking);
+                continue;
+            }
+            try {
+                reservationService.reserveSeat(booking.getAccountId(), booking.getTotalSeats());
+                journal.seatsReserved(booking.getBookingId());
+            } catch (final RuntimeException e) {
+                log.error("Error while replaying booking reservation.", e);
+                unresolved.add(booking);
+            }
+        }
+        log.info("Booking recovery replayed {} bookings, {} unresolved.",
+                journal.incompleteBookings().size() - unresolved.size(), unresolved.size());
+        return unresolved;
+    }
+}
@@ -0,0 +1,30 @@
+package uk.gov.dwp.uc.pairtest.journal;
+
+/**
+ * The states of a booking recorded in the journal.
+ */
+public enum BookingState {
+    INTENT,
+    PAID,
+    RESERVED,
+    FAILED;
+
+    private static final BookingState[] STATES = values();
+
+    /**
+     * Check if a booking in this state still needs to be resolved.
+     *
+     * @return True if the booking is neither reserved nor failed
+     */
+    public boolean isIncomplete() {
+        return this == INTENT || this == PAID;
+    }
+
+    static BookingState of(final int code) {
+        return code >= 1 && code <= STATES.length ? STATES[code - 1] : null;
+    }
+
+    int code() {
+        return ordinal() + 1;
+    }
+}
@@ -0,0 +1,61 @@
+package uk.gov.dwp.uc.pairtest.journal;
+
+/**
+ * Immutable Object
+ * <p>
+ * The latest recorded state of a booking.
+ * </p>
+ */
+public final class JournalRecord {
+
+    private final long bookingId;
+    private final long accountId;
+    private final int totalAmount;
+    private final int totalSeats;
+    private final BookingState state;
+
+    public JournalRecord(final long bookingId, final long accountId, final int totalAmount, final int totalSeats,
+                         final BookingState state) {
+        this.bookingId = bookingId;
+        this.accountId = accountId;
+        this.totalAmount = totalAmount;
+        this.totalSeats = totalSeats;
+        this.state = state;
+    }
+
+    public long getBookingId() {
+        return bookingId;
+    }
+
+    public long getAccountId() {
+        return accountId;
+    }
+
+    public int getTotalAmount() {
+        return totalAmount;
+    }
+
+    public int getTotalSeats() {
+        return totalSeats;
+    }
+
+    public BookingState getState() {
+        return state;
+    }
+
+    /**
+     * Create a copy of this record in a later state.
+     *
+     * @param  state The new state
+     * @return The record in the new state
+     */
+    JournalRecord withState(final BookingState state) {
+        return new JournalRecord(bookingId, accountId, totalAmount, totalSeats, state);
+    }
+
+    @Override
+    public String toString() {
+        return "JournalRecord{bookingId=" + bookingId + ", accountId=" + accountId + ", totalAmount=" + totalAmount
+                + ", totalSeats=" + totalSeats + ", state=" + state + '}';
+    }
+}
@@ -0,0 +1,75 @@
+package uk.gov.dwp.uc.pairtest.metrics;
+
+/**
+ * Immutable Object
+ * <p>
+ * The latencies recorded by a {@link LatencyHistogram} at a point in time.
+ * </p>
+ */
+public final class HistogramSnapshot {
+
+    private final long[] buckets;
+    private final long count;
+    private final long sum;
+    private final long max;
+
+    HistogramSnapshot(final long[] buckets, final long count, final long sum, final long max) {
+        this.buckets = buckets;
+        this.count = count;
+        this.sum = sum;
+        this.max = max;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Get the highest latency recorded.
+     *
+     * @return The maximum in nanoseconds
+     */
+    public long getMax() {
+        return max;
+    }
+
+    /**
+     * Get the mean latency.
+     *
+     * @return The mean in nanoseconds, zero if nothing was recorded
+     */
+    public double getMean() {
+        return count == 0 ? 0 : (double) sum / count;
+    }
+
+    /**
+     * Get the latency at a percentile.
+     *
+     * @param  percentile The percentile, from 0 to 100
+     * @return The upper bound of the bucket holding the percentile in nanoseconds, zero if nothing was recorded
+     */
+    public long getValueAtPercentile(final double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        final long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+        long seen = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            seen += buckets[i];
+            if (seen >= rank) {
+                return Math.min(LatencyHistogram.bucketUpperBound(i), max);
+            }
+        }
+        return max;
+    }
+
+    @Override
+    public String toString() {
+        return "HistogramSnapshot{count=" + count
+                + ", mean=" + (long) getMean()
+                + ", p50=" + getValueAtPercentile(50)
+                + ", p99=" + getValueAtPercentile(99)
+                + ", p999=" + getValueAtPercentile(99.9)
+                + ", max=" + max + '}';
+    }
+}
@@ -0,0 +1,95 @@
+package uk.gov.dwp.uc.pairtest.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free latency histogram with log-linear buckets.
+ * <p>
+ * Each power of two range is split into 16 buckets, so a recorded value is reported within 1/16 (6.25%) of its value.
+ * Bucket counts are striped by thread over several arrays so concurrent recorders rarely update the same counter.
+ * </p>
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = SUB_BUCKETS + (Long.SIZE - 1 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+    private static final int STRIPES = 8;
+
+    private final AtomicLongArray[] stripes = new AtomicLongArray[STRIPES];
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    public LatencyHistogram() {
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new AtomicLongArray(BUCKETS);
+        }
+    }
+
+    /**
+     * Record a latency.
+     *
+     * @param  nanos The latency in nanoseconds, negative values are recorded as zero
+     */
+    public void record(final long nanos) {
+        final long value = Math.max(0, nanos);
+        final int stripe = (int) (Thread.currentThread().getId() & (STRIPES - 1));
+        stripes[stripe].incrementAndGet(bucketIndex(value));
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+    /**
+     * Take a snapshot of the recorded latencies.
+     * Values recorded while the snapshot is taken may be partly included.
+     *
+     * @return The snapshot
+     */
+    public HistogramSnapshot snapshot() {
+        final long[] buckets = new long[BUCKETS];
+        for (final AtomicLongArray stripe : stripes) {
+            for (int i = 0; i < BUCKETS; i++) {
+                buckets[i] += stripe.get(i);
+            }
+        }
+        long total = 0;
+        for (final long bucket : buckets) {
+            total += bucket;
+        }
+        return new HistogramSnapshot(buckets, total, sum.sum(), max.get());
+    }
+
+    /**
+     * Get the snapshot of a histogram with nothing recorded.
+     *
+     * @return The empty snapshot
+     */
+    static HistogramSnapshot emptySnapshot() {
+        return new HistogramSnapshot(new long[BUCKETS], 0, 0, 0);
+    }
+
+    static int bucketIndex(final long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        final int magnitude = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+        final int shift = magnitude - SUB_BUCKET_BITS;
+        final int subBucket = (int) (value >>> shift) - SUB_BUCKETS;
+        return SUB_BUCKETS + shift * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * Get the highest value counted in a bucket.
+     */
+    static long bucketUpperBound(final int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        final int shift = (index - SUB_BUCKETS) / SUB_BUCKETS;
+        final long subBucket = (index - SUB_BUCKETS) % SUB_BUCKETS;
+        final long lowerBound = (SUB_BUCKETS + subBucket) << shift;
+        return lowerBound + (1L << shift) - 1;
+    }
+}
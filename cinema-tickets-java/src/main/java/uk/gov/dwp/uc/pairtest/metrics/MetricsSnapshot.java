@@ -0,0 +1,79 @@
+package uk.gov.dwp.uc.pairtest.metrics;
+
+import uk.gov.dwp.uc.pairtest.domain.PurchaseResult;
+
+/**
+ * Immutable Object
+ * <p>
+ * The purchase metrics at a point in time.
+ * Counts only ever grow, a scraper derives throughput from the difference between two snapshots.
+ * </p>
+ */
+public final class MetricsSnapshot {
+
+    private final long timestampMillis;
+    private final long[] outcomeCounts;
+    private final HistogramSnapshot validation;
+    private final HistogramSnapshot payment;
+    private final HistogramSnapshot reservation;
+
+    MetricsSnapshot(final long timestampMillis, final long[] outcomeCounts, final HistogramSnapshot validation,
+                    final HistogramSnapshot payment, final HistogramSnapshot reservation) {
+        this.timestampMillis = timestampMillis;
+        this.outcomeCounts = outcomeCounts;
+        this.validation = validation;
+        this.payment = payment;
+        this.reservation = reservation;
+    }
+
+    public long getTimestampMillis() {
+        return timestampMillis;
+    }
+
+    /**
+     * Get the number of purchases with an outcome.
+     *
+     * @param  status The purchase outcome
+     * @return The number of purchases
+     */
+    public long getCount(final PurchaseResult.Status status) {
+        return outcomeCounts[status.ordinal()];
+    }
+
+    /**
+     * Get the number of purchases, whatever their outcome.
+     *
+     * @return The number of purchases
+     */
+    public long getTotalPurchases() {
+        long total = 0;
+        for (final long count : outcomeCounts) {
+            total += count;
+        }
+        return total;
+    }
+
+    public HistogramSnapshot getValidation() {
+        return validation;
+    }
+
+    public HistogramSnapshot getPayment() {
+        return payment;
+    }
+
+    public HistogramSnapshot getReservation() {
+        return reservation;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder builder = new StringBuilder("MetricsSnapshot{timestamp=").append(timestampMillis);
+        for (final PurchaseResult.Status status : PurchaseResult.Status.values()) {
+            builder.append(", ").append(status).append('=').append(getCount(status));
+        }
+        return builder.append(", validation=").append(validation)
+                .append(", payment=").append(payment)
+                .append(", reservation=").append(reservation)
+                .append('}').toString();
+    }
+}
@@ -0,0 +1,171 @@
+package uk.gov.dwp.uc.pairtest.metrics;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+import uk.gov.dwp.uc.pairtest.domain.PurchaseResult;
+
+/**
+ * Records the outcome of each purchase and the latency of validation, payment and seat reservation.
+ * <p>
+ * Outcomes are counted per {@link PurchaseResult.Status}, so each kind of rejected purchase has its own count.
+ * Counters are {@link LongAdder}s and latencies are kept in {@link LatencyHistogram}s, recording never takes a lock.
+ * Every outcome is counted, but the steps of only one purchase in each sample interval are timed:
+ * a clock read costs twice a whole purchase against fast gateways, so timing every purchase would
+ * multiply the cost of the hot path. A disabled instance records nothing, does not read the clock
+ * and holds no histograms.
+ * </p>
+ */
+public class PurchaseMetrics {
+
+    /**
+     * The default sample interval, the steps of one purchase in 256 are timed.
+     */
+    public static final int DEFAULT_SAMPLE_INTERVAL = 256;
+
+    /**
+     * The start time of a step that is not timed.
+     */
+    private static final long NOT_TIMED = 0;
+
+    private static final int STATUSES = PurchaseResult.Status.values().length;
+
+    private static final PurchaseMetrics DISABLED = new PurchaseMetrics(false, 1);
+
+    private final boolean enabled;
+    private final int sampleInterval;
+    private final LongAdder[] outcomes;
+    private final LatencyHistogram validation;
+    private final LatencyHistogram payment;
+    private final LatencyHistogram reservation;
+
+    /**
+     * The default constructor timing one purchase in {@value #DEFAULT_SAMPLE_INTERVAL}.
+     */
+    public PurchaseMetrics() {
+        this(DEFAULT_SAMPLE_INTERVAL);
+    }
+
+    /**
+     * Constructor with the share of purchases whose steps are timed.
+     *
+     * @param  sampleInterval One purchase in this many is timed, 1 to time every purchase
+     */
+    public PurchaseMetrics(final int sampleInterval) {
+        this(true, sampleInterval);
+    }
+
+    private PurchaseMetrics(final boolean enabled, final int sampleInterval) {
+        if (sampleInterval < 1) {
+            throw new IllegalArgumentException("Invalid sample interval: " + sampleInterval);
+        }
+        this.enabled = enabled;
+        this.sampleInterval = sampleInterval;
+        if (enabled) {
+            outcomes = new LongAdder[STATUSES];
+            for (int i = 0; i < outcomes.length; i++) {
+                outcomes[i] = new LongAdder();
+            }
+            validation = new LatencyHistogram();
+            payment = new LatencyHistogram();
+            reservation = new LatencyHistogram();
+        } else {
+            outcomes = null;
+            validation = null;
+            payment = null;
+            reservation = null;
+        }
+    }
+
+    /**
+     * Get the shared instance that records nothing.
+     *
+     * @return The disabled metrics
+     */
+    public static PurchaseMetrics disabled() {
+        return DISABLED;
+    }
+
+    /**
+     * Start timing the first step of a purchase, if the purchase is sampled.
+     * The later steps of the purchase are timed only when this returns a start time.
+     *
+     * @return The start time in nanoseconds, zero if the purchase is not timed
+     */
+    public long startTimer() {
+        if (!enabled || (sampleInterval > 1 && ThreadLocalRandom.current().nextInt(sampleInterval) != 0)) {
+            return NOT_TIMED;
+        }
+        final long now = System.nanoTime();
+        // A clock reading of zero would be taken for an untimed purchase.
+        return now == NOT_TIMED ? 1 : now;
+    }
+
+    /**
+     * Record the latency of validating a purchase.
+     *
+     * @param  startNanos The time returned when the step started, zero if the purchase is not timed
+     * @return The end time, to start timing the next step without reading the clock again, or zero
+     */
+    public long recordValidation(final long startNanos) {
+        return record(validation, startNanos);
+    }
+
+    /**
+     * Record the latency of the payment.
+     *
+     * @param  startNanos The time returned when the step started, zero if the purchase is not timed
+     * @return The end time, to start timing the next step without reading the clock again, or zero
+     */
+    public long recordPayment(final long startNanos) {
+        return record(payment, startNanos);
+    }
+
+    /**
+     * Record the latency of the seat reservation.
+     *
+     * @param  startNanos The time returned when the step started, zero if the purchase is not timed
+     * @return The end time, to start timing the next step without reading the clock again, or zero
+     */
+    public long recordReservation(final long startNanos) {
+        return record(reservation, startNanos);
+    }
+
+    private long record(final LatencyHistogram histogram, final long startNanos) {
+        if (startNanos == NOT_TIMED) {
+            return NOT_TIMED;
+        }
+        final long now = System.nanoTime();
+        histogram.record(now - startNanos);
+        return now;
+    }
+
+    /**
+     * Count the outcome of a purchase.
+     *
+     * @param  status The purchase outcome
+     */
+    public void recordOutcome(final PurchaseResult.Status status) {
+        if (enabled) {
+            outcomes[status.ordinal()].increment();
+        }
+    }
+
+    /**
+     * Take a snapshot of the metrics for scraping.
+     *
+     * @return The snapshot
+     */
+    public MetricsSnapshot snapshot() {
+        final long[] outcomeCounts = new long[STATUSES];
+        if (!enabled) {
+            final HistogramSnapshot empty = LatencyHistogram.emptySnapshot();
+            return new MetricsSnapshot(System.currentTimeMillis(), outcomeCounts, empty, empty, empty);
+        }
+        for (int i = 0; i < outcomes.length; i++) {
+            outcomeCounts[i] = outcomes[i].sum();
+        }
+        return new MetricsSnapshot(System.currentTimeMillis(), outcomeCounts,
+                validation.snapshot(), payment.snapshot(), reservation.snapshot());
+    }
+}
@@ -0,0 +1,57 @@
+package uk.gov.dwp.uc.pairtest.payment;
+
+import thirdparty.paymentgateway.TicketPaymentService;
+
+/**
+ * A payment gateway which takes several payments in one call.
+ */
+public interface BatchPaymentGateway {
+
+    /**
+     * Take every payment of the batch.
+     * Individual payments are failed through {@link PaymentBatch#fail}, throwing fails the whole batch.
+     *
+     * @param  batch The payments to take
+     */
+    void makePayments(PaymentBatch batch);
+
+    /**
+     * Adapt a gateway which only takes single payments, charging each account of a batch once
+     * for the sum of its payments. A failed charge fails every payment of that account.
+     * A charge is split where the sum would overflow the amount the gateway takes.
+     * Accounts are matched by scanning the batch, which suits batches of up to a few hundred payments.
+     *
+     * @param  paymentService The single payment gateway
+     * @return The batch gateway
+     */
+    static BatchPaymentGateway perAccount(final TicketPaymentService paymentService) {
+        return batch -> {
+            final int size = batch.size();
+            final boolean[] charged = new boolean[size];
+            final int[] chargeIndexes = new int[size];
+            for (int first = 0; first < size; first++) {
+                if (charged[first]) {
+                    continue;
+                }
+                final long accountId = batch.getAccountId(first);
+                long totalAmount = 0;
+                int chargeCount = 0;
+                for (int index = first; index < size; index++) {
+                    if (!charged[index] && batch.getAccountId(index) == accountId
+                            && totalAmount + batch.getAmount(index) <= Integer.MAX_VALUE) {
+                        charged[index] = true;
+                        totalAmount += batch.getAmount(index);
+                        chargeIndexes[chargeCount++] = index;
+                    }
+                }
+                try {
+                    paymentService.makePayment(accountId, (int) totalAmount);
+                } catch (final RuntimeException e) {
+                    for (int i = 0; i < chargeCount; i++) {
+                        batch.fail(chargeIndexes[i], e);
+                    }
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,261 @@
+package uk.gov.dwp.uc.pairtest.payment;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import thirdparty.paymentgateway.TicketPaymentService;
+import uk.gov.dwp.uc.pairtest.async.AsyncTicketPaymentService;
+import uk.gov.dwp.uc.pairtest.exception.ServiceOverloadedException;
+import uk.gov.dwp.uc.pairtest.metrics.HistogramSnapshot;
+import uk.gov.dwp.uc.pairtest.metrics.LatencyHistogram;
+
+/**
+ * Queues payments and flushes them to a {@link BatchPaymentGateway} in batches,
+ * so the per-call latency and charge of the gateway is paid once per batch rather than once per purchase.
+ * <p>
+ * A batch is flushed once it holds {@code maxBatchSize} payments, or {@code maxDelay} after its first payment
+ * was taken from the queue, whichever comes first. A larger batch saves more gateway calls,
+ * a longer delay fills batches under light load at the cost of adding up to that delay to every payment.
+ * </p>
+ * <p>
+ * Payments are flushed by a single thread, one batch at a time, and completed on that thread.
+ * Callers chaining slow work on the returned future should use the async variants of its methods.
+ * When {@code queueCapacity} payments are waiting, further payments are refused with a
+ * {@link ServiceOverloadedException}, so a purchase is rejected as overloaded before any payment is taken.
+ * </p>
+ */
+public class BatchingTicketPaymentService implements TicketPaymentService, Closeable {
+
+    final static Logger log =
+            LoggerFactory.getLogger(BatchingTicketPaymentService.class);
+
+    private final BatchPaymentGateway gateway;
+    private final int maxBatchSize;
+    private final long maxDelayNanos;
+    private final BlockingQueue<Payment> queue;
+    private final Thread flusher;
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder payments = new LongAdder();
+    private final LatencyHistogram flushLatency = new LatencyHistogram();
+    private volatile boolean closed;
+
+    /**
+     * The constructor which adapts a single payment gateway, charging each account once per batch.
+     *
+     * @param  paymentService The single payment gateway
+     * @param  maxBatchSize   The number of payments which flushes a batch straight away
+     * @param  maxDelay       The longest time a batch waits to fill
+     * @param  unit           The unit of the delay
+     * @param  queueCapacity  The number of payments which may wait to be flushed
+     */
+    public BatchingTicketPaymentService(final TicketPaymentService paymentService, final int maxBatchSize,
+                                        final long maxDelay, final TimeUnit unit, final int queueCapacity) {
+        this(BatchPaymentGateway.perAccount(paymentService), maxBatchSize, maxDelay, unit, queueCapacity);
+    }
+
+    /**
+     * The constructor which initializes the batch gateway and the flush tuning.
+     *
+     * @param  gateway       The batch payment gateway
+     * @param  maxBatchSize  The number of payments which flushes a batch straight away
+     * @param  maxDelay      The longest time a batch waits to fill
+     * @param  unit          The unit of the delay
+     * @param  queueCapacity The number of payments which may wait to be flushed
+     */
+    public BatchingTicketPaymentService(final BatchPaymentGateway gateway, final int maxBatchSize,
+                                        final long maxDelay, final TimeUnit unit, final int queueCapacity) {
+        if (maxBatchSize < 1 || queueCapacity < 1 || maxDelay < 0) {
+            throw new IllegalArgumentException("Batch size and queue capacity must be positive, delay not negative");
+        }
+        this.gateway = gateway;
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelayNanos = unit.toNanos(maxDelay);
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.flusher = new Thread(this::flushLoop, "payment-batch-flusher");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    /**
+     * Take a payment, blocking until its batch is flushed.
+     *
+     * @throws ServiceOverloadedException If the queue is full or the service is closed
+     */
+    @Override
+    public void makePayment(final long accountId, final int totalAmountToPay) {
+        try {
+            submit(accountId, totalAmountToPay).join();
+        } catch (final CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Get a non-blocking view which queues each payment for the next batch.
+     * Its makePayment throws a {@link ServiceOverloadedException} if the queue is full or the service is closed,
+     * and its future completes with one if the service is closed before the payment is flushed.
+     *
+     * @return The async payment service
+     */
+    public AsyncTicketPaymentService asAsync() {
+        return this::submit;
+    }
+
+    /**
+     * Get the number of batches flushed to the gateway.
+     *
+     * @return The number of batches
+     */
+    public long getBatchCount() {
+        return batches.sum();
+    }
+
+    /**
+     * Get the number of payments flushed to the gateway.
+     *
+     * @return The number of payments
+     */
+    public long getPaymentCount() {
+        return payments.sum();
+    }
+
+    /**
+     * Get the time spent in each gateway call, to tune the batch size and delay against.
+     *
+     * @return The flush latency histogram
+     */
+    public HistogramSnapshot getFlushLatency() {
+        return flushLatency.snapshot();
+    }
+
+    /**
+     * Flush the payments already queued and stop the flusher. Later payments are refused.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            flusher.join();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        refuseQueued();
+    }
+
+    private CompletableFuture<Void> submit(final long accountId, final int totalAmountToPay) {
+        final Payment payment = new Payment(accountId, totalAmountToPay);
+        if (closed || !queue.offer(payment)) {
+            throw ServiceOverloadedException.stackless();
+        }
+        if (closed && queue.remove(payment)) {
+            throw ServiceOverloadedException.stackless();
+        }
+        return payment.future;
+    }
+
+    private void refuseQueued() {
+        Payment payment;
+        while ((payment = queue.poll()) != null) {
+            payment.future.completeExceptionally(ServiceOverloadedException.stackless());
+        }
+    }
+
+    private void flushLoop() {
+        final List<Payment> pending = new ArrayList<>(maxBatchSize);
+        final PaymentBatch batch = new PaymentBatch(maxBatchSize);
+        while (!closed || !queue.isEmpty()) {
+            try {
+                final Payment first = queue.poll(10, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                pending.add(first);
+                final long deadline = System.nanoTime() + maxDelayNanos;
+                while (pending.size() < maxBatchSize) {
+                    if (queue.drainTo(pending, maxBatchSize - pending.size()) > 0) {
+                        continue;
+                    }
+                    final long remaining = deadline - System.nanoTime();
+                    final Payment next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+                    if (next == null) {
+                        break;
+                    }
+                    pending.add(next);
+                }
+            } catch (final InterruptedException e) {
+                log.error("Payment batch flusher interrupted, flushing queued payments.", e);
+                closed = true;
+            }
+            if (!pending.isEmpty()) {
+                try {
+                    flush(pending, batch);
+                } catch (final Error e) {
+                    // The flusher is lost, so no queued payment would ever be flushed.
+                    closed = true;
+                    refuseQueued();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private void flush(final List<Payment> pending, final PaymentBatch batch) {
+        for (final Payment payment : pending) {
+            batch.add(payment.accountId, payment.amount);
+        }
+        final long start = System.nanoTime();
+        Error error = null;
+        try {
+            gateway.makePayments(batch);
+        } catch (final Throwable e) {
+            log.error("Error while flushing payment batch.", e);
+            batch.failAll(e);
+            if (e instanceof Error) {
+                error = (Error) e;
+            }
+        }
+        flushLatency.record(System.nanoTime() - start);
+        batches.increment();
+        payments.add(pending.size());
+
+        for (int index = 0; index < pending.size(); index++) {
+            final Throwable failure = batch.getFailure(index);
+            if (failure == null) {
+                pending.get(index).future.complete(null);
+            } else {
+                pending.get(index).future.completeExceptionally(failure);
+            }
+        }
+        log.debug("Flushed batch of {} payments.", pending.size());
+        pending.clear();
+        batch.clear();
+        if (error != null) {
+            // Rethrown once every caller of the batch is failed, so none waits on a dead flusher.
+            throw error;
+        }
+    }
+
+    private static final class Payment {
+        private final long accountId;
+        private final int amount;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        private Payment(final long accountId, final int amount) {
+            this.accountId = accountId;
+            this.amount = amount;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package uk.gov.dwp.uc.pairtest.payment;
+
+import java.util.Arrays;
+
+/**
+ * The payments flushed together to a {@link BatchPaymentGateway}.
+ * <p>
+ * The batch is reused for every flush, a gateway must not keep it after {@link BatchPaymentGateway#makePayments}
+ * returns. A payment the gateway does not {@link #fail} is taken to be paid.
+ * </p>
+ */
+public final class PaymentBatch {
+
+    private long[] accountIds;
+    private int[] amounts;
+    private Throwable[] failures;
+    private int size;
+
+    PaymentBatch(final int capacity) {
+        this.accountIds = new long[capacity];
+        this.amounts = new int[capacity];
+        this.failures = new Throwable[capacity];
+    }
+
+    /**
+     * Get the number of payments in the batch.
+     *
+     * @return The number of payments
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get the account of a payment.
+     *
+     * @param  index The payment index, from 0 to size - 1
+     * @return The Account ID
+     */
+    public long getAccountId(final int index) {
+        return accountIds[checkIndex(index)];
+    }
+
+    /**
+     * Get the amount of a payment.
+     *
+     * @param  index The payment index, from 0 to size - 1
+     * @return The amount to pay
+     */
+    public int getAmount(final int index) {
+        return amounts[checkIndex(index)];
+    }
+
+    /**
+     * Fail a payment, the caller waiting on it receives the failure.
+     *
+     * @param  index The payment index, from 0 to size - 1
+     * @param  cause The failure
+     */
+    public void fail(final int index, final Throwable cause) {
+        failures[checkIndex(index)] = cause;
+    }
+
+    /**
+     * Fail every payment not already failed.
+     *
+     * @param  cause The failure
+     */
+    public void failAll(final Throwable cause) {
+        for (int index = 0; index < size; index++) {
+            if (failures[index] == null) {
+                failures[index] = cause;
+            }
+        }
+    }
+
+    Throwable getFailure(final int index) {
+        return failures[index];
+    }
+
+    void add(final long accountId, final int amount) {
+        if (size == accountIds.length) {
+            accountIds = Arrays.copyOf(accountIds, size * 2);
+            amounts = Arrays.copyOf(amounts, size * 2);
+            failures = Arrays.copyOf(failures, size * 2);
+        }
+        accountIds[size] = accountId;
+        amounts[size] = amount;
+        size++;
+    }
+
+    void clear() {
+        Arrays.fill(failures, 0, size, null);
+        size = 0;
+    }
+
+    private int checkIndex(final int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Payment index " + index + " out of batch of " + size);
+        }
+        return index;
+    }
+}
@@ -0,0 +1,35 @@
+package uk.gov.dwp.uc.pairtest.pipeline;
+
+import java.nio.ByteBuffer;
+
+import uk.gov.dwp.uc.pairtest.codec.PurchaseMessage;
+import uk.gov.dwp.uc.pairtest.domain.PurchaseResult;
+import uk.gov.dwp.uc.pairtest.engine.PurchaseEvaluation;
+
+/**
+ * A preallocated slot of the pipeline ring buffer, reused for every purchase passing through it.
+ * <p>
+ * Each field is written by one stage only while the stage holds the slot, and read by later stages
+ * once the stage sequence is published, so the fields need no synchronisation of their own.
+ * </p>
+ */
+final class PurchaseEvent {
+
+    final byte[] bytes;
+    final ByteBuffer buffer;
+    final PurchaseMessage message = new PurchaseMessage();
+    final PurchaseEvaluation evaluation = new PurchaseEvaluation();
+
+    long correlationId;
+    int length;
+    long accountId;
+    PurchaseResult.Status status;
+    int totalAmount;
+    int totalSeats;
+    int totalTickets;
+
+    PurchaseEvent(final int maxMessageLength) {
+        this.bytes = new byte[maxMessageLength];
+        this.buffer = ByteBuffer.wrap(bytes);
+    }
+}
@@ -0,0 +1,293 @@
+package uk.gov.dwp.uc.pairtest.pipeline;
+
+import java.io.Closeable;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import thirdparty.paymentgateway.TicketPaymentService;
+import thirdparty.seatbooking.SeatReservationService;
+import uk.gov.dwp.uc.pairtest.codec.PurchaseMessageEncoder;
+import uk.gov.dwp.uc.pairtest.domain.PurchaseResult;
+import uk.gov.dwp.uc.pairtest.engine.PurchaseValidator;
+import uk.gov.dwp.uc.pairtest.exception.ServiceOverloadedException;
+import uk.gov.dwp.uc.pairtest.seating.SeatAvailability;
+
+/**
+ * Processes a stream of encoded purchase messages through staged threads over a preallocated ring buffer.
+ * <p>
+ * Purchases pass through the stages decode, validate, price, pay, reserve and publish in order.
+ * Each stage runs on its own thread, follows the sequence of the stage before it and publishes its own sequence,
+ * so a stage handles every purchase available to it as one batch and never waits on a lock.
+ * The publisher may only reuse a slot once the last stage has passed it: a full ring refuses
+ * {@link #tryPublish} and blocks {@link #publish}, pushing back on the source of purchases.
+ * </p>
+ * <p>
+ * The rules are applied by the same {@link PurchaseValidator} as the Ticket service, and the amount paid is the
+ * evaluated total in whole pounds, as in the Ticket service. As in the Ticket service, a purchase that cannot be
+ * seated is rejected before its payment, and a purchase refused before its payment gives back the allowance of
+ * its account. A single thread must publish, e.g. the queue consumer.
+ * </p>
+ */
+public class PurchasePipeline implements Closeable {
+
+    final static Logger log =
+            LoggerFactory.getLogger(PurchasePipeline.class);
+
+    /**
+     * Longs per cache line, sequences are spaced by this stride to avoid false sharing.
+     */
+    private static final int STRIDE = 8;
+
+    private static final int DECODE = 0;
+    private static final int VALIDATE = 1;
+    private static final int PRICE = 2;
+    private static final int PAY = 3;
+    private static final int RESERVE = 4;
+    private static final int PUBLISH = 5;
+    private static final String[] STAGE_NAMES = {"decode", "validate", "price", "pay", "reserve", "publish"};
+
+    /**
+     * Index of the publisher sequence, the stage sequences follow it.
+     */
+    private static final int CURSOR = 0;
+
+    private static final int SPINS_BEFORE_PARKING = 1_000;
+
+    private final PurchaseEvent[] ring;
+    private final int mask;
+    private final int maxMessageLength;
+    private final AtomicLongArray sequences = new AtomicLongArray((STAGE_NAMES.length + 1) * STRIDE);
+    private final PurchaseValidator validator;
+    private final TicketPaymentService paymentService;
+    private final SeatReservationService reservationService;
+    private final SeatAvailability seatAvailability;
+    private final PurchaseResultHandler resultHandler;
+    private final boolean busySpin;
+    private final Thread[] stages = new Thread[STAGE_NAMES.length];
+
+    private long nextSequence;
+    private long cachedLastStageSequence = -1;
+    private volatile boolean closing;
+    private volatile boolean halted;
+
+    /**
+     * The constructor which initializes the ring, the services and starts the stage threads.
+     *
+     * @param  capacity           The number of slots of the ring, a power of two
+     * @param  maxLineItems       The largest number of line items in a message
+     * @param  validator          The purchase rules
+     * @param  paymentService     The payment service, called from the pay stage
+     * @param  reservationService The seat reservation service, called from the reserve stage
+     * @param  resultHandler      Receives the result of each purchase
+     * @param  busySpin           Whether idle stages spin rather than park, for stages pinned to dedicated cores
+     */
+    public PurchasePipeline(final int capacity, final int maxLineItems, final PurchaseValidator validator,
+                            final TicketPaymentService paymentService,
+                            final SeatReservationService reservationService,
+                            final PurchaseResultHandler resultHandler, final boolean busySpin) {
+        if (capacity < 1 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two");
+        }
+        this.ring = new PurchaseEvent[capacity];
+        this.mask = capacity - 1;
+        this.maxMessageLength = PurchaseMessageEncoder.encodedLength(maxLineItems);
+        for (int slot = 0; slot < capacity; slot++) {
+            ring[slot] = new PurchaseEvent(maxMessageLength);
+        }
+        for (int sequence = 0; sequence <= STAGE_NAMES.length; sequence++) {
+            sequences.set(sequence * STRIDE, -1);
+        }
+        this.validator = validator;
+        this.paymentService = paymentService;
+        this.reservationService = reservationService;
+        this.seatAvailability = SeatAvailability.of(reservationService);
+        this.resultHandler = resultHandler;
+        this.busySpin = busySpin;
+
+        for (int stage = 0; stage < STAGE_NAMES.length; stage++) {
+            final int stageIndex = stage;
+            stages[stage] = new Thread(() -> runStage(stageIndex), "purchase-pipeline-" + STAGE_NAMES[stage]);
+            stages[stage].setDaemon(true);
+            stages[stage].start();
+        }
+    }
+
+    /**
+     * Publish a purchase if the ring has a free slot.
+     *
+     * @param  correlationId The id passed back with the result
+     * @param  message       The buffer holding the encoded purchase message
+     * @param  offset        The offset of the message in the buffer
+     * @param  length        The length of the message
+     * @return True if the purchase is published, false if the ring is full
+     */
+    public boolean tryPublish(final long correlationId, final ByteBuffer message, final int offset, final int length) {
+        if (closing) {
+            throw new IllegalStateException("Purchase pipeline is closed");
+        }
+        final long sequence = nextSequence;
+        final long wrapPoint = sequence - ring.length;
+        if (wrapPoint > cachedLastStageSequence) {
+            cachedLastStageSequence = sequences.get(stageSequence(PUBLISH));
+            if (wrapPoint > cachedLastStageSequence) {
+                return false;
+            }
+        }
+
+        final PurchaseEvent event = ring[(int) (sequence & mask)];
+        event.correlationId = correlationId;
+        if (length < 0 || length > maxMessageLength) {
+            // Too long for a slot, the decode stage rejects the empty message.
+            event.length = 0;
+        } else {
+            for (int index = 0; index < length; index++) {
+                event.bytes[index] = message.get(offset + index);
+            }
+            event.length = length;
+        }
+        nextSequence = sequence + 1;
+        sequences.lazySet(CURSOR, sequence);
+        return true;
+    }
+
+    /**
+     * Publish a purchase, waiting for a free slot while the ring is full.
+     *
+     * @param  correlationId The id passed back with the result
+     * @param  message       The buffer holding the encoded purchase message
+     * @param  offset        The offset of the message in the buffer
+     * @param  length        The length of the message
+     */
+    public void publish(final long correlationId, final ByteBuffer message, final int offset, final int length) {
+        int idle = 0;
+        while (!tryPublish(correlationId, message, offset, length)) {
+            idle = idle(idle);
+        }
+    }
+
+    /**
+     * Wait for every published purchase to be processed, then stop the stage threads.
+     * Called from the publishing thread once it has published its last purchase.
+     */
+    @Override
+    public void close() {
+        closing = true;
+        final long last = nextSequence - 1;
+        int idle = 0;
+        while (sequences.get(stageSequence(PUBLISH)) < last) {
+            idle = idle(idle);
+        }
+        halted = true;
+        for (final Thread stage : stages) {
+            try {
+                stage.join();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void runStage(final int stage) {
+        final int upstream = stage == DECODE ? CURSOR : stageSequence(stage - 1);
+        final int own = stageSequence(stage);
+        long next = 0;
+        int idle = 0;
+        while (!halted) {
+            final long available = sequences.get(upstream);
+            if (available < next) {
+                idle = idle(idle);
+                continue;
+            }
+            idle = 0;
+            for (long sequence = next; sequence <= available; sequence++) {
+                final PurchaseEvent event = ring[(int) (sequence & mask)];
+                try {
+                    handle(stage, event);
+                } catch (final RuntimeException e) {
+                    log.error("Error in purchase pipeline stage {}.", STAGE_NAMES[stage], e);
+                    event.status = PurchaseResult.Status.BOOKING_FAILED;
+                }
+            }
+            sequences.lazySet(own, available);
+            next = available + 1;
+        }
+    }
+
+    private void handle(final int stage, final PurchaseEvent event) {
+        switch (stage) {
+            case DECODE:
+                event.totalAmount = 0;
+                event.totalSeats = 0;
+                event.totalTickets = 0;
+                event.status = event.message.wrap(event.buffer.limit(event.length), 0)
+                        ? PurchaseResult.Status.CONFIRMED
+                        : PurchaseResult.Status.INVALID_PURCHASE;
+                break;
+            case VALIDATE:
+                if (event.status == PurchaseResult.Status.CONFIRMED) {
+                    event.accountId = event.message.accountId();
+                    event.status = validator.validate(event.accountId, event.message, event.evaluation);
+                }
+                break;
+            case PRICE:
+                if (event.status == PurchaseResult.Status.CONFIRMED) {
+                    event.totalAmount = event.evaluation.totalAmountInPounds();
+                    event.totalSeats = event.evaluation.totalSeats();
+                    event.totalTickets = event.evaluation.totalTickets();
+                }
+                break;
+            case PAY:
+                if (event.status == PurchaseResult.Status.CONFIRMED) {
+                    if (!seatAvailability.canSeat(event.totalSeats)) {
+                        // Sold out, no point taking a payment for seats that cannot be reserved.
+                        validator.release(event.accountId, event.totalTickets);
+                        event.status = PurchaseResult.Status.SEATS_UNAVAILABLE;
+                        break;
+                    }
+                    try {
+                        paymentService.makePayment(event.accountId, event.totalAmount);
+                    } catch (final ServiceOverloadedException e) {
+                        // The payment was shed before reaching the gateway, nothing is charged.
+                        validator.release(event.accountId, event.totalTickets);
+                        event.status = PurchaseResult.Status.OVERLOADED;
+                    } catch (final RuntimeException e) {
+                        log.error("Error while finalizing booking.", e);
+                        event.status = PurchaseResult.Status.BOOKING_FAILED;
+                    }
+                }
+                break;
+            case RESERVE:
+                if (event.status == PurchaseResult.Status.CONFIRMED) {
+                    try {
+                        reservationService.reserveSeat(event.accountId, event.totalSeats);
+                    } catch (final RuntimeException e) {
+                        log.error("Error while finalizing booking.", e);
+                        event.status = PurchaseResult.Status.BOOKING_FAILED;
+                    }
+                }
+                break;
+            default:
+                final boolean confirmed = event.status == PurchaseResult.Status.CONFIRMED;
+                resultHandler.onResult(event.correlationId, event.status,
+                        confirmed ? event.totalAmount : 0, confirmed ? event.totalSeats : 0);
+        }
+    }
+
+    private int idle(final int idle) {
+        if (busySpin || idle < SPINS_BEFORE_PARKING) {
+            Thread.onSpinWait();
+            return idle + 1;
+        }
+        LockSupport.parkNanos(1_000);
+        return idle;
+    }
+
+    private static int stageSequence(final int stage) {
+        return (stage + 1) * STRIDE;
+    }
+}
@@ -0,0 +1,23 @@
+package uk.gov.dwp.uc.pairtest.pipeline;
+
+import uk.gov.dwp.uc.pairtest.domain.PurchaseResult;
+
+/**
+ * Receives the result of each purchase processed by the {@link PurchasePipeline}, in the order they were published.
+ * <p>
+ * Called on the publishing stage thread, a slow handler holds back the whole pipeline.
+ * </p>
+ */
+@FunctionalInterface
+public interface PurchaseResultHandler {
+
+    /**
+     * A purchase is processed.
+     *
+     * @param  correlationId The id the purchase was published with
+     * @param  status        CONFIRMED if the booking is complete, otherwise the reason it is rejected or failed
+     * @param  totalAmount   The amount paid, zero unless confirmed
+     * @param  totalSeats    The number of seats reserved, zero unless confirmed
+     */
+    void onResult(long correlationId, PurchaseResult.Status status, int totalAmount, int totalSeats);
+}
@@ -0,0 +1,81 @@
+package uk.gov.dwp.uc.pairtest.reconcile;
+
+import java.util.Objects;
+
+/**
+ * Immutable Object
+ * <p>
+ * A payment without a seat reservation, or a seat reservation without a payment, found by reconciliation.
+ * </p>
+ */
+public final class Mismatch {
+
+    public enum Type {
+        /**
+         * The payment of a booking has no seat reservation, the seats should be reserved again.
+         */
+        PAID_NOT_RESERVED,
+        /**
+         * The seat reservation of a booking has no payment.
+         */
+        RESERVED_NOT_PAID
+    }
+
+    private final Type type;
+    private final long bookingId;
+    private final long accountId;
+    private final int value;
+
+    public Mismatch(final Type type, final long bookingId, final long accountId, final int value) {
+        this.type = type;
+        this.bookingId = bookingId;
+        this.accountId = accountId;
+        this.value = value;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public long getBookingId() {
+        return bookingId;
+    }
+
+    public long getAccountId() {
+        return accountId;
+    }
+
+    /**
+     * Get the value of the unmatched record.
+     *
+     * @return The amount paid in pounds, or the seats reserved
+     */
+    public int getValue() {
+        return value;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Mismatch)) {
+            return false;
+        }
+        final Mismatch that = (Mismatch) o;
+        return bookingId == that.bookingId && accountId == that.accountId && value == that.value && type == that.type;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(type, bookingId, accountId, value);
+    }
+
+    /**
+     * The mismatch as a CSV line, <code>type,bookingId,accountId,value</code>.
+     */
+    @Override
+    public String toString() {
+        return type + "," + bookingId + "," + accountId + "," + value;
+    }
+}
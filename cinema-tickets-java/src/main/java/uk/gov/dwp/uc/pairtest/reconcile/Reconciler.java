@@ -0,0 +1,527 @@
+package uk.gov.dwp.uc.pairtest.reconcile;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reconciles the payments taken against the seats reserved, finding the bookings paid but not reserved,
+ * e.g. after a seat reservation failed once the payment was taken, and the bookings reserved but not paid.
+ * <p>
+ * The payment and reservation records are joined by booking id and Account ID with a partitioned hash join,
+ * so memory stays bounded whatever the size of the inputs:
+ * </p>
+ * <ol>
+ *   <li>Each input is read in splits through memory mappings, one split per task across all the threads,
+ *       and every record is written to the partition file of its key.</li>
+ *   <li>The partitions are joined in parallel, one per task. The payments of a partition are loaded into
+ *       a table of primitive arrays and the reservations of the partition probe it. A partition whose payments
+ *       would not fit in the partition memory is partitioned again first.</li>
+ * </ol>
+ * <p>
+ * No record crosses from one task to another other than through the partition files, so the run scales with
+ * the threads until the disk is the limit. A payment matches one reservation of the same booking and account,
+ * a booking paid twice and reserved once is reported once as paid but not reserved.
+ * The mismatch consumer is called from every thread and must be thread-safe.
+ * </p>
+ */
+public class Reconciler {
+
+    final static Logger log =
+            LoggerFactory.getLogger(Reconciler.class);
+
+    /**
+     * The default memory for the table of one partition, per thread.
+     */
+    public static final long DEFAULT_PARTITION_MEMORY = 64L << 20;
+
+    private static final int DEFAULT_SPLIT_BYTES = 64 << 20;
+    private static final int RECORD_SIZE = RecordFormat.BINARY_RECORD_SIZE;
+    private static final int MAX_PARTITIONS = 256;
+    private static final int MAX_PARTITION_LEVELS = 3;
+    private static final int MIN_CSV_RECORD_BYTES = 6;
+    private static final int SPILL_BUFFER_BYTES = 204 * RECORD_SIZE;
+
+    /**
+     * The table memory of one payment, two slots of a booking id, an Account ID, a value, a count and a match count.
+     */
+    private static final int TABLE_BYTES_PER_RECORD = 2 * (8 + 8 + 4 + 4 + 4);
+
+    private final Path workDirectory;
+    private final int threads;
+    private final long partitionMemoryBytes;
+    private final int splitBytes;
+
+    /**
+     * The constructor using every processor and the default partition memory.
+     *
+     * @param  workDirectory The directory for the partition files, removed after each run
+     */
+    public Reconciler(final Path workDirectory) {
+        this(workDirectory, Runtime.getRuntime().availableProcessors(), DEFAULT_PARTITION_MEMORY);
+    }
+
+    /**
+     * The constructor which initializes the threads and the memory of each thread.
+     *
+     * @param  workDirectory        The directory for the partition files, removed after each run
+     * @param  threads              The number of threads reading and joining the records
+     * @param  partitionMemoryBytes The memory for the table of one partition
+     */
+    public Reconciler(final Path workDirectory, final int threads, final long partitionMemoryBytes) {
+        this(workDirectory, threads, partitionMemoryBytes, DEFAULT_SPLIT_BYTES);
+    }
+
+    Reconciler(final Path workDirectory, final int threads, final long partitionMemoryBytes, final int splitBytes) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Invalid reconciliation threads: " + threads);
+        }
+        if (partitionMemoryBytes < TABLE_BYTES_PER_RECORD) {
+            throw new IllegalArgumentException("Invalid partition memory: " + partitionMemoryBytes);
+        }
+        if (splitBytes < RecordFormat.MAX_CSV_LINE + RECORD_SIZE) {
+            throw new IllegalArgumentException("Invalid split size: " + splitBytes);
+        }
+        this.workDirectory = workDirectory;
+        this.threads = threads;
+        this.partitionMemoryBytes = partitionMemoryBytes;
+        // Binary splits end on a record boundary.
+        this.splitBytes = splitBytes - splitBytes % RECORD_SIZE;
+    }
+
+    /**
+     * Print the mismatches of a payment and a reservation record file as CSV, the totals to standard error.
+     */
+    public static void main(final String[] args) throws IOException {
+        if (args.length < 2 || args.length > 3) {
+            System.err.println("Usage: Reconciler <payments file> <reservations file> [<mismatches file>]");
+            System.exit(2);
+        }
+        final Reconciler reconciler = new Reconciler(Paths.get(System.getProperty("java.io.tmpdir")));
+        final PrintStream out = args.length == 3
+                ? new PrintStream(new BufferedOutputStream(Files.newOutputStream(Paths.get(args[2]))), false, "UTF-8")
+                : System.out;
+        final ReconciliationReport report;
+        try {
+            report = reconciler.reconcile(Paths.get(args[0]), Paths.get(args[1]), out::println);
+        } finally {
+            out.flush();
+            if (out != System.out) {
+                out.close();
+            }
+        }
+        if (out.checkError()) {
+            throw new IOException("Unable to write the mismatches");
+        }
+        System.err.println(report);
+    }
+
+    /**
+     * Reconcile a payment record file against a reservation record file, each in the format of its name.
+     *
+     * @param  payments     The payment records, the value of each is the amount paid in pounds
+     * @param  reservations The reservation records, the value of each is the seats reserved
+     * @param  mismatches   Receives each mismatch, from any thread
+     * @return The totals of the run
+     * @throws IOException If a file cannot be read or a partition file cannot be written
+     */
+    public ReconciliationReport reconcile(final Path payments, final Path reservations,
+                                          final Consumer<Mismatch> mismatches) throws IOException {
+        final long start = System.nanoTime();
+        final int partitions = partitionCount(Files.size(payments), RecordFormat.of(payments));
+        final Totals totals = new Totals();
+        final Path runDirectory = Files.createTempDirectory(workDirectory, "reconcile-");
+        final AtomicInteger threadCount = new AtomicInteger();
+        final ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+            final Thread thread = new Thread(runnable, "reconcile-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            final Path[] paymentPartitions =
+                    partition(executor, payments, runDirectory.resolve("payments"), partitions, totals.paymentRecords,
+                            totals);
+            final Path[] reservationPartitions =
+                    partition(executor, reservations, runDirectory.resolve("reservations"), partitions,
+                            totals.reservationRecords, totals);
+
+            final List<Callable<Void>> joins = new ArrayList<>();
+            for (int partition = 0; partition < partitions; partition++) {
+                final Path paymentPartition = paymentPartitions[partition];
+                final Path reservationPartition = reservationPartitions[partition];
+                joins.add(() -> {
+                    join(paymentPartition, reservationPartition, 1, mismatches, totals);
+                    return null;
+                });
+            }
+            run(executor, joins);
+        } finally {
+            executor.shutdownNow();
+            delete(runDirectory);
+        }
+
+        final ReconciliationReport report = totals.report();
+        log.info("Reconciled {} payments against {} reservations in {} ms: {} paid not reserved, {} reserved not paid.",
+                report.getPaymentRecords(), report.getReservationRecords(), (System.nanoTime() - start) / 1_000_000,
+                report.getPaidNotReserved(), report.getReservedNotPaid());
+        return report;
+    }
+
+    /**
+     * Choose enough partitions for the payments of each to fit the partition memory, at least one per thread.
+     * A CSV record is assumed as short as it can be, so the payments are never underestimated.
+     */
+    private int partitionCount(final long paymentBytes, final RecordFormat format) {
+        final long records = paymentBytes / (format == RecordFormat.CSV ? MIN_CSV_RECORD_BYTES : RECORD_SIZE) + 1;
+        final long partitions = (records * TABLE_BYTES_PER_RECORD + partitionMemoryBytes - 1) / partitionMemoryBytes;
+        return (int) Math.min(MAX_PARTITIONS, Math.max(threads, partitions));
+    }
+
+    /**
+     * Write every record of an input to the partition file of its key, reading a split per task.
+     *
+     * @return The partition files
+     */
+    private Path[] partition(final ExecutorService executor, final Path input, final Path prefix, final int partitions,
+                             final LongAdder records, final Totals totals) throws IOException {
+        final RecordFormat format = RecordFormat.of(input);
+        final long size = Files.size(input);
+        try (FileChannel channel = FileChannel.open(input, StandardOpenOption.READ);
+             PartitionFiles out = new PartitionFiles(prefix, partitions)) {
+            final List<Callable<Void>> splits = new ArrayList<>();
+            for (long splitStart = 0; splitStart < size; splitStart += splitBytes) {
+                final long start = splitStart;
+                final long end = Math.min(size, splitStart + splitBytes);
+                splits.add(() -> {
+                    spill(channel, format, start, end, out, 0, records, totals.malformedRecords);
+                    return null;
+                });
+            }
+            run(executor, splits);
+            return out.files;
+        }
+    }
+
+    /**
+     * Write the records of one split to the partition files of their keys.
+     */
+    private static void spill(final FileChannel channel, final RecordFormat format, final long start, final long end,
+                              final PartitionFiles out, final int level, final LongAdder records,
+                              final LongAdder malformedRecords) throws IOException {
+        final ByteBuffer[] buffers = new ByteBuffer[out.files.length];
+        final long[] read = new long[1];
+        final long malformed = new RecordReader().read(channel, format, start, end, (bookingId, accountId, value) -> {
+            final int partition =
+                    (int) Long.remainderUnsigned(hash(bookingId, accountId, level + 1), buffers.length);
+            ByteBuffer buffer = buffers[partition];
+            if (buffer == null) {
+                buffer = ByteBuffer.allocate(SPILL_BUFFER_BYTES);
+                buffers[partition] = buffer;
+            }
+            buffer.putLong(bookingId).putLong(accountId).putInt(value);
+            if (!buffer.hasRemaining()) {
+                out.write(partition, buffer);
+            }
+            read[0]++;
+        });
+        for (int partition = 0; partition < buffers.length; partition++) {
+            if (buffers[partition] != null && buffers[partition].position() > 0) {
+                out.write(partition, buffers[partition]);
+            }
+        }
+        records.add(read[0]);
+        malformedRecords.add(malformed);
+    }
+
+    /**
+     * Join the payments and reservations of one partition, partitioning it again if its payments do not fit
+     * the partition memory. The partition files are deleted once joined.
+     */
+    private void join(final Path payments, final Path reservations, final int level,
+                      final Consumer<Mismatch> mismatches, final Totals totals) throws IOException {
+        final long paymentRecords = Files.size(payments) / RECORD_SIZE;
+        final long tableBytes = paymentRecords * TABLE_BYTES_PER_RECORD;
+        if (tableBytes > partitionMemoryBytes && level < MAX_PARTITION_LEVELS) {
+            final int partitions = (int) Math.min(MAX_PARTITIONS, tableBytes / partitionMemoryBytes + 1);
+            final Path[] paymentPartitions = repartition(payments, partitions, level);
+            final Path[] reservationPartitions = repartition(reservations, partitions, level);
+            for (int partition = 0; partition < partitions; partition++) {
+                join(paymentPartitions[partition], reservationPartitions[partition], level + 1, mismatches, totals);
+            }
+            return;
+        }
+
+        final BookingTable table = new BookingTable(paymentRecords);
+        forEachRecord(payments, table::add);
+        final long[] matched = new long[1];
+        forEachRecord(reservations, (bookingId, accountId, seats) -> {
+            if (table.match(bookingId, accountId)) {
+                matched[0]++;
+            } else {
+                totals.reservedNotPaid.increment();
+                mismatches.accept(new Mismatch(Mismatch.Type.RESERVED_NOT_PAID, bookingId, accountId, seats));
+            }
+        });
+        table.forEachUnmatched((bookingId, accountId, amount) -> {
+            totals.paidNotReserved.increment();
+            mismatches.accept(new Mismatch(Mismatch.Type.PAID_NOT_RESERVED, bookingId, accountId, amount));
+        });
+        totals.matchedBookings.add(matched[0]);
+        totals.partitions.increment();
+        Files.delete(payments);
+        Files.delete(reservations);
+    }
+
+    /**
+     * Partition a partition file again by the hash of the next level, deleting it once partitioned.
+     */
+    private Path[] repartition(final Path file, final int partitions, final int level) throws IOException {
+        // Partition files only hold well-formed records, already counted.
+        final LongAdder uncounted = new LongAdder();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+             PartitionFiles out = new PartitionFiles(Paths.get(file + "-"), partitions)) {
+            final long size = channel.size();
+            for (long start = 0; start < size; start += splitBytes) {
+                spill(channel, RecordFormat.BINARY, start, Math.min(size, start + splitBytes), out, level, uncounted,
+                        uncounted);
+            }
+            Files.delete(file);
+            return out.files;
+        }
+    }
+
+    private void forEachRecord(final Path file, final RecordReader.RecordSink sink) throws IOException {
+        final RecordReader reader = new RecordReader();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            for (long start = 0; start < size; start += splitBytes) {
+                reader.read(channel, RecordFormat.BINARY, start, Math.min(size, start + splitBytes), sink);
+            }
+        }
+    }
+
+    /**
+     * Hash a booking key, a different seed giving an independent hash for each partition level and the table.
+     */
+    static long hash(final long bookingId, final long accountId, final int seed) {
+        long h = bookingId * 0x9E3779B97F4A7C15L ^ accountId ^ seed * 0xC2B2AE3D27D4EB4FL;
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private static void run(final ExecutorService executor, final List<Callable<Void>> tasks) throws IOException {
+        final List<Future<Void>> futures;
+        try {
+            futures = executor.invokeAll(tasks);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Reconciliation interrupted");
+        }
+        for (final Future<Void> future : futures) {
+            try {
+                future.get();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Reconciliation interrupted");
+            } catch (final ExecutionException e) {
+                final Throwable cause = e.getCause();
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                }
+                if (cause instanceof UncheckedIOException) {
+                    throw ((UncheckedIOException) cause).getCause();
+                }
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                throw (Error) cause;
+            }
+        }
+    }
+
+    private static void delete(final Path directory) {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        } catch (final IOException e) {
+            log.warn("Unable to delete reconciliation work directory {}.", directory, e);
+        }
+    }
+
+    /**
+     * The partition files of one input, written to by every task of a split.
+     */
+    private static final class PartitionFiles implements Closeable {
+        private final Path[] files;
+        private final FileChannel[] channels;
+
+        private PartitionFiles(final Path prefix, final int partitions) throws IOException {
+            this.files = new Path[partitions];
+            this.channels = new FileChannel[partitions];
+            try {
+                for (int partition = 0; partition < partitions; partition++) {
+                    files[partition] = Paths.get(prefix + String.format("%03d", partition));
+                    channels[partition] = FileChannel.open(files[partition],
+                            StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+                }
+            } catch (final IOException e) {
+                close();
+                throw e;
+            }
+        }
+
+        /**
+         * Append a filled buffer to a partition file and clear it.
+         */
+        private void write(final int partition, final ByteBuffer buffer) {
+            buffer.flip();
+            final FileChannel channel = channels[partition];
+            try {
+                // Locked so the records of two tasks never interleave within a record.
+                synchronized (channel) {
+                    while (buffer.hasRemaining()) {
+                        channel.write(buffer);
+                    }
+                }
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            buffer.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            IOException failure = null;
+            for (final FileChannel channel : channels) {
+                if (channel == null) {
+                    continue;
+                }
+                try {
+                    channel.close();
+                } catch (final IOException e) {
+                    failure = e;
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+
+    /**
+     * The payments of one partition in open addressing primitive arrays, counting the payments of each key
+     * and the reservations matched to them.
+     */
+    private static final class BookingTable {
+        private final long[] bookingIds;
+        private final long[] accountIds;
+        private final int[] amounts;
+        private final int[] payments;
+        private final int[] matched;
+        private final int capacity;
+
+        private BookingTable(final long records) {
+            // Sized exactly rather than to a power of two, so the table keeps to the partition memory.
+            final long capacity = Math.max(1, records) * 2;
+            if (capacity > 1 << 30) {
+                throw new IllegalStateException("Reconciliation partition too large: " + records + " payments");
+            }
+            this.bookingIds = new long[(int) capacity];
+            this.accountIds = new long[(int) capacity];
+            this.amounts = new int[(int) capacity];
+            this.payments = new int[(int) capacity];
+            this.matched = new int[(int) capacity];
+            this.capacity = (int) capacity;
+        }
+
+        private void add(final long bookingId, final long accountId, final int amount) {
+            final int slot = slot(bookingId, accountId);
+            if (payments[slot] == 0) {
+                bookingIds[slot] = bookingId;
+                accountIds[slot] = accountId;
+                amounts[slot] = amount;
+            }
+            payments[slot]++;
+        }
+
+        /**
+         * Match a reservation to an unmatched payment of its key.
+         *
+         * @return False if the key has no unmatched payment
+         */
+        private boolean match(final long bookingId, final long accountId) {
+            final int slot = slot(bookingId, accountId);
+            if (matched[slot] == payments[slot]) {
+                return false;
+            }
+            matched[slot]++;
+            return true;
+        }
+
+        private void forEachUnmatched(final RecordReader.RecordSink sink) {
+            for (int slot = 0; slot < payments.length; slot++) {
+                for (int unmatched = payments[slot] - matched[slot]; unmatched > 0; unmatched--) {
+                    sink.accept(bookingIds[slot], accountIds[slot], amounts[slot]);
+                }
+            }
+        }
+
+        /**
+         * Find the slot of a key, or the empty slot it would take.
+         */
+        private int slot(final long bookingId, final long accountId) {
+            int slot = (int) (((hash(bookingId, accountId, 0) >>> 32) * capacity) >>> 32);
+            while (payments[slot] != 0 && (bookingIds[slot] != bookingId || accountIds[slot] != accountId)) {
+                if (++slot == capacity) {
+                    slot = 0;
+                }
+            }
+            return slot;
+        }
+    }
+
+    /**
+     * The totals of a run, added to by every task.
+     */
+    private static final class Totals {
+        private final LongAdder paymentRecords = new LongAdder();
+        private final LongAdder reservationRecords = new LongAdder();
+        private final LongAdder malformedRecords = new LongAdder();
+        private final LongAdder matchedBookings = new LongAdder();
+        private final LongAdder paidNotReserved = new LongAdder();
+        private final LongAdder reservedNotPaid = new LongAdder();
+        private final LongAdder partitions = new LongAdder();
+
+        private ReconciliationReport report() {
+            return new ReconciliationReport(paymentRecords.sum(), reservationRecords.sum(), malformedRecords.sum(),
+                    matchedBookings.sum(), paidNotReserved.sum(), reservedNotPaid.sum(), partitions.intValue());
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package uk.gov.dwp.uc.pairtest.reconcile;
+
+/**
+ * Immutable Object
+ * <p>
+ * The totals of a reconciliation run.
+ * </p>
+ */
+public final class ReconciliationReport {
+
+    private final long paymentRecords;
+    private final long reservationRecords;
+    private final long malformedRecords;
+    private final long matchedBookings;
+    private final long paidNotReserved;
+    private final long reservedNotPaid;
+    private final int partitions;
+
+    ReconciliationReport(final long paymentRecords, final long reservationRecords, final long malformedRecords,
+                         final long matchedBookings, final long paidNotReserved, final long reservedNotPaid,
+                         final int partitions) {
+        this.paymentRecords = paymentRecords;
+        this.reservationRecords = reservationRecords;
+        this.malformedRecords = malformedRecords;
+        this.matchedBookings = matchedBookings;
+        this.paidNotReserved = paidNotReserved;
+        this.reservedNotPaid = reservedNotPaid;
+        this.partitions = partitions;
+    }
+
+    public long getPaymentRecords() {
+        return paymentRecords;
+    }
+
+    public long getReservationRecords() {
+        return reservationRecords;
+    }
+
+    /**
+     * Get the number of records skipped because they could not be read, of either input.
+     *
+     * @return The number of malformed records
+     */
+    public long getMalformedRecords() {
+        return malformedRecords;
+    }
+
+    /**
+     * Get the number of payments matched to a reservation of the same booking and account.
+     *
+     * @return The number of matched bookings
+     */
+    public long getMatchedBookings() {
+        return matchedBookings;
+    }
+
+    public long getPaidNotReserved() {
+        return paidNotReserved;
+    }
+
+    public long getReservedNotPaid() {
+        return reservedNotPaid;
+    }
+
+    /**
+     * Get the number of partitions the records were joined in, counting each partition partitioned again
+     * as its parts.
+     *
+     * @return The number of partitions
+     */
+    public int getPartitions() {
+        return partitions;
+    }
+
+    @Override
+    public String toString() {
+        return "ReconciliationReport{paymentRecords=" + paymentRecords + ", reservationRecords=" + reservationRecords
+                + ", malformedRecords=" + malformedRecords + ", matchedBookings=" + matchedBookings
+                + ", paidNotReserved=" + paidNotReserved + ", reservedNotPaid=" + reservedNotPaid
+                + ", partitions=" + partitions + '}';
+    }
+}
@@ -0,0 +1,46 @@
+package uk.gov.dwp.uc.pairtest.reconcile;
+
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * The formats of the payment and reservation records exported for reconciliation.
+ * <p>
+ * Each record is a booking id, an Account ID and a value, the amount paid in pounds or the seats reserved.
+ * </p>
+ */
+public enum RecordFormat {
+
+    /**
+     * One record per line, <code>bookingId,accountId,value</code> in decimal.
+     * A first line which does not start with a digit is a header and is skipped, blank lines are skipped.
+     */
+    CSV,
+
+    /**
+     * Fixed-size big-endian records with no header:
+     * <pre>
+     *  0  long bookingId
+     *  8  long accountId
+     * 16  int  value
+     * </pre>
+     */
+    BINARY;
+
+    public static final int BINARY_RECORD_SIZE = 20;
+
+    /**
+     * The longest CSV line read, a longer line is malformed.
+     */
+    public static final int MAX_CSV_LINE = 128;
+
+    /**
+     * Get the format of a file from its name, CSV for a <code>.csv</code> file, otherwise binary.
+     *
+     * @param  file The record file
+     * @return The format of the file
+     */
+    public static RecordFormat of(final Path file) {
+        return file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".csv") ? CSV : BINARY;
+    }
+}
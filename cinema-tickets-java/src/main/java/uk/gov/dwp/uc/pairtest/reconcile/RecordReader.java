@@ -0,0 +1,186 @@
+package uk.gov.dwp.uc.pairtest.reconcile;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Reads the records of one split of a record file through a memory mapping, without creating an object per record.
+ * <p>
+ * A file is read in splits so each split can be read by its own thread and no mapping outgrows
+ * a byte buffer. A binary split starts and ends on a record boundary. A CSV split reads every line starting
+ * within it, so a line crossing the end of the split is read by this split and skipped by the next one.
+ * </p>
+ */
+final class RecordReader {
+
+    /**
+     * Receives each record read.
+     */
+    interface RecordSink {
+        void accept(long bookingId, long accountId, int value);
+    }
+
+    private static final int MAX_LONG_DIGITS = 18;
+    private static final int MAX_INT_DIGITS = 9;
+
+    private MappedByteBuffer buffer;
+    private int position;
+
+    /**
+     * Read the records of a split.
+     *
+     * @param  channel The file
+     * @param  format  The format of the file
+     * @param  start   The offset of the split, a multiple of the record size for a binary file
+     * @param  end     The offset the split ends at
+     * @param  sink    Receives each record
+     * @return The number of malformed records skipped
+     * @throws IOException If the file cannot be mapped
+     */
+    long read(final FileChannel channel, final RecordFormat format, final long start, final long end,
+              final RecordSink sink) throws IOException {
+        return format == RecordFormat.CSV
+                ? readCsv(channel, start, end, sink)
+                : readBinary(channel, start, end, sink);
+    }
+
+    private long readBinary(final FileChannel channel, final long start, final long end, final RecordSink sink)
+            throws IOException {
+        final MappedByteBuffer split = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        int offset = 0;
+        for (; offset + RecordFormat.BINARY_RECORD_SIZE <= split.limit(); offset += RecordFormat.BINARY_RECORD_SIZE) {
+            sink.accept(split.getLong(offset), split.getLong(offset + 8), split.getInt(offset + 16));
+        }
+        // A trailing partial record, e.g. of an export cut short.
+        return offset < split.limit() ? 1 : 0;
+    }
+
+    private long readCsv(final FileChannel channel, final long start, final long end, final RecordSink sink)
+            throws IOException {
+        // Mapped from the byte before the split to tell if the split starts a line,
+        // and past the end to read the last line starting within the split.
+        final long mapStart = start == 0 ? 0 : start - 1;
+        final long mapEnd = Math.min(channel.size(), end + RecordFormat.MAX_CSV_LINE);
+        buffer = channel.map(FileChannel.MapMode.READ_ONLY, mapStart, mapEnd - mapStart);
+        final int splitEnd = (int) (end - mapStart);
+        final boolean mappedToFileEnd = mapEnd == channel.size();
+
+        position = 0;
+        if (start > 0) {
+            // The line holding the byte before the split belongs to the previous split.
+            skipLine();
+        }
+        long malformed = 0;
+        boolean firstLine = start == 0;
+        while (position < splitEnd && position < buffer.limit()) {
+            final int lineStart = position;
+            final int lineEnd = lineEnd(lineStart);
+            if (lineEnd >= 0) {
+                if (!parseLine(lineStart, lineEnd, firstLine, sink)) {
+                    malformed++;
+                }
+                position = lineEnd + 1;
+            } else if (mappedToFileEnd && buffer.limit() - lineStart <= RecordFormat.MAX_CSV_LINE) {
+                // The last line of a file without a final line end.
+                if (!parseLine(lineStart, buffer.limit(), firstLine, sink)) {
+                    malformed++;
+                }
+                position = buffer.limit();
+            } else {
+                // An overlong line, skipped to its end which may be past the mapping and so past the split.
+                malformed++;
+                position = lineStart;
+                skipLine();
+            }
+            firstLine = false;
+        }
+        return malformed;
+    }
+
+    /**
+     * Parse one line, the line end excluded.
+     *
+     * @return False if the line is malformed
+     */
+    private boolean parseLine(final int lineStart, final int lineEnd, final boolean firstLine, final RecordSink sink) {
+        int end = lineEnd;
+        if (end > lineStart && buffer.get(end - 1) == '\r') {
+            end--;
+        }
+        if (end == lineStart) {
+            return true;
+        }
+        if (firstLine && !isDigit(buffer.get(lineStart))) {
+            return true;
+        }
+
+        position = lineStart;
+        final long bookingId = parseNumber(end, MAX_LONG_DIGITS);
+        if (bookingId < 0 || !skip(',', end)) {
+            return false;
+        }
+        final long accountId = parseNumber(end, MAX_LONG_DIGITS);
+        if (accountId < 0 || !skip(',', end)) {
+            return false;
+        }
+        final long value = parseNumber(end, MAX_INT_DIGITS);
+        if (value < 0 || position != end) {
+            return false;
+        }
+        sink.accept(bookingId, accountId, (int) value);
+        return true;
+    }
+
+    /**
+     * Parse the digits at the position, moving past them.
+     *
+     * @return The number, or -1 if there are no digits or too many
+     */
+    private long parseNumber(final int end, final int maxDigits) {
+        final int digitsStart = position;
+        long number = 0;
+        while (position < end && isDigit(buffer.get(position))) {
+            if (position - digitsStart == maxDigits) {
+                return -1;
+            }
+            number = number * 10 + (buffer.get(position) - '0');
+            position++;
+        }
+        return position == digitsStart ? -1 : number;
+    }
+
+    private boolean skip(final char separator, final int end) {
+        if (position < end && buffer.get(position) == separator) {
+            position++;
+            return true;
+        }
+        return false;
+    }
+
+    private void skipLine() {
+        while (position < buffer.limit() && buffer.get(position) != '\n') {
+            position++;
+        }
+        position++;
+    }
+
+    /**
+     * Find the end of the line starting at an offset, looking no further than the longest line.
+     *
+     * @return The offset of the line end, or -1 if there is none within the longest line
+     */
+    private int lineEnd(final int lineStart) {
+        final int limit = Math.min(buffer.limit(), lineStart + RecordFormat.MAX_CSV_LINE + 1);
+        for (int offset = lineStart; offset < limit; offset++) {
+            if (buffer.get(offset) == '\n') {
+                return offset;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isDigit(final byte b) {
+        return b >= '0' && b <= '9';
+    }
+}
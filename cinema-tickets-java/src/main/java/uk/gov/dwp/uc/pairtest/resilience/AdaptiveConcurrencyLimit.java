@@ -0,0 +1,143 @@
+package uk.gov.dwp.uc.pairtest.resilience;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A limit on concurrent calls which adapts to the latency observed by the calls.
+ * <p>
+ * The limit follows additive increase, multiplicative decrease against a latency gradient.
+ * The shortest latency seen within a probe window is taken as the latency of an idle backend.
+ * A call completing within {@code tolerance} times that latency grows the limit by 1/limit,
+ * so a full limit's worth of fast calls grows it by one. A slower call or a failure shrinks
+ * the limit by the backoff ratio, so queuing in the backend is seen as latency and sheds load
+ * before threads pile up. The idle latency is measured again every {@code probeInterval} calls
+ * so a backend which has become slower for good is not treated as overloaded forever.
+ * </p>
+ */
+public class AdaptiveConcurrencyLimit {
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+    private final double backoffRatio;
+    private final int probeInterval;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private volatile int limit;
+    private double estimatedLimit;
+    private long minLatencyNanos = Long.MAX_VALUE;
+    private long nextProbeMinLatency = Long.MAX_VALUE;
+    private int samples;
+
+    /**
+     * The constructor with the default tolerance of 2, backoff ratio of 0.9 and probe interval of 1000 calls.
+     *
+     * @param  initialLimit The limit before any latency is observed
+     * @param  minLimit     The lowest limit
+     * @param  maxLimit     The highest limit
+     */
+    public AdaptiveConcurrencyLimit(final int initialLimit, final int minLimit, final int maxLimit) {
+        this(initialLimit, minLimit, maxLimit, 2.0, 0.9, 1000);
+    }
+
+    /**
+     * The constructor which initializes every setting.
+     *
+     * @param  initialLimit  The limit before any latency is observed
+     * @param  minLimit      The lowest limit
+     * @param  maxLimit      The highest limit
+     * @param  tolerance     The latency, as a multiple of the idle latency, above which the limit shrinks
+     * @param  backoffRatio  The ratio the limit is multiplied by when it shrinks
+     * @param  probeInterval The number of calls after which the idle latency is measured again
+     */
+    public AdaptiveConcurrencyLimit(final int initialLimit, final int minLimit, final int maxLimit,
+                                    final double tolerance, final double backoffRatio, final int probeInterval) {
+        if (minLimit < 1 || maxLimit < minLimit || initialLimit < minLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException("Limits must satisfy 1 <= minLimit <= initialLimit <= maxLimit");
+        }
+        if (tolerance < 1 || backoffRatio <= 0 || backoffRatio >= 1 || probeInterval < 1) {
+            throw new IllegalArgumentException("Tolerance must be at least 1 and backoff ratio between 0 and 1");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.tolerance = tolerance;
+        this.backoffRatio = backoffRatio;
+        this.probeInterval = probeInterval;
+        this.limit = initialLimit;
+        this.estimatedLimit = initialLimit;
+    }
+
+    /**
+     * Start a call if the limit allows it.
+     *
+     * @return True if the call may start, it must then be completed with {@link #onSuccess} or {@link #onFailure}
+     */
+    public boolean tryAcquire() {
+        while (true) {
+            final int current = inFlight.get();
+            if (current >= limit) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Complete a call which succeeded.
+     *
+     * @param  latencyNanos The latency of the call
+     */
+    public void onSuccess(final long latencyNanos) {
+        inFlight.decrementAndGet();
+        update(latencyNanos, false);
+    }
+
+    /**
+     * Complete a call which failed.
+     *
+     * @param  latencyNanos The latency of the call
+     */
+    public void onFailure(final long latencyNanos) {
+        inFlight.decrementAndGet();
+        update(latencyNanos, true);
+    }
+
+    /**
+     * Get the current limit.
+     *
+     * @return The number of calls allowed at once
+     */
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * Get the number of calls in flight.
+     *
+     * @return The number of calls started and not completed
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    private synchronized void update(final long latencyNanos, final boolean failed) {
+        final long latency = Math.max(1, latencyNanos);
+        nextProbeMinLatency = Math.min(nextProbeMinLatency, latency);
+        if (++samples == probeInterval) {
+            minLatencyNanos = nextProbeMinLatency;
+            nextProbeMinLatency = Long.MAX_VALUE;
+            samples = 0;
+        } else {
+            minLatencyNanos = Math.min(minLatencyNanos, latency);
+        }
+
+        if (failed || latency > minLatencyNanos * tolerance) {
+            estimatedLimit = Math.max(minLimit, estimatedLimit * backoffRatio);
+        } else {
+            estimatedLimit = Math.min(maxLimit, estimatedLimit + 1.0 / estimatedLimit);
+        }
+        limit = (int) estimatedLimit;
+    }
+}
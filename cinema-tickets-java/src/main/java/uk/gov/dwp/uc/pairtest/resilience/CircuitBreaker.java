@@ -0,0 +1,108 @@
+package uk.gov.dwp.uc.pairtest.resilience;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A circuit breaker which stops calls to a backend after sustained failures.
+ * <p>
+ * Once {@code failureThreshold} calls in a row fail the circuit opens and every call is refused
+ * for the open duration. The first call after that is let through as a trial: its success closes the circuit,
+ * its failure opens it again. Other calls are refused while the trial is in flight.
+ * </p>
+ */
+public class CircuitBreaker {
+
+    final static Logger log =
+            LoggerFactory.getLogger(CircuitBreaker.class);
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long openNanos;
+    private final LongSupplier clock;
+    private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private volatile long openedAt;
+
+    /**
+     * Create a circuit breaker using the system clock.
+     *
+     * @param  failureThreshold The number of failures in a row which opens the circuit
+     * @param  openDuration     How long the circuit stays open before a trial call
+     * @param  unit             The unit of the duration
+     */
+    public CircuitBreaker(final int failureThreshold, final long openDuration, final TimeUnit unit) {
+        this(failureThreshold, openDuration, unit, System::nanoTime);
+    }
+
+    CircuitBreaker(final int failureThreshold, final long openDuration, final TimeUnit unit,
+                   final LongSupplier clock) {
+        if (failureThreshold < 1) {
+            throw new IllegalArgumentException("failureThreshold must be at least 1");
+        }
+        this.failureThreshold = failureThreshold;
+        this.openNanos = unit.toNanos(openDuration);
+        this.clock = clock;
+    }
+
+    /**
+     * Check whether a call may go to the backend.
+     *
+     * @return True if the call may start, it must then be completed with {@link #onSuccess} or {@link #onFailure}
+     */
+    public boolean tryAcquire() {
+        final State current = state.get();
+        if (current == State.CLOSED) {
+            return true;
+        }
+        return current == State.OPEN
+                && clock.getAsLong() - openedAt >= openNanos
+                && state.compareAndSet(State.OPEN, State.HALF_OPEN);
+    }
+
+    /**
+     * Record a successful call.
+     */
+    public void onSuccess() {
+        consecutiveFailures.set(0);
+        if (state.get() != State.CLOSED && state.compareAndSet(State.HALF_OPEN, State.CLOSED)) {
+            log.info("Circuit closed after a successful trial call.");
+        }
+    }
+
+    /**
+     * Record a failed call.
+     */
+    public void onFailure() {
+        if (state.get() == State.HALF_OPEN) {
+            open(State.HALF_OPEN);
+        } else if (consecutiveFailures.incrementAndGet() >= failureThreshold) {
+            open(State.CLOSED);
+        }
+    }
+
+    /**
+     * Get the state of the circuit.
+     *
+     * @return The state
+     */
+    public State getState() {
+        return state.get();
+    }
+
+    private void open(final State from) {
+        openedAt = clock.getAsLong();
+        if (state.compareAndSet(from, State.OPEN)) {
+            consecutiveFailures.set(0);
+            log.warn("Circuit opened after {} failed calls.", from == State.HALF_OPEN ? 1 : failureThreshold);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package uk.gov.dwp.uc.pairtest.resilience;
+
+import thirdparty.seatbooking.SeatReservationService;
+
+/**
+ * {@link SeatReservationService} whose reservations are guarded by a {@link ServiceGuard}.
+ */
+public class GuardedSeatReservationService implements SeatReservationService {
+
+    private final SeatReservationService reservationService;
+    private final ServiceGuard guard;
+
+    public GuardedSeatReservationService(final SeatReservationService reservationService, final ServiceGuard guard) {
+        this.reservationService = reservationService;
+        this.guard = guard;
+    }
+
+    @Override
+    public void reserveSeat(final long accountId, final int totalSeatsToAllocate) {
+        guard.run(() -> reservationService.reserveSeat(accountId, totalSeatsToAllocate));
+    }
+}
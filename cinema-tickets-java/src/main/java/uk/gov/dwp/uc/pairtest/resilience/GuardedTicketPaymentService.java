@@ -0,0 +1,22 @@
+package uk.gov.dwp.uc.pairtest.resilience;
+
+import thirdparty.paymentgateway.TicketPaymentService;
+
+/**
+ * {@link TicketPaymentService} whose payments are guarded by a {@link ServiceGuard}.
+ */
+public class GuardedTicketPaymentService implements TicketPaymentService {
+
+    private final TicketPaymentService paymentService;
+    private final ServiceGuard guard;
+
+    public GuardedTicketPaymentService(final TicketPaymentService paymentService, final ServiceGuard guard) {
+        this.paymentService = paymentService;
+        this.guard = guard;
+    }
+
+    @Override
+    public void makePayment(final long accountId, final int totalAmountToPay) {
+        guard.run(() -> paymentService.makePayment(accountId, totalAmountToPay));
+    }
+}
@@ -0,0 +1,80 @@
+package uk.gov.dwp.uc.pairtest.resilience;
+
+import uk.gov.dwp.uc.pairtest.exception.InvalidPurchaseException;
+import uk.gov.dwp.uc.pairtest.exception.ServiceOverloadedException;
+
+/**
+ * Guards calls to a third-party service with a {@link CircuitBreaker} and an {@link AdaptiveConcurrencyLimit}.
+ * <p>
+ * A call refused by either is not made and fails straight away with a stackless
+ * {@link ServiceOverloadedException}, so an overloaded backend costs the caller no thread time.
+ * Refused calls are not fed back to the limit or the breaker.
+ * </p>
+ * <p>
+ * A call rejected by the service for a business reason, an {@link InvalidPurchaseException} such as sold out
+ * seats, was answered by a healthy backend and counts as a success. A {@link ServiceOverloadedException}
+ * thrown by the service itself counts as a failure, as it reports the backend is overloaded.
+ * </p>
+ */
+public class ServiceGuard {
+
+    private final AdaptiveConcurrencyLimit limit;
+    private final CircuitBreaker circuitBreaker;
+
+    /**
+     * The constructor which initializes the limit and the circuit breaker.
+     *
+     * @param  limit          The concurrency limit
+     * @param  circuitBreaker The circuit breaker
+     */
+    public ServiceGuard(final AdaptiveConcurrencyLimit limit, final CircuitBreaker circuitBreaker) {
+        this.limit = limit;
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    /**
+     * Make a call if the circuit and the limit allow it.
+     *
+     * @param  call The call to the service
+     * @throws ServiceOverloadedException If the call is refused
+     */
+    public void run(final Runnable call) {
+        if (!circuitBreaker.tryAcquire()) {
+            throw ServiceOverloadedException.stackless();
+        }
+        if (!limit.tryAcquire()) {
+            // A refused trial call must not leave the circuit half open.
+            if (circuitBreaker.getState() == CircuitBreaker.State.HALF_OPEN) {
+                circuitBreaker.onFailure();
+            }
+            throw ServiceOverloadedException.stackless();
+        }
+        final long start = System.nanoTime();
+        try {
+            call.run();
+        } catch (final RuntimeException | Error e) {
+            if (isBusinessRejection(e)) {
+                limit.onSuccess(System.nanoTime() - start);
+                circuitBreaker.onSuccess();
+            } else {
+                limit.onFailure(System.nanoTime() - start);
+                circuitBreaker.onFailure();
+            }
+            throw e;
+        }
+        limit.onSuccess(System.nanoTime() - start);
+        circuitBreaker.onSuccess();
+    }
+
+    private static boolean isBusinessRejection(final Throwable e) {
+        return e instanceof InvalidPurchaseException && !(e instanceof ServiceOverloadedException);
+    }
+
+    public AdaptiveConcurrencyLimit getLimit() {
+        return limit;
+    }
+
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+}
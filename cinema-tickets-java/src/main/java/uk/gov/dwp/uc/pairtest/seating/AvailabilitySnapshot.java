@@ -0,0 +1,72 @@
+package uk.gov.dwp.uc.pairtest.seating;
+
+/**
+ * Immutable Object
+ * <p>
+ * The seats taken in a screening as published at one version of its {@link ScreeningAvailability}.
+ * Each row is read atomically, so a party's seats within a row are seen together.
+ * </p>
+ */
+public final class AvailabilitySnapshot {
+
+    private final long version;
+    private final int seatsPerRow;
+    private final long[] takenRows;
+    private final int availableSeats;
+
+    AvailabilitySnapshot(final long version, final int seatsPerRow, final long[] takenRows) {
+        this.version = version;
+        this.seatsPerRow = seatsPerRow;
+        this.takenRows = takenRows;
+        int available = 0;
+        for (final long taken : takenRows) {
+            available += seatsPerRow - Long.bitCount(taken);
+        }
+        this.availableSeats = available;
+    }
+
+    /**
+     * Get the version of the snapshot, increasing with each snapshot published for the screening.
+     *
+     * @return The version
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    public int getRows() {
+        return takenRows.length;
+    }
+
+    public int getSeatsPerRow() {
+        return seatsPerRow;
+    }
+
+    public int getAvailableSeats() {
+        return availableSeats;
+    }
+
+    public boolean isSoldOut() {
+        return availableSeats == 0;
+    }
+
+    /**
+     * Check if a party could be seated, possibly spread over several rows.
+     *
+     * @param  seats The number of seats
+     * @return True if at least that many seats are available
+     */
+    public boolean canSeat(final int seats) {
+        return seats <= availableSeats;
+    }
+
+    /**
+     * Get the seats taken in a row.
+     *
+     * @param  row The row number, counted from zero
+     * @return The seat mask, bit {@code n} set if seat {@code n} is taken
+     */
+    public long takenSeats(final int row) {
+        return takenRows[row];
+    }
+}
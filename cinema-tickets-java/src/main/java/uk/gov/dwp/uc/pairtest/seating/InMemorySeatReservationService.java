@@ -0,0 +1,43 @@
+package uk.gov.dwp.uc.pairtest.seating;
+
+import thirdparty.seatbooking.SeatReservationService;
+import uk.gov.dwp.uc.pairtest.exception.SeatsUnavailableException;
+
+/**
+ * Local {@link SeatReservationService} which reserves seats in an in-memory screening,
+ * for load testing seat contention without the real seat booking service.
+ */
+public class InMemorySeatReservationService implements SeatReservationService, SeatAvailability {
+
+    private final ScreeningSeatMap screening;
+    private final ScreeningAvailability availability;
+
+    public InMemorySeatReservationService(final ScreeningSeatMap screening) {
+        this.screening = screening;
+        this.availability = screening.availability();
+    }
+
+    public ScreeningSeatMap getScreening() {
+        return screening;
+    }
+
+    @Override
+    public boolean canSeat(final int seats) {
+        return availability.canSeat(seats);
+    }
+
+    /**
+     * Reserve seats in the screening.
+     *
+     * @throws SeatsUnavailableException If not enough seats are available
+     */
+    @Override
+    public void reserveSeat(final long accountId, final int totalSeatsToAllocate) {
+        if (totalSeatsToAllocate == 0) {
+            return;
+        }
+        if (screening.allocate(totalSeatsToAllocate) == null) {
+            throw new SeatsUnavailableException();
+        }
+    }
+}
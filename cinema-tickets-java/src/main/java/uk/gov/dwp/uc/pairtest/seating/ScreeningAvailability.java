@@ -0,0 +1,73 @@
+package uk.gov.dwp.uc.pairtest.seating;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The availability read model of a screening, for browsing traffic that far outnumbers reservations.
+ * <p>
+ * Readers get the current {@link AvailabilitySnapshot} with a single volatile read, wait-free and without
+ * touching the seat words that reservations compare-and-set. The screening reports each change and
+ * a new immutable snapshot is then published. Publishing is coalesced: while one thread rebuilds the snapshot,
+ * the changes reported by other threads are folded into its next rebuild rather than each publishing its own,
+ * so a burst of reservations publishes a few snapshots instead of one per reservation.
+ * A snapshot published after a change returns includes that change.
+ * </p>
+ */
+public class ScreeningAvailability implements SeatAvailability {
+
+    private final ScreeningSeatMap screening;
+    private final AtomicLong changes = new AtomicLong();
+    private final AtomicBoolean publishing = new AtomicBoolean();
+    private volatile long publishedChanges;
+    private volatile AvailabilitySnapshot snapshot;
+
+    ScreeningAvailability(final ScreeningSeatMap screening) {
+        this.screening = screening;
+        this.snapshot = build(0);
+    }
+
+    /**
+     * Get the latest published snapshot.
+     *
+     * @return The snapshot
+     */
+    public AvailabilitySnapshot snapshot() {
+        return snapshot;
+    }
+
+    @Override
+    public boolean canSeat(final int seats) {
+        return snapshot.canSeat(seats);
+    }
+
+    /**
+     * Report a change of the seats, publishing a new snapshot unless another thread is already publishing.
+     */
+    void changed() {
+        changes.incrementAndGet();
+        while (publishing.compareAndSet(false, true)) {
+            try {
+                final long seen = changes.get();
+                if (seen != publishedChanges) {
+                    snapshot = build(snapshot.getVersion() + 1);
+                    publishedChanges = seen;
+                }
+            } finally {
+                publishing.set(false);
+            }
+            // Changes reported while publishing found the flag set, publish again on their behalf.
+            if (changes.get() == publishedChanges) {
+                return;
+            }
+        }
+    }
+
+    private AvailabilitySnapshot build(final long version) {
+        final long[] takenRows = new long[screening.getRows()];
+        for (int row = 0; row < takenRows.length; row++) {
+            takenRows[row] = screening.takenSeats(row);
+        }
+        return new AvailabilitySnapshot(version, screening.getSeatsPerRow(), takenRows);
+    }
+}
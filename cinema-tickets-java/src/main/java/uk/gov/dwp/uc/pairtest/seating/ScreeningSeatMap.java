@@ -0,0 +1,252 @@
+package uk.gov.dwp.uc.pairtest.seating;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The seats of a single screening, one bit per seat in a long word per row.
+ * <p>
+ * Seats are claimed and released with compare-and-set on the row word, there is no lock.
+ * Each row word sits on its own cache line so threads booking different rows do not contend.
+ * A party is seated together in one row when possible, otherwise it is spread over several rows.
+ * </p>
+ * <p>
+ * Once {@link #availability()} is requested, every change of the seats is reported to it
+ * so readers can query availability from its snapshots.
+ * </p>
+ */
+public class ScreeningSeatMap {
+
+    /**
+     * Longs per cache line, row words are spaced by this stride to avoid false sharing.
+     */
+    private static final int STRIDE = 8;
+
+    /**
+     * Seats in a row, one bit per seat in a long word.
+     */
+    public static final int MAX_SEATS_PER_ROW = Long.SIZE;
+
+    private final int rows;
+    private final int seatsPerRow;
+    private final long rowMask;
+    private final AtomicLongArray seats;
+    private volatile ScreeningAvailability availability;
+
+    /**
+     * Create a screening with every seat available.
+     *
+     * @param  rows        Number of rows
+     * @param  seatsPerRow Number of seats in each row, at most 64
+     */
+    public ScreeningSeatMap(final int rows, final int seatsPerRow) {
+        if (rows < 1 || seatsPerRow < 1 || seatsPerRow > MAX_SEATS_PER_ROW) {
+            throw new IllegalArgumentException("Invalid screening size " + rows + "x" + seatsPerRow);
+        }
+        this.rows = rows;
+        this.seatsPerRow = seatsPerRow;
+        this.rowMask = lowBits(seatsPerRow);
+        this.seats = new AtomicLongArray(rows * STRIDE);
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getSeatsPerRow() {
+        return seatsPerRow;
+    }
+
+    public int capacity() {
+        return rows * seatsPerRow;
+    }
+
+    /**
+     * Count the seats still available.
+     * The count is not a snapshot, seats may be claimed or released while rows are read.
+     *
+     * @return The number of available seats
+     */
+    public int availableSeats() {
+        int available = 0;
+        for (int row = 0; row < rows; row++) {
+            available += seatsPerRow - Long.bitCount(seats.get(row * STRIDE));
+        }
+        return available;
+    }
+
+    /**
+     * Get the seats taken in a row.
+     *
+     * @param  row The row number, counted from zero
+     * @return The seat mask, bit {@code n} set if seat {@code n} is taken
+     */
+    public long takenSeats(final int row) {
+        return seats.get(row * STRIDE);
+    }
+
+    /**
+     * Get the availability read model of the screening, created on first use.
+     *
+     * @return The availability
+     */
+    public ScreeningAvailability availability() {
+        ScreeningAvailability current = availability;
+        if (current == null) {
+            synchronized (this) {
+                current = availability;
+                if (current == null) {
+                    current = new ScreeningAvailability(this);
+                    availability = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Claim seats for a party, preferring contiguous seats in one row.
+     *
+     * @param  partySize Number of seats to claim
+     * @return The seats claimed, null if not enough seats are available
+     */
+    public SeatAllocation allocate(final int partySize) {
+        if (partySize < 1) {
+            throw new IllegalArgumentException("Party size must be at least 1");
+        }
+        // Start at a random row to spread threads booking the same screening over different rows.
+        final int startRow = ThreadLocalRandom.current().nextInt(rows);
+        SeatAllocation allocation = null;
+        if (partySize <= seatsPerRow) {
+            allocation = allocateContiguous(partySize, startRow);
+        }
+        if (allocation == null) {
+            allocation = allocateSpread(partySize, startRow);
+        }
+        if (allocation != null) {
+            changed();
+        }
+        return allocation;
+    }
+
+    /**
+     * Release seats previously claimed.
+     *
+     * @param  allocation The seats to release
+     */
+    public void release(final SeatAllocation allocation) {
+        for (int i = 0; i < allocation.rowCount(); i++) {
+            clear(allocation.row(i), allocation.seatMask(i));
+        }
+        changed();
+    }
+
+    private SeatAllocation allocateContiguous(final int partySize, final int startRow) {
+        for (int i = 0; i < rows; i++) {
+            final int row = (startRow + i) % rows;
+            final int index = row * STRIDE;
+            long taken = seats.get(index);
+            while (true) {
+                final long runStarts = runStarts(~taken & rowMask, partySize);
+                if (runStarts == 0) {
+                    break;
+                }
+                final long claim = lowBits(partySize) << Long.numberOfTrailingZeros(runStarts);
+                if (seats.compareAndSet(index, taken, taken | claim)) {
+                    return new SeatAllocation(new int[] {row}, new long[] {claim});
+                }
+                taken = seats.get(index);
+            }
+        }
+        return null;
+    }
+
+    private SeatAllocation allocateSpread(final int partySize, final int startRow) {
+        final int[] claimedRows = new int[rows];
+        final long[] claimedMasks = new long[rows];
+        int claimedCount = 0;
+        int remaining = partySize;
+        for (int i = 0; i < rows && remaining > 0; i++) {
+            final int row = (startRow + i) % rows;
+            final int index = row * STRIDE;
+            long taken = seats.get(index);
+            while (true) {
+                final long free = ~taken & rowMask;
+                if (free == 0) {
+                    break;
+                }
+                final long claim = lowestBits(free, remaining);
+                if (seats.compareAndSet(index, taken, taken | claim)) {
+                    claimedRows[claimedCount] = row;
+                    claimedMasks[claimedCount] = claim;
+                    claimedCount++;
+                    remaining -= Long.bitCount(claim);
+                    break;
+                }
+                taken = seats.get(index);
+            }
+        }
+        if (remaining > 0) {
+            // Not enough seats, give back the seats claimed so far.
+            for (int i = 0; i < claimedCount; i++) {
+                clear(claimedRows[i], claimedMasks[i]);
+            }
+            if (claimedCount > 0) {
+                // A snapshot may have been published with the seats claimed so far.
+                changed();
+            }
+            return null;
+        }
+        return new SeatAllocation(Arrays.copyOf(claimedRows, claimedCount), Arrays.copyOf(claimedMasks, claimedCount));
+    }
+
+    private void changed() {
+        final ScreeningAvailability current = availability;
+        if (current != null) {
+            current.changed();
+        }
+    }
+
+    private void clear(final int row, final long mask) {
+        final int index = row * STRIDE;
+        long taken = seats.get(index);
+        while (!seats.compareAndSet(index, taken, taken & ~mask)) {
+            taken = seats.get(index);
+        }
+    }
+
+    /**
+     * Find where a run of free seats of the given length starts.
+     *
+     * @return A mask with bit {@code n} set if seats {@code n} to {@code n + length - 1} are all free
+     */
+    private static long runStarts(final long free, final int length) {
+        long starts = free;
+        for (int shift = 1; shift < length && starts != 0; shift++) {
+            starts &= free >>> shift;
+        }
+        return starts;
+    }
+
+    /**
+     * Keep the lowest {@code count} set bits of a mask.
+     */
+    private static long lowestBits(final long mask, final int count) {
+        if (Long.bitCount(mask) <= count) {
+            return mask;
+        }
+        long remaining = mask;
+        long result = 0;
+        for (int i = 0; i < count; i++) {
+            final long lowest = Long.lowestOneBit(remaining);
+            result |= lowest;
+            remaining &= ~lowest;
+        }
+        return result;
+    }
+
+    private static long lowBits(final int count) {
+        return count == Long.SIZE ? -1L : (1L << count) - 1;
+    }
+}
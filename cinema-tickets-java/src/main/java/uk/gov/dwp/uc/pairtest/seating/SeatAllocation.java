@@ -0,0 +1,67 @@
+package uk.gov.dwp.uc.pairtest.seating;
+
+import java.util.Arrays;
+
+/**
+ * Immutable Object
+ * <p>
+ * The seats claimed for a party, as one bit mask per row.
+ * </p>
+ */
+public final class SeatAllocation {
+
+    private final int[] rows;
+    private final long[] masks;
+
+    SeatAllocation(final int[] rows, final long[] masks) {
+        this.rows = rows;
+        this.masks = masks;
+    }
+
+    /**
+     * Get the number of rows the seats are spread over.
+     *
+     * @return The number of rows, 1 if the seats are contiguous
+     */
+    public int rowCount() {
+        return rows.length;
+    }
+
+    /**
+     * Get the row of the seats at a position in the allocation.
+     *
+     * @param  index Position in the allocation, below {@link #rowCount()}
+     * @return The row number, counted from zero
+     */
+    public int row(final int index) {
+        return rows[index];
+    }
+
+    /**
+     * Get the seats claimed in a row, bit {@code n} set for seat {@code n}.
+     *
+     * @param  index Position in the allocation, below {@link #rowCount()}
+     * @return The seat mask
+     */
+    public long seatMask(final int index) {
+        return masks[index];
+    }
+
+    /**
+     * Get the total number of seats claimed.
+     *
+     * @return The number of seats
+     */
+    public int seatCount() {
+        int seats = 0;
+        for (final long mask : masks) {
+            seats += Long.bitCount(mask);
+        }
+        return seats;
+    }
+
+    @Override
+    public String toString() {
+        return "SeatAllocation{rows=" + Arrays.toString(rows) + ", seats=" + seatCount() + '}';
+    }
+}
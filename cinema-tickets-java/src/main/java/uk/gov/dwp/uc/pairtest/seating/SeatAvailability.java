@@ -0,0 +1,34 @@
+package uk.gov.dwp.uc.pairtest.seating;
+
+import thirdparty.seatbooking.SeatReservationService;
+
+/**
+ * Tells whether a party could still be seated, so a purchase for a sold out screening
+ * is rejected before the payment is taken.
+ * The answer may be a moment out of date, the seat reservation remains the final check.
+ */
+public interface SeatAvailability {
+
+    /**
+     * The availability of a seat reservation service that cannot tell, every party may be seated.
+     */
+    SeatAvailability UNKNOWN = seats -> true;
+
+    /**
+     * Check if a party could be seated.
+     *
+     * @param  seats The number of seats
+     * @return False if there are certainly not enough seats, true otherwise
+     */
+    boolean canSeat(int seats);
+
+    /**
+     * Get the availability of the seats a reservation service reserves.
+     *
+     * @param  reservationService The seat reservation service
+     * @return Its availability if it tells it, otherwise {@link #UNKNOWN}
+     */
+    static SeatAvailability of(final SeatReservationService reservationService) {
+        return reservationService instanceof SeatAvailability ? (SeatAvailability) reservationService : UNKNOWN;
+    }
+}
@@ -0,0 +1,258 @@
+package uk.gov.dwp.uc.pairtest.seating;
+
+import java.io.Closeable;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongSupplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import thirdparty.seatbooking.SeatReservationService;
+import uk.gov.dwp.uc.pairtest.exception.SeatsUnavailableException;
+import uk.gov.dwp.uc.pairtest.timer.HierarchicalTimingWheel;
+
+/**
+ * Holds seats in a screening while the customer pays, then confirms or releases them.
+ * <p>
+ * A hold claims its seats straight away and expires after the hold time to live unless it is confirmed
+ * or released first, returning its seats to the screening. Expiry is driven by a {@link HierarchicalTimingWheel}
+ * advanced by a single ticker thread, so each hold costs one wheel entry, scheduled and cancelled in constant time,
+ * however many holds are outstanding. A hold expires up to one tick after its time to live.
+ * </p>
+ * <p>
+ * {@link #reserveSeat} holds and confirms at once, so the service can stand in for the seat booking service.
+ * </p>
+ */
+public class SeatHoldService implements SeatReservationService, SeatHolding, Closeable {
+
+    final static Logger log =
+            LoggerFactory.getLogger(SeatHoldService.class);
+
+    private static final int HELD = 0;
+    private static final int CONFIRMED = 1;
+    private static final int RELEASED = 2;
+
+    private final ScreeningSeatMap screening;
+    private final ScreeningAvailability availability;
+    private final long holdTtlNanos;
+    private final HierarchicalTimingWheel<Hold> wheel;
+    private final Map<Long, Hold> holds = new ConcurrentHashMap<>();
+    private final AtomicLong nextHoldId = new AtomicLong(1);
+    private final Thread ticker;
+    private volatile boolean closed;
+
+    /**
+     * Create a hold service with its ticker thread.
+     *
+     * @param  screening    The screening to hold seats in
+     * @param  holdTtl      How long a hold lasts unless confirmed
+     * @param  tickDuration The precision of expiry
+     * @param  unit         The unit of the times
+     */
+    public SeatHoldService(final ScreeningSeatMap screening, final long holdTtl, final long tickDuration,
+                           final TimeUnit unit) {
+        this(screening, holdTtl, tickDuration, unit, System::nanoTime, true);
+    }
+
+    SeatHoldService(final ScreeningSeatMap screening, final long holdTtl, final long tickDuration,
+                    final TimeUnit unit, final LongSupplier clock, final boolean startTicker) {
+        this.screening = screening;
+        this.availability = screening.availability();
+        this.holdTtlNanos = unit.toNanos(holdTtl);
+        this.wheel = new HierarchicalTimingWheel<>(tickDuration, unit, this::expire, clock);
+        if (startTicker) {
+            this.ticker = new Thread(this::tick, "seat-hold-ticker");
+            this.ticker.setDaemon(true);
+            this.ticker.start();
+        } else {
+            this.ticker = null;
+        }
+    }
+
+    /**
+     * Check if a party could be seated, seats held by unexpired holds are not available.
+     */
+    @Override
+    public boolean canSeat(final int seats) {
+        return availability.canSeat(seats);
+    }
+
+    /**
+     * Hold seats until they are confirmed or released, or the hold expires.
+     *
+     * @param  accountId  The Account ID
+     * @param  totalSeats The number of seats to hold
+     * @return The hold id
+     * @throws SeatsUnavailableException If not enough seats are available
+     */
+    @Override
+    public long hold(final long accountId, final int totalSeats) {
+        final SeatAllocation allocation = screening.allocate(totalSeats);
+        if (allocation == null) {
+            throw new SeatsUnavailableException();
+        }
+        final Hold hold = new Hold(nextHoldId.getAndIncrement(), accountId, allocation);
+        holds.put(hold.holdId, hold);
+        hold.timeout = wheel.schedule(hold, holdTtlNanos, TimeUnit.NANOSECONDS);
+        return hold.holdId;
+    }
+
+    /**
+     * Extend a hold by its full time to live from now.
+     *
+     * @param  holdId The hold id
+     * @return True if the hold is extended, false if it is unknown, expired, released or confirmed
+     */
+    @Override
+    public boolean extend(final long holdId) {
+        final Hold hold = holds.get(holdId);
+        if (hold == null || hold.state.get() != HELD) {
+            return false;
+        }
+        final HierarchicalTimingWheel.Timeout<Hold> scheduled = hold.timeout;
+        if (scheduled == null || !scheduled.cancel()) {
+            // The hold is expiring, or is being extended by another caller.
+            return false;
+        }
+        hold.timeout = wheel.schedule(hold, holdTtlNanos, TimeUnit.NANOSECONDS);
+        if (hold.state.get() != HELD) {
+            // Confirmed or released meanwhile, possibly cancelling the timeout replaced above.
+            hold.cancelTimeout();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Confirm a hold, the seats stay reserved for good.
+     *
+     * @param  holdId The hold id
+     * @return True if the hold is confirmed, false if it is unknown, expired or released
+     */
+    @Override
+    public boolean confirm(final long holdId) {
+        final Hold hold = holds.get(holdId);
+        if (hold == null || !hold.state.compareAndSet(HELD, CONFIRMED)) {
+            return false;
+        }
+        holds.remove(holdId);
+        hold.cancelTimeout();
+        return true;
+    }
+
+    /**
+     * Release a hold, returning its seats to the screening.
+     *
+     * @param  holdId The hold id
+     * @return True if the hold is released, false if it is unknown, expired or confirmed
+     */
+    @Override
+    public boolean release(final long holdId) {
+        final Hold hold = holds.get(holdId);
+        if (hold == null || !hold.state.compareAndSet(HELD, RELEASED)) {
+            return false;
+        }
+        holds.remove(holdId);
+        hold.cancelTimeout();
+        screening.release(hold.allocation);
+        return true;
+    }
+
+    /**
+     * Get the seats of a hold.
+     *
+     * @param  holdId The hold id
+     * @return The held seats, or null if the hold is no longer held
+     */
+    public SeatAllocation getHeldSeats(final long holdId) {
+        final Hold hold = holds.get(holdId);
+        return hold == null ? null : hold.allocation;
+    }
+
+    /**
+     * Get the number of holds neither confirmed, released nor expired.
+     *
+     * @return The number of outstanding holds
+     */
+    public int getOutstandingHolds() {
+        return holds.size();
+    }
+
+    /**
+     * Hold and confirm seats at once.
+     *
+     * @throws SeatsUnavailableException If not enough seats are available
+     */
+    @Override
+    public void reserveSeat(final long accountId, final int totalSeatsToAllocate) {
+        if (totalSeatsToAllocate == 0) {
+            return;
+        }
+        confirm(hold(accountId, totalSeatsToAllocate));
+    }
+
+    /**
+     * Stop the ticker thread, outstanding holds no longer expire.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        if (ticker != null) {
+            LockSupport.unpark(ticker);
+        }
+    }
+
+    /**
+     * Expire the holds due by now, done by the ticker thread once a tick.
+     *
+     * @return The number of holds expired
+     */
+    int expireHolds() {
+        return wheel.advance();
+    }
+
+    private void tick() {
+        while (!closed) {
+            LockSupport.parkNanos(this, wheel.getTickNanos());
+            try {
+                expireHolds();
+            } catch (final RuntimeException e) {
+                log.error("Error while expiring seat holds.", e);
+            }
+        }
+    }
+
+    private void expire(final Hold hold) {
+        if (hold.state.compareAndSet(HELD, RELEASED)) {
+            holds.remove(hold.holdId);
+            screening.release(hold.allocation);
+            log.debug("Seat hold {} of account {} expired.", hold.holdId, hold.accountId);
+        }
+    }
+
+    private static final class Hold {
+        private final long holdId;
+        private final long accountId;
+        private final SeatAllocation allocation;
+        private final AtomicInteger state = new AtomicInteger(HELD);
+        private volatile HierarchicalTimingWheel.Timeout<Hold> timeout;
+
+        private Hold(final long holdId, final long accountId, final SeatAllocation allocation) {
+            this.holdId = holdId;
+            this.accountId = accountId;
+            this.allocation = allocation;
+        }
+
+        private void cancelTimeout() {
+            final HierarchicalTimingWheel.Timeout<Hold> scheduled = timeout;
+            if (scheduled != null) {
+                scheduled.cancel();
+            }
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package uk.gov.dwp.uc.pairtest.seating;
+
+/**
+ * Reserves seats in two steps, holding them first then confirming or releasing the hold,
+ * so a reservation can be undone until it is confirmed.
+ */
+public interface SeatHolding extends SeatAvailability {
+
+    /**
+     * Hold seats until they are confirmed or released.
+     *
+     * @param  accountId  The Account ID
+     * @param  totalSeats The number of seats to hold
+     * @return The hold id
+     * @throws uk.gov.dwp.uc.pairtest.exception.SeatsUnavailableException If not enough seats are available
+     */
+    long hold(long accountId, int totalSeats);
+
+    /**
+     * Extend a hold by its full time to live from now, e.g. just before taking the payment for it,
+     * so it cannot lapse while the payment is in flight.
+     *
+     * @param  holdId The hold id
+     * @return True if the hold is extended, false if it is no longer held
+     */
+    boolean extend(long holdId);
+
+    /**
+     * Confirm a hold, the seats stay reserved for good.
+     *
+     * @param  holdId The hold id
+     * @return True if the hold is confirmed, false if it is no longer held
+     */
+    boolean confirm(long holdId);
+
+    /**
+     * Release a hold, returning its seats.
+     *
+     * @param  holdId The hold id
+     * @return True if the hold is released, false if it is no longer held
+     */
+    boolean release(long holdId);
+}
@@ -0,0 +1,112 @@
+package uk.gov.dwp.uc.pairtest.shard;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable Object
+ * <p>
+ * A consistent hash ring mapping keys to named nodes.
+ * Each node is placed on the ring at several virtual points, and a key belongs to the node of the first point
+ * at or after the hash of the key. Adding or removing a node only moves the keys between its points
+ * and the points before them, about 1/n of all keys, and the virtual points spread that share evenly over the others.
+ * Lookup is a binary search over a sorted primitive array.
+ * </p>
+ */
+public final class ConsistentHashRing {
+
+    private final List<String> nodes;
+    private final int virtualNodes;
+    private final long[] points;
+    private final int[] pointNodes;
+
+    /**
+     * Create a ring of the given nodes.
+     *
+     * @param  nodes        The node names, without duplicates
+     * @param  virtualNodes The number of points of each node on the ring
+     */
+    public ConsistentHashRing(final List<String> nodes, final int virtualNodes) {
+        if (virtualNodes < 1) {
+            throw new IllegalArgumentException("virtualNodes must be at least 1");
+        }
+        if (nodes.stream().distinct().count() != nodes.size()) {
+            throw new IllegalArgumentException("Duplicate node name in " + nodes);
+        }
+        this.nodes = Collections.unmodifiableList(new ArrayList<>(nodes));
+        this.virtualNodes = virtualNodes;
+
+        final int pointCount = nodes.size() * virtualNodes;
+        final long[][] entries = new long[pointCount][];
+        for (int node = 0; node < nodes.size(); node++) {
+            final long nodeHash = nodes.get(node).hashCode();
+            for (int point = 0; point < virtualNodes; point++) {
+                entries[node * virtualNodes + point] = new long[] {mix(nodeHash << 32 | point), node};
+            }
+        }
+        Arrays.sort(entries, (a, b) -> Long.compare(a[0], b[0]));
+        this.points = new long[pointCount];
+        this.pointNodes = new int[pointCount];
+        for (int index = 0; index < pointCount; index++) {
+            points[index] = entries[index][0];
+            pointNodes[index] = (int) entries[index][1];
+        }
+    }
+
+    /**
+     * Get the node a key belongs to.
+     *
+     * @param  key The routing key, e.g. the Account ID
+     * @return The node name
+     */
+    public String nodeFor(final long key) {
+        if (points.length == 0) {
+            throw new IllegalStateException("The ring has no nodes");
+        }
+        int index = Arrays.binarySearch(points, mix(key));
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return nodes.get(pointNodes[index == points.length ? 0 : index]);
+    }
+
+    /**
+     * Create a ring with a node added.
+     *
+     * @param  node The node name
+     * @return The new ring
+     */
+    public ConsistentHashRing withNode(final String node) {
+        final List<String> updated = new ArrayList<>(nodes);
+        updated.add(node);
+        return new ConsistentHashRing(updated, virtualNodes);
+    }
+
+    /**
+     * Create a ring with a node removed.
+     *
+     * @param  node The node name
+     * @return The new ring
+     */
+    public ConsistentHashRing withoutNode(final String node) {
+        final List<String> updated = new ArrayList<>(nodes);
+        updated.remove(node);
+        return new ConsistentHashRing(updated, virtualNodes);
+    }
+
+    public List<String> getNodes() {
+        return nodes;
+    }
+
+    /**
+     * SplitMix64 finalizer, spreads sequential keys and node points evenly over the ring.
+     */
+    private static long mix(final long value) {
+        long z = value + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,94 @@
+package uk.gov.dwp.uc.pairtest.shard;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+
+import thirdparty.paymentgateway.TicketPaymentService;
+import thirdparty.seatbooking.SeatReservationService;
+import uk.gov.dwp.uc.pairtest.TicketService;
+import uk.gov.dwp.uc.pairtest.TicketServiceImpl;
+import uk.gov.dwp.uc.pairtest.seating.InMemorySeatReservationService;
+import uk.gov.dwp.uc.pairtest.seating.ScreeningSeatMap;
+
+/**
+ * In-process stand-in for a cluster of Ticket service nodes selling one screening, for testing scale-out
+ * without a network.
+ * <p>
+ * The rows of the screening are partitioned into blocks of {@code rowsPerShard} rows. Each node created for a shard
+ * takes the next free block and has its own {@link TicketServiceImpl} reserving seats in a {@link ScreeningSeatMap}
+ * of that block, sharing only the payment service, so the nodes together never sell more seats than the screening
+ * has. A node cannot be created once every block is taken. A removed node keeps its block, as shard state is not
+ * migrated. A simulated network hop delays each reservation, as a call to a remote seat booking node would.
+ * </p>
+ */
+public class LocalShardCluster implements Function<String, TicketService> {
+
+    private final TicketPaymentService paymentService;
+    private final int rowsPerShard;
+    private final int seatsPerRow;
+    private final long hopNanos;
+    private final Map<String, ScreeningSeatMap> screenings = new ConcurrentHashMap<>();
+    private int freeRows;
+
+    /**
+     * @param  paymentService The payment service shared by every node
+     * @param  rows           The rows of the screening
+     * @param  seatsPerRow    The seats per row of the screening
+     * @param  rowsPerShard   The rows of the block of each node
+     * @param  hopLatency     The simulated network latency of each reservation
+     * @param  unit           The unit of the latency
+     */
+    public LocalShardCluster(final TicketPaymentService paymentService, final int rows, final int seatsPerRow,
+                             final int rowsPerShard, final long hopLatency, final TimeUnit unit) {
+        if (rowsPerShard < 1 || rowsPerShard > rows) {
+            throw new IllegalArgumentException("Invalid rows per shard: " + rowsPerShard);
+        }
+        this.paymentService = paymentService;
+        this.freeRows = rows;
+        this.seatsPerRow = seatsPerRow;
+        this.rowsPerShard = rowsPerShard;
+        this.hopNanos = unit.toNanos(hopLatency);
+    }
+
+    /**
+     * Create the node of a shard, selling the next free block of rows.
+     *
+     * @param  shardName The shard name
+     * @return The Ticket service of the node
+     * @throws IllegalStateException if every block of the screening is taken
+     */
+    @Override
+    public TicketService apply(final String shardName) {
+        final ScreeningSeatMap screening = new ScreeningSeatMap(takeBlock(), seatsPerRow);
+        screenings.put(shardName, screening);
+        final SeatReservationService reservationService = new InMemorySeatReservationService(screening);
+        final SeatReservationService remoteReservationService = (accountId, totalSeats) -> {
+            if (hopNanos > 0) {
+                LockSupport.parkNanos(hopNanos);
+            }
+            reservationService.reserveSeat(accountId, totalSeats);
+        };
+        return new TicketServiceImpl(paymentService, remoteReservationService);
+    }
+
+    /**
+     * Get the block of the screening sold by a node.
+     *
+     * @param  shardName The shard name
+     * @return The block of the node, or null if no node was created for the shard
+     */
+    public ScreeningSeatMap getScreening(final String shardName) {
+        return screenings.get(shardName);
+    }
+
+    private synchronized int takeBlock() {
+        if (freeRows < rowsPerShard) {
+            throw new IllegalStateException("Every block of the screening is taken");
+        }
+        freeRows -= rowsPerShard;
+        return rowsPerShard;
+    }
+}
@@ -0,0 +1,122 @@
+package uk.gov.dwp.uc.pairtest.shard;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import uk.gov.dwp.uc.pairtest.TicketService;
+import uk.gov.dwp.uc.pairtest.async.PurchaseExecutors;
+import uk.gov.dwp.uc.pairtest.domain.PurchaseResult;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest;
+
+/**
+ * A shard owning its own Ticket service and state, written by a single thread.
+ * <p>
+ * Every purchase routed to the shard runs on its one thread in arrival order,
+ * so the shard state, e.g. its seat map, is never contended.
+ * A purchase arriving while {@code queueCapacity} purchases wait is rejected as overloaded.
+ * </p>
+ */
+public class PurchaseShard {
+
+    final static Logger log =
+            LoggerFactory.getLogger(PurchaseShard.class);
+
+    private static final long MIN_DRAIN_BACKOFF_NANOS = TimeUnit.MICROSECONDS.toNanos(10);
+    private static final long MAX_DRAIN_BACKOFF_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final String name;
+    private final TicketService ticketService;
+    private final ExecutorService executor;
+    private final LongAdder purchases = new LongAdder();
+
+    /**
+     * The constructor which initializes the shard Ticket service and its single thread.
+     *
+     * @param  name          The shard name
+     * @param  ticketService The Ticket service of the shard, only called from the shard thread
+     * @param  queueCapacity The number of purchases which may wait for the shard thread
+     */
+    public PurchaseShard(final String name, final TicketService ticketService, final int queueCapacity) {
+        this.name = name;
+        this.ticketService = ticketService;
+        this.executor = PurchaseExecutors.boundedPlatform(1, queueCapacity);
+    }
+
+    /**
+     * Queue a purchase on the shard thread.
+     *
+     * @param  accountId          The Account ID
+     * @param  ticketTypeRequests The ticket purchase requests
+     * @return A future of the purchase result
+     */
+    public CompletableFuture<PurchaseResult> submit(final Long accountId, final TicketTypeRequest... ticketTypeRequests) {
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                purchases.increment();
+                return ticketService.tryPurchaseTickets(accountId, ticketTypeRequests);
+            }, executor);
+        } catch (final RejectedExecutionException e) {
+            return CompletableFuture.completedFuture(PurchaseResult.rejected(PurchaseResult.Status.OVERLOADED));
+        }
+    }
+
+    /**
+     * Wait until every purchase queued so far has run.
+     * While the queue is full the caller parks, backing off up to a millisecond, until the shard thread makes room.
+     *
+     * @return A future completed once the shard thread has caught up
+     */
+    CompletableFuture<Void> drain() {
+        final CompletableFuture<Void> drained = new CompletableFuture<>();
+        long backoffNanos = MIN_DRAIN_BACKOFF_NANOS;
+        while (!executor.isShutdown()) {
+            try {
+                executor.execute(() -> drained.complete(null));
+                return drained;
+            } catch (final RejectedExecutionException e) {
+                // The queue is full, a slow shard may take a while to make room, so park rather than spin.
+                LockSupport.parkNanos(backoffNanos);
+                backoffNanos = Math.min(backoffNanos * 2, MAX_DRAIN_BACKOFF_NANOS);
+            }
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * Run the purchases already queued, then stop the shard thread.
+     */
+    void close() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                log.error("Shard {} did not finish its queued purchases.", name);
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public TicketService getTicketService() {
+        return ticketService;
+    }
+
+    /**
+     * Get the number of purchases run by the shard.
+     *
+     * @return The number of purchases
+     */
+    public long getPurchaseCount() {
+        return purchases.sum();
+    }
+}
@@ -0,0 +1,198 @@
+package uk.gov.dwp.uc.pairtest.shard;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import uk.gov.dwp.uc.pairtest.TicketService;
+import uk.gov.dwp.uc.pairtest.async.AsyncTicketService;
+import uk.gov.dwp.uc.pairtest.domain.PurchaseResult;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest;
+
+/**
+ * Front-end of a partitioned Ticket service, routing each purchase to a single-writer {@link PurchaseShard}.
+ * <p>
+ * Purchases are routed by key over a {@link ConsistentHashRing}: the Account ID by default, or a key given
+ * with the purchase such as the screening id, so all purchases of one key run in order on one shard thread.
+ * </p>
+ * <p>
+ * Shards can be added or removed while purchases run. Rebalancing briefly holds back routing
+ * until every shard has run the purchases routed under the old ring, so a key which moves never runs on
+ * its old and new shard at once. Only the keys of the added or removed shard move.
+ * Shard state is not migrated, a shard owning real state, e.g. seats, must be given it by the service factory.
+ * </p>
+ */
+public class ShardedTicketService implements AsyncTicketService, Closeable {
+
+    final static Logger log =
+            LoggerFactory.getLogger(ShardedTicketService.class);
+
+    private final Function<String, TicketService> serviceFactory;
+    private final int queueCapacity;
+    private final StampedLock routingLock = new StampedLock();
+    private volatile Routing routing;
+
+    /**
+     * The constructor which creates the initial shards.
+     *
+     * @param  serviceFactory Creates the Ticket service of a shard from its name
+     * @param  virtualNodes   The number of points of each shard on the hash ring
+     * @param  queueCapacity  The number of purchases which may wait for each shard thread
+     * @param  shardNames     The names of the initial shards
+     */
+    public ShardedTicketService(final Function<String, TicketService> serviceFactory, final int virtualNodes,
+                                final int queueCapacity, final List<String> shardNames) {
+        this.serviceFactory = serviceFactory;
+        this.queueCapacity = queueCapacity;
+        final Map<String, PurchaseShard> shards = new HashMap<>();
+        for (final String name : shardNames) {
+            shards.put(name, new PurchaseShard(name, serviceFactory.apply(name), queueCapacity));
+        }
+        this.routing = new Routing(new ConsistentHashRing(shardNames, virtualNodes), shards);
+    }
+
+    /**
+     * Purchase tickets on the shard of the account.
+     */
+    @Override
+    public CompletableFuture<PurchaseResult> purchaseTickets(final Long accountId,
+                                                             final TicketTypeRequest... ticketTypeRequests) {
+        if (accountId == null) {
+            return CompletableFuture.completedFuture(PurchaseResult.rejected(PurchaseResult.Status.INVALID_ACCOUNT));
+        }
+        return purchaseTickets(accountId, accountId, ticketTypeRequests);
+    }
+
+    /**
+     * Purchase tickets on the shard of a routing key.
+     *
+     * @param  routingKey         The key choosing the shard, e.g. the screening id
+     * @param  accountId          The Account ID
+     * @param  ticketTypeRequests The ticket purchase requests
+     * @return A future of the purchase result
+     */
+    public CompletableFuture<PurchaseResult> purchaseTickets(final long routingKey, final Long accountId,
+                                                             final TicketTypeRequest... ticketTypeRequests) {
+        final long stamp = routingLock.readLock();
+        try {
+            return routing.shardFor(routingKey).submit(accountId, ticketTypeRequests);
+        } finally {
+            routingLock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Add a shard, taking over its share of the keys.
+     *
+     * @param  name The shard name
+     */
+    public void addShard(final String name) {
+        final PurchaseShard shard = new PurchaseShard(name, serviceFactory.apply(name), queueCapacity);
+        final long stamp = routingLock.writeLock();
+        try {
+            final Routing current = routing;
+            if (current.shards.containsKey(name)) {
+                shard.close();
+                throw new IllegalArgumentException("Shard " + name + " already exists");
+            }
+            final Map<String, PurchaseShard> shards = new HashMap<>(current.shards);
+            shards.put(name, shard);
+            drain(current);
+            routing = new Routing(current.ring.withNode(name), shards);
+        } finally {
+            routingLock.unlockWrite(stamp);
+        }
+        log.info("Added shard {}.", name);
+    }
+
+    /**
+     * Remove a shard after it has run its queued purchases, handing its keys to the other shards.
+     *
+     * @param  name The shard name
+     */
+    public void removeShard(final String name) {
+        final PurchaseShard removed;
+        final long stamp = routingLock.writeLock();
+        try {
+            final Routing current = routing;
+            if (!current.shards.containsKey(name) || current.shards.size() == 1) {
+                throw new IllegalArgumentException("Shard " + name + " is not one of several shards");
+            }
+            final Map<String, PurchaseShard> shards = new HashMap<>(current.shards);
+            removed = shards.remove(name);
+            drain(current);
+            routing = new Routing(current.ring.withoutNode(name), shards);
+        } finally {
+            routingLock.unlockWrite(stamp);
+        }
+        removed.close();
+        log.info("Removed shard {}.", name);
+    }
+
+    /**
+     * Get the shard a routing key belongs to.
+     *
+     * @param  routingKey The routing key
+     * @return The shard
+     */
+    public PurchaseShard shardFor(final long routingKey) {
+        return routing.shardFor(routingKey);
+    }
+
+    /**
+     * Get the shards.
+     *
+     * @return The shards, in no particular order
+     */
+    public List<PurchaseShard> getShards() {
+        return new ArrayList<>(routing.shards.values());
+    }
+
+    /**
+     * Run the purchases already queued on every shard, then stop the shard threads.
+     */
+    @Override
+    public void close() {
+        final long stamp = routingLock.writeLock();
+        try {
+            for (final PurchaseShard shard : routing.shards.values()) {
+                shard.close();
+            }
+        } finally {
+            routingLock.unlockWrite(stamp);
+        }
+    }
+
+    private static void drain(final Routing current) {
+        final List<CompletableFuture<Void>> drained = new ArrayList<>();
+        for (final PurchaseShard shard : current.shards.values()) {
+            drained.add(shard.drain());
+        }
+        CompletableFuture.allOf(drained.toArray(new CompletableFuture<?>[0])).join();
+    }
+
+    /**
+     * The ring and the shards it routes to, swapped together on rebalancing.
+     */
+    private static final class Routing {
+        private final ConsistentHashRing ring;
+        private final Map<String, PurchaseShard> shards;
+
+        private Routing(final ConsistentHashRing ring, final Map<String, PurchaseShard> shards) {
+            this.ring = ring;
+            this.shards = shards;
+        }
+
+        private PurchaseShard shardFor(final long routingKey) {
+            return shards.get(ring.nodeFor(routingKey));
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package uk.gov.dwp.uc.pairtest.timer;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+/**
+ * A hierarchical timing wheel expiring timeouts in constant time per timeout.
+ * <p>
+ * Time advances in ticks. The wheel has four levels of 64 slots: level 0 holds the timeouts due within 64 ticks,
+ * one slot per tick, and each level above holds 64 times the span of the level below.
+ * Scheduling and cancelling link or unlink a timeout from the list of its slot, with no search or sort.
+ * Each time a level completes a revolution, the next slot of the level above is cascaded into the levels below,
+ * so a timeout moves down at most three times before it expires. Timeouts further than 64^4 ticks away
+ * wait in the top level and are cascaded again until they are in reach.
+ * </p>
+ * <p>
+ * The wheel expires nothing by itself, {@link #advance} must be called at least once a tick, e.g. by a single
+ * ticker thread. Expired timeouts are handed to the expiry handler on the advancing thread, after the wheel lock
+ * is released, so the handler may schedule or cancel timeouts. A timeout expires up to one tick late.
+ * </p>
+ *
+ * @param <T> The payload of the timeouts
+ */
+public class HierarchicalTimingWheel<T> {
+
+    private static final int WHEEL_BITS = 6;
+    private static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+    private static final int LEVELS = 4;
+    private static final long MAX_SPAN_TICKS = 1L << (WHEEL_BITS * LEVELS);
+
+    private final long tickNanos;
+    private final LongSupplier clock;
+    private final long startNanos;
+    private final Consumer<T> expiryHandler;
+    private final Timeout<T>[] slots;
+    private long currentTick;
+    private int size;
+
+    /**
+     * Create a timing wheel using the system clock.
+     *
+     * @param  tickDuration  The duration of a tick, the precision of expiry
+     * @param  unit          The unit of the duration
+     * @param  expiryHandler Receives the payload of each expired timeout
+     */
+    public HierarchicalTimingWheel(final long tickDuration, final TimeUnit unit, final Consumer<T> expiryHandler) {
+        this(tickDuration, unit, expiryHandler, System::nanoTime);
+    }
+
+    /**
+     * Create a timing wheel reading time from the given clock.
+     *
+     * @param  tickDuration  The duration of a tick, the precision of expiry
+     * @param  unit          The unit of the duration
+     * @param  expiryHandler Receives the payload of each expired timeout
+     * @param  clock         The clock, in nanoseconds
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public HierarchicalTimingWheel(final long tickDuration, final TimeUnit unit, final Consumer<T> expiryHandler,
+                            final LongSupplier clock) {
+        if (tickDuration <= 0) {
+            throw new IllegalArgumentException("Tick duration must be positive");
+        }
+        this.tickNanos = unit.toNanos(tickDuration);
+        this.clock = clock;
+        this.startNanos = clock.getAsLong();
+        this.expiryHandler = expiryHandler;
+        this.slots = new Timeout[LEVELS * WHEEL_SIZE];
+    }
+
+    /**
+     * Schedule a timeout.
+     *
+     * @param  payload The payload handed to the expiry handler
+     * @param  delay   The delay before the timeout expires, at least one tick
+     * @param  unit    The unit of the delay
+     * @return The timeout, which can be cancelled
+     */
+    public synchronized Timeout<T> schedule(final T payload, final long delay, final TimeUnit unit) {
+        final long delayTicks = Math.max(1, (unit.toNanos(delay) + tickNanos - 1) / tickNanos);
+        final Timeout<T> timeout = new Timeout<>(this, payload, currentTick + delayTicks);
+        insert(timeout);
+        size++;
+        return timeout;
+    }
+
+    /**
+     * Advance the wheel to the current time, expiring every timeout due by then.
+     *
+     * @return The number of timeouts expired
+     */
+    public int advance() {
+        final long targetTick = (clock.getAsLong() - startNanos) / tickNanos;
+        Timeout<T> expired = null;
+        synchronized (this) {
+            while (currentTick < targetTick) {
+                currentTick++;
+                cascade();
+                final int slot = (int) (currentTick & WHEEL_MASK);
+                Timeout<T> timeout = slots[slot];
+                slots[slot] = null;
+                while (timeout != null) {
+                    final Timeout<T> next = timeout.next;
+                    timeout.state = Timeout.EXPIRED;
+                    timeout.prev = null;
+                    timeout.next = expired;
+                    expired = timeout;
+                    size--;
+                    timeout = next;
+                }
+            }
+        }
+
+        int count = 0;
+        while (expired != null) {
+            final Timeout<T> next = expired.next;
+            expired.next = null;
+            expiryHandler.accept(expired.payload);
+            expired = next;
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Get the number of timeouts scheduled and not yet expired or cancelled.
+     *
+     * @return The number of pending timeouts
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Get the duration of a tick.
+     *
+     * @return The tick duration in nanoseconds
+     */
+    public long getTickNanos() {
+        return tickNanos;
+    }
+
+    private void cascade() {
+        for (int level = LEVELS - 1; level > 0; level--) {
+            if ((currentTick & ((1L << (WHEEL_BITS * level)) - 1)) != 0) {
+                continue;
+            }
+            final int slot = level * WHEEL_SIZE + (int) ((currentTick >>> (WHEEL_BITS * level)) & WHEEL_MASK);
+            Timeout<T> timeout = slots[slot];
+            slots[slot] = null;
+            while (timeout != null) {
+                final Timeout<T> next = timeout.next;
+                insert(timeout);
+                timeout = next;
+            }
+        }
+    }
+
+    private void insert(final Timeout<T> timeout) {
+        final long delta = timeout.deadlineTick - currentTick;
+        int level = 0;
+        while (level < LEVELS - 1 && delta >= 1L << (WHEEL_BITS * (level + 1))) {
+            level++;
+        }
+        // Beyond the span of the wheel, wait in the furthest top slot and be cascaded again.
+        final long slotTick = delta >= MAX_SPAN_TICKS ? currentTick + MAX_SPAN_TICKS - 1 : timeout.deadlineTick;
+        final int slot = level * WHEEL_SIZE + (int) ((slotTick >>> (WHEEL_BITS * level)) & WHEEL_MASK);
+
+        final Timeout<T> head = slots[slot];
+        timeout.slot = slot;
+        timeout.prev = null;
+        timeout.next = head;
+        if (head != null) {
+            head.prev = timeout;
+        }
+        slots[slot] = timeout;
+    }
+
+    private synchronized boolean cancel(final Timeout<T> timeout) {
+        if (timeout.state != Timeout.PENDING) {
+            return false;
+        }
+        if (timeout.prev == null) {
+            slots[timeout.slot] = timeout.next;
+        } else {
+            timeout.prev.next = timeout.next;
+        }
+        if (timeout.next != null) {
+            timeout.next.prev = timeout.prev;
+        }
+        timeout.prev = null;
+        timeout.next = null;
+        timeout.state = Timeout.CANCELLED;
+        size--;
+        return true;
+    }
+
+    /**
+     * A scheduled timeout, linked into the list of its wheel slot.
+     *
+     * @param <T> The payload of the timeout
+     */
+    public static final class Timeout<T> {
+
+        private static final int PENDING = 0;
+        private static final int EXPIRED = 1;
+        private static final int CANCELLED = 2;
+
+        private final HierarchicalTimingWheel<T> wheel;
+        private final T payload;
+        private final long deadlineTick;
+        private Timeout<T> prev;
+        private Timeout<T> next;
+        private int slot;
+        private int state = PENDING;
+
+        private Timeout(final HierarchicalTimingWheel<T> wheel, final T payload, final long deadlineTick) {
+            this.wheel = wheel;
+            this.payload = payload;
+            this.deadlineTick = deadlineTick;
+        }
+
+        /**
+         * Cancel the timeout so it never expires.
+         *
+         * @return True if the timeout was pending, false if it already expired or was cancelled
+         */
+        public boolean cancel() {
+            return wheel.cancel(this);
+        }
+
+        public T getPayload() {
+            return payload;
+        }
+    }
+}
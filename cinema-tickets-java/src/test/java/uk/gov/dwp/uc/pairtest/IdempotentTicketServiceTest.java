@@ -0,0 +1,161 @@
+package uk.gov.dwp.uc.pairtest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+
+import thirdparty.paymentgateway.TicketPaymentService;
+import thirdparty.seatbooking.SeatReservationService;
+import uk.gov.dwp.uc.pairtest.domain.PurchaseResult;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest.Type;
+import uk.gov.dwp.uc.pairtest.exception.ErrorMessages;
+import uk.gov.dwp.uc.pairtest.exception.InvalidPurchaseException;
+
+/**
+ * Tests to verify repeated purchases through IdempotentTicketService.
+ */
+public class IdempotentTicketServiceTest {
+
+    private final Long VALID_ACCOUNT_ID = 1000L;
+
+    private final TicketPaymentService mockPaymentService = Mockito.mock(TicketPaymentService.class);
+    private final SeatReservationService mockReservationService = Mockito.mock(SeatReservationService.class);
+    private final IdempotentTicketService ticketService = new IdempotentTicketService(
+            new TicketServiceImpl(mockPaymentService, mockReservationService), 1024, 1, TimeUnit.HOURS);
+
+    /**
+     * Success test to verify a retried purchase is paid and reserved once.
+     */
+    @Test
+    public void testRetriedPurchaseIsPaidOnce() {
+        final TicketTypeRequest adultTicketRequest = createTicketRequest(Type.ADULT, 2);
+
+        ticketService.purchaseTickets("order-1", VALID_ACCOUNT_ID, adultTicketRequest);
+        ticketService.purchaseTickets("order-1", VALID_ACCOUNT_ID, adultTicketRequest);
+
+        Mockito.verify(mockPaymentService, Mockito.times(1)).makePayment(VALID_ACCOUNT_ID, 40);
+        Mockito.verify(mockReservationService, Mockito.times(1)).reserveSeat(VALID_ACCOUNT_ID, 2);
+    }
+
+    /**
+     * Success test to verify the same key on different accounts, or no key, purchases each time.
+     */
+    @Test
+    public void testDistinctAccountsAndMissingKeyArePurchased() {
+        final TicketTypeRequest adultTicketRequest = createTicketRequest(Type.ADULT, 1);
+
+        ticketService.purchaseTickets("order-1", VALID_ACCOUNT_ID, adultTicketRequest);
+        ticketService.purchaseTickets("order-1", 2000L, adultTicketRequest);
+        ticketService.purchaseTickets(null, VALID_ACCOUNT_ID, adultTicketRequest);
+
+        Mockito.verify(mockPaymentService, Mockito.times(3)).makePayment(ArgumentMatchers.anyLong(), ArgumentMatchers.eq(20));
+    }
+
+    /**
+     * Failure test to verify a retried rejected purchase replays the same rejection, without a stack trace.
+     */
+    @Test
+    public void testRetriedRejectionIsReplayed() {
+        final TicketTypeRequest childTicketRequest = createTicketRequest(Type.CHILD, 1);
+        final InvalidPurchaseException first = purchaseExpectingRejection("order-2", childTicketRequest);
+        final InvalidPurchaseException second = purchaseExpectingRejection("order-2", childTicketRequest);
+
+        assertSame(first, second);
+        assertEquals(0, first.getStackTrace().length);
+        Mockito.verifyNoInteractions(mockPaymentService, mockReservationService);
+    }
+
+    /**
+     * Failure test to verify a booking which failed after the payment is replayed as a failure,
+     * rather than as a confirmed purchase, and is not paid again.
+     */
+    @Test
+    public void testRetriedFailedBookingIsReplayedAsFailure() {
+        final TicketTypeRequest adultTicketRequest = createTicketRequest(Type.ADULT, 1);
+        Mockito.doThrow(new IllegalStateException("Reservation service down"))
+                .when(mockReservationService).reserveSeat(VALID_ACCOUNT_ID, 1);
+
+        final InvalidPurchaseException first = purchaseExpectingRejection("order-3", adultTicketRequest);
+        final InvalidPurchaseException second = purchaseExpectingRejection("order-3", adultTicketRequest);
+
+        assertEquals(ErrorMessages.BOOKING_FAILED, first.getMessage());
+        assertSame(first, second);
+        assertEquals(PurchaseResult.Status.BOOKING_FAILED,
+                ticketService.tryPurchaseTickets("order-3", VALID_ACCOUNT_ID, adultTicketRequest).getStatus());
+        Mockito.verify(mockPaymentService, Mockito.times(1)).makePayment(VALID_ACCOUNT_ID, 20);
+    }
+
+    /**
+     * Failure test to verify a key sent again with different tickets is rejected without a purchase,
+     * while the same tickets listed in another order replay the first result.
+     */
+    @Test
+    public void testReusedKeyWithDifferentTicketsIsRejected() {
+        final TicketTypeRequest adultTicketRequest = createTicketRequest(Type.ADULT, 2);
+        final TicketTypeRequest childTicketRequest = createTicketRequest(Type.CHILD, 1);
+
+        final PurchaseResult first = ticketService.tryPurchaseTickets("order-4", VALID_ACCOUNT_ID,
+                adultTicketRequest, childTicketRequest);
+        final PurchaseResult reordered = ticketService.tryPurchaseTickets("order-4", VALID_ACCOUNT_ID,
+                childTicketRequest, adultTicketRequest);
+        final PurchaseResult changed = ticketService.tryPurchaseTickets("order-4", VALID_ACCOUNT_ID,
+                createTicketRequest(Type.ADULT, 3));
+
+        assertSame(first, reordered);
+        assertEquals(PurchaseResult.Status.IDEMPOTENCY_KEY_REUSED, changed.getStatus());
+        assertEquals(ErrorMessages.IDEMPOTENCY_KEY_REUSED,
+                purchaseExpectingRejection("order-4", createTicketRequest(Type.ADULT, 3)).getMessage());
+        Mockito.verify(mockPaymentService, Mockito.times(1)).makePayment(ArgumentMatchers.anyLong(), ArgumentMatchers.anyInt());
+    }
+
+    /**
+     * Failure test to verify a running purchase is not evicted by a new key, which is refused as overloaded
+     * while the cache is full, so a retry of the running purchase is not paid again.
+     */
+    @Test
+    public void testRunningPurchaseIsNotEvicted() throws Exception {
+        final IdempotentTicketService smallService = new IdempotentTicketService(
+                new TicketServiceImpl(mockPaymentService, mockReservationService), 1, 1, TimeUnit.HOURS);
+        final TicketTypeRequest adultTicketRequest = createTicketRequest(Type.ADULT, 1);
+        final CountDownLatch paying = new CountDownLatch(1);
+        final CountDownLatch paid = new CountDownLatch(1);
+        Mockito.doAnswer(invocation -> {
+            paying.countDown();
+            paid.await();
+            return null;
+        }).when(mockPaymentService).makePayment(VALID_ACCOUNT_ID, 20);
+
+        final CompletableFuture<PurchaseResult> running = CompletableFuture.supplyAsync(
+                () -> smallService.tryPurchaseTickets("order-5", VALID_ACCOUNT_ID, adultTicketRequest));
+        paying.await();
+        final PurchaseResult refused = smallService.tryPurchaseTickets("order-6", 2000L, adultTicketRequest);
+        paid.countDown();
+
+        assertEquals(PurchaseResult.Status.OVERLOADED, refused.getStatus());
+        assertSame(running.get(), smallService.tryPurchaseTickets("order-5", VALID_ACCOUNT_ID, adultTicketRequest));
+        Mockito.verify(mockPaymentService, Mockito.times(1)).makePayment(ArgumentMatchers.anyLong(), ArgumentMatchers.anyInt());
+    }
+
+    private InvalidPurchaseException purchaseExpectingRejection(final String key, final TicketTypeRequest request) {
+        try {
+            ticketService.purchaseTickets(key, VALID_ACCOUNT_ID, request);
+        } catch (final InvalidPurchaseException e) {
+            return e;
+        }
+        fail("Purchase should be rejected");
+        return null;
+    }
+
+    private TicketTypeRequest createTicketRequest(final Type ticketType, final int quantity) {
+        return new TicketTypeRequest(ticketType, quantity);
+    }
+}
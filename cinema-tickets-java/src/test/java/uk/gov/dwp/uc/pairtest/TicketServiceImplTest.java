@@ -1,6 +1,12 @@
 package uk.gov.dwp.uc.pairtest;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.List;
 
 import org.junit.Test;
 import org.mockito.ArgumentMatchers;
@@ -10,12 +16,18 @@ import thirdparty.paymentgateway.TicketPaymentService;
 import thirdparty.paymentgateway.TicketPaymentServiceImpl;
 import thirdparty.seatbooking.SeatReservationService;
 import thirdparty.seatbooking.SeatReservationServiceImpl;
+import uk.gov.dwp.uc.pairtest.domain.PurchaseOrder;
+import uk.gov.dwp.uc.pairtest.domain.PurchaseResult;
 import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest;
 import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest.Type;
+import uk.gov.dwp.uc.pairtest.exception.ErrorMessages;
 import uk.gov.dwp.uc.pairtest.exception.InvalidAccountException;
 import uk.gov.dwp.uc.pairtest.exception.InvalidPurchaseException;
 import uk.gov.dwp.uc.pairtest.exception.MandatoryAdultTicketPurchaseRequiredException;
 import uk.gov.dwp.uc.pairtest.exception.MaxTicketPurchaseException;
+import uk.gov.dwp.uc.pairtest.metrics.MetricsSnapshot;
+import uk.gov.dwp.uc.pairtest.metrics.PurchaseMetrics;
+import uk.gov.dwp.uc.pairtest.seating.SeatAvailability;
 
 /**
  * Tests to verify success and failure scenarios of TicketServiceImpl.PurchaseTicket
@@ -205,6 +217,236 @@ public class TicketServiceImplTest {
         ticketService.purchaseTickets(VALID_ACCOUNT_ID, ticketTypeRequest);
     }
 
+    /**
+     * Success test to verify that orders from the same account in a batch are paid and reserved once.
+     * <p>
+     *  Test failure scenario - Coalesced third-party calls per account.
+     * </p>
+     */
+    @Test
+    public void testBatchPurchaseCoalescesOrdersPerAccount() {
+        final Long otherAccountId = 2000L;
+        final TicketPaymentService mockPaymentService = Mockito.mock(TicketPaymentService.class);
+        final SeatReservationService mockReservationService = Mockito.mock(SeatReservationService.class);
+        final TicketService batchTicketService = new TicketServiceImpl(mockPaymentService, mockReservationService);
+
+        final List<PurchaseResult> results = batchTicketService.purchaseBatch(Arrays.asList(
+                new PurchaseOrder(VALID_ACCOUNT_ID, createTicketRequest(Type.ADULT, 2)),
+                new PurchaseOrder(otherAccountId, createTicketRequest(Type.ADULT, 1)),
+                new PurchaseOrder(VALID_ACCOUNT_ID, createTicketRequest(Type.ADULT, 1),
+                        createTicketRequest(Type.CHILD, 1), createTicketRequest(Type.INFANT, 1))));
+
+        assertEquals(3, results.size());
+        assertTrue(results.get(0).isConfirmed());
+        assertEquals(40, results.get(0).getTotalAmount());
+        assertEquals(30, results.get(2).getTotalAmount());
+        assertEquals(2, results.get(2).getTotalSeats());
+
+        Mockito.verify(mockPaymentService, Mockito.times(1)).makePayment(VALID_ACCOUNT_ID, 70);
+        Mockito.verify(mockReservationService, Mockito.times(1)).reserveSeat(VALID_ACCOUNT_ID, 4);
+        Mockito.verify(mockPaymentService, Mockito.times(1)).makePayment(otherAccountId, 20);
+        Mockito.verify(mockReservationService, Mockito.times(1)).reserveSeat(otherAccountId, 1);
+        Mockito.verifyNoMoreInteractions(mockPaymentService, mockReservationService);
+    }
+
+    /**
+     * Failure test to verify that invalid orders in a batch are rejected without stopping the valid orders.
+     * <p>
+     *  Test failure scenario - Per order rejection in a batch.
+     * </p>
+     */
+    @Test
+    public void testBatchPurchaseRejectsInvalidOrders() {
+        final TicketPaymentService mockPaymentService = Mockito.mock(TicketPaymentService.class);
+        final SeatReservationService mockReservationService = Mockito.mock(SeatReservationService.class);
+        final TicketService batchTicketService = new TicketServiceImpl(mockPaymentService, mockReservationService);
+
+        final List<PurchaseResult> results = batchTicketService.purchaseBatch(Arrays.asList(
+                new PurchaseOrder(-1L, createTicketRequest(Type.ADULT, 1)),
+                new PurchaseOrder(VALID_ACCOUNT_ID, createTicketRequest(Type.ADULT, 21)),
+                new PurchaseOrder(VALID_ACCOUNT_ID, createTicketRequest(Type.CHILD, 1)),
+                null,
+                new PurchaseOrder(VALID_ACCOUNT_ID, createTicketRequest(Type.ADULT, 1))));
+
+        assertEquals(PurchaseResult.Status.INVALID_ACCOUNT, results.get(0).getStatus());
+        assertEquals(ErrorMessages.INVALID_ACCOUNT, results.get(0).getErrorMessage());
+        assertEquals(PurchaseResult.Status.MAX_TICKET_PURCHASE_EXCEEDED, results.get(1).getStatus());
+        assertEquals(PurchaseResult.Status.MANDATORY_ADULT_TICKET_PURCHASE_REQUIRED, results.get(2).getStatus());
+        assertEquals(PurchaseResult.Status.INVALID_PURCHASE, results.get(3).getStatus());
+        assertTrue(results.get(4).isConfirmed());
+
+        Mockito.verify(mockPaymentService, Mockito.times(1)).makePayment(VALID_ACCOUNT_ID, 20);
+        Mockito.verify(mockReservationService, Mockito.times(1)).reserveSeat(VALID_ACCOUNT_ID, 1);
+        Mockito.verifyNoMoreInteractions(mockPaymentService, mockReservationService);
+    }
+
+    /**
+     * Failure test to verify that every order of an account is failed when its third-party call fails.
+     * <p>
+     *  Test failure scenario - Third party service error in a batch.
+     * </p>
+     */
+    @Test
+    public void testBatchPurchaseThirdPartyServiceError() {
+        final Long otherAccountId = 2000L;
+        final TicketPaymentService mockPaymentService = Mockito.mock(TicketPaymentService.class);
+        Mockito.doThrow(RuntimeException.class)
+                .when(mockPaymentService)
+                .makePayment(ArgumentMatchers.eq(VALID_ACCOUNT_ID.longValue()), ArgumentMatchers.anyInt());
+        final SeatReservationService mockReservationService = Mockito.mock(SeatReservationService.class);
+        final TicketService batchTicketService = new TicketServiceImpl(mockPaymentService, mockReservationService);
+
+        final List<PurchaseResult> results = batchTicketService.purchaseBatch(Arrays.asList(
+                new PurchaseOrder(VALID_ACCOUNT_ID, createTicketRequest(Type.ADULT, 1)),
+                new PurchaseOrder(otherAccountId, createTicketRequest(Type.ADULT, 1)),
+                new PurchaseOrder(VALID_ACCOUNT_ID, createTicketRequest(Type.ADULT, 1))));
+
+        assertEquals(PurchaseResult.Status.BOOKING_FAILED, results.get(0).getStatus());
+        assertTrue(results.get(1).isConfirmed());
+        assertEquals(PurchaseResult.Status.BOOKING_FAILED, results.get(2).getStatus());
+        Mockito.verify(mockReservationService, Mockito.never()).reserveSeat(ArgumentMatchers.eq(VALID_ACCOUNT_ID.longValue()), ArgumentMatchers.anyInt());
+    }
+
+    /**
+     * Success test to verify the result API confirms a valid purchase with its amount and seats.
+     * <p>
+     *  Test failure scenario - Confirmed purchase result.
+     * </p>
+     */
+    @Test
+    public void testTryPurchaseTicketsConfirmed() {
+        final TicketPaymentService mockPaymentService = Mockito.mock(TicketPaymentService.class);
+        final SeatReservationService mockReservationService = Mockito.mock(SeatReservationService.class);
+        final TicketService resultTicketService = new TicketServiceImpl(mockPaymentService, mockReservationService);
+
+        final PurchaseResult result = resultTicketService.tryPurchaseTickets(VALID_ACCOUNT_ID,
+                createTicketRequest(Type.ADULT, 2), createTicketRequest(Type.INFANT, 1));
+
+        assertTrue(result.isConfirmed());
+        assertEquals(40, result.getTotalAmount());
+        assertEquals(2, result.getTotalSeats());
+        Mockito.verify(mockPaymentService, Mockito.times(1)).makePayment(VALID_ACCOUNT_ID, 40);
+        Mockito.verify(mockReservationService, Mockito.times(1)).reserveSeat(VALID_ACCOUNT_ID, 2);
+    }
+
+    /**
+     * Failure test to verify the result API reports rejections and booking failures without throwing.
+     * <p>
+     *  Test failure scenario - Rejected purchase results.
+     * </p>
+     */
+    @Test
+    public void testTryPurchaseTicketsRejected() {
+        final TicketPaymentService mockPaymentService = Mockito.mock(TicketPaymentService.class);
+        Mockito.doThrow(RuntimeException.class)
+                .when(mockPaymentService)
+                .makePayment(ArgumentMatchers.eq(2000L), ArgumentMatchers.anyInt());
+        final TicketService resultTicketService =
+                new TicketServiceImpl(mockPaymentService, Mockito.mock(SeatReservationService.class));
+
+        assertEquals(PurchaseResult.Status.INVALID_ACCOUNT,
+                resultTicketService.tryPurchaseTickets(-1L, createTicketRequest(Type.ADULT, 1)).getStatus());
+        assertEquals(PurchaseResult.Status.MAX_TICKET_PURCHASE_EXCEEDED,
+                resultTicketService.tryPurchaseTickets(VALID_ACCOUNT_ID, createTicketRequest(Type.ADULT, 21)).getStatus());
+        assertEquals(ErrorMessages.MANDATORY_ADULT_TICKET_PURCHASE_REQUIRED,
+                resultTicketService.tryPurchaseTickets(VALID_ACCOUNT_ID, createTicketRequest(Type.CHILD, 1)).getErrorMessage());
+        assertEquals(PurchaseResult.Status.INVALID_PURCHASE,
+                resultTicketService.tryPurchaseTickets(VALID_ACCOUNT_ID, (TicketTypeRequest[]) null).getStatus());
+        assertEquals(PurchaseResult.Status.BOOKING_FAILED,
+                resultTicketService.tryPurchaseTickets(2000L, createTicketRequest(Type.ADULT, 1)).getStatus());
+    }
+
+    /**
+     * Failure test to verify rejections are the preallocated exceptions when stackless rejections are enabled.
+     * <p>
+     *  Test failure scenario - Stackless rejection.
+     * </p>
+     */
+    @Test
+    public void testStacklessRejections() {
+        final TicketService stacklessTicketService = TicketServiceImpl.builder(
+                ticketPaymentServiceHelper.getPaymentServiceInstance(),
+                seatReservationServiceHelper.getReservationServiceInstance())
+                .stacklessRejections(true)
+                .build();
+        try {
+            stacklessTicketService.purchaseTickets(-1L, createTicketRequest(Type.ADULT, 1));
+            fail("Purchase should be rejected");
+        } catch (final InvalidAccountException e) {
+            assertSame(InvalidAccountException.stackless(), e);
+            assertEquals(0, e.getStackTrace().length);
+            assertEquals(ErrorMessages.INVALID_ACCOUNT, e.getMessage());
+        }
+    }
+
+    /**
+     * Failure test to verify a failing listener cannot stop a paid purchase from reserving its seats
+     * or escape the purchase.
+     * <p>
+     *  Test failure scenario - Listener fails after the payment.
+     * </p>
+     */
+    @Test
+    public void testFailingListenerDoesNotChangeBooking() {
+        final TicketPaymentService paymentService = Mockito.mock(TicketPaymentService.class);
+        final SeatReservationService reservationService = Mockito.mock(SeatReservationService.class);
+        final PurchaseListener listener = Mockito.mock(PurchaseListener.class);
+        Mockito.when(listener.bookingStarted(ArgumentMatchers.anyLong(), ArgumentMatchers.anyInt(),
+                ArgumentMatchers.anyInt())).thenReturn(7L);
+        Mockito.doThrow(new IllegalStateException("Journal closed")).when(listener).paymentTaken(7L);
+        Mockito.doThrow(new IllegalStateException("Journal closed")).when(listener).seatsReserved(7L);
+        Mockito.doThrow(new IllegalStateException("Journal closed"))
+                .when(listener).bookingFailed(ArgumentMatchers.eq(7L), ArgumentMatchers.any());
+        final TicketService listenedTicketService = TicketServiceImpl.builder(paymentService, reservationService)
+                .listener(listener)
+                .build();
+
+        assertTrue(listenedTicketService.tryPurchaseTickets(VALID_ACCOUNT_ID, createTicketRequest(Type.ADULT, 2))
+                .isConfirmed());
+        Mockito.verify(reservationService).reserveSeat(VALID_ACCOUNT_ID, 2);
+
+        Mockito.doThrow(new IllegalStateException("Seat booking unavailable"))
+                .when(reservationService).reserveSeat(VALID_ACCOUNT_ID, 1);
+        assertEquals(PurchaseResult.Status.BOOKING_FAILED, listenedTicketService
+                .tryPurchaseTickets(VALID_ACCOUNT_ID, createTicketRequest(Type.ADULT, 1)).getStatus());
+    }
+
+    /**
+     * Failure test to verify a sold out batch charge reports each of its orders to the listener,
+     * and the batch records the latency of validation, payment and reservation.
+     * <p>
+     *  Test failure scenario - Sold out orders in a batch.
+     * </p>
+     */
+    @Test
+    public void testBatchPurchaseReportsEachOrder() {
+        final TicketPaymentService paymentService = Mockito.mock(TicketPaymentService.class);
+        final SeatReservationService reservationService = Mockito.mock(SeatReservationService.class,
+                Mockito.withSettings().extraInterfaces(SeatAvailability.class));
+        Mockito.when(((SeatAvailability) reservationService).canSeat(1)).thenReturn(true);
+        final PurchaseListener listener = Mockito.mock(PurchaseListener.class);
+        final PurchaseMetrics metrics = new PurchaseMetrics(1);
+        final TicketService batchTicketService = TicketServiceImpl.builder(paymentService, reservationService)
+                .listener(listener)
+                .metrics(metrics)
+                .build();
+
+        final List<PurchaseResult> results = batchTicketService.purchaseBatch(Arrays.asList(
+                new PurchaseOrder(VALID_ACCOUNT_ID, createTicketRequest(Type.ADULT, 2)),
+                new PurchaseOrder(VALID_ACCOUNT_ID, createTicketRequest(Type.ADULT, 3)),
+                new PurchaseOrder(2000L, createTicketRequest(Type.ADULT, 1))));
+
+        assertEquals(PurchaseResult.Status.SEATS_UNAVAILABLE, results.get(0).getStatus());
+        assertEquals(PurchaseResult.Status.SEATS_UNAVAILABLE, results.get(1).getStatus());
+        assertTrue(results.get(2).isConfirmed());
+        Mockito.verify(listener, Mockito.times(2))
+                .purchaseRejected(VALID_ACCOUNT_ID, PurchaseResult.Status.SEATS_UNAVAILABLE);
+        final MetricsSnapshot snapshot = metrics.snapshot();
+        assertEquals(3, snapshot.getValidation().getCount());
+        assertEquals(1, snapshot.getPayment().getCount());
+        assertEquals(1, snapshot.getReservation().getCount());
+    }
+
     /**
      * Crate a sample ticket type request.
      *
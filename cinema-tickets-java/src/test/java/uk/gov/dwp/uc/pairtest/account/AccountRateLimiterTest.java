@@ -0,0 +1,193 @@
+package uk.gov.dwp.uc.pairtest.account;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+
+import thirdparty.paymentgateway.TicketPaymentService;
+import thirdparty.seatbooking.SeatReservationService;
+import uk.gov.dwp.uc.pairtest.PurchaseListener;
+import uk.gov.dwp.uc.pairtest.TicketService;
+import uk.gov.dwp.uc.pairtest.TicketServiceImpl;
+import uk.gov.dwp.uc.pairtest.domain.PurchaseOrder;
+import uk.gov.dwp.uc.pairtest.domain.PurchaseResult;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest.Type;
+import uk.gov.dwp.uc.pairtest.exception.PurchaseLimitExceededException;
+import uk.gov.dwp.uc.pairtest.seating.SeatAvailability;
+
+/**
+ * Tests to verify the per account purchase rate and ticket quota of AccountRateLimiter.
+ */
+public class AccountRateLimiterTest {
+
+    private final Long VALID_ACCOUNT_ID = 1000L;
+
+    private final AtomicLong now = new AtomicLong();
+
+    /**
+     * Success test to verify an account may purchase a burst at once, then at the refill rate.
+     */
+    @Test
+    public void testPurchaseRateAndBurst() {
+        final AccountRateLimiter limiter = new AccountRateLimiter(2, 3, 1000, 1, TimeUnit.HOURS, 1, now::get);
+
+        for (int i = 0; i < 3; i++) {
+            assertTrue(limiter.tryAcquire(VALID_ACCOUNT_ID, 1));
+        }
+        assertFalse(limiter.tryAcquire(VALID_ACCOUNT_ID, 1));
+        assertTrue("Other accounts have their own bucket", limiter.tryAcquire(VALID_ACCOUNT_ID + 1, 1));
+
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(500));
+        assertTrue(limiter.tryAcquire(VALID_ACCOUNT_ID, 1));
+        assertFalse(limiter.tryAcquire(VALID_ACCOUNT_ID, 1));
+    }
+
+    /**
+     * Success test to verify the tickets of an account are limited per window and a refused purchase takes nothing.
+     */
+    @Test
+    public void testTicketQuotaPerWindow() {
+        final AccountRateLimiter limiter = new AccountRateLimiter(100, 100, 20, 1, TimeUnit.HOURS, 1, now::get);
+
+        assertTrue(limiter.tryAcquire(VALID_ACCOUNT_ID, 15));
+        assertFalse(limiter.tryAcquire(VALID_ACCOUNT_ID, 10));
+        assertTrue(limiter.tryAcquire(VALID_ACCOUNT_ID, 5));
+        assertFalse(limiter.tryAcquire(VALID_ACCOUNT_ID, 1));
+
+        now.addAndGet(TimeUnit.HOURS.toNanos(1));
+        assertTrue(limiter.tryAcquire(VALID_ACCOUNT_ID, 20));
+    }
+
+    /**
+     * Success test to verify a released allowance gives back the token and the tickets of the purchase.
+     */
+    @Test
+    public void testReleaseGivesBackAllowance() {
+        final AccountRateLimiter limiter = new AccountRateLimiter(1, 1, 20, 1, TimeUnit.HOURS, 1, now::get);
+
+        assertTrue(limiter.tryAcquire(VALID_ACCOUNT_ID, 15));
+        assertFalse(limiter.tryAcquire(VALID_ACCOUNT_ID, 15));
+        limiter.release(VALID_ACCOUNT_ID, 15);
+        assertTrue(limiter.tryAcquire(VALID_ACCOUNT_ID, 20));
+        assertFalse(limiter.tryAcquire(VALID_ACCOUNT_ID, 1));
+    }
+
+    /**
+     * Success test to verify idle accounts are evicted instead of growing the table, without losing active ones.
+     */
+    @Test
+    public void testIdleAccountsEvicted() {
+        final AccountRateLimiter limiter = new AccountRateLimiter(1, 1, 10, 1, TimeUnit.MINUTES, 1, now::get);
+        for (long account = 1; account <= 1000; account++) {
+            assertTrue(limiter.tryAcquire(account, 10));
+        }
+        assertEquals(1000, limiter.getTrackedAccounts());
+
+        now.addAndGet(TimeUnit.MINUTES.toNanos(1));
+        assertTrue(limiter.tryAcquire(1, 10));
+        for (long account = 1001; account <= 2000; account++) {
+            assertTrue(limiter.tryAcquire(account, 10));
+        }
+
+        assertTrue("Tracked " + limiter.getTrackedAccounts(), limiter.getTrackedAccounts() < 2000);
+        assertFalse("Active account kept", limiter.tryAcquire(1, 1));
+        assertFalse("Active account kept", limiter.tryAcquire(2000, 1));
+    }
+
+    /**
+     * Failure test to verify a purchase over the account limit is rejected before any third-party call.
+     */
+    @Test
+    public void testPurchaseOverLimitRejected() {
+        final TicketPaymentService mockPaymentService = Mockito.mock(TicketPaymentService.class);
+        final SeatReservationService mockReservationService = Mockito.mock(SeatReservationService.class);
+        final TicketService ticketService = TicketServiceImpl.builder(mockPaymentService, mockReservationService)
+                .purchaseLimiter(new AccountRateLimiter(1, 1, 20, 1, TimeUnit.HOURS, 1, now::get))
+                .build();
+
+        assertTrue(ticketService.tryPurchaseTickets(VALID_ACCOUNT_ID, createTicketRequest(Type.ADULT, 2))
+                .isConfirmed());
+        assertEquals(PurchaseResult.Status.PURCHASE_LIMIT_EXCEEDED,
+                ticketService.tryPurchaseTickets(VALID_ACCOUNT_ID, createTicketRequest(Type.ADULT, 2)).getStatus());
+        try {
+            ticketService.purchaseTickets(VALID_ACCOUNT_ID, createTicketRequest(Type.ADULT, 2));
+            fail("Purchase over the account limit accepted");
+        } catch (final PurchaseLimitExceededException e) {
+            // expected
+        }
+
+        Mockito.verify(mockPaymentService, Mockito.times(1))
+                .makePayment(ArgumentMatchers.anyLong(), ArgumentMatchers.anyInt());
+        Mockito.verify(mockReservationService, Mockito.times(1))
+                .reserveSeat(ArgumentMatchers.anyLong(), ArgumentMatchers.anyInt());
+    }
+
+    /**
+     * Success test to verify a purchase refused as sold out, alone or in a batch,
+     * does not take the allowance of the account.
+     */
+    @Test
+    public void testSoldOutPurchaseKeepsAllowance() {
+        final TicketPaymentService mockPaymentService = Mockito.mock(TicketPaymentService.class);
+        final SeatReservationService mockReservationService = Mockito.mock(SeatReservationService.class,
+                Mockito.withSettings().extraInterfaces(SeatAvailability.class));
+        final SeatAvailability seatAvailability = (SeatAvailability) mockReservationService;
+        final TicketService ticketService = TicketServiceImpl.builder(mockPaymentService, mockReservationService)
+                .purchaseLimiter(new AccountRateLimiter(1, 1, 20, 1, TimeUnit.HOURS, 1, now::get))
+                .build();
+
+        assertEquals(PurchaseResult.Status.SEATS_UNAVAILABLE,
+                ticketService.tryPurchaseTickets(VALID_ACCOUNT_ID, createTicketRequest(Type.ADULT, 10)).getStatus());
+        assertEquals(PurchaseResult.Status.SEATS_UNAVAILABLE, ticketService.purchaseBatch(Arrays.asList(
+                new PurchaseOrder(VALID_ACCOUNT_ID, createTicketRequest(Type.ADULT, 20)))).get(0).getStatus());
+
+        Mockito.when(seatAvailability.canSeat(ArgumentMatchers.anyInt())).thenReturn(true);
+        assertTrue(ticketService.tryPurchaseTickets(VALID_ACCOUNT_ID, createTicketRequest(Type.ADULT, 20))
+                .isConfirmed());
+        Mockito.verify(mockPaymentService).makePayment(VALID_ACCOUNT_ID, 400);
+    }
+
+    /**
+     * Success test to verify a purchase failing to record its booking intent, alone or in a batch,
+     * does not take the allowance of the account.
+     */
+    @Test
+    public void testFailedBookingIntentKeepsAllowance() {
+        final TicketPaymentService mockPaymentService = Mockito.mock(TicketPaymentService.class);
+        final PurchaseListener mockListener = Mockito.mock(PurchaseListener.class);
+        Mockito.when(mockListener.bookingStarted(ArgumentMatchers.anyLong(), ArgumentMatchers.anyInt(),
+                ArgumentMatchers.anyInt())).thenThrow(new IllegalStateException("Journal full"));
+        final TicketService ticketService = TicketServiceImpl
+                .builder(mockPaymentService, Mockito.mock(SeatReservationService.class))
+                .purchaseLimiter(new AccountRateLimiter(1, 1, 20, 1, TimeUnit.HOURS, 1, now::get))
+                .listener(mockListener)
+                .build();
+
+        assertEquals(PurchaseResult.Status.BOOKING_FAILED,
+                ticketService.tryPurchaseTickets(VALID_ACCOUNT_ID, createTicketRequest(Type.ADULT, 10)).getStatus());
+        assertEquals(PurchaseResult.Status.BOOKING_FAILED, ticketService.purchaseBatch(Arrays.asList(
+                new PurchaseOrder(VALID_ACCOUNT_ID, createTicketRequest(Type.ADULT, 20)))).get(0).getStatus());
+
+        Mockito.reset(mockListener);
+        assertTrue(ticketService.tryPurchaseTickets(VALID_ACCOUNT_ID, createTicketRequest(Type.ADULT, 20))
+                .isConfirmed());
+        Mockito.verify(mockPaymentService).makePayment(VALID_ACCOUNT_ID, 400);
+    }
+
+    /**
+     * Helper method to create a ticket request.
+     */
+    private TicketTypeRequest createTicketRequest(final Type type, final int noOfTickets) {
+        return new TicketTypeRequest(type, noOfTickets);
+    }
+}
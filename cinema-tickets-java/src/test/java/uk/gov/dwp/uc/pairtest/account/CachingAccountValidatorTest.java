@@ -0,0 +1,244 @@
+package uk.gov.dwp.uc.pairtest.account;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+import thirdparty.paymentgateway.TicketPaymentServiceImpl;
+import thirdparty.seatbooking.SeatReservationServiceImpl;
+import uk.gov.dwp.uc.pairtest.TicketService;
+import uk.gov.dwp.uc.pairtest.TicketServiceImpl;
+import uk.gov.dwp.uc.pairtest.domain.PurchaseResult;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest.Type;
+import uk.gov.dwp.uc.pairtest.exception.ServiceOverloadedException;
+
+/**
+ * Tests to verify cached account lookups of CachingAccountValidator.
+ */
+public class CachingAccountValidatorTest {
+
+    private static final long ACTIVE_ACCOUNT_ID = 1000L;
+    private static final long UNKNOWN_ACCOUNT_ID = 2000L;
+
+    private final AtomicLong now = new AtomicLong();
+    private final InMemoryAccountStore store = new InMemoryAccountStore();
+    private final List<Runnable> refreshes = new ArrayList<>();
+    private final CachingAccountValidator validator = new CachingAccountValidator(store,
+            new BlockedAccountFilter(1000, 0.001), 1024, 60, 10, 50, TimeUnit.SECONDS, refreshes::add, now::get);
+
+    /**
+     * Success test to verify active and unknown accounts are each looked up once while cached.
+     */
+    @Test
+    public void testPositiveAndNegativeAnswersAreCached() {
+        store.activate(ACTIVE_ACCOUNT_ID);
+
+        for (int i = 0; i < 10; i++) {
+            assertTrue(validator.isValidAccount(ACTIVE_ACCOUNT_ID));
+            assertFalse(validator.isValidAccount(UNKNOWN_ACCOUNT_ID));
+        }
+
+        assertEquals(2, store.getLookupCount());
+    }
+
+    /**
+     * Success test to verify an unknown account is looked up again after its shorter time to live.
+     */
+    @Test
+    public void testNegativeAnswerExpiresFirst() {
+        assertFalse(validator.isValidAccount(UNKNOWN_ACCOUNT_ID));
+        store.activate(UNKNOWN_ACCOUNT_ID);
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(11));
+
+        assertTrue(validator.isValidAccount(UNKNOWN_ACCOUNT_ID));
+        assertEquals(2, store.getLookupCount());
+    }
+
+    /**
+     * Success test to verify an old answer is served while a single background refresh reloads it.
+     */
+    @Test
+    public void testRefreshAhead() {
+        store.activate(ACTIVE_ACCOUNT_ID);
+        assertTrue(validator.isValidAccount(ACTIVE_ACCOUNT_ID));
+        store.deactivate(ACTIVE_ACCOUNT_ID);
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(55));
+        assertTrue(validator.isValidAccount(ACTIVE_ACCOUNT_ID));
+        assertTrue(validator.isValidAccount(ACTIVE_ACCOUNT_ID));
+        assertEquals(1, refreshes.size());
+
+        refreshes.get(0).run();
+        assertFalse(validator.isValidAccount(ACTIVE_ACCOUNT_ID));
+        assertEquals(2, store.getLookupCount());
+    }
+
+    /**
+     * Failure test to verify a rejected background refresh serves the cached answer and is tried again.
+     */
+    @Test
+    public void testRejectedRefreshServesCachedAnswer() {
+        final AtomicBoolean rejecting = new AtomicBoolean(true);
+        final CachingAccountValidator rejectingValidator = new CachingAccountValidator(store,
+                new BlockedAccountFilter(1000, 0.001), 1024, 60, 10, 50, TimeUnit.SECONDS, refresh -> {
+                    if (rejecting.get()) {
+                        throw new RejectedExecutionException("Refresh executor shut down");
+                    }
+                    refreshes.add(refresh);
+                }, now::get);
+        store.activate(ACTIVE_ACCOUNT_ID);
+        assertTrue(rejectingValidator.isValidAccount(ACTIVE_ACCOUNT_ID));
+        store.deactivate(ACTIVE_ACCOUNT_ID);
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(55));
+        assertTrue(rejectingValidator.isValidAccount(ACTIVE_ACCOUNT_ID));
+
+        rejecting.set(false);
+        assertTrue(rejectingValidator.isValidAccount(ACTIVE_ACCOUNT_ID));
+        assertEquals(1, refreshes.size());
+        refreshes.get(0).run();
+        assertFalse(rejectingValidator.isValidAccount(ACTIVE_ACCOUNT_ID));
+    }
+
+    /**
+     * Failure test to verify blocked and non positive accounts are rejected without reaching the store.
+     */
+    @Test
+    public void testBlockedAccountsSkipTheStore() {
+        store.activate(ACTIVE_ACCOUNT_ID);
+        assertTrue(validator.isValidAccount(ACTIVE_ACCOUNT_ID));
+
+        validator.block(ACTIVE_ACCOUNT_ID);
+
+        assertFalse(validator.isValidAccount(ACTIVE_ACCOUNT_ID));
+        assertFalse(validator.isValidAccount(-1L));
+        assertFalse(validator.isValidAccount(null));
+        assertEquals(1, store.getLookupCount());
+    }
+
+    /**
+     * Success test to verify the filter finds every blocked account and few others.
+     */
+    @Test
+    public void testBlockedAccountFilterFalsePositiveRate() {
+        final BlockedAccountFilter filter = new BlockedAccountFilter(10_000, 0.01);
+        for (long accountId = 1; accountId <= 10_000; accountId++) {
+            filter.add(accountId * 7);
+        }
+
+        int falsePositives = 0;
+        for (long accountId = 1; accountId <= 10_000; accountId++) {
+            assertTrue(filter.mightContain(accountId * 7));
+            if (filter.mightContain(accountId * 7 + 1)) {
+                falsePositives++;
+            }
+        }
+        assertTrue("False positives " + falsePositives, falsePositives < 300);
+    }
+
+    /**
+     * Failure test to verify the Ticket service rejects an account unknown to the store.
+     */
+    @Test
+    public void testTicketServiceUsesAccountValidator() {
+        store.activate(ACTIVE_ACCOUNT_ID);
+        final TicketService ticketService = TicketServiceImpl.builder(new TicketPaymentServiceImpl(),
+                new SeatReservationServiceImpl())
+                .accountValidator(validator)
+                .build();
+        final TicketTypeRequest adultTicketRequest = new TicketTypeRequest(Type.ADULT, 1);
+
+        assertTrue(ticketService.tryPurchaseTickets(ACTIVE_ACCOUNT_ID, adultTicketRequest).isConfirmed());
+        assertEquals(PurchaseResult.Status.INVALID_ACCOUNT,
+                ticketService.tryPurchaseTickets(UNKNOWN_ACCOUNT_ID, adultTicketRequest).getStatus());
+    }
+
+    /**
+     * Success test to verify concurrent lookups of an account missing from the cache call the store once.
+     */
+    @Test
+    public void testConcurrentMissesShareOneLookup() throws Exception {
+        final AtomicInteger lookups = new AtomicInteger();
+        final CountDownLatch answer = new CountDownLatch(1);
+        final AccountStore slowStore = accountId -> {
+            lookups.incrementAndGet();
+            try {
+                answer.await();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return true;
+        };
+        final CachingAccountValidator singleFlightValidator = new CachingAccountValidator(slowStore,
+                new BlockedAccountFilter(1000, 0.001), 1024, 60, 10, 50, TimeUnit.SECONDS, refreshes::add, now::get);
+        final AtomicInteger valid = new AtomicInteger();
+        final Thread[] lookupThreads = new Thread[4];
+        for (int i = 0; i < lookupThreads.length; i++) {
+            lookupThreads[i] = new Thread(() -> {
+                if (singleFlightValidator.isValidAccount(ACTIVE_ACCOUNT_ID)) {
+                    valid.incrementAndGet();
+                }
+            });
+            lookupThreads[i].start();
+        }
+        for (final Thread lookupThread : lookupThreads) {
+            while (lookupThread.getState() != Thread.State.WAITING) {
+                Thread.onSpinWait();
+            }
+        }
+        answer.countDown();
+        for (final Thread lookupThread : lookupThreads) {
+            lookupThread.join();
+        }
+
+        assertEquals(1, lookups.get());
+        assertEquals(lookupThreads.length, valid.get());
+    }
+
+    /**
+     * Failure test to verify a store error on a miss rejects the purchase as overloaded, rather than escaping
+     * the Ticket service, and is not cached.
+     */
+    @Test
+    public void testStoreErrorRejectsPurchaseAsOverloaded() {
+        final AtomicBoolean storeDown = new AtomicBoolean(true);
+        final AccountStore failingStore = accountId -> {
+            if (storeDown.get()) {
+                throw new IllegalStateException("Account store unreachable");
+            }
+            return true;
+        };
+        final TicketService ticketService = TicketServiceImpl.builder(new TicketPaymentServiceImpl(),
+                new SeatReservationServiceImpl())
+                .accountValidator(new CachingAccountValidator(failingStore, new BlockedAccountFilter(1000, 0.001),
+                        1024, 60, 10, 50, TimeUnit.SECONDS, refreshes::add, now::get))
+                .build();
+        final TicketTypeRequest adultTicketRequest = new TicketTypeRequest(Type.ADULT, 1);
+
+        assertEquals(PurchaseResult.Status.OVERLOADED,
+                ticketService.tryPurchaseTickets(ACTIVE_ACCOUNT_ID, adultTicketRequest).getStatus());
+        try {
+            ticketService.purchaseTickets(ACTIVE_ACCOUNT_ID, adultTicketRequest);
+            fail("Purchase accepted while the account store is unreachable");
+        } catch (final ServiceOverloadedException e) {
+            // expected
+        }
+
+        storeDown.set(false);
+        assertTrue(ticketService.tryPurchaseTickets(ACTIVE_ACCOUNT_ID, adultTicketRequest).isConfirmed());
+    }
+}
@@ -0,0 +1,177 @@
+package uk.gov.dwp.uc.pairtest.async;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+
+import thirdparty.paymentgateway.TicketPaymentService;
+import thirdparty.seatbooking.SeatReservationService;
+import uk.gov.dwp.uc.pairtest.PurchaseListener;
+import uk.gov.dwp.uc.pairtest.account.PurchaseLimiter;
+import uk.gov.dwp.uc.pairtest.domain.PurchaseResult;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest.Type;
+
+/**
+ * Tests to verify success and failure scenarios of AsyncTicketServiceImpl.purchaseTickets
+ */
+public class AsyncTicketServiceImplTest {
+
+    private final Long VALID_ACCOUNT_ID = 1000L;
+
+    /**
+     * Success test to verify the payment and reservation run on the executor and the purchase is confirmed.
+     */
+    @Test
+    public void testValidPurchaseIsConfirmed() throws Exception {
+        final TicketPaymentService mockPaymentService = Mockito.mock(TicketPaymentService.class);
+        final SeatReservationService mockReservationService = Mockito.mock(SeatReservationService.class);
+        final ExecutorService executor = PurchaseExecutors.virtualThreadsOrElse(() -> PurchaseExecutors.boundedPlatform(2, 16));
+        try {
+            final AsyncTicketService ticketService = new AsyncTicketServiceImpl(
+                    new ExecutorTicketPaymentService(mockPaymentService, executor),
+                    new ExecutorSeatReservationService(mockReservationService, executor), 8);
+
+            final PurchaseResult result = ticketService.purchaseTickets(VALID_ACCOUNT_ID,
+                    createTicketRequest(Type.ADULT, 2), createTicketRequest(Type.CHILD, 1))
+                    .get(5, TimeUnit.SECONDS);
+
+            assertTrue(result.isConfirmed());
+            assertEquals(50, result.getTotalAmount());
+            assertEquals(3, result.getTotalSeats());
+            Mockito.verify(mockPaymentService).makePayment(VALID_ACCOUNT_ID, 50);
+            Mockito.verify(mockReservationService).reserveSeat(VALID_ACCOUNT_ID, 3);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Failure test to verify an invalid purchase is rejected without calling the third-party services.
+     */
+    @Test
+    public void testInvalidPurchaseIsRejected() throws Exception {
+        final AsyncTicketPaymentService mockPaymentService = Mockito.mock(AsyncTicketPaymentService.class);
+        final AsyncSeatReservationService mockReservationService = Mockito.mock(AsyncSeatReservationService.class);
+        final AsyncTicketService ticketService = new AsyncTicketServiceImpl(mockPaymentService, mockReservationService, 8);
+
+        final PurchaseResult result = ticketService.purchaseTickets(VALID_ACCOUNT_ID, createTicketRequest(Type.CHILD, 1)).get();
+
+        assertEquals(PurchaseResult.Status.MANDATORY_ADULT_TICKET_PURCHASE_REQUIRED, result.getStatus());
+        Mockito.verifyNoInteractions(mockPaymentService, mockReservationService);
+    }
+
+    /**
+     * Failure test to verify the reservation is skipped and the booking failed when the payment fails.
+     */
+    @Test
+    public void testPaymentFailureFailsBooking() throws Exception {
+        final AsyncTicketPaymentService mockPaymentService = Mockito.mock(AsyncTicketPaymentService.class);
+        final CompletableFuture<Void> failedPayment = new CompletableFuture<>();
+        failedPayment.completeExceptionally(new RuntimeException("Payment declined"));
+        Mockito.when(mockPaymentService.makePayment(ArgumentMatchers.anyLong(), ArgumentMatchers.anyInt()))
+                .thenReturn(failedPayment);
+        final AsyncSeatReservationService mockReservationService = Mockito.mock(AsyncSeatReservationService.class);
+        final AsyncTicketService ticketService = new AsyncTicketServiceImpl(mockPaymentService, mockReservationService, 8);
+
+        final PurchaseResult result = ticketService.purchaseTickets(VALID_ACCOUNT_ID, createTicketRequest(Type.ADULT, 1)).get();
+
+        assertEquals(PurchaseResult.Status.BOOKING_FAILED, result.getStatus());
+        Mockito.verifyNoInteractions(mockReservationService);
+    }
+
+    /**
+     * Failure test to verify purchases over the in-flight limit are rejected until a purchase completes.
+     */
+    @Test
+    public void testInFlightLimitRejectsPurchases() throws Exception {
+        final CompletableFuture<Void> pendingPayment = new CompletableFuture<>();
+        final AsyncTicketPaymentService mockPaymentService = Mockito.mock(AsyncTicketPaymentService.class);
+        Mockito.when(mockPaymentService.makePayment(ArgumentMatchers.anyLong(), ArgumentMatchers.anyInt()))
+                .thenReturn(pendingPayment);
+        final AsyncSeatReservationService mockReservationService = Mockito.mock(AsyncSeatReservationService.class);
+        Mockito.when(mockReservationService.reserveSeat(ArgumentMatchers.anyLong(), ArgumentMatchers.anyInt()))
+                .thenReturn(CompletableFuture.completedFuture(null));
+        final AsyncTicketService ticketService = new AsyncTicketServiceImpl(mockPaymentService, mockReservationService, 1);
+
+        final CompletableFuture<PurchaseResult> first = ticketService.purchaseTickets(VALID_ACCOUNT_ID, createTicketRequest(Type.ADULT, 1));
+        final PurchaseResult second = ticketService.purchaseTickets(VALID_ACCOUNT_ID, createTicketRequest(Type.ADULT, 1)).get();
+        assertEquals(PurchaseResult.Status.OVERLOADED, second.getStatus());
+
+        pendingPayment.complete(null);
+        assertTrue(first.get().isConfirmed());
+        assertTrue(ticketService.purchaseTickets(VALID_ACCOUNT_ID, createTicketRequest(Type.ADULT, 1)).get().isConfirmed());
+    }
+
+    /**
+     * Success test to verify the account validator, limiter and listener set on the builder are applied.
+     */
+    @Test
+    public void testBuilderCollaboratorsAreApplied() throws Exception {
+        final AsyncTicketPaymentService mockPaymentService = Mockito.mock(AsyncTicketPaymentService.class);
+        Mockito.when(mockPaymentService.makePayment(ArgumentMatchers.anyLong(), ArgumentMatchers.anyInt()))
+                .thenReturn(CompletableFuture.completedFuture(null));
+        final AsyncSeatReservationService mockReservationService = Mockito.mock(AsyncSeatReservationService.class);
+        Mockito.when(mockReservationService.reserveSeat(ArgumentMatchers.anyLong(), ArgumentMatchers.anyInt()))
+                .thenReturn(CompletableFuture.completedFuture(null));
+        final PurchaseLimiter mockPurchaseLimiter = Mockito.mock(PurchaseLimiter.class);
+        Mockito.when(mockPurchaseLimiter.tryAcquire(ArgumentMatchers.anyLong(), ArgumentMatchers.anyInt())).thenReturn(true);
+        final PurchaseListener mockListener = Mockito.mock(PurchaseListener.class);
+        Mockito.when(mockListener.bookingStarted(VALID_ACCOUNT_ID, 20, 1)).thenReturn(7L);
+        final AsyncTicketService ticketService = AsyncTicketServiceImpl
+                .builder(mockPaymentService, mockReservationService, 8)
+                .accountValidator(accountId -> accountId == VALID_ACCOUNT_ID.longValue())
+                .purchaseLimiter(mockPurchaseLimiter)
+                .listener(mockListener)
+                .build();
+
+        assertTrue(ticketService.purchaseTickets(VALID_ACCOUNT_ID, createTicketRequest(Type.ADULT, 1)).get().isConfirmed());
+        assertEquals(PurchaseResult.Status.INVALID_ACCOUNT,
+                ticketService.purchaseTickets(2000L, createTicketRequest(Type.ADULT, 1)).get().getStatus());
+
+        Mockito.verify(mockPurchaseLimiter).tryAcquire(VALID_ACCOUNT_ID, 1);
+        Mockito.verify(mockListener).seatsReserved(7L);
+        Mockito.verify(mockListener).purchaseRejected(2000L, PurchaseResult.Status.INVALID_ACCOUNT);
+    }
+
+    /**
+     * Failure test to verify a payment refused by the executor is overloaded and gives back the allowance,
+     * while any other synchronous payment error fails the booking.
+     */
+    @Test
+    public void testSynchronousPaymentErrors() throws Exception {
+        final AsyncTicketPaymentService mockPaymentService = Mockito.mock(AsyncTicketPaymentService.class);
+        Mockito.when(mockPaymentService.makePayment(VALID_ACCOUNT_ID, 20))
+                .thenThrow(new RejectedExecutionException("Queue full"));
+        Mockito.when(mockPaymentService.makePayment(VALID_ACCOUNT_ID, 40))
+                .thenThrow(new IllegalStateException("Gateway client broken"));
+        final AsyncSeatReservationService mockReservationService = Mockito.mock(AsyncSeatReservationService.class);
+        final PurchaseLimiter mockPurchaseLimiter = Mockito.mock(PurchaseLimiter.class);
+        Mockito.when(mockPurchaseLimiter.tryAcquire(ArgumentMatchers.anyLong(), ArgumentMatchers.anyInt())).thenReturn(true);
+        final AsyncTicketService ticketService = AsyncTicketServiceImpl
+                .builder(mockPaymentService, mockReservationService, 8)
+                .purchaseLimiter(mockPurchaseLimiter)
+                .build();
+
+        assertEquals(PurchaseResult.Status.OVERLOADED,
+                ticketService.purchaseTickets(VALID_ACCOUNT_ID, createTicketRequest(Type.ADULT, 1)).get().getStatus());
+        assertEquals(PurchaseResult.Status.BOOKING_FAILED,
+                ticketService.purchaseTickets(VALID_ACCOUNT_ID, createTicketRequest(Type.ADULT, 2)).get().getStatus());
+
+        Mockito.verify(mockPurchaseLimiter).release(VALID_ACCOUNT_ID, 1);
+        Mockito.verify(mockPurchaseLimiter, Mockito.never()).release(VALID_ACCOUNT_ID, 2);
+        Mockito.verifyNoInteractions(mockReservationService);
+    }
+
+    private TicketTypeRequest createTicketRequest(final Type ticketType, final int quantity) {
+        return new TicketTypeRequest(ticketType, quantity);
+    }
+}
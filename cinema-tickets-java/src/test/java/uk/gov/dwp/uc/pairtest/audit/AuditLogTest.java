@@ -0,0 +1,150 @@
+package uk.gov.dwp.uc.pairtest.audit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mockito;
+
+import thirdparty.paymentgateway.TicketPaymentService;
+import thirdparty.seatbooking.SeatReservationService;
+import uk.gov.dwp.uc.pairtest.TicketService;
+import uk.gov.dwp.uc.pairtest.TicketServiceImpl;
+import uk.gov.dwp.uc.pairtest.domain.PurchaseResult;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest.Type;
+
+/**
+ * Tests to verify purchase events written by AuditLog are decoded by AuditLogReader.
+ */
+public class AuditLogTest {
+
+    private final Long VALID_ACCOUNT_ID = 1000L;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Success test to verify the events of confirmed and rejected purchases are audited.
+     */
+    @Test
+    public void testPurchaseEventsAudited() throws IOException {
+        final Path directory = folder.getRoot().toPath();
+        try (AuditLog auditLog = AuditLog.open(directory, 1024, 1 << 20, 4, 1, TimeUnit.MILLISECONDS)) {
+            final TicketService ticketService = TicketServiceImpl.builder(Mockito.mock(TicketPaymentService.class),
+                    Mockito.mock(SeatReservationService.class))
+                    .listener(auditLog)
+                    .build();
+            assertTrue(ticketService.tryPurchaseTickets(VALID_ACCOUNT_ID, createTicketRequest(Type.ADULT, 2),
+                    createTicketRequest(Type.CHILD, 1)).isConfirmed());
+            ticketService.tryPurchaseTickets(VALID_ACCOUNT_ID, createTicketRequest(Type.CHILD, 1));
+            ticketService.tryPurchaseTickets(null, createTicketRequest(Type.ADULT, 1));
+        }
+
+        final List<AuditEvent> events = readAll(directory);
+        assertEquals(5, events.size());
+        assertEquals(AuditEventType.BOOKING_STARTED, events.get(0).getType());
+        assertEquals(VALID_ACCOUNT_ID.longValue(), events.get(0).getAccountId());
+        assertEquals(50, events.get(0).getTotalAmount());
+        assertEquals(3, events.get(0).getTotalSeats());
+        assertNull(events.get(0).getStatus());
+        assertEquals(AuditEventType.PAYMENT_TAKEN, events.get(1).getType());
+        assertEquals(AuditEventType.SEATS_RESERVED, events.get(2).getType());
+        assertEquals(events.get(0).getBookingId(), events.get(2).getBookingId());
+        assertEquals(AuditEventType.PURCHASE_REJECTED, events.get(3).getType());
+        assertEquals(PurchaseResult.Status.MANDATORY_ADULT_TICKET_PURCHASE_REQUIRED, events.get(3).getStatus());
+        assertEquals(VALID_ACCOUNT_ID.longValue(), events.get(3).getAccountId());
+        assertEquals(PurchaseResult.Status.INVALID_ACCOUNT, events.get(4).getStatus());
+        assertEquals(0, events.get(4).getAccountId());
+    }
+
+    /**
+     * Success test to verify files rotate at their size, only the newest are kept and reopening appends after them.
+     */
+    @Test
+    public void testFilesRotatedAndRetained() throws IOException {
+        final Path directory = folder.getRoot().toPath();
+        final long fileBytes = AuditLog.HEADER_SIZE + 10 * AuditLog.EVENT_SIZE;
+        try (AuditLog auditLog = AuditLog.open(directory, 16, fileBytes, 3, 1, TimeUnit.MILLISECONDS)) {
+            for (int i = 1; i <= 100; i++) {
+                auditLog.paymentTaken(i);
+                while (auditLog.getWrittenEvents() + auditLog.getDroppedEvents() < i) {
+                    Thread.yield();
+                }
+            }
+            assertEquals(0, auditLog.getDroppedEvents());
+        }
+
+        List<AuditEvent> events = readAll(directory);
+        assertEquals(3, AuditLogReader.listFiles(directory).size());
+        assertEquals(30, events.size());
+        assertEquals(71, events.get(0).getBookingId());
+        assertEquals(100, events.get(29).getBookingId());
+
+        try (AuditLog auditLog = AuditLog.open(directory, 16, fileBytes, 3, 1, TimeUnit.MILLISECONDS)) {
+            auditLog.paymentTaken(101);
+        }
+        events = readAll(directory);
+        assertEquals(101, events.get(events.size() - 1).getBookingId());
+    }
+
+    /**
+     * Success test to verify every event recorded concurrently is either written or counted as dropped.
+     */
+    @Test
+    public void testConcurrentEventsWrittenOrDropped() throws Exception {
+        final Path directory = folder.getRoot().toPath();
+        final int threads = 4;
+        final int eventsPerThread = 20_000;
+        final AuditLog auditLog = AuditLog.open(directory, 256, 1 << 20, 100, 100, TimeUnit.MICROSECONDS);
+        final List<Thread> producers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            final long accountId = t + 1;
+            producers.add(new Thread(() -> {
+                for (int i = 0; i < eventsPerThread; i++) {
+                    auditLog.bookingStarted(accountId, i, 1);
+                }
+            }));
+        }
+        producers.forEach(Thread::start);
+        for (final Thread producer : producers) {
+            producer.join();
+        }
+        auditLog.close();
+
+        final List<AuditEvent> events = readAll(directory);
+        assertEquals(auditLog.getWrittenEvents(), events.size());
+        assertEquals(threads * eventsPerThread, auditLog.getWrittenEvents() + auditLog.getDroppedEvents());
+        final long[] lastAmount = new long[threads + 1];
+        Arrays.fill(lastAmount, -1);
+        for (final AuditEvent event : events) {
+            assertEquals(AuditEventType.BOOKING_STARTED, event.getType());
+            assertTrue("Events of a thread stay in order",
+                    event.getTotalAmount() > lastAmount[(int) event.getAccountId()]);
+            lastAmount[(int) event.getAccountId()] = event.getTotalAmount();
+        }
+    }
+
+    private List<AuditEvent> readAll(final Path directory) throws IOException {
+        final List<AuditEvent> events = new ArrayList<>();
+        AuditLogReader.read(directory, events::add);
+        return events;
+    }
+
+    /**
+     * Helper method to create a ticket request.
+     */
+    private TicketTypeRequest createTicketRequest(final Type type, final int noOfTickets) {
+        return new TicketTypeRequest(type, noOfTickets);
+    }
+}
@@ -0,0 +1,136 @@
+package uk.gov.dwp.uc.pairtest.boot;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mockito;
+
+import thirdparty.paymentgateway.TicketPaymentService;
+import thirdparty.seatbooking.SeatReservationService;
+import uk.gov.dwp.uc.pairtest.SeatReservationServiceHelper;
+import uk.gov.dwp.uc.pairtest.TicketPaymentServiceHelper;
+import uk.gov.dwp.uc.pairtest.domain.PurchaseResult;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest.Type;
+import uk.gov.dwp.uc.pairtest.journal.BookingJournal;
+
+/**
+ * Tests to verify the ServiceRegistry wiring and the PurchaseWarmUp.
+ */
+public class ServiceRegistryTest {
+
+    private final Long VALID_ACCOUNT_ID = 1000L;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Success test to verify a helper shared between threads hands every thread the same instance.
+     */
+    @Test
+    public void testHelpersSharedBetweenThreads() throws Exception {
+        final TicketPaymentServiceHelper paymentHelper = new TicketPaymentServiceHelper();
+        final SeatReservationServiceHelper reservationHelper = new SeatReservationServiceHelper();
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            final List<Future<Object[]>> futures = new ArrayList<>();
+            for (int i = 0; i < 64; i++) {
+                final Callable<Object[]> lookup = () -> new Object[] {
+                        paymentHelper.getPaymentServiceInstance(), reservationHelper.getReservationServiceInstance()};
+                futures.add(executor.submit(lookup));
+            }
+            for (final Future<Object[]> future : futures) {
+                assertSame(paymentHelper.getPaymentServiceInstance(), future.get()[0]);
+                assertSame(reservationHelper.getReservationServiceInstance(), future.get()[1]);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Success test to verify the warm-up exercises the purchase paths and the started registry is ready.
+     */
+    @Test
+    public void testStartWarmsUpAndReportsReady() {
+        assertFalse(ServiceRegistry.create().isReady());
+        assertEquals(0, new PurchaseWarmUp(0, true).run());
+        assertEquals(2 * 16, new PurchaseWarmUp(2, true).run());
+
+        final ServiceRegistry registry = ServiceRegistry.start(new PurchaseWarmUp(10, true));
+
+        assertTrue(registry.isReady());
+    }
+
+    /**
+     * Success test to verify the registry's Ticket service purchases through the registered third-party services.
+     */
+    @Test
+    public void testRegistryTicketServicePurchases() {
+        final TicketPaymentService paymentService = Mockito.mock(TicketPaymentService.class);
+        final SeatReservationService reservationService = Mockito.mock(SeatReservationService.class);
+        final ServiceRegistry registry = new ServiceRegistry(paymentService, reservationService);
+
+        final PurchaseResult result = registry.getTicketService().tryPurchaseTickets(VALID_ACCOUNT_ID,
+                createTicketRequest(Type.ADULT, 2), createTicketRequest(Type.CHILD, 1));
+
+        assertTrue(result.isConfirmed());
+        assertSame(paymentService, registry.getPaymentService());
+        assertSame(reservationService, registry.getReservationService());
+        Mockito.verify(paymentService).makePayment(VALID_ACCOUNT_ID, result.getTotalAmount());
+        Mockito.verify(reservationService).reserveSeat(VALID_ACCOUNT_ID, 3);
+    }
+
+    /**
+     * Success test to verify a registry with a journal replays the paid bookings of the last run before
+     * taking purchases, and journals its own purchases.
+     */
+    @Test
+    public void testRegistryReplaysJournal() throws IOException {
+        final Path directory = folder.getRoot().toPath();
+        try (BookingJournal journal = openJournal(directory)) {
+            journal.bookingStarted(VALID_ACCOUNT_ID, 20, 1);
+            journal.paymentTaken(journal.bookingStarted(2000L, 40, 2));
+        }
+
+        final TicketPaymentService paymentService = Mockito.mock(TicketPaymentService.class);
+        final SeatReservationService reservationService = Mockito.mock(SeatReservationService.class);
+        try (BookingJournal journal = openJournal(directory)) {
+            final ServiceRegistry registry = new ServiceRegistry(paymentService, reservationService, journal);
+            Mockito.verify(reservationService).reserveSeat(2000L, 2);
+            assertEquals(1, registry.getUnresolvedBookings().size());
+            assertEquals(VALID_ACCOUNT_ID.longValue(), registry.getUnresolvedBookings().get(0).getAccountId());
+
+            assertTrue(registry.getTicketService()
+                    .tryPurchaseTickets(VALID_ACCOUNT_ID, createTicketRequest(Type.ADULT, 1)).isConfirmed());
+        }
+
+        try (BookingJournal journal = openJournal(directory)) {
+            assertEquals(1, journal.incompleteBookings().size());
+            assertEquals(4, journal.bookingStarted(VALID_ACCOUNT_ID, 20, 1));
+        }
+    }
+
+    private static BookingJournal openJournal(final Path directory) throws IOException {
+        return BookingJournal.open(directory, 64, 1, TimeUnit.MILLISECONDS, true);
+    }
+
+    private TicketTypeRequest createTicketRequest(final Type type, final int noOfTickets) {
+        return new TicketTypeRequest(type, noOfTickets);
+    }
+}
@@ -0,0 +1,132 @@
+package uk.gov.dwp.uc.pairtest.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+/**
+ * Tests to verify expiry and bounds of ExpiringCache.
+ */
+public class ExpiringCacheTest {
+
+    private final AtomicLong now = new AtomicLong();
+    private final ExpiringCache<String, String> cache = new ExpiringCache<>(64, 10, TimeUnit.SECONDS, now::get);
+
+    /**
+     * Success test to verify an entry is returned until its time to live has passed.
+     */
+    @Test
+    public void testEntryExpiresAfterTimeToLive() {
+        cache.put("key", "value");
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(9));
+        assertEquals("value", cache.get("key"));
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        assertNull(cache.get("key"));
+    }
+
+    /**
+     * Success test to verify an entry written with its own time to live.
+     */
+    @Test
+    public void testEntryWithOwnTimeToLive() {
+        cache.put("key", "value", 1, TimeUnit.SECONDS);
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(2));
+        assertNull(cache.get("key"));
+    }
+
+    /**
+     * Success test to verify putIfAbsent keeps a live entry and replaces an expired one.
+     */
+    @Test
+    public void testPutIfAbsent() {
+        assertNull(cache.putIfAbsent("key", "first"));
+        assertEquals("first", cache.putIfAbsent("key", "second"));
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(10));
+        assertNull(cache.putIfAbsent("key", "third"));
+        assertEquals("third", cache.get("key"));
+    }
+
+    /**
+     * Success test to verify the cache never holds more than its maximum number of entries.
+     */
+    @Test
+    public void testSizeIsBounded() {
+        for (int i = 0; i < 100_000; i++) {
+            cache.put("key-" + i, "value");
+        }
+        assertTrue("Size " + cache.size(), cache.size() <= 64);
+        assertEquals("value", cache.get("key-99999"));
+    }
+
+    /**
+     * Success test to verify a cache smaller than its segment count still holds no more than its maximum.
+     */
+    @Test
+    public void testSmallCacheSizeIsBounded() {
+        final ExpiringCache<String, String> smallCache = new ExpiringCache<>(3, 10, TimeUnit.SECONDS, now::get);
+        for (int i = 0; i < 1_000; i++) {
+            smallCache.put("key-" + i, "value");
+        }
+        assertTrue("Size " + smallCache.size(), smallCache.size() <= 3);
+    }
+
+    /**
+     * Success test to verify a pinned entry is neither expired nor evicted, and is evicted once unpinned.
+     */
+    @Test
+    public void testPinnedEntryIsKept() {
+        final Set<String> running = ConcurrentHashMap.newKeySet();
+        final ExpiringCache<String, String> pinnedCache =
+                new ExpiringCache<>(1, 10, TimeUnit.SECONDS, now::get, running::contains);
+        running.add("running");
+        pinnedCache.put("key", "running");
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(20));
+        assertEquals("running", pinnedCache.get("key"));
+
+        running.remove("running");
+        pinnedCache.put("other", "value");
+        assertNull(pinnedCache.get("key"));
+        assertEquals("value", pinnedCache.get("other"));
+    }
+
+    /**
+     * Failure test to verify a write to a cache full of pinned entries is refused rather than exceed the bound.
+     */
+    @Test
+    public void testWriteToCacheFullOfPinnedEntriesIsRefused() {
+        final ExpiringCache<String, String> pinnedCache =
+                new ExpiringCache<>(1, 10, TimeUnit.SECONDS, now::get, "running"::equals);
+        pinnedCache.put("key", "running");
+
+        try {
+            pinnedCache.putIfAbsent("other", "value");
+            fail("Expected IllegalStateException");
+        } catch (final IllegalStateException e) {
+            assertEquals(1, pinnedCache.size());
+            assertEquals("running", pinnedCache.get("key"));
+        }
+    }
+
+    /**
+     * Success test to verify an invalidated key is removed.
+     */
+    @Test
+    public void testInvalidate() {
+        cache.put("key", "value");
+        cache.invalidate("key");
+        assertNull(cache.get("key"));
+    }
+}
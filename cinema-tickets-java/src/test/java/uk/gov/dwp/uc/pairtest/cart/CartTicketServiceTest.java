@@ -0,0 +1,235 @@
+package uk.gov.dwp.uc.pairtest.cart;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import thirdparty.paymentgateway.TicketPaymentService;
+import uk.gov.dwp.uc.pairtest.domain.PurchaseResult;
+import uk.gov.dwp.uc.pairtest.domain.ScreeningOrder;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest.Type;
+import uk.gov.dwp.uc.pairtest.engine.Tariff;
+import uk.gov.dwp.uc.pairtest.engine.TariffCatalogue;
+import uk.gov.dwp.uc.pairtest.seating.ScreeningSeatMap;
+import uk.gov.dwp.uc.pairtest.seating.SeatHoldService;
+import uk.gov.dwp.uc.pairtest.seating.SeatHolding;
+
+/**
+ * Tests to verify a CartTicketService books every screening of a cart or none of them.
+ */
+public class CartTicketServiceTest {
+
+    private final Long VALID_ACCOUNT_ID = 1000L;
+
+    private final TicketPaymentService paymentService = Mockito.mock(TicketPaymentService.class);
+    private final ScreeningSeatMap morning = new ScreeningSeatMap(2, 10);
+    private final ScreeningSeatMap evening = new ScreeningSeatMap(2, 10);
+    private final SeatHoldService morningHolds = new SeatHoldService(morning, 60, 1, TimeUnit.SECONDS);
+    private final SeatHoldService eveningHolds = new SeatHoldService(evening, 60, 1, TimeUnit.SECONDS);
+    private final ForkJoinPool pool = new ForkJoinPool(4);
+
+    @After
+    public void tearDown() {
+        morningHolds.close();
+        eveningHolds.close();
+        pool.shutdownNow();
+    }
+
+    /**
+     * Success test to verify a cart takes one combined payment and reserves the seats of every screening.
+     */
+    @Test
+    public void testCartBooksEveryScreening() {
+        final CartTicketService cartService = new CartTicketService(paymentService, screenings(), pool);
+
+        final PurchaseResult result = cartService.purchaseCart(VALID_ACCOUNT_ID, Arrays.asList(
+                new ScreeningOrder("morning", createTicketRequest(Type.ADULT, 2), createTicketRequest(Type.CHILD, 1)),
+                new ScreeningOrder("evening", createTicketRequest(Type.ADULT, 4))));
+
+        assertTrue(result.isConfirmed());
+        assertEquals(130, result.getTotalAmount());
+        assertEquals(7, result.getTotalSeats());
+        Mockito.verify(paymentService).makePayment(VALID_ACCOUNT_ID, 130);
+        assertEquals(17, morning.availableSeats());
+        assertEquals(16, evening.availableSeats());
+        assertEquals(0, morningHolds.getOutstandingHolds() + eveningHolds.getOutstandingHolds());
+    }
+
+    /**
+     * Success test to verify each basket is priced with the tariff of its screening and the cart total
+     * is charged in whole pounds, the pence left by a discount in the customer's favour.
+     */
+    @Test
+    public void testCartPricedWithScreeningTariffs() {
+        final TariffCatalogue tariffs = TariffCatalogue.standard();
+        tariffs.assign("evening", tariffs.register(new Tariff("peak", 2500, 1250, 0).withDiscount(1000)));
+        final CartTicketService cartService = new CartTicketService(paymentService, screenings(), pool, tariffs);
+
+        final PurchaseResult result = cartService.purchaseCart(VALID_ACCOUNT_ID, Arrays.asList(
+                new ScreeningOrder("morning", createTicketRequest(Type.ADULT, 2)),
+                new ScreeningOrder("evening", createTicketRequest(Type.ADULT, 1), createTicketRequest(Type.CHILD, 1))));
+
+        // 40.00 standard and 37.50 peak less 10%, 33.75
+        assertTrue(result.isConfirmed());
+        assertEquals(73, result.getTotalAmount());
+        Mockito.verify(paymentService).makePayment(VALID_ACCOUNT_ID, 73);
+    }
+
+    /**
+     * Failure test to verify a cart with a screening that has no tariff is rejected before anything is held.
+     */
+    @Test
+    public void testScreeningWithoutTariffRejected() {
+        final TariffCatalogue tariffs = new TariffCatalogue();
+        tariffs.assign("evening", tariffs.register(Tariff.standard()));
+        final CartTicketService cartService = new CartTicketService(paymentService, screenings(), pool, tariffs);
+
+        final PurchaseResult result = cartService.purchaseCart(VALID_ACCOUNT_ID, Arrays.asList(
+                new ScreeningOrder("evening", createTicketRequest(Type.ADULT, 1)),
+                new ScreeningOrder("morning", createTicketRequest(Type.ADULT, 1))));
+
+        assertEquals(PurchaseResult.Status.INVALID_PURCHASE, result.getStatus());
+        Mockito.verifyNoInteractions(paymentService);
+        assertEquals(0, morningHolds.getOutstandingHolds() + eveningHolds.getOutstandingHolds());
+    }
+
+    /**
+     * Failure test to verify a failed hold or payment releases the seats already held and charges nothing.
+     */
+    @Test
+    public void testFailedLegReleasesHeldSeats() {
+        final SeatHolding brokenScreening = Mockito.mock(SeatHolding.class);
+        Mockito.when(brokenScreening.canSeat(Mockito.anyInt())).thenReturn(true);
+        Mockito.when(brokenScreening.hold(Mockito.anyLong(), Mockito.anyInt()))
+                .thenThrow(new IllegalStateException("Seat booking unavailable"));
+        final Map<String, SeatHolding> screenings = screenings();
+        screenings.put("broken", brokenScreening);
+        final CartTicketService cartService = new CartTicketService(paymentService, screenings, pool);
+
+        final PurchaseResult failedHold = cartService.purchaseCart(VALID_ACCOUNT_ID, Arrays.asList(
+                new ScreeningOrder("morning", createTicketRequest(Type.ADULT, 3)),
+                new ScreeningOrder("evening", createTicketRequest(Type.ADULT, 3)),
+                new ScreeningOrder("broken", createTicketRequest(Type.ADULT, 1))));
+
+        assertEquals(PurchaseResult.Status.BOOKING_FAILED, failedHold.getStatus());
+        Mockito.verifyNoInteractions(paymentService);
+        assertEquals(20, morning.availableSeats());
+        assertEquals(20, evening.availableSeats());
+
+        Mockito.doThrow(new IllegalStateException("Payment declined"))
+                .when(paymentService).makePayment(Mockito.anyLong(), Mockito.anyInt());
+        final PurchaseResult failedPayment = cartService.purchaseCart(VALID_ACCOUNT_ID, Arrays.asList(
+                new ScreeningOrder("morning", createTicketRequest(Type.ADULT, 3)),
+                new ScreeningOrder("evening", createTicketRequest(Type.ADULT, 3))));
+
+        assertEquals(PurchaseResult.Status.BOOKING_FAILED, failedPayment.getStatus());
+        assertEquals(20, morning.availableSeats());
+        assertEquals(20, evening.availableSeats());
+        assertEquals(0, morningHolds.getOutstandingHolds() + eveningHolds.getOutstandingHolds());
+
+        final PurchaseResult unknownScreening = cartService.purchaseCart(VALID_ACCOUNT_ID, Arrays.asList(
+                new ScreeningOrder("morning", createTicketRequest(Type.ADULT, 3)),
+                new ScreeningOrder("matinee", createTicketRequest(Type.ADULT, 3))));
+        final PurchaseResult invalidBasket = cartService.purchaseCart(VALID_ACCOUNT_ID, Arrays.asList(
+                new ScreeningOrder("morning", createTicketRequest(Type.ADULT, 3)),
+                new ScreeningOrder("evening", createTicketRequest(Type.CHILD, 3))));
+
+        assertEquals(PurchaseResult.Status.INVALID_PURCHASE, unknownScreening.getStatus());
+        assertEquals(PurchaseResult.Status.MANDATORY_ADULT_TICKET_PURCHASE_REQUIRED, invalidBasket.getStatus());
+    }
+
+    /**
+     * Success test to verify the screenings of a cart are held in parallel rather than one after another.
+     */
+    @Test
+    public void testScreeningsHeldInParallel() {
+        final int legs = 4;
+        final CountDownLatch allHolding = new CountDownLatch(legs);
+        final Map<String, SeatHolding> screenings = new HashMap<>();
+        final ScreeningOrder[] cart = new ScreeningOrder[legs];
+        for (int leg = 0; leg < legs; leg++) {
+            final SeatHoldService holds = leg % 2 == 0 ? morningHolds : eveningHolds;
+            final SeatHolding slowScreening = Mockito.mock(SeatHolding.class);
+            Mockito.when(slowScreening.canSeat(Mockito.anyInt())).thenReturn(true);
+            Mockito.when(slowScreening.hold(Mockito.anyLong(), Mockito.anyInt())).thenAnswer(invocation -> {
+                // Every hold waits for the others, so the cart only completes if they all run at once.
+                allHolding.countDown();
+                if (!allHolding.await(10, TimeUnit.SECONDS)) {
+                    throw new IllegalStateException("Screenings held one after another");
+                }
+                return holds.hold(invocation.getArgument(0), invocation.getArgument(1));
+            });
+            Mockito.when(slowScreening.extend(Mockito.anyLong()))
+                    .thenAnswer(invocation -> holds.extend(invocation.getArgument(0)));
+            Mockito.when(slowScreening.confirm(Mockito.anyLong()))
+                    .thenAnswer(invocation -> holds.confirm(invocation.getArgument(0)));
+            screenings.put("screen-" + leg, slowScreening);
+            cart[leg] = new ScreeningOrder("screen-" + leg, createTicketRequest(Type.ADULT, 2));
+        }
+        final CartTicketService cartService = new CartTicketService(paymentService, screenings, pool);
+
+        final PurchaseResult result = cartService.purchaseCart(VALID_ACCOUNT_ID, Arrays.asList(cart));
+
+        assertTrue(result.isConfirmed());
+        assertEquals(8, result.getTotalSeats());
+        Mockito.verify(paymentService).makePayment(VALID_ACCOUNT_ID, 160);
+        assertEquals(16, morning.availableSeats());
+        assertEquals(16, evening.availableSeats());
+    }
+
+    /**
+     * Failure test to verify a hold lapsed before the payment fails the cart without a charge,
+     * and a hold which cannot be confirmed after the payment is reported as paid but not reserved.
+     */
+    @Test
+    public void testLapsedHolds() {
+        final SeatHolding lapsingScreening = Mockito.mock(SeatHolding.class);
+        Mockito.when(lapsingScreening.canSeat(Mockito.anyInt())).thenReturn(true);
+        Mockito.when(lapsingScreening.hold(Mockito.anyLong(), Mockito.anyInt())).thenReturn(7L);
+        Mockito.when(lapsingScreening.extend(7L)).thenReturn(false);
+        final Map<String, SeatHolding> screenings = screenings();
+        screenings.put("lapsing", lapsingScreening);
+        final CartTicketService cartService = new CartTicketService(paymentService, screenings, pool);
+
+        final PurchaseResult lapsedBeforePayment = cartService.purchaseCart(VALID_ACCOUNT_ID, Arrays.asList(
+                new ScreeningOrder("morning", createTicketRequest(Type.ADULT, 3)),
+                new ScreeningOrder("lapsing", createTicketRequest(Type.ADULT, 1))));
+
+        assertEquals(PurchaseResult.Status.BOOKING_FAILED, lapsedBeforePayment.getStatus());
+        Mockito.verifyNoInteractions(paymentService);
+        assertEquals(20, morning.availableSeats());
+        assertEquals(0, morningHolds.getOutstandingHolds());
+
+        Mockito.when(lapsingScreening.extend(7L)).thenReturn(true);
+        Mockito.when(lapsingScreening.confirm(7L)).thenReturn(false);
+        final PurchaseResult lapsedAfterPayment = cartService.purchaseCart(VALID_ACCOUNT_ID, Arrays.asList(
+                new ScreeningOrder("morning", createTicketRequest(Type.ADULT, 3)),
+                new ScreeningOrder("lapsing", createTicketRequest(Type.ADULT, 1))));
+
+        assertEquals(PurchaseResult.Status.PAID_NOT_RESERVED, lapsedAfterPayment.getStatus());
+        Mockito.verify(paymentService).makePayment(VALID_ACCOUNT_ID, 80);
+        assertEquals(17, morning.availableSeats());
+    }
+
+    private Map<String, SeatHolding> screenings() {
+        final Map<String, SeatHolding> screenings = new HashMap<>();
+        screenings.put("morning", morningHolds);
+        screenings.put("evening", eveningHolds);
+        return screenings;
+    }
+
+    private TicketTypeRequest createTicketRequest(final Type type, final int noOfTickets) {
+        return new TicketTypeRequest(type, noOfTickets);
+    }
+}
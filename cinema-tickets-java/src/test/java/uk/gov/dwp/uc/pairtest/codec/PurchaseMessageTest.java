@@ -0,0 +1,185 @@
+package uk.gov.dwp.uc.pairtest.codec;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import thirdparty.paymentgateway.TicketPaymentService;
+import thirdparty.seatbooking.SeatReservationService;
+import uk.gov.dwp.uc.pairtest.TicketService;
+import uk.gov.dwp.uc.pairtest.TicketServiceImpl;
+import uk.gov.dwp.uc.pairtest.domain.PurchaseResult;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest.Type;
+import uk.gov.dwp.uc.pairtest.engine.PurchaseEvaluation;
+
+/**
+ * Tests to verify purchase messages encoded by PurchaseMessageEncoder are read back by the PurchaseMessage flyweight.
+ */
+public class PurchaseMessageTest {
+
+    private final Long VALID_ACCOUNT_ID = 1000L;
+
+    /**
+     * Success test to verify a purchase is read back as encoded, at an offset within a larger buffer.
+     */
+    @Test
+    public void testRoundTrip() {
+        final ByteBuffer buffer = ByteBuffer.allocate(64);
+        final int length = PurchaseMessageEncoder.encode(buffer, 7, VALID_ACCOUNT_ID,
+                createTicketRequest(Type.ADULT, 2), null, createTicketRequest(Type.INFANT, 1));
+        final PurchaseMessage message = new PurchaseMessage();
+
+        assertTrue(message.wrap(buffer, 7));
+
+        assertEquals(PurchaseMessageEncoder.encodedLength(2), length);
+        assertEquals(length, message.length());
+        assertEquals(VALID_ACCOUNT_ID.longValue(), message.accountId());
+        assertEquals(2, message.itemCount());
+        assertEquals(Type.ADULT, message.type(0));
+        assertEquals(2, message.count(0));
+        assertEquals(Type.INFANT, message.type(1));
+        assertEquals(1, message.count(1));
+    }
+
+    /**
+     * Success test to verify random purchases survive the round trip and evaluate as the original requests.
+     */
+    @Test
+    public void testRandomRoundTrips() {
+        final Random random = new Random(42);
+        final Type[] types = Type.values();
+        final PurchaseMessage message = new PurchaseMessage();
+        final PurchaseEvaluation expected = new PurchaseEvaluation();
+        final PurchaseEvaluation actual = new PurchaseEvaluation();
+        for (int run = 0; run < 10_000; run++) {
+            final TicketTypeRequest[] requests = new TicketTypeRequest[random.nextInt(30)];
+            for (int i = 0; i < requests.length; i++) {
+                requests[i] = createTicketRequest(types[random.nextInt(types.length)], random.nextInt());
+            }
+            final long accountId = random.nextLong();
+
+            assertTrue(message.wrap(PurchaseMessageEncoder.encode(accountId, requests), 0));
+
+            assertEquals(accountId, message.accountId());
+            final TicketTypeRequest[] decoded = message.toTicketTypeRequests();
+            assertEquals(requests.length, decoded.length);
+            for (int i = 0; i < requests.length; i++) {
+                assertEquals(requests[i].getTicketType(), decoded[i].getTicketType());
+                assertEquals(requests[i].getNoOfTickets(), decoded[i].getNoOfTickets());
+            }
+            expected.evaluate(requests);
+            actual.evaluate(message);
+            assertEquals(expected.totalSeats(), actual.totalSeats());
+            assertEquals(expected.totalTickets(), actual.totalTickets());
+            assertEquals(expected.totalAmountInPence(), actual.totalAmountInPence());
+        }
+    }
+
+    /**
+     * Failure test to verify random and truncated bytes are refused or read within the buffer, never thrown on.
+     */
+    @Test
+    public void testMalformedMessagesAreRefused() {
+        final Random random = new Random(7);
+        final PurchaseMessage message = new PurchaseMessage();
+        for (int run = 0; run < 10_000; run++) {
+            final byte[] bytes = new byte[random.nextInt(40)];
+            random.nextBytes(bytes);
+            if (bytes.length > 0 && random.nextBoolean()) {
+                bytes[0] = PurchaseMessage.VERSION;
+            }
+            final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            if (message.wrap(buffer, 0)) {
+                assertTrue(message.length() <= bytes.length);
+                for (int i = 0; i < message.itemCount(); i++) {
+                    message.type(i);
+                    message.count(i);
+                }
+            } else {
+                assertFalse(message.isWrapped());
+            }
+        }
+
+        final ByteBuffer encoded = PurchaseMessageEncoder.encode(VALID_ACCOUNT_ID, createTicketRequest(Type.ADULT, 1));
+        encoded.limit(encoded.limit() - 1);
+        assertFalse(message.wrap(encoded, 0));
+        encoded.limit(encoded.capacity());
+        encoded.put(PurchaseMessage.HEADER_LENGTH, (byte) Type.values().length);
+        assertFalse(message.wrap(encoded, 0));
+    }
+
+    /**
+     * Success test to verify a message is wrapped and evaluated without allocating.
+     */
+    @Test
+    public void testEvaluateMessageDoesNotAllocate() {
+        final com.sun.management.ThreadMXBean threadBean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        final long threadId = Thread.currentThread().getId();
+        final ByteBuffer encoded = PurchaseMessageEncoder.encode(VALID_ACCOUNT_ID,
+                createTicketRequest(Type.ADULT, 2), createTicketRequest(Type.CHILD, 1),
+                createTicketRequest(Type.INFANT, 1));
+        final PurchaseMessage message = new PurchaseMessage();
+        final PurchaseEvaluation evaluation = new PurchaseEvaluation();
+        final int iterations = 100_000;
+
+        // Warm up so the measured loop runs compiled code.
+        for (int i = 0; i < iterations; i++) {
+            message.wrap(encoded, 0);
+            evaluation.evaluate(message);
+        }
+
+        final long before = threadBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < iterations; i++) {
+            message.wrap(encoded, 0);
+            evaluation.evaluate(message);
+        }
+        final long allocated = threadBean.getThreadAllocatedBytes(threadId) - before;
+
+        // Any per-message allocation would cost at least 16 bytes per iteration.
+        assertTrue("Allocated " + allocated + " bytes", allocated < iterations);
+        assertEquals(3, evaluation.totalSeats());
+    }
+
+    /**
+     * Success test to verify the Ticket service purchases a message and rejects a malformed one.
+     */
+    @Test
+    public void testTicketServicePurchasesMessage() {
+        final TicketPaymentService mockPaymentService = Mockito.mock(TicketPaymentService.class);
+        final SeatReservationService mockReservationService = Mockito.mock(SeatReservationService.class);
+        final TicketService ticketService = new TicketServiceImpl(mockPaymentService, mockReservationService);
+        final PurchaseMessage message = new PurchaseMessage();
+
+        message.wrap(PurchaseMessageEncoder.encode(VALID_ACCOUNT_ID,
+                createTicketRequest(Type.ADULT, 2), createTicketRequest(Type.CHILD, 1)), 0);
+        final PurchaseResult result = ticketService.tryPurchaseTickets(message);
+
+        assertTrue(result.isConfirmed());
+        assertEquals(50, result.getTotalAmount());
+        Mockito.verify(mockPaymentService).makePayment(VALID_ACCOUNT_ID, 50);
+        Mockito.verify(mockReservationService).reserveSeat(VALID_ACCOUNT_ID, 3);
+
+        message.wrap(PurchaseMessageEncoder.encode(VALID_ACCOUNT_ID, createTicketRequest(Type.CHILD, 1)), 0);
+        assertEquals(PurchaseResult.Status.MANDATORY_ADULT_TICKET_PURCHASE_REQUIRED,
+                ticketService.tryPurchaseTickets(message).getStatus());
+        message.wrap(ByteBuffer.allocate(3), 0);
+        assertEquals(PurchaseResult.Status.INVALID_PURCHASE, ticketService.tryPurchaseTickets(message).getStatus());
+        Mockito.verifyNoMoreInteractions(mockPaymentService, mockReservationService);
+    }
+
+    /**
+     * Helper method to create a ticket request.
+     */
+    private TicketTypeRequest createTicketRequest(final Type type, final int noOfTickets) {
+        return new TicketTypeRequest(type, noOfTickets);
+    }
+}
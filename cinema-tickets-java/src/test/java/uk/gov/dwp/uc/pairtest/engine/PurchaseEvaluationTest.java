@@ -0,0 +1,110 @@
+package uk.gov.dwp.uc.pairtest.engine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+
+import org.junit.Test;
+
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest.Type;
+
+/**
+ * Tests to verify the counts, seats and amount derived by PurchaseEvaluation.
+ */
+public class PurchaseEvaluationTest {
+
+    private final PurchaseEvaluation evaluation = new PurchaseEvaluation();
+
+    /**
+     * Success test to verify the totals of a basket holding every ticket type.
+     */
+    @Test
+    public void testTotalsForAdultChildInfantTickets() {
+        evaluation.evaluate(createTicketRequest(Type.ADULT, 4),
+                createTicketRequest(Type.CHILD, 2),
+                createTicketRequest(Type.INFANT, 2),
+                createTicketRequest(Type.ADULT, 1));
+
+        assertEquals(5, evaluation.count(Type.ADULT));
+        assertEquals(2, evaluation.count(Type.CHILD));
+        assertEquals(2, evaluation.count(Type.INFANT));
+        assertEquals(9, evaluation.totalTickets());
+        assertEquals(7, evaluation.totalSeats());
+        assertEquals(12000L, evaluation.totalAmountInPence());
+        assertEquals(120, evaluation.totalAmountInPounds());
+        assertTrue(evaluation.hasAdult());
+    }
+
+    /**
+     * Success test to verify that null requests are ignored and no adult is found.
+     */
+    @Test
+    public void testNullRequestsAreIgnored() {
+        evaluation.evaluate(null, createTicketRequest(Type.CHILD, 1), null);
+
+        assertEquals(1, evaluation.totalTickets());
+        assertFalse(evaluation.hasAdult());
+    }
+
+    /**
+     * Success test to verify that a reused evaluation does not keep the previous totals.
+     */
+    @Test
+    public void testReusedEvaluationIsReset() {
+        evaluation.evaluate(createTicketRequest(Type.ADULT, 20));
+        evaluation.evaluate(createTicketRequest(Type.CHILD, 1));
+
+        assertEquals(0, evaluation.count(Type.ADULT));
+        assertEquals(1, evaluation.totalSeats());
+        assertEquals(1000L, evaluation.totalAmountInPence());
+    }
+
+    /**
+     * Success test to verify the ticket limit only counts the seats required.
+     */
+    @Test
+    public void testTicketLimitCountsSeats() {
+        evaluation.evaluate(createTicketRequest(Type.ADULT, 20), createTicketRequest(Type.INFANT, 3));
+        assertFalse(evaluation.exceedsTicketLimit(20));
+
+        evaluation.evaluate(createTicketRequest(Type.ADULT, 15), createTicketRequest(Type.CHILD, 6));
+        assertTrue(evaluation.exceedsTicketLimit(20));
+    }
+
+    /**
+     * Success test to verify that evaluating a basket does not allocate.
+     */
+    @Test
+    public void testEvaluateDoesNotAllocate() {
+        final com.sun.management.ThreadMXBean threadBean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        final long threadId = Thread.currentThread().getId();
+        final TicketTypeRequest[] basket = {
+                createTicketRequest(Type.ADULT, 2),
+                createTicketRequest(Type.CHILD, 1),
+                createTicketRequest(Type.INFANT, 1)
+        };
+        final int iterations = 100_000;
+
+        // Warm up so the measured loop runs compiled code.
+        for (int i = 0; i < iterations; i++) {
+            evaluation.evaluate(basket);
+        }
+
+        final long before = threadBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < iterations; i++) {
+            evaluation.evaluate(basket);
+        }
+        final long allocated = threadBean.getThreadAllocatedBytes(threadId) - before;
+
+        // Any per-evaluation allocation would cost at least 16 bytes per iteration.
+        assertTrue("Allocated " + allocated + " bytes", allocated < iterations);
+    }
+
+    private TicketTypeRequest createTicketRequest(final Type ticketType, final int quantity) {
+        return new TicketTypeRequest(ticketType, quantity);
+    }
+}
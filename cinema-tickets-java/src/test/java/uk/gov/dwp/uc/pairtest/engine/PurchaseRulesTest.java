@@ -0,0 +1,210 @@
+package uk.gov.dwp.uc.pairtest.engine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mockito;
+
+import thirdparty.paymentgateway.TicketPaymentService;
+import thirdparty.seatbooking.SeatReservationService;
+import uk.gov.dwp.uc.pairtest.TicketService;
+import uk.gov.dwp.uc.pairtest.TicketServiceImpl;
+import uk.gov.dwp.uc.pairtest.domain.PurchaseResult;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest.Type;
+
+/**
+ * Tests to verify the compiled PurchaseRules, their rule set file and reloading it.
+ */
+public class PurchaseRulesTest {
+
+    private final Long VALID_ACCOUNT_ID = 1000L;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Success test to verify the default rules keep the ticket limit and Adult ticket rule.
+     */
+    @Test
+    public void testDefaultRules() {
+        final PurchaseRules rules = PurchaseRules.DEFAULT;
+
+        assertEquals(PurchaseResult.Status.CONFIRMED, decide(rules, 10, 10, 0));
+        assertEquals(PurchaseResult.Status.CONFIRMED, decide(rules, 1, 0, 50));
+        assertEquals(PurchaseResult.Status.MAX_TICKET_PURCHASE_EXCEEDED, decide(rules, 10, 11, 0));
+        assertEquals(PurchaseResult.Status.MAX_TICKET_PURCHASE_EXCEEDED, decide(rules, 0, 21, 0));
+        assertEquals(PurchaseResult.Status.MANDATORY_ADULT_TICKET_PURCHASE_REQUIRED, decide(rules, 0, 1, 1));
+        assertEquals(PurchaseResult.Status.MANDATORY_ADULT_TICKET_PURCHASE_REQUIRED, decide(rules, -1, 2, 0));
+    }
+
+    /**
+     * Success test to verify the decision table agrees with the rules for every count vector, beyond the bounds too.
+     */
+    @Test
+    public void testDecisionTableMatchesRules() {
+        final PurchaseRules[] ruleSets = {
+                PurchaseRules.DEFAULT,
+                PurchaseRules.DEFAULT.withMaxInfantsPerAdult(1),
+                PurchaseRules.DEFAULT.withMaxInfantsPerAdult(2).withMaxTickets(Type.INFANT, 5),
+                new PurchaseRules(8).withMaxTickets(Type.CHILD, 3).withMaxInfantsPerAdult(0),
+                new PurchaseRules(6).withAdultRequired(false).withMaxTickets(Type.ADULT, 10),
+        };
+        for (final PurchaseRules rules : ruleSets) {
+            for (int adults = 0; adults <= 45; adults++) {
+                for (int children = 0; children <= 45; children++) {
+                    for (int infants = 0; infants <= 45; infants++) {
+                        assertEquals(rules + " " + adults + "/" + children + "/" + infants,
+                                expected(rules, adults, children, infants), decide(rules, adults, children, infants));
+                    }
+                }
+            }
+            assertTrue(rules.tableSize() < 30_000);
+        }
+    }
+
+    /**
+     * Success test to verify venue rules override the default rules of the file.
+     */
+    @Test
+    public void testRuleSetVenueOverrides() {
+        final Properties properties = new Properties();
+        properties.setProperty("maxTickets", "10");
+        properties.setProperty("maxInfantsPerAdult", "1");
+        properties.setProperty("venue.riverside.maxTickets", "4");
+        properties.setProperty("venue.riverside.maxTickets.CHILD", "2");
+
+        final PurchaseRuleSet ruleSet = PurchaseRuleSet.parse(properties);
+
+        assertEquals(10, ruleSet.rulesFor("elsewhere").getMaxTickets());
+        final PurchaseRules riverside = ruleSet.rulesFor("riverside");
+        assertEquals(4, riverside.getMaxTickets());
+        assertEquals(1, riverside.getMaxInfantsPerAdult());
+        assertEquals(2, riverside.getMaxTickets(Type.CHILD));
+        assertTrue(riverside.isAdultRequired());
+    }
+
+    /**
+     * Failure test to verify a rule set with an unknown rule or invalid value is rejected.
+     */
+    @Test
+    public void testInvalidRuleSetRejected() {
+        for (final String[] rule : new String[][] {
+                {"maxTicket", "10"}, {"maxTickets", "-1"}, {"maxTickets.SENIOR", "2"},
+                {"adultRequired", "yes"}, {"venue.riverside", "4"}}) {
+            final Properties properties = new Properties();
+            properties.setProperty(rule[0], rule[1]);
+            try {
+                PurchaseRuleSet.parse(properties);
+                throw new AssertionError("Accepted " + rule[0] + "=" + rule[1]);
+            } catch (final IllegalArgumentException e) {
+                // expected
+            }
+        }
+    }
+
+    /**
+     * Success test to verify purchases follow a reloaded rule file and a broken file keeps the current rules.
+     */
+    @Test
+    public void testRuleFileReloaded() throws IOException {
+        final Path file = folder.getRoot().toPath().resolve("purchase-rules.properties");
+        write(file, "venue.riverside.maxTickets=12\n", 1);
+
+        try (PurchaseRuleFile ruleFile = PurchaseRuleFile.open(file, 0, TimeUnit.SECONDS)) {
+            final TicketService ticketService = TicketServiceImpl.builder(Mockito.mock(TicketPaymentService.class),
+                    Mockito.mock(SeatReservationService.class))
+                    .rules(ruleFile.rulesFor("riverside"))
+                    .build();
+            assertTrue(ticketService.tryPurchaseTickets(VALID_ACCOUNT_ID, createTicketRequest(Type.ADULT, 10))
+                    .isConfirmed());
+
+            write(file, "venue.riverside.maxTickets=8\n", 2);
+            assertTrue(ruleFile.reload());
+            assertEquals(PurchaseResult.Status.MAX_TICKET_PURCHASE_EXCEEDED,
+                    ticketService.tryPurchaseTickets(VALID_ACCOUNT_ID, createTicketRequest(Type.ADULT, 10))
+                            .getStatus());
+
+            write(file, "venue.riverside.maxTicket=20\n", 3);
+            assertFalse(ruleFile.reload());
+            assertEquals(8, ruleFile.getRuleSet().rulesFor("riverside").getMaxTickets());
+            assertEquals(1, ruleFile.getReloadCount());
+            assertFalse("Unchanged file is not reloaded", ruleFile.reload());
+        }
+    }
+
+    /**
+     * Success test to verify a change written with the same modification time is reloaded,
+     * and rewriting the same rules is not counted as a reload.
+     */
+    @Test
+    public void testRuleFileReloadedByContent() throws IOException {
+        final Path file = folder.getRoot().toPath().resolve("purchase-rules.properties");
+        write(file, "maxTickets=20\n", 1);
+
+        try (PurchaseRuleFile ruleFile = PurchaseRuleFile.open(file, 0, TimeUnit.SECONDS)) {
+            write(file, "maxTickets=2\n", 1);
+            assertTrue(ruleFile.reload());
+            write(file, "maxTickets=20\n", 1);
+            assertTrue(ruleFile.reload());
+            assertEquals(20, ruleFile.getRuleSet().rulesFor(null).getMaxTickets());
+
+            write(file, "maxTickets=20\n", 2);
+            assertFalse(ruleFile.reload());
+            assertEquals(2, ruleFile.getReloadCount());
+        }
+    }
+
+    private PurchaseResult.Status decide(final PurchaseRules rules, final int adults, final int children,
+                                         final int infants) {
+        return rules.evaluate(new PurchaseEvaluation().evaluate(createTicketRequest(Type.ADULT, adults),
+                createTicketRequest(Type.CHILD, children), createTicketRequest(Type.INFANT, infants)));
+    }
+
+    /**
+     * The rules applied directly, independently of the decision table.
+     */
+    private PurchaseResult.Status expected(final PurchaseRules rules, final int adults, final int children,
+                                           final int infants) {
+        if (adults + children > rules.getMaxTickets()
+                || exceeds(adults, rules.getMaxTickets(Type.ADULT))
+                || exceeds(children, rules.getMaxTickets(Type.CHILD))
+                || exceeds(infants, rules.getMaxTickets(Type.INFANT))) {
+            return PurchaseResult.Status.MAX_TICKET_PURCHASE_EXCEEDED;
+        }
+        if (rules.isAdultRequired() && adults == 0
+                || rules.getMaxInfantsPerAdult() != PurchaseRules.UNLIMITED
+                && infants > rules.getMaxInfantsPerAdult() * adults) {
+            return PurchaseResult.Status.MANDATORY_ADULT_TICKET_PURCHASE_REQUIRED;
+        }
+        return PurchaseResult.Status.CONFIRMED;
+    }
+
+    private boolean exceeds(final int count, final int cap) {
+        return cap != PurchaseRules.UNLIMITED && count > cap;
+    }
+
+    private void write(final Path file, final String content, final int version) throws IOException {
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(file, FileTime.fromMillis(version * 1000L));
+    }
+
+    /**
+     * Helper method to create a ticket request.
+     */
+    private TicketTypeRequest createTicketRequest(final Type type, final int noOfTickets) {
+        return new TicketTypeRequest(type, noOfTickets);
+    }
+}
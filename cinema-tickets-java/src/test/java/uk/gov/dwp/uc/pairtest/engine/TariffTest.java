@@ -0,0 +1,114 @@
+package uk.gov.dwp.uc.pairtest.engine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest.Type;
+
+/**
+ * Tests to verify basket pricing of Tariff and TariffCatalogue.
+ */
+public class TariffTest {
+
+    private final PurchaseEvaluation evaluation = new PurchaseEvaluation();
+
+    /**
+     * Success test to verify the standard tariff matches the standard ticket prices.
+     */
+    @Test
+    public void testStandardTariff() {
+        evaluation.evaluate(createTicketRequest(Type.ADULT, 4), createTicketRequest(Type.CHILD, 2),
+                createTicketRequest(Type.INFANT, 2));
+
+        assertEquals(10000L, Tariff.standard().price(evaluation));
+        assertEquals(evaluation.totalAmountInPence(), Tariff.standard().price(evaluation));
+    }
+
+    /**
+     * Success test to verify a family bundle is applied as many times as the basket holds.
+     */
+    @Test
+    public void testFamilyBundle() {
+        final Tariff family = new Tariff("family", 1250, 850, 0).withFamilyBundle(2, 2, 3500);
+        evaluation.evaluate(createTicketRequest(Type.ADULT, 5), createTicketRequest(Type.CHILD, 4));
+
+        // Two bundles and one Adult at the ticket price.
+        assertEquals(2 * 3500 + 1250, family.price(evaluation));
+    }
+
+    /**
+     * Success test to verify a percentage discount is exact to the penny, rounding halves down.
+     */
+    @Test
+    public void testPercentageDiscount() {
+        final Tariff offPeak = new Tariff("off-peak", 1099, 599, 0).withDiscount(1500);
+
+        evaluation.evaluate(createTicketRequest(Type.ADULT, 3));
+        // 3297 x 85% = 2802.45
+        assertEquals(2802L, offPeak.price(evaluation));
+
+        evaluation.evaluate(createTicketRequest(Type.CHILD, 10));
+        final Tariff halfPrice = new Tariff("half", 1099, 1, 0).withDiscount(5000);
+        // 10 x 50% = 5
+        assertEquals(5L, halfPrice.price(evaluation));
+        evaluation.evaluate(createTicketRequest(Type.CHILD, 1));
+        // 0.5 rounds in the customer's favour
+        assertEquals(0L, halfPrice.price(evaluation));
+    }
+
+    /**
+     * Success test to verify screenings are priced with their assigned tariff.
+     */
+    @Test
+    public void testCatalogueScreeningTariffs() {
+        final TariffCatalogue catalogue = new TariffCatalogue();
+        final int standardId = catalogue.register(Tariff.standard());
+        final Tariff peak = new Tariff("peak", 2500, 1250, 0);
+        final int peakId = catalogue.register(peak);
+        for (int i = 0; i < 2000; i++) {
+            catalogue.register(new Tariff("promotion-" + i, 1000 + i, 500, 0));
+        }
+        catalogue.assign("screening-1", standardId);
+        catalogue.assign("screening-7", peakId);
+        catalogue.assign("screening-9000", catalogue.tariffId("promotion-42"));
+
+        evaluation.evaluate(createTicketRequest(Type.ADULT, 2));
+
+        assertEquals(2002, catalogue.size());
+        assertSame(peak, catalogue.forScreening("screening-7"));
+        assertEquals(4000L, catalogue.price("screening-1", evaluation));
+        assertEquals(5000L, catalogue.price("screening-7", evaluation));
+        assertEquals(2084L, catalogue.price("screening-9000", evaluation));
+    }
+
+    /**
+     * Success test to verify a screening without a tariff of its own is priced with the default tariff.
+     */
+    @Test
+    public void testCatalogueDefaultTariff() {
+        final TariffCatalogue catalogue = TariffCatalogue.standard();
+        catalogue.assign("screening-7", catalogue.register(new Tariff("peak", 2500, 1250, 0)));
+
+        evaluation.evaluate(createTicketRequest(Type.ADULT, 1), createTicketRequest(Type.CHILD, 1));
+
+        assertEquals(3000L, catalogue.price("screening-1", evaluation));
+        assertEquals(3750L, catalogue.price("screening-7", evaluation));
+    }
+
+    /**
+     * Failure test to verify a screening without a tariff cannot be priced.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testScreeningWithoutTariff() {
+        final TariffCatalogue catalogue = new TariffCatalogue();
+        catalogue.assign("screening-3", catalogue.register(Tariff.standard()));
+        catalogue.forScreening("screening-2");
+    }
+
+    private TicketTypeRequest createTicketRequest(final Type ticketType, final int quantity) {
+        return new TicketTypeRequest(ticketType, quantity);
+    }
+}
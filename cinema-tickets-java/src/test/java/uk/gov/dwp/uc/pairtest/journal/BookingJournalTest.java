@@ -0,0 +1,226 @@
+package uk.gov.dwp.uc.pairtest.journal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+
+import thirdparty.paymentgateway.TicketPaymentService;
+import thirdparty.seatbooking.SeatReservationService;
+import uk.gov.dwp.uc.pairtest.TicketService;
+import uk.gov.dwp.uc.pairtest.TicketServiceImpl;
+import uk.gov.dwp.uc.pairtest.domain.PurchaseResult;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest.Type;
+
+/**
+ * Tests to verify the BookingJournal recovers bookings after a restart.
+ */
+public class BookingJournalTest {
+
+    private final Long VALID_ACCOUNT_ID = 1000L;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Success test to verify bookings left unfinished are found incomplete after reopening the journal.
+     */
+    @Test
+    public void testRecoverIncompleteBookings() throws IOException {
+        final Path directory = folder.getRoot().toPath();
+        final long intent;
+        final long paid;
+        try (BookingJournal journal = open(directory, 64)) {
+            final long reserved = journal.bookingStarted(VALID_ACCOUNT_ID, 40, 2);
+            journal.paymentTaken(reserved);
+            journal.seatsReserved(reserved);
+            final long failed = journal.bookingStarted(VALID_ACCOUNT_ID, 20, 1);
+            journal.bookingFailed(failed, new IllegalStateException());
+            intent = journal.bookingStarted(VALID_ACCOUNT_ID, 60, 3);
+            paid = journal.bookingStarted(2000L, 30, 2);
+            journal.paymentTaken(paid);
+        }
+
+        try (BookingJournal journal = open(directory, 64)) {
+            final List<JournalRecord> incomplete = journal.incompleteBookings();
+            assertEquals(2, incomplete.size());
+            assertRecord(incomplete.get(0), intent, VALID_ACCOUNT_ID, 60, 3, BookingState.INTENT);
+            assertRecord(incomplete.get(1), paid, 2000L, 30, 2, BookingState.PAID);
+            assertEquals(paid + 1, journal.bookingStarted(VALID_ACCOUNT_ID, 20, 1));
+        }
+    }
+
+    /**
+     * Success test to verify records spanning several segments are recovered in order.
+     */
+    @Test
+    public void testRecoverAcrossSegments() throws IOException {
+        final Path directory = folder.getRoot().toPath();
+        try (BookingJournal journal = open(directory, 4)) {
+            for (int i = 0; i < 9; i++) {
+                journal.paymentTaken(journal.bookingStarted(VALID_ACCOUNT_ID, 20, 1));
+            }
+        }
+
+        assertEquals(5, segments(directory).size());
+        try (BookingJournal journal = open(directory, 4)) {
+            assertEquals(9, journal.incompleteBookings().size());
+            assertEquals(10, journal.bookingStarted(VALID_ACCOUNT_ID, 20, 1));
+        }
+    }
+
+    /**
+     * Success test to verify recovery stops at a torn record and appending continues in its place.
+     */
+    @Test
+    public void testRecoverStopsAtTornRecord() throws IOException {
+        final Path directory = folder.getRoot().toPath();
+        try (BookingJournal journal = open(directory, 64)) {
+            journal.bookingStarted(VALID_ACCOUNT_ID, 20, 1);
+            journal.bookingStarted(VALID_ACCOUNT_ID, 40, 2);
+        }
+        try (FileChannel channel = FileChannel.open(segments(directory).get(0), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[] {1}), BookingJournal.RECORD_SIZE + 16);
+        }
+
+        try (BookingJournal journal = open(directory, 64)) {
+            assertEquals(1, journal.incompleteBookings().size());
+            assertEquals(2, journal.bookingStarted(VALID_ACCOUNT_ID, 60, 3));
+        }
+        try (BookingJournal journal = open(directory, 64)) {
+            assertEquals(2, journal.incompleteBookings().size());
+            assertEquals(60, journal.incompleteBookings().get(1).getTotalAmount());
+        }
+    }
+
+    /**
+     * Success test to verify the records after a torn record, in its segment and in later segments,
+     * are discarded so a later recovery never reads them.
+     */
+    @Test
+    public void testTornRecordDiscardsLaterRecords() throws IOException {
+        final Path directory = folder.getRoot().toPath();
+        try (BookingJournal journal = open(directory, 4)) {
+            for (int i = 0; i < 9; i++) {
+                journal.paymentTaken(journal.bookingStarted(VALID_ACCOUNT_ID, 20, 1));
+            }
+        }
+        try (FileChannel channel = FileChannel.open(segments(directory).get(0), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[] {1}), BookingJournal.RECORD_SIZE + 16);
+        }
+
+        try (BookingJournal journal = open(directory, 4)) {
+            assertEquals(1, segments(directory).size());
+            assertEquals(1, journal.incompleteBookings().size());
+            assertEquals(2, journal.bookingStarted(VALID_ACCOUNT_ID, 60, 3));
+        }
+        try (BookingJournal journal = open(directory, 4)) {
+            assertEquals(2, journal.incompleteBookings().size());
+            assertRecord(journal.incompleteBookings().get(0), 1, VALID_ACCOUNT_ID, 20, 1, BookingState.INTENT);
+            assertRecord(journal.incompleteBookings().get(1), 2, VALID_ACCOUNT_ID, 60, 3, BookingState.INTENT);
+            assertEquals(3, journal.bookingStarted(VALID_ACCOUNT_ID, 20, 1));
+        }
+    }
+
+    /**
+     * Success test to verify recovery reserves the seats of paid bookings and leaves intents for reconciliation.
+     */
+    @Test
+    public void testReplay() throws IOException {
+        final Path directory = folder.getRoot().toPath();
+        try (BookingJournal journal = open(directory, 64)) {
+            journal.bookingStarted(VALID_ACCOUNT_ID, 20, 1);
+            journal.paymentTaken(journal.bookingStarted(2000L, 40, 2));
+        }
+
+        final SeatReservationService reservationService = Mockito.mock(SeatReservationService.class);
+        try (BookingJournal journal = open(directory, 64)) {
+            final List<JournalRecord> unresolved = BookingRecovery.replay(journal, reservationService);
+            assertEquals(1, unresolved.size());
+            assertEquals(BookingState.INTENT, unresolved.get(0).getState());
+        }
+        Mockito.verify(reservationService).reserveSeat(2000L, 2);
+
+        try (BookingJournal journal = open(directory, 64)) {
+            assertEquals(1, journal.incompleteBookings().size());
+        }
+    }
+
+    /**
+     * Failure test to verify a booking paid but whose reservation fails is recovered as paid and reserved by replay.
+     */
+    @Test
+    public void testTicketServiceJournalsBookings() throws IOException {
+        final Path directory = folder.getRoot().toPath();
+        final TicketPaymentService paymentService = Mockito.mock(TicketPaymentService.class);
+        final SeatReservationService reservationService = Mockito.mock(SeatReservationService.class);
+        Mockito.doNothing().doThrow(new IllegalStateException("Unavailable"))
+                .when(reservationService).reserveSeat(ArgumentMatchers.anyLong(), ArgumentMatchers.anyInt());
+
+        try (BookingJournal journal = open(directory, 64)) {
+            final TicketService ticketService = TicketServiceImpl.builder(paymentService, reservationService)
+                    .listener(journal)
+                    .build();
+
+            assertTrue(ticketService.tryPurchaseTickets(VALID_ACCOUNT_ID, createTicketRequest(Type.ADULT, 2))
+                    .isConfirmed());
+            assertEquals(PurchaseResult.Status.BOOKING_FAILED,
+                    ticketService.tryPurchaseTickets(VALID_ACCOUNT_ID, createTicketRequest(Type.ADULT, 1)).getStatus());
+        }
+
+        final SeatReservationService recoveryService = Mockito.mock(SeatReservationService.class);
+        try (BookingJournal journal = open(directory, 64)) {
+            assertEquals(1, journal.incompleteBookings().size());
+            assertRecord(journal.incompleteBookings().get(0), 2, VALID_ACCOUNT_ID, 20, 1, BookingState.PAID);
+            assertTrue(BookingRecovery.replay(journal, recoveryService).isEmpty());
+        }
+        Mockito.verify(recoveryService).reserveSeat(VALID_ACCOUNT_ID, 1);
+
+        try (BookingJournal journal = open(directory, 64)) {
+            assertTrue(journal.incompleteBookings().isEmpty());
+            assertEquals(3, journal.bookingStarted(VALID_ACCOUNT_ID, 20, 1));
+        }
+    }
+
+    private static BookingJournal open(final Path directory, final int recordsPerSegment) throws IOException {
+        return BookingJournal.open(directory, recordsPerSegment, 1, TimeUnit.MILLISECONDS, true);
+    }
+
+    private static List<Path> segments(final Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.sorted().collect(Collectors.toList());
+        }
+    }
+
+    private static void assertRecord(final JournalRecord record, final long bookingId, final long accountId,
+                                     final int totalAmount, final int totalSeats, final BookingState state) {
+        assertEquals(bookingId, record.getBookingId());
+        assertEquals(accountId, record.getAccountId());
+        assertEquals(totalAmount, record.getTotalAmount());
+        assertEquals(totalSeats, record.getTotalSeats());
+        assertEquals(state, record.getState());
+    }
+
+    /**
+     * Helper method to create a ticket request.
+     */
+    private TicketTypeRequest createTicketRequest(final Type type, final int noOfTickets) {
+        return new TicketTypeRequest(type, noOfTickets);
+    }
+}
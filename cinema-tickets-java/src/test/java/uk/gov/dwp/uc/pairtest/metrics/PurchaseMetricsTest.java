@@ -0,0 +1,149 @@
+package uk.gov.dwp.uc.pairtest.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+
+import thirdparty.paymentgateway.TicketPaymentService;
+import thirdparty.seatbooking.SeatReservationService;
+import uk.gov.dwp.uc.pairtest.TicketService;
+import uk.gov.dwp.uc.pairtest.TicketServiceImpl;
+import uk.gov.dwp.uc.pairtest.domain.PurchaseResult;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest.Type;
+import uk.gov.dwp.uc.pairtest.exception.InvalidPurchaseException;
+
+/**
+ * Tests to verify the counts and latencies recorded by PurchaseMetrics.
+ */
+public class PurchaseMetricsTest {
+
+    private final Long VALID_ACCOUNT_ID = 1000L;
+
+    /**
+     * Success test to verify percentiles are reported within the histogram precision.
+     */
+    @Test
+    public void testHistogramPercentiles() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 10_000; value++) {
+            histogram.record(value * 1_000);
+        }
+
+        final HistogramSnapshot snapshot = histogram.snapshot();
+
+        assertEquals(10_000, snapshot.getCount());
+        assertEquals(10_000_000, snapshot.getMax());
+        assertWithinPrecision(5_000_000, snapshot.getValueAtPercentile(50));
+        assertWithinPrecision(9_900_000, snapshot.getValueAtPercentile(99));
+        assertEquals(10_000_000, snapshot.getValueAtPercentile(100));
+        assertEquals(5_000_500.0, snapshot.getMean(), 0.001);
+    }
+
+    /**
+     * Success test to verify every bucket boundary maps back to its own bucket.
+     */
+    @Test
+    public void testBucketBounds() {
+        for (int index = 0; index < 900; index++) {
+            final long upperBound = LatencyHistogram.bucketUpperBound(index);
+            assertEquals(index, LatencyHistogram.bucketIndex(upperBound));
+            assertEquals(index + 1, LatencyHistogram.bucketIndex(upperBound + 1));
+        }
+        assertTrue(LatencyHistogram.bucketIndex(Long.MAX_VALUE) >= 0);
+    }
+
+    /**
+     * Success test to verify the Ticket service records outcomes per rejection reason and call latencies.
+     */
+    @Test
+    public void testTicketServiceRecordsOutcomes() {
+        final TicketPaymentService mockPaymentService = Mockito.mock(TicketPaymentService.class);
+        Mockito.doThrow(RuntimeException.class)
+                .when(mockPaymentService)
+                .makePayment(ArgumentMatchers.eq(2000L), ArgumentMatchers.anyInt());
+        final PurchaseMetrics metrics = new PurchaseMetrics(1);
+        final TicketService ticketService =
+                TicketServiceImpl.builder(mockPaymentService, Mockito.mock(SeatReservationService.class))
+                        .metrics(metrics)
+                        .build();
+
+        ticketService.purchaseTickets(VALID_ACCOUNT_ID, createTicketRequest(Type.ADULT, 1));
+        ticketService.purchaseTickets(VALID_ACCOUNT_ID, createTicketRequest(Type.ADULT, 2));
+        ticketService.purchaseTickets(2000L, createTicketRequest(Type.ADULT, 1));
+        purchaseExpectingRejection(ticketService, -1L, createTicketRequest(Type.ADULT, 1));
+        purchaseExpectingRejection(ticketService, VALID_ACCOUNT_ID, createTicketRequest(Type.CHILD, 1));
+        purchaseExpectingRejection(ticketService, VALID_ACCOUNT_ID, createTicketRequest(Type.ADULT, 21));
+
+        final MetricsSnapshot snapshot = metrics.snapshot();
+        assertEquals(6, snapshot.getTotalPurchases());
+        assertEquals(2, snapshot.getCount(PurchaseResult.Status.CONFIRMED));
+        assertEquals(1, snapshot.getCount(PurchaseResult.Status.BOOKING_FAILED));
+        assertEquals(1, snapshot.getCount(PurchaseResult.Status.INVALID_ACCOUNT));
+        assertEquals(1, snapshot.getCount(PurchaseResult.Status.MANDATORY_ADULT_TICKET_PURCHASE_REQUIRED));
+        assertEquals(1, snapshot.getCount(PurchaseResult.Status.MAX_TICKET_PURCHASE_EXCEEDED));
+        assertEquals(6, snapshot.getValidation().getCount());
+        assertEquals(3, snapshot.getPayment().getCount());
+        assertEquals(2, snapshot.getReservation().getCount());
+    }
+
+    /**
+     * Success test to verify every outcome is counted while only a sample of the purchases is timed.
+     */
+    @Test
+    public void testLatenciesSampled() {
+        final PurchaseMetrics metrics = new PurchaseMetrics();
+        final TicketService ticketService = TicketServiceImpl.builder(Mockito.mock(TicketPaymentService.class),
+                Mockito.mock(SeatReservationService.class))
+                .metrics(metrics)
+                .build();
+
+        for (int i = 0; i < 10_000; i++) {
+            ticketService.tryPurchaseTickets(VALID_ACCOUNT_ID, createTicketRequest(Type.ADULT, 1));
+        }
+
+        final MetricsSnapshot snapshot = metrics.snapshot();
+        assertEquals(10_000, snapshot.getCount(PurchaseResult.Status.CONFIRMED));
+        // One purchase in 256 on average, about 39.
+        final long timed = snapshot.getValidation().getCount();
+        assertTrue("Timed " + timed, timed > 0 && timed < 10_000 / 64);
+        assertEquals(timed, snapshot.getPayment().getCount());
+        assertEquals(timed, snapshot.getReservation().getCount());
+    }
+
+    /**
+     * Success test to verify disabled metrics record nothing.
+     */
+    @Test
+    public void testDisabledMetricsRecordNothing() {
+        final PurchaseMetrics metrics = PurchaseMetrics.disabled();
+        metrics.recordOutcome(PurchaseResult.Status.CONFIRMED);
+        metrics.recordPayment(metrics.startTimer());
+
+        assertEquals(0, metrics.snapshot().getTotalPurchases());
+        assertEquals(0, metrics.snapshot().getPayment().getCount());
+    }
+
+    private void purchaseExpectingRejection(final TicketService ticketService, final Long accountId,
+                                            final TicketTypeRequest request) {
+        try {
+            ticketService.purchaseTickets(accountId, request);
+            fail("Purchase should be rejected");
+        } catch (final InvalidPurchaseException e) {
+            // expected
+        }
+    }
+
+    private void assertWithinPrecision(final long expected, final long actual) {
+        assertTrue("Expected " + expected + " but was " + actual,
+                actual >= expected && actual <= expected + expected / 16);
+    }
+
+    private TicketTypeRequest createTicketRequest(final Type ticketType, final int quantity) {
+        return new TicketTypeRequest(ticketType, quantity);
+    }
+}
@@ -0,0 +1,281 @@
+package uk.gov.dwp.uc.pairtest.payment;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import thirdparty.paymentgateway.TicketPaymentService;
+import thirdparty.seatbooking.SeatReservationService;
+import uk.gov.dwp.uc.pairtest.TicketServiceImpl;
+import uk.gov.dwp.uc.pairtest.async.AsyncTicketPaymentService;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest.Type;
+import uk.gov.dwp.uc.pairtest.exception.ServiceOverloadedException;
+
+/**
+ * Tests to verify BatchingTicketPaymentService flushes batches on size and time and fans the results back.
+ */
+public class BatchingTicketPaymentServiceTest {
+
+    private final Long VALID_ACCOUNT_ID = 1000L;
+
+    /**
+     * Success test to verify a full batch is flushed straight away in one gateway call.
+     */
+    @Test
+    public void testFlushOnBatchSize() throws Exception {
+        final SimulatedGateway gateway = new SimulatedGateway(0);
+        try (BatchingTicketPaymentService paymentService =
+                     new BatchingTicketPaymentService(gateway, 4, 10, TimeUnit.SECONDS, 64)) {
+            final AsyncTicketPaymentService asyncPaymentService = paymentService.asAsync();
+            final List<CompletableFuture<Void>> payments = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                payments.add(asyncPaymentService.makePayment(VALID_ACCOUNT_ID + i, 20));
+            }
+
+            CompletableFuture.allOf(payments.toArray(new CompletableFuture[0])).get(5, TimeUnit.SECONDS);
+
+            assertEquals(1, gateway.calls.get());
+            assertEquals(4, gateway.largestBatch.get());
+            assertEquals(1, paymentService.getBatchCount());
+            assertEquals(4, paymentService.getPaymentCount());
+        }
+    }
+
+    /**
+     * Success test to verify a partial batch is flushed once the delay has passed.
+     */
+    @Test
+    public void testFlushOnDelay() throws Exception {
+        final SimulatedGateway gateway = new SimulatedGateway(0);
+        try (BatchingTicketPaymentService paymentService =
+                     new BatchingTicketPaymentService(gateway, 100, 20, TimeUnit.MILLISECONDS, 64)) {
+            final long start = System.nanoTime();
+
+            paymentService.makePayment(VALID_ACCOUNT_ID, 20);
+
+            assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(20));
+            assertEquals(1, gateway.calls.get());
+            assertEquals(1, paymentService.getFlushLatency().getCount());
+        }
+    }
+
+    /**
+     * Success test to verify a single payment gateway is charged once per account of a batch.
+     */
+    @Test
+    public void testChargeOncePerAccount() throws Exception {
+        final TicketPaymentService mockPaymentService = Mockito.mock(TicketPaymentService.class);
+        try (BatchingTicketPaymentService paymentService =
+                     new BatchingTicketPaymentService(mockPaymentService, 3, 10, TimeUnit.SECONDS, 64)) {
+            final AsyncTicketPaymentService asyncPaymentService = paymentService.asAsync();
+            final CompletableFuture<Void> first = asyncPaymentService.makePayment(VALID_ACCOUNT_ID, 20);
+            final CompletableFuture<Void> second = asyncPaymentService.makePayment(2000L, 10);
+            final CompletableFuture<Void> third = asyncPaymentService.makePayment(VALID_ACCOUNT_ID, 30);
+
+            CompletableFuture.allOf(first, second, third).get(5, TimeUnit.SECONDS);
+        }
+
+        Mockito.verify(mockPaymentService).makePayment(VALID_ACCOUNT_ID, 50);
+        Mockito.verify(mockPaymentService).makePayment(2000L, 10);
+        Mockito.verifyNoMoreInteractions(mockPaymentService);
+    }
+
+    /**
+     * Failure test to verify only the payments failed by the gateway fail, and the blocking call rethrows.
+     */
+    @Test
+    public void testFailureFanOut() throws Exception {
+        final TicketPaymentService mockPaymentService = Mockito.mock(TicketPaymentService.class);
+        Mockito.doThrow(new IllegalStateException("Card declined")).when(mockPaymentService).makePayment(2000L, 10);
+        try (BatchingTicketPaymentService paymentService =
+                     new BatchingTicketPaymentService(mockPaymentService, 2, 10, TimeUnit.SECONDS, 64)) {
+            final AsyncTicketPaymentService asyncPaymentService = paymentService.asAsync();
+            final CompletableFuture<Void> paid = asyncPaymentService.makePayment(VALID_ACCOUNT_ID, 20);
+            final CompletableFuture<Void> declined = asyncPaymentService.makePayment(2000L, 10);
+
+            paid.get(5, TimeUnit.SECONDS);
+            try {
+                declined.get(5, TimeUnit.SECONDS);
+                fail("Expected the declined payment to fail");
+            } catch (final ExecutionException e) {
+                assertEquals("Card declined", e.getCause().getMessage());
+            }
+
+            final ExecutorService executor = Executors.newSingleThreadExecutor();
+            try {
+                final Future<?> blocking = executor.submit(() -> paymentService.makePayment(2000L, 10));
+                asyncPaymentService.makePayment(VALID_ACCOUNT_ID, 20);
+                blocking.get(5, TimeUnit.SECONDS);
+                fail("Expected the declined payment to throw");
+            } catch (final ExecutionException e) {
+                assertTrue(e.getCause() instanceof IllegalStateException);
+            } finally {
+                executor.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Success test to verify concurrent callers share gateway calls when the gateway is slow.
+     */
+    @Test
+    public void testConcurrentPaymentsShareGatewayCalls() throws Exception {
+        final SimulatedGateway gateway = new SimulatedGateway(5);
+        final int callers = 64;
+        final ExecutorService executor = Executors.newFixedThreadPool(callers);
+        try (BatchingTicketPaymentService paymentService =
+                     new BatchingTicketPaymentService(gateway, 32, 2, TimeUnit.MILLISECONDS, 256)) {
+            final List<Future<?>> payments = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                final long accountId = VALID_ACCOUNT_ID + i;
+                payments.add(executor.submit(() -> paymentService.makePayment(accountId, 20)));
+            }
+            for (final Future<?> payment : payments) {
+                payment.get(10, TimeUnit.SECONDS);
+            }
+
+            assertEquals(callers, paymentService.getPaymentCount());
+            assertTrue("Expected batched gateway calls but got " + gateway.calls.get(), gateway.calls.get() < callers / 2);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Failure test to verify payments are refused once the service is closed.
+     */
+    @Test(expected = ServiceOverloadedException.class)
+    public void testClosedServiceRefusesPayments() {
+        final BatchingTicketPaymentService paymentService =
+                new BatchingTicketPaymentService(new SimulatedGateway(0), 4, 1, TimeUnit.MILLISECONDS, 4);
+        paymentService.close();
+
+        paymentService.makePayment(VALID_ACCOUNT_ID, 20);
+    }
+
+    /**
+     * Failure test to verify a purchase refused by a full queue is rejected as overloaded, without a payment
+     * or a reservation, rather than returned as a failed booking.
+     */
+    @Test
+    public void testFullQueueRejectsPurchaseAsOverloaded() throws Exception {
+        final CountDownLatch flushing = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final BatchPaymentGateway blockedGateway = batch -> {
+            flushing.countDown();
+            try {
+                release.await();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        final SeatReservationService mockReservationService = Mockito.mock(SeatReservationService.class);
+        try (BatchingTicketPaymentService paymentService =
+                     new BatchingTicketPaymentService(blockedGateway, 1, 0, TimeUnit.MILLISECONDS, 1)) {
+            final AsyncTicketPaymentService asyncPaymentService = paymentService.asAsync();
+            final CompletableFuture<Void> inFlush = asyncPaymentService.makePayment(VALID_ACCOUNT_ID, 20);
+            assertTrue(flushing.await(5, TimeUnit.SECONDS));
+            final CompletableFuture<Void> queued = asyncPaymentService.makePayment(VALID_ACCOUNT_ID, 20);
+
+            try {
+                new TicketServiceImpl(paymentService, mockReservationService)
+                        .purchaseTickets(VALID_ACCOUNT_ID, createTicketRequest(Type.ADULT, 1));
+                fail("Expected the purchase to be rejected as overloaded");
+            } catch (final ServiceOverloadedException e) {
+                Mockito.verifyNoInteractions(mockReservationService);
+            }
+
+            release.countDown();
+            CompletableFuture.allOf(inFlush, queued).get(5, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Failure test to verify an error thrown by the gateway fails every payment of the batch and the payments
+     * still queued, rather than leaving their callers waiting on a lost flusher.
+     */
+    @Test
+    public void testGatewayErrorFailsQueuedPayments() throws Exception {
+        final CountDownLatch flushing = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final BatchPaymentGateway failingGateway = batch -> {
+            flushing.countDown();
+            try {
+                release.await();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            throw new AssertionError("Gateway client broken");
+        };
+        try (BatchingTicketPaymentService paymentService =
+                     new BatchingTicketPaymentService(failingGateway, 1, 0, TimeUnit.MILLISECONDS, 4)) {
+            final AsyncTicketPaymentService asyncPaymentService = paymentService.asAsync();
+            final CompletableFuture<Void> inFlush = asyncPaymentService.makePayment(VALID_ACCOUNT_ID, 20);
+            assertTrue(flushing.await(5, TimeUnit.SECONDS));
+            final CompletableFuture<Void> queued = asyncPaymentService.makePayment(2000L, 10);
+            release.countDown();
+
+            try {
+                inFlush.get(5, TimeUnit.SECONDS);
+                fail("Expected the flushed payment to fail");
+            } catch (final ExecutionException e) {
+                assertTrue(e.getCause() instanceof AssertionError);
+            }
+            try {
+                queued.get(5, TimeUnit.SECONDS);
+                fail("Expected the queued payment to be refused");
+            } catch (final ExecutionException e) {
+                assertTrue(e.getCause() instanceof ServiceOverloadedException);
+            }
+            try {
+                paymentService.makePayment(VALID_ACCOUNT_ID, 20);
+                fail("Expected later payments to be refused");
+            } catch (final ServiceOverloadedException e) {
+                assertEquals(1, paymentService.getBatchCount());
+            }
+        }
+    }
+
+    /**
+     * A local stand-in for the payment gateway which takes every payment after a simulated network latency.
+     */
+    private static final class SimulatedGateway implements BatchPaymentGateway {
+        private final long latencyMillis;
+        private final AtomicInteger calls = new AtomicInteger();
+        private final AtomicInteger largestBatch = new AtomicInteger();
+
+        private SimulatedGateway(final long latencyMillis) {
+            this.latencyMillis = latencyMillis;
+        }
+
+        @Override
+        public void makePayments(final PaymentBatch batch) {
+            calls.incrementAndGet();
+            largestBatch.accumulateAndGet(batch.size(), Math::max);
+            try {
+                Thread.sleep(latencyMillis);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private TicketTypeRequest createTicketRequest(final Type type, final int noOfTickets) {
+        return new TicketTypeRequest(type, noOfTickets);
+    }
+}
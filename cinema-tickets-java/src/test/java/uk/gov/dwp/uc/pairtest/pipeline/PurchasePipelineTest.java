@@ -0,0 +1,168 @@
+package uk.gov.dwp.uc.pairtest.pipeline;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+
+import thirdparty.paymentgateway.TicketPaymentService;
+import thirdparty.seatbooking.SeatReservationService;
+import uk.gov.dwp.uc.pairtest.account.AccountValidator;
+import uk.gov.dwp.uc.pairtest.account.PurchaseLimiter;
+import uk.gov.dwp.uc.pairtest.codec.PurchaseMessageEncoder;
+import uk.gov.dwp.uc.pairtest.domain.PurchaseResult;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest.Type;
+import uk.gov.dwp.uc.pairtest.engine.PurchaseRules;
+import uk.gov.dwp.uc.pairtest.engine.PurchaseValidator;
+import uk.gov.dwp.uc.pairtest.exception.ServiceOverloadedException;
+import uk.gov.dwp.uc.pairtest.seating.SeatAvailability;
+
+/**
+ * Tests to verify purchases pass through every PurchasePipeline stage in order and the ring pushes back when full.
+ */
+public class PurchasePipelineTest {
+
+    private final Long VALID_ACCOUNT_ID = 1000L;
+
+    /**
+     * Success test to verify each purchase is decoded, validated, priced, paid, reserved and published in order.
+     */
+    @Test
+    public void testPurchasesAreProcessedInOrder() {
+        final TicketPaymentService mockPaymentService = Mockito.mock(TicketPaymentService.class);
+        final SeatReservationService mockReservationService = Mockito.mock(SeatReservationService.class);
+        final List<String> results = new CopyOnWriteArrayList<>();
+        final PurchasePipeline pipeline = new PurchasePipeline(8, 20, new PurchaseValidator(),
+                mockPaymentService, mockReservationService,
+                (correlationId, status, totalAmount, totalSeats) ->
+                        results.add(correlationId + ":" + status + ":" + totalAmount + ":" + totalSeats), false);
+
+        publish(pipeline, 1, VALID_ACCOUNT_ID, createTicketRequest(Type.ADULT, 2), createTicketRequest(Type.CHILD, 1));
+        publish(pipeline, 2, VALID_ACCOUNT_ID, createTicketRequest(Type.CHILD, 1));
+        publish(pipeline, 3, 0L, createTicketRequest(Type.ADULT, 1));
+        pipeline.publish(4, ByteBuffer.allocate(4), 0, 4);
+        for (int i = 5; i <= 40; i++) {
+            publish(pipeline, i, VALID_ACCOUNT_ID, createTicketRequest(Type.ADULT, 1));
+        }
+        pipeline.close();
+
+        assertEquals(40, results.size());
+        assertEquals("1:CONFIRMED:50:3", results.get(0));
+        assertEquals("2:MANDATORY_ADULT_TICKET_PURCHASE_REQUIRED:0:0", results.get(1));
+        assertEquals("3:INVALID_ACCOUNT:0:0", results.get(2));
+        assertEquals("4:INVALID_PURCHASE:0:0", results.get(3));
+        for (int i = 5; i <= 40; i++) {
+            assertEquals(i + ":CONFIRMED:20:1", results.get(i - 1));
+        }
+        Mockito.verify(mockPaymentService).makePayment(VALID_ACCOUNT_ID, 50);
+        Mockito.verify(mockPaymentService, Mockito.times(36)).makePayment(VALID_ACCOUNT_ID, 20);
+        Mockito.verify(mockReservationService).reserveSeat(VALID_ACCOUNT_ID, 3);
+    }
+
+    /**
+     * Failure test to verify a full ring refuses purchases until the slow stage catches up.
+     */
+    @Test
+    public void testFullRingPushesBack() throws Exception {
+        final CountDownLatch paymentReleased = new CountDownLatch(1);
+        final TicketPaymentService blockedPaymentService = (accountId, amount) -> {
+            try {
+                paymentReleased.await();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        final CountDownLatch published = new CountDownLatch(5);
+        final PurchasePipeline pipeline = new PurchasePipeline(4, 20, new PurchaseValidator(),
+                blockedPaymentService, Mockito.mock(SeatReservationService.class),
+                (correlationId, status, totalAmount, totalSeats) -> published.countDown(), false);
+        final ByteBuffer message = PurchaseMessageEncoder.encode(VALID_ACCOUNT_ID, createTicketRequest(Type.ADULT, 1));
+
+        for (int i = 0; i < 4; i++) {
+            assertTrue(pipeline.tryPublish(i, message, 0, message.limit()));
+        }
+        assertFalse(pipeline.tryPublish(4, message, 0, message.limit()));
+
+        paymentReleased.countDown();
+        pipeline.publish(4, message, 0, message.limit());
+        assertTrue(published.await(5, TimeUnit.SECONDS));
+        pipeline.close();
+    }
+
+    /**
+     * Failure test to verify a failed payment fails the booking without reserving seats.
+     */
+    @Test
+    public void testPaymentFailureFailsBooking() {
+        final TicketPaymentService mockPaymentService = Mockito.mock(TicketPaymentService.class);
+        Mockito.doThrow(new IllegalStateException("Card declined"))
+                .when(mockPaymentService).makePayment(ArgumentMatchers.anyLong(), ArgumentMatchers.anyInt());
+        final SeatReservationService mockReservationService = Mockito.mock(SeatReservationService.class);
+        final List<PurchaseResult.Status> results = new CopyOnWriteArrayList<>();
+        final PurchasePipeline pipeline = new PurchasePipeline(8, 20, new PurchaseValidator(),
+                mockPaymentService, mockReservationService,
+                (correlationId, status, totalAmount, totalSeats) -> results.add(status), true);
+
+        publish(pipeline, 1, VALID_ACCOUNT_ID, createTicketRequest(Type.ADULT, 1));
+        pipeline.close();
+
+        assertEquals(List.of(PurchaseResult.Status.BOOKING_FAILED), results);
+        Mockito.verifyNoInteractions(mockReservationService);
+    }
+
+    /**
+     * Failure test to verify a sold out purchase is rejected without a payment and a purchase whose payment is
+     * shed is overloaded, both giving back the allowance of the account.
+     */
+    @Test
+    public void testRefusedPaymentKeepsAllowance() {
+        final TicketPaymentService mockPaymentService = Mockito.mock(TicketPaymentService.class);
+        Mockito.doThrow(new ServiceOverloadedException())
+                .when(mockPaymentService).makePayment(VALID_ACCOUNT_ID, 20);
+        final SeatReservationService mockReservationService = Mockito.mock(SeatReservationService.class,
+                Mockito.withSettings().extraInterfaces(SeatAvailability.class));
+        Mockito.when(((SeatAvailability) mockReservationService).canSeat(1)).thenReturn(true);
+        final PurchaseLimiter mockPurchaseLimiter = Mockito.mock(PurchaseLimiter.class);
+        Mockito.when(mockPurchaseLimiter.tryAcquire(ArgumentMatchers.anyLong(), ArgumentMatchers.anyInt())).thenReturn(true);
+        final PurchaseValidator validator = new PurchaseValidator(AccountValidator.positiveAccountId(),
+                mockPurchaseLimiter, () -> PurchaseRules.DEFAULT);
+        final List<PurchaseResult.Status> results = new CopyOnWriteArrayList<>();
+        final PurchasePipeline pipeline = new PurchasePipeline(8, 20, validator,
+                mockPaymentService, mockReservationService,
+                (correlationId, status, totalAmount, totalSeats) -> results.add(status), false);
+
+        publish(pipeline, 1, VALID_ACCOUNT_ID, createTicketRequest(Type.ADULT, 2));
+        publish(pipeline, 2, VALID_ACCOUNT_ID, createTicketRequest(Type.ADULT, 1));
+        pipeline.close();
+
+        assertEquals(List.of(PurchaseResult.Status.SEATS_UNAVAILABLE, PurchaseResult.Status.OVERLOADED), results);
+        Mockito.verify(mockPaymentService, Mockito.never()).makePayment(VALID_ACCOUNT_ID, 40);
+        Mockito.verify(mockPurchaseLimiter).release(VALID_ACCOUNT_ID, 2);
+        Mockito.verify(mockPurchaseLimiter).release(VALID_ACCOUNT_ID, 1);
+        Mockito.verify(mockReservationService, Mockito.never())
+                .reserveSeat(ArgumentMatchers.anyLong(), ArgumentMatchers.anyInt());
+    }
+
+    private static void publish(final PurchasePipeline pipeline, final long correlationId, final long accountId,
+                                final TicketTypeRequest... ticketTypeRequests) {
+        final ByteBuffer message = PurchaseMessageEncoder.encode(accountId, ticketTypeRequests);
+        pipeline.publish(correlationId, message, 0, message.limit());
+    }
+
+    /**
+     * Helper method to create a ticket request.
+     */
+    private TicketTypeRequest createTicketRequest(final Type type, final int noOfTickets) {
+        return new TicketTypeRequest(type, noOfTickets);
+    }
+}
@@ -0,0 +1,181 @@
+package uk.gov.dwp.uc.pairtest.reconcile;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Stream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests to verify the Reconciler finds every payment without a reservation and reservation without a payment.
+ */
+public class ReconcilerTest {
+
+    private final Long VALID_ACCOUNT_ID = 1000L;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Success test to verify CSV records are matched by booking and account, lines crossing a split are read once,
+     * and a header, blank lines, CRLF line ends and malformed lines are handled.
+     */
+    @Test
+    public void testCsvMismatches() throws IOException {
+        final Path payments = write("payments.csv", "bookingId,accountId,amount\r\n"
+                + "1," + VALID_ACCOUNT_ID + ",50\r\n"
+                + "2," + VALID_ACCOUNT_ID + ",30\r\n"
+                + "\r\n"
+                + "3," + VALID_ACCOUNT_ID + ",20\r\n"
+                + "3," + VALID_ACCOUNT_ID + ",20\r\n"
+                + "4,2000,10\r\n"
+                + "not,a,record\r\n"
+                + "5," + VALID_ACCOUNT_ID + ",40");
+        final Path reservations = write("reservations.csv", "1," + VALID_ACCOUNT_ID + ",3\n"
+                + "3," + VALID_ACCOUNT_ID + ",2\n"
+                + "4," + VALID_ACCOUNT_ID + ",1\n"
+                + "5," + VALID_ACCOUNT_ID + ",4\n"
+                + "6," + VALID_ACCOUNT_ID + ",2\n"
+                + "7," + VALID_ACCOUNT_ID + ",99999999999\n");
+        final Set<Mismatch> mismatches = ConcurrentHashMap.newKeySet();
+
+        // Splits of 140 bytes end in the middle of lines.
+        final ReconciliationReport report = new Reconciler(folder.getRoot().toPath(), 3, 1 << 20, 150)
+                .reconcile(payments, reservations, mismatches::add);
+
+        assertEquals(new HashSet<>(Arrays.asList(
+                new Mismatch(Mismatch.Type.PAID_NOT_RESERVED, 2, VALID_ACCOUNT_ID, 30),
+                new Mismatch(Mismatch.Type.PAID_NOT_RESERVED, 3, VALID_ACCOUNT_ID, 20),
+                new Mismatch(Mismatch.Type.PAID_NOT_RESERVED, 4, 2000L, 10),
+                new Mismatch(Mismatch.Type.RESERVED_NOT_PAID, 4, VALID_ACCOUNT_ID, 1),
+                new Mismatch(Mismatch.Type.RESERVED_NOT_PAID, 6, VALID_ACCOUNT_ID, 2))), mismatches);
+        assertEquals(6, report.getPaymentRecords());
+        assertEquals(5, report.getReservationRecords());
+        assertEquals(2, report.getMalformedRecords());
+        assertEquals(3, report.getMatchedBookings());
+        assertEquals(3, report.getPaidNotReserved());
+        assertEquals(2, report.getReservedNotPaid());
+    }
+
+    /**
+     * Success test to verify a large export joined in parallel partitions, as CSV or binary records,
+     * finds exactly the mismatches left in it and leaves no partition files behind.
+     */
+    @Test
+    public void testParallelPartitionsMatchBothFormats() throws IOException {
+        final Random random = new Random(42);
+        final int bookings = 50_000;
+        final Set<Mismatch> expected = new HashSet<>();
+        final StringBuilder paymentsCsv = new StringBuilder();
+        final StringBuilder reservationsCsv = new StringBuilder();
+        final Path paymentsBinary = folder.getRoot().toPath().resolve("payments.bin");
+        final Path reservationsBinary = folder.getRoot().toPath().resolve("reservations.bin");
+        try (DataOutputStream paymentsOut = binary(paymentsBinary);
+             DataOutputStream reservationsOut = binary(reservationsBinary)) {
+            for (long bookingId = 1; bookingId <= bookings; bookingId++) {
+                final long accountId = 1 + random.nextInt(5_000);
+                final int amount = 10 * (1 + random.nextInt(20));
+                final int seats = 1 + random.nextInt(20);
+                final int outcome = random.nextInt(100);
+                if (outcome != 0) {
+                    append(paymentsCsv, paymentsOut, bookingId, accountId, amount);
+                }
+                if (outcome != 1) {
+                    append(reservationsCsv, reservationsOut, bookingId, accountId, seats);
+                }
+                if (outcome == 0) {
+                    expected.add(new Mismatch(Mismatch.Type.RESERVED_NOT_PAID, bookingId, accountId, seats));
+                } else if (outcome == 1) {
+                    expected.add(new Mismatch(Mismatch.Type.PAID_NOT_RESERVED, bookingId, accountId, amount));
+                }
+            }
+        }
+        final Path paymentsFile = write("payments.csv", paymentsCsv.toString());
+        final Path reservationsFile = write("reservations.csv", reservationsCsv.toString());
+        final Path workDirectory = folder.newFolder("work").toPath();
+        final Reconciler reconciler = new Reconciler(workDirectory, 4, 1 << 20, 64 << 10);
+
+        for (final Path[] inputs : Arrays.asList(new Path[] {paymentsFile, reservationsFile},
+                new Path[] {paymentsBinary, reservationsBinary})) {
+            final Set<Mismatch> mismatches = ConcurrentHashMap.newKeySet();
+            final ReconciliationReport report = reconciler.reconcile(inputs[0], inputs[1], mismatches::add);
+
+            assertEquals(expected, mismatches);
+            assertEquals(0, report.getMalformedRecords());
+            assertEquals(report.getPaymentRecords(), report.getMatchedBookings() + report.getPaidNotReserved());
+            assertEquals(report.getReservationRecords(), report.getMatchedBookings() + report.getReservedNotPaid());
+            assertTrue(report.getPartitions() >= 4);
+            try (Stream<Path> left = Files.list(workDirectory)) {
+                assertEquals(0, left.count());
+            }
+        }
+    }
+
+    /**
+     * Success test to verify a partition too large for the partition memory is partitioned again.
+     */
+    @Test
+    public void testOversizedPartitionRepartitioned() throws IOException {
+        final Path payments = folder.getRoot().toPath().resolve("payments.bin");
+        final Path reservations = folder.getRoot().toPath().resolve("reservations.bin");
+        try (DataOutputStream paymentsOut = binary(payments);
+             DataOutputStream reservationsOut = binary(reservations)) {
+            for (long bookingId = 1; bookingId <= 20_000; bookingId++) {
+                append(new StringBuilder(), paymentsOut, bookingId, VALID_ACCOUNT_ID, 20);
+                if (bookingId % 1_000 != 0) {
+                    append(new StringBuilder(), reservationsOut, bookingId, VALID_ACCOUNT_ID, 1);
+                }
+            }
+        }
+        final List<Mismatch> mismatches = new CopyOnWriteArrayList<>();
+
+        // 1 KiB per partition holds far fewer payments than each of the most partitions written at first.
+        final ReconciliationReport report = new Reconciler(folder.getRoot().toPath(), 2, 1 << 10, 1 << 20)
+                .reconcile(payments, reservations, mismatches::add);
+
+        assertTrue(report.getPartitions() > 256);
+        assertEquals(20, mismatches.size());
+        assertEquals(19_980, report.getMatchedBookings());
+        assertEquals(20, report.getPaidNotReserved());
+        assertEquals(0, report.getReservedNotPaid());
+    }
+
+    private Path write(final String name, final String content) throws IOException {
+        final Path file = folder.getRoot().toPath().resolve(name);
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write(content);
+        }
+        return file;
+    }
+
+    private static DataOutputStream binary(final Path file) throws IOException {
+        final OutputStream out = Files.newOutputStream(file);
+        return new DataOutputStream(new BufferedOutputStream(out));
+    }
+
+    private static void append(final StringBuilder csv, final DataOutputStream binary, final long bookingId,
+                               final long accountId, final int value) throws IOException {
+        csv.append(bookingId).append(',').append(accountId).append(',').append(value).append('\n');
+        binary.writeLong(bookingId);
+        binary.writeLong(accountId);
+        binary.writeInt(value);
+    }
+}
@@ -0,0 +1,201 @@
+package uk.gov.dwp.uc.pairtest.resilience;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+
+import thirdparty.paymentgateway.TicketPaymentService;
+import thirdparty.seatbooking.SeatReservationService;
+import uk.gov.dwp.uc.pairtest.TicketService;
+import uk.gov.dwp.uc.pairtest.TicketServiceImpl;
+import uk.gov.dwp.uc.pairtest.domain.PurchaseResult;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest.Type;
+import uk.gov.dwp.uc.pairtest.exception.SeatsUnavailableException;
+import uk.gov.dwp.uc.pairtest.exception.ServiceOverloadedException;
+
+/**
+ * Tests to verify the adaptive concurrency limit and circuit breaker guarding the third-party services.
+ */
+public class ServiceGuardTest {
+
+    private final Long VALID_ACCOUNT_ID = 1000L;
+
+    /**
+     * Success test to verify the limit shrinks when latency rises and grows back when it falls.
+     */
+    @Test
+    public void testLimitAdaptsToLatency() {
+        final AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(20, 2, 50);
+        complete(limit, 100, TimeUnit.MILLISECONDS.toNanos(1));
+        final int settledLimit = limit.getLimit();
+        assertTrue(settledLimit > 20);
+
+        complete(limit, 20, TimeUnit.MILLISECONDS.toNanos(10));
+        final int overloadedLimit = limit.getLimit();
+        assertTrue(overloadedLimit < settledLimit / 2);
+
+        complete(limit, 200, TimeUnit.MILLISECONDS.toNanos(1));
+        assertTrue(limit.getLimit() > overloadedLimit);
+        assertEquals(0, limit.getInFlight());
+    }
+
+    /**
+     * Failure test to verify calls beyond the limit are refused straight away without reaching the service.
+     */
+    @Test
+    public void testCallsBeyondLimitAreShed() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch started = new CountDownLatch(2);
+        final TicketPaymentService slowPaymentService = (accountId, amount) -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        final ServiceGuard guard = new ServiceGuard(new AdaptiveConcurrencyLimit(2, 1, 2),
+                new CircuitBreaker(5, 1, TimeUnit.SECONDS));
+        final TicketPaymentService paymentService = new GuardedTicketPaymentService(slowPaymentService, guard);
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            final Future<?> first = executor.submit(() -> paymentService.makePayment(VALID_ACCOUNT_ID, 20));
+            final Future<?> second = executor.submit(() -> paymentService.makePayment(VALID_ACCOUNT_ID, 20));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+
+            try {
+                paymentService.makePayment(VALID_ACCOUNT_ID, 20);
+                fail("Expected the call to be shed");
+            } catch (final ServiceOverloadedException e) {
+                assertEquals(2, guard.getLimit().getInFlight());
+            }
+
+            release.countDown();
+            first.get(5, TimeUnit.SECONDS);
+            second.get(5, TimeUnit.SECONDS);
+            assertEquals(0, guard.getLimit().getInFlight());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Success test to verify the circuit opens on sustained failures and closes after a successful trial call.
+     */
+    @Test
+    public void testCircuitBreakerOpensAndRecovers() {
+        final AtomicLong clock = new AtomicLong();
+        final CircuitBreaker circuitBreaker = new CircuitBreaker(3, 10, TimeUnit.NANOSECONDS, clock::get);
+        for (int i = 0; i < 3; i++) {
+            assertTrue(circuitBreaker.tryAcquire());
+            circuitBreaker.onFailure();
+        }
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+        assertFalse(circuitBreaker.tryAcquire());
+
+        clock.set(10);
+        assertTrue(circuitBreaker.tryAcquire());
+        assertFalse(circuitBreaker.tryAcquire());
+        circuitBreaker.onFailure();
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+
+        clock.set(20);
+        assertTrue(circuitBreaker.tryAcquire());
+        circuitBreaker.onSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        assertTrue(circuitBreaker.tryAcquire());
+    }
+
+    /**
+     * Failure test to verify a purchase is rejected as overloaded without a payment while the circuit is open.
+     */
+    @Test
+    public void testOpenCircuitRejectsPurchase() {
+        final TicketPaymentService mockPaymentService = Mockito.mock(TicketPaymentService.class);
+        Mockito.doThrow(new IllegalStateException("Gateway timeout"))
+                .when(mockPaymentService).makePayment(ArgumentMatchers.anyLong(), ArgumentMatchers.anyInt());
+        final SeatReservationService mockReservationService = Mockito.mock(SeatReservationService.class);
+        final ServiceGuard guard = new ServiceGuard(new AdaptiveConcurrencyLimit(10, 1, 10),
+                new CircuitBreaker(2, 1, TimeUnit.MINUTES));
+        final TicketService ticketService = new TicketServiceImpl(
+                new GuardedTicketPaymentService(mockPaymentService, guard), mockReservationService);
+
+        for (int i = 0; i < 2; i++) {
+            assertEquals(PurchaseResult.Status.BOOKING_FAILED,
+                    ticketService.tryPurchaseTickets(VALID_ACCOUNT_ID, createTicketRequest(Type.ADULT, 1)).getStatus());
+        }
+        assertEquals(PurchaseResult.Status.OVERLOADED,
+                ticketService.tryPurchaseTickets(VALID_ACCOUNT_ID, createTicketRequest(Type.ADULT, 1)).getStatus());
+        try {
+            ticketService.purchaseTickets(VALID_ACCOUNT_ID, createTicketRequest(Type.ADULT, 1));
+            fail("Expected the purchase to be rejected");
+        } catch (final ServiceOverloadedException e) {
+            Mockito.verify(mockPaymentService, Mockito.times(2))
+                    .makePayment(ArgumentMatchers.anyLong(), ArgumentMatchers.anyInt());
+            Mockito.verifyNoInteractions(mockReservationService);
+        }
+    }
+
+    /**
+     * Success test to verify seats rejected as unavailable by a healthy backend do not open the circuit,
+     * while an overload reported by the backend does count as a failure.
+     */
+    @Test
+    public void testBusinessRejectionsCountAsSuccess() {
+        final AtomicLong clock = new AtomicLong();
+        final AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(10, 1, 10);
+        final CircuitBreaker circuitBreaker = new CircuitBreaker(2, 1, TimeUnit.MINUTES, clock::get);
+        final ServiceGuard guard = new ServiceGuard(limit, circuitBreaker);
+
+        for (int i = 0; i < 5; i++) {
+            try {
+                guard.run(() -> {
+                    throw new SeatsUnavailableException();
+                });
+                fail("Expected the rejection to be rethrown");
+            } catch (final SeatsUnavailableException e) {
+                assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+            }
+        }
+        assertEquals(0, limit.getInFlight());
+
+        for (int i = 0; i < 2; i++) {
+            try {
+                guard.run(() -> {
+                    throw ServiceOverloadedException.stackless();
+                });
+                fail("Expected the overload to be rethrown");
+            } catch (final ServiceOverloadedException e) {
+                // expected
+            }
+        }
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+    }
+
+    private static void complete(final AdaptiveConcurrencyLimit limit, final int calls, final long latencyNanos) {
+        for (int i = 0; i < calls; i++) {
+            assertTrue(limit.tryAcquire());
+            limit.onSuccess(latencyNanos);
+        }
+    }
+
+    /**
+     * Helper method to create a ticket request.
+     */
+    private TicketTypeRequest createTicketRequest(final Type type, final int noOfTickets) {
+        return new TicketTypeRequest(type, noOfTickets);
+    }
+}
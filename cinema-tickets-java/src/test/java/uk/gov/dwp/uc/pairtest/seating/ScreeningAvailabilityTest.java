@@ -0,0 +1,124 @@
+package uk.gov.dwp.uc.pairtest.seating;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+
+import thirdparty.paymentgateway.TicketPaymentService;
+import uk.gov.dwp.uc.pairtest.TicketService;
+import uk.gov.dwp.uc.pairtest.TicketServiceImpl;
+import uk.gov.dwp.uc.pairtest.domain.PurchaseResult;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest.Type;
+import uk.gov.dwp.uc.pairtest.exception.SeatsUnavailableException;
+
+/**
+ * Tests to verify the availability snapshots of ScreeningAvailability and the sold out fast path.
+ */
+public class ScreeningAvailabilityTest {
+
+    private final Long VALID_ACCOUNT_ID = 1000L;
+
+    /**
+     * Success test to verify a new snapshot is published after each change while earlier snapshots stay unchanged.
+     */
+    @Test
+    public void testSnapshotsPublishedAfterChanges() {
+        final ScreeningSeatMap screening = new ScreeningSeatMap(2, 10);
+        final ScreeningAvailability availability = screening.availability();
+        final AvailabilitySnapshot initial = availability.snapshot();
+        assertEquals(20, initial.getAvailableSeats());
+
+        final SeatAllocation allocation = screening.allocate(4);
+        assertNotNull(allocation);
+        final AvailabilitySnapshot afterAllocate = availability.snapshot();
+        assertEquals(16, afterAllocate.getAvailableSeats());
+        assertEquals(allocation.seatMask(0), afterAllocate.takenSeats(allocation.row(0)));
+        assertTrue(afterAllocate.getVersion() > initial.getVersion());
+        assertEquals(20, initial.getAvailableSeats());
+
+        screening.release(allocation);
+        assertEquals(20, availability.snapshot().getAvailableSeats());
+        assertTrue(availability.snapshot().getVersion() > afterAllocate.getVersion());
+    }
+
+    /**
+     * Success test to verify concurrent reservations coalesce into snapshots that end up matching the screening.
+     */
+    @Test
+    public void testConcurrentChangesCoalesced() throws Exception {
+        final ScreeningSeatMap screening = new ScreeningSeatMap(50, 64);
+        final ScreeningAvailability availability = screening.availability();
+        final int threads = 8;
+        final int reservationsPerThread = 300;
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < reservationsPerThread; i++) {
+                        assertNotNull(screening.allocate(1));
+                        assertTrue(availability.snapshot().getAvailableSeats() >= screening.availableSeats());
+                    }
+                }));
+            }
+            for (final Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        final AvailabilitySnapshot snapshot = availability.snapshot();
+        assertEquals(screening.availableSeats(), snapshot.getAvailableSeats());
+        assertEquals(50 * 64 - threads * reservationsPerThread, snapshot.getAvailableSeats());
+        assertTrue(snapshot.getVersion() <= threads * reservationsPerThread);
+    }
+
+    /**
+     * Failure test to verify a purchase for a sold out screening is rejected before the payment is taken.
+     */
+    @Test
+    public void testSoldOutRejectedBeforePayment() {
+        final TicketPaymentService mockPaymentService = Mockito.mock(TicketPaymentService.class);
+        final ScreeningSeatMap screening = new ScreeningSeatMap(1, 4);
+        final TicketService ticketService =
+                new TicketServiceImpl(mockPaymentService, new InMemorySeatReservationService(screening));
+
+        assertTrue(ticketService.tryPurchaseTickets(VALID_ACCOUNT_ID, createTicketRequest(Type.ADULT, 3))
+                .isConfirmed());
+        assertEquals(PurchaseResult.Status.SEATS_UNAVAILABLE,
+                ticketService.tryPurchaseTickets(VALID_ACCOUNT_ID, createTicketRequest(Type.ADULT, 2)).getStatus());
+        assertTrue(ticketService.tryPurchaseTickets(VALID_ACCOUNT_ID, createTicketRequest(Type.ADULT, 1))
+                .isConfirmed());
+        assertFalse(screening.availability().snapshot().canSeat(1));
+        try {
+            ticketService.purchaseTickets(VALID_ACCOUNT_ID, createTicketRequest(Type.ADULT, 1));
+            fail("Purchase for a sold out screening accepted");
+        } catch (final SeatsUnavailableException e) {
+            // expected
+        }
+
+        Mockito.verify(mockPaymentService, Mockito.times(2))
+                .makePayment(ArgumentMatchers.anyLong(), ArgumentMatchers.anyInt());
+    }
+
+    /**
+     * Helper method to create a ticket request.
+     */
+    private TicketTypeRequest createTicketRequest(final Type type, final int noOfTickets) {
+        return new TicketTypeRequest(type, noOfTickets);
+    }
+}
@@ -0,0 +1,136 @@
+package uk.gov.dwp.uc.pairtest.seating;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import uk.gov.dwp.uc.pairtest.exception.SeatsUnavailableException;
+
+/**
+ * Tests to verify seat allocation of ScreeningSeatMap.
+ */
+public class ScreeningSeatMapTest {
+
+    /**
+     * Success test to verify a party is seated together in one row when a row has room.
+     */
+    @Test
+    public void testPartyIsSeatedContiguously() {
+        final ScreeningSeatMap screening = new ScreeningSeatMap(3, 10);
+
+        final SeatAllocation allocation = screening.allocate(4);
+
+        assertNotNull(allocation);
+        assertEquals(1, allocation.rowCount());
+        final long mask = allocation.seatMask(0);
+        assertEquals(4, Long.bitCount(mask));
+        // Contiguous bits: shifting out the trailing zeros leaves a run of ones.
+        assertEquals(0b1111L, mask >>> Long.numberOfTrailingZeros(mask));
+        assertEquals(26, screening.availableSeats());
+    }
+
+    /**
+     * Success test to verify a party is spread over rows when no row has enough contiguous seats.
+     */
+    @Test
+    public void testPartyIsSpreadWhenNoRowHasRoom() {
+        final ScreeningSeatMap screening = new ScreeningSeatMap(2, 4);
+        assertNotNull(screening.allocate(3));
+        assertNotNull(screening.allocate(3));
+
+        final SeatAllocation allocation = screening.allocate(2);
+
+        assertNotNull(allocation);
+        assertEquals(2, allocation.rowCount());
+        assertEquals(2, allocation.seatCount());
+        assertEquals(0, screening.availableSeats());
+    }
+
+    /**
+     * Failure test to verify nothing is claimed when not enough seats are available.
+     */
+    @Test
+    public void testSoldOutClaimsNothing() {
+        final ScreeningSeatMap screening = new ScreeningSeatMap(2, 5);
+        assertNotNull(screening.allocate(8));
+
+        assertNull(screening.allocate(3));
+        assertEquals(2, screening.availableSeats());
+    }
+
+    /**
+     * Success test to verify released seats can be claimed again, including full 64 seat rows.
+     */
+    @Test
+    public void testReleasedSeatsCanBeClaimed() {
+        final ScreeningSeatMap screening = new ScreeningSeatMap(1, 64);
+        final SeatAllocation allocation = screening.allocate(64);
+        assertEquals(-1L, allocation.seatMask(0));
+
+        screening.release(allocation);
+
+        assertEquals(64, screening.availableSeats());
+        assertNotNull(screening.allocate(64));
+    }
+
+    /**
+     * Success test to verify concurrent bookings never claim the same seat.
+     */
+    @Test
+    public void testConcurrentBookingsDoNotOverlap() throws Exception {
+        final ScreeningSeatMap screening = new ScreeningSeatMap(20, 30);
+        final int threads = 8;
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            final List<Callable<List<SeatAllocation>>> bookers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                final int partySize = 1 + t % 4;
+                bookers.add(() -> {
+                    final List<SeatAllocation> claimed = new ArrayList<>();
+                    SeatAllocation allocation;
+                    while ((allocation = screening.allocate(partySize)) != null) {
+                        claimed.add(allocation);
+                    }
+                    return claimed;
+                });
+            }
+
+            final long[] seen = new long[screening.getRows()];
+            int claimedSeats = 0;
+            for (final Future<List<SeatAllocation>> claimed : executor.invokeAll(bookers)) {
+                for (final SeatAllocation allocation : claimed.get()) {
+                    for (int i = 0; i < allocation.rowCount(); i++) {
+                        final int row = allocation.row(i);
+                        assertEquals("Seat claimed twice", 0, seen[row] & allocation.seatMask(i));
+                        seen[row] |= allocation.seatMask(i);
+                    }
+                    claimedSeats += allocation.seatCount();
+                }
+            }
+            assertEquals(screening.capacity(), claimedSeats);
+            assertEquals(0, screening.availableSeats());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Failure test to verify the in-memory reservation service rejects a booking once sold out.
+     */
+    @Test(expected = SeatsUnavailableException.class)
+    public void testReservationServiceRejectsWhenSoldOut() {
+        final InMemorySeatReservationService reservationService =
+                new InMemorySeatReservationService(new ScreeningSeatMap(1, 5));
+        reservationService.reserveSeat(1000L, 5);
+        reservationService.reserveSeat(1000L, 1);
+    }
+}
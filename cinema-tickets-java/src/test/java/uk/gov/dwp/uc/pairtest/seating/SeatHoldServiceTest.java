@@ -0,0 +1,121 @@
+package uk.gov.dwp.uc.pairtest.seating;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+import uk.gov.dwp.uc.pairtest.exception.SeatsUnavailableException;
+
+/**
+ * Tests to verify seats held by SeatHoldService are confirmed, released or expire.
+ */
+public class SeatHoldServiceTest {
+
+    private final Long VALID_ACCOUNT_ID = 1000L;
+
+    private final AtomicLong clock = new AtomicLong();
+    private final ScreeningSeatMap screening = new ScreeningSeatMap(2, 10);
+    private final SeatHoldService holdService =
+            new SeatHoldService(screening, 60, 1, TimeUnit.SECONDS, clock::get, false);
+
+    /**
+     * Success test to verify a confirmed hold keeps its seats after the time to live.
+     */
+    @Test
+    public void testConfirmedHoldKeepsSeats() {
+        final long holdId = holdService.hold(VALID_ACCOUNT_ID, 4);
+        assertEquals(4, holdService.getHeldSeats(holdId).seatCount());
+
+        assertTrue(holdService.confirm(holdId));
+        advanceSeconds(120);
+
+        assertFalse(holdService.release(holdId));
+        assertEquals(16, screening.availableSeats());
+        assertEquals(0, holdService.getOutstandingHolds());
+    }
+
+    /**
+     * Success test to verify a released hold returns its seats straight away.
+     */
+    @Test
+    public void testReleasedHoldReturnsSeats() {
+        final long holdId = holdService.hold(VALID_ACCOUNT_ID, 4);
+
+        assertTrue(holdService.release(holdId));
+
+        assertEquals(20, screening.availableSeats());
+        assertFalse(holdService.confirm(holdId));
+    }
+
+    /**
+     * Failure test to verify an unconfirmed hold expires after its time to live and can no longer be confirmed.
+     */
+    @Test
+    public void testUnconfirmedHoldExpires() {
+        final long holdId = holdService.hold(VALID_ACCOUNT_ID, 4);
+        final long otherHoldId = holdService.hold(VALID_ACCOUNT_ID, 2);
+        assertTrue(holdService.confirm(otherHoldId));
+
+        advanceSeconds(59);
+        assertEquals(14, screening.availableSeats());
+
+        advanceSeconds(60);
+        assertEquals(18, screening.availableSeats());
+        assertFalse(holdService.confirm(holdId));
+        assertNull(holdService.getHeldSeats(holdId));
+        assertEquals(0, holdService.getOutstandingHolds());
+    }
+
+    /**
+     * Success test to verify an extended hold lasts its full time to live from the extension,
+     * while a hold no longer held cannot be extended.
+     */
+    @Test
+    public void testExtendedHoldOutlivesTimeToLive() {
+        final long holdId = holdService.hold(VALID_ACCOUNT_ID, 4);
+        advanceSeconds(50);
+
+        assertTrue(holdService.extend(holdId));
+        advanceSeconds(100);
+        assertEquals(16, screening.availableSeats());
+        assertTrue(holdService.confirm(holdId));
+        assertFalse(holdService.extend(holdId));
+
+        final long expiringHoldId = holdService.hold(VALID_ACCOUNT_ID, 2);
+        advanceSeconds(200);
+        assertFalse(holdService.extend(expiringHoldId));
+        assertEquals(16, screening.availableSeats());
+    }
+
+    /**
+     * Failure test to verify a hold larger than the available seats is refused.
+     */
+    @Test(expected = SeatsUnavailableException.class)
+    public void testHoldBeyondAvailableSeats() {
+        holdService.hold(VALID_ACCOUNT_ID, 18);
+        holdService.hold(VALID_ACCOUNT_ID, 3);
+    }
+
+    /**
+     * Success test to verify reserveSeat holds and confirms the seats at once.
+     */
+    @Test
+    public void testReserveSeatConfirms() {
+        holdService.reserveSeat(VALID_ACCOUNT_ID, 5);
+        advanceSeconds(120);
+
+        assertEquals(15, screening.availableSeats());
+        assertEquals(0, holdService.getOutstandingHolds());
+    }
+
+    private void advanceSeconds(final long seconds) {
+        clock.set(TimeUnit.SECONDS.toNanos(seconds));
+        holdService.expireHolds();
+    }
+}
@@ -0,0 +1,170 @@
+package uk.gov.dwp.uc.pairtest.shard;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.mockito.invocation.Invocation;
+
+import thirdparty.paymentgateway.TicketPaymentService;
+import uk.gov.dwp.uc.pairtest.TicketService;
+import uk.gov.dwp.uc.pairtest.domain.PurchaseResult;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest.Type;
+
+/**
+ * Tests to verify ShardedTicketService routes purchases by key to single-writer shards and rebalances.
+ */
+public class ShardedTicketServiceTest {
+
+    private final Long VALID_ACCOUNT_ID = 1000L;
+
+    /**
+     * Success test to verify keys spread evenly and adding a node only moves keys to the new node.
+     */
+    @Test
+    public void testConsistentHashRing() {
+        final ConsistentHashRing ring = new ConsistentHashRing(List.of("a", "b", "c", "d"), 128);
+        final ConsistentHashRing grown = ring.withNode("e");
+        final Map<String, Integer> keysPerNode = new HashMap<>();
+        int moved = 0;
+        for (long key = 0; key < 100_000; key++) {
+            final String node = ring.nodeFor(key);
+            keysPerNode.merge(node, 1, Integer::sum);
+            final String newNode = grown.nodeFor(key);
+            if (!newNode.equals(node)) {
+                assertEquals("e", newNode);
+                moved++;
+            }
+        }
+
+        for (final int keys : keysPerNode.values()) {
+            assertTrue("Unbalanced ring " + keysPerNode, keys > 20_000 && keys < 30_000);
+        }
+        assertTrue("Moved " + moved + " keys", moved > 15_000 && moved < 25_000);
+        assertEquals(ring.nodeFor(42), grown.withoutNode("e").nodeFor(42));
+    }
+
+    /**
+     * Success test to verify the purchases of an account run on one shard, each shard on a single thread.
+     */
+    @Test
+    public void testPurchasesRouteToSingleWriterShards() {
+        final LocalShardCluster cluster = new LocalShardCluster(Mockito.mock(TicketPaymentService.class), 60, 20,
+                20, 0, TimeUnit.MILLISECONDS);
+        final Map<String, Set<Thread>> writers = new ConcurrentHashMap<>();
+        final Function<String, TicketService> recordingFactory = name -> {
+            final TicketService node = cluster.apply(name);
+            final TicketService recording = Mockito.mock(TicketService.class, invocation -> {
+                writers.computeIfAbsent(name, key -> ConcurrentHashMap.newKeySet()).add(Thread.currentThread());
+                return invocation.getMethod().invoke(node, ((Invocation) invocation).getRawArguments());
+            });
+            return recording;
+        };
+
+        try (ShardedTicketService ticketService =
+                     new ShardedTicketService(recordingFactory, 64, 1024, List.of("node-1", "node-2", "node-3"))) {
+            final List<CompletableFuture<PurchaseResult>> results = new ArrayList<>();
+            for (long account = VALID_ACCOUNT_ID; account < VALID_ACCOUNT_ID + 300; account++) {
+                results.add(ticketService.purchaseTickets(account, createTicketRequest(Type.ADULT, 1)));
+            }
+            results.forEach(result -> assertTrue(result.join().isConfirmed()));
+
+            final Map<String, Integer> expectedSeats = new HashMap<>();
+            for (long account = VALID_ACCOUNT_ID; account < VALID_ACCOUNT_ID + 300; account++) {
+                expectedSeats.merge(ticketService.shardFor(account).getName(), 1, Integer::sum);
+            }
+            for (final PurchaseShard shard : ticketService.getShards()) {
+                final int taken = 400 - cluster.getScreening(shard.getName()).availableSeats();
+                assertEquals(expectedSeats.get(shard.getName()).intValue(), taken);
+                assertEquals(taken, shard.getPurchaseCount());
+                assertEquals(1, writers.get(shard.getName()).size());
+            }
+        }
+    }
+
+    /**
+     * Success test to verify shards are added and removed while purchases run, without losing a purchase.
+     */
+    @Test
+    public void testRebalanceUnderLoad() throws Exception {
+        final LocalShardCluster cluster = new LocalShardCluster(Mockito.mock(TicketPaymentService.class), 256, 64,
+                64, 50, TimeUnit.MICROSECONDS);
+        try (ShardedTicketService ticketService =
+                     new ShardedTicketService(cluster, 64, 4096, List.of("node-1", "node-2"))) {
+            final List<CompletableFuture<PurchaseResult>> results = new ArrayList<>();
+            final Thread purchaser = new Thread(() -> {
+                for (int i = 0; i < 3_000; i++) {
+                    results.add(ticketService.purchaseTickets(VALID_ACCOUNT_ID + i % 500,
+                            createTicketRequest(Type.ADULT, 1)));
+                }
+            });
+            purchaser.start();
+            ticketService.addShard("node-3");
+            ticketService.addShard("node-4");
+            ticketService.removeShard("node-1");
+            purchaser.join();
+
+            int confirmed = 0;
+            for (final CompletableFuture<PurchaseResult> result : results) {
+                if (result.get(10, TimeUnit.SECONDS).isConfirmed()) {
+                    confirmed++;
+                }
+            }
+            assertEquals(3_000, confirmed);
+            int taken = 0;
+            for (final String node : List.of("node-1", "node-2", "node-3", "node-4")) {
+                taken += 64 * 64 - cluster.getScreening(node).availableSeats();
+            }
+            assertEquals(3_000, taken);
+            assertEquals(3, ticketService.getShards().size());
+        }
+    }
+
+    /**
+     * Failure test to verify the shards of a cluster together sell no more seats than the screening has,
+     * and no shard can be added once every block of the screening is taken.
+     */
+    @Test
+    public void testClusterSellsTheSeatsOfOneScreening() {
+        final LocalShardCluster cluster = new LocalShardCluster(Mockito.mock(TicketPaymentService.class), 4, 10,
+                2, 0, TimeUnit.MILLISECONDS);
+        try (ShardedTicketService ticketService =
+                     new ShardedTicketService(cluster, 64, 1024, List.of("node-1", "node-2"))) {
+            final List<CompletableFuture<PurchaseResult>> results = new ArrayList<>();
+            for (long account = VALID_ACCOUNT_ID; account < VALID_ACCOUNT_ID + 100; account++) {
+                results.add(ticketService.purchaseTickets(account, createTicketRequest(Type.ADULT, 1)));
+            }
+            final long confirmed = results.stream().filter(result -> result.join().isConfirmed()).count();
+
+            assertEquals(40, confirmed);
+            assertEquals(0, cluster.getScreening("node-1").availableSeats());
+            assertEquals(0, cluster.getScreening("node-2").availableSeats());
+            try {
+                ticketService.addShard("node-3");
+                fail("Shard added beyond the seats of the screening");
+            } catch (final IllegalStateException e) {
+                assertEquals(2, ticketService.getShards().size());
+            }
+        }
+    }
+
+    /**
+     * Helper method to create a ticket request.
+     */
+    private TicketTypeRequest createTicketRequest(final Type type, final int noOfTickets) {
+        return new TicketTypeRequest(type, noOfTickets);
+    }
+}
@@ -0,0 +1,93 @@
+package uk.gov.dwp.uc.pairtest.timer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+/**
+ * Tests to verify HierarchicalTimingWheel expires each timeout on its tick across every level.
+ */
+public class HierarchicalTimingWheelTest {
+
+    /**
+     * Success test to verify random timeouts expire on their due tick, through the cascades of every level.
+     */
+    @Test
+    public void testTimeoutsExpireOnTheirTick() {
+        final AtomicLong clock = new AtomicLong();
+        final Map<Long, Long> expiredAt = new HashMap<>();
+        final HierarchicalTimingWheel<Long> wheel = new HierarchicalTimingWheel<>(1, TimeUnit.MILLISECONDS,
+                id -> expiredAt.put(id, TimeUnit.NANOSECONDS.toMillis(clock.get())), clock::get);
+        final Random random = new Random(42);
+        final Map<Long, Long> dueAt = new HashMap<>();
+        for (long id = 0; id < 5_000; id++) {
+            final long delay = 1 + random.nextInt(id % 10 == 0 ? 300_000 : 5_000);
+            wheel.schedule(id, delay, TimeUnit.MILLISECONDS);
+            dueAt.put(id, delay);
+        }
+        assertEquals(5_000, wheel.size());
+
+        for (long tick = 1; tick <= 300_000; tick++) {
+            clock.set(TimeUnit.MILLISECONDS.toNanos(tick));
+            wheel.advance();
+        }
+
+        assertEquals(dueAt, expiredAt);
+        assertEquals(0, wheel.size());
+    }
+
+    /**
+     * Success test to verify a timeout beyond the span of the wheel waits in the top level until it is due.
+     */
+    @Test
+    public void testTimeoutBeyondWheelSpan() {
+        final AtomicLong clock = new AtomicLong();
+        final List<String> expired = new ArrayList<>();
+        final HierarchicalTimingWheel<String> wheel =
+                new HierarchicalTimingWheel<>(1, TimeUnit.NANOSECONDS, expired::add, clock::get);
+        final long delay = (1L << 24) + 1000;
+        wheel.schedule("far", delay, TimeUnit.NANOSECONDS);
+
+        clock.set(delay - 1);
+        wheel.advance();
+        assertTrue(expired.isEmpty());
+
+        clock.set(delay);
+        wheel.advance();
+        assertEquals(List.of("far"), expired);
+    }
+
+    /**
+     * Success test to verify a cancelled timeout never expires and cannot be cancelled twice.
+     */
+    @Test
+    public void testCancel() {
+        final AtomicLong clock = new AtomicLong();
+        final List<String> expired = new ArrayList<>();
+        final HierarchicalTimingWheel<String> wheel =
+                new HierarchicalTimingWheel<>(1, TimeUnit.MILLISECONDS, expired::add, clock::get);
+        final HierarchicalTimingWheel.Timeout<String> first = wheel.schedule("first", 10, TimeUnit.MILLISECONDS);
+        final HierarchicalTimingWheel.Timeout<String> second = wheel.schedule("second", 10, TimeUnit.MILLISECONDS);
+        final HierarchicalTimingWheel.Timeout<String> third = wheel.schedule("third", 10, TimeUnit.MILLISECONDS);
+
+        assertTrue(second.cancel());
+        assertFalse(second.cancel());
+        assertEquals(2, wheel.size());
+
+        clock.set(TimeUnit.MILLISECONDS.toNanos(10));
+        assertEquals(2, wheel.advance());
+        assertTrue(expired.containsAll(List.of("first", "third")));
+        assertFalse(first.cancel());
+        assertFalse(third.cancel());
+    }
+}